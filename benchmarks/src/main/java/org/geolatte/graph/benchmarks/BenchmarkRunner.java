@@ -0,0 +1,57 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph.benchmarks;
+
+import org.openjdk.jmh.Main;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * Entry point of the benchmark jar. Runs JMH with the given command line, and writes the results as JSON to
+ * {@code jmh-result.json} unless another result format or file is given (options {@code -rf} and {@code -rff}), so
+ * that results of successive releases can be compared.
+ * </p>
+ * <p>
+ * Example: {@code java -jar target/benchmarks.jar ShortestPathBenchmark -p nodes=100000}
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> options = Arrays.asList(args);
+        String[] defaults = new String[0];
+        if (!options.contains("-rf") && !options.contains("-rff")) {
+            defaults = new String[]{"-rf", "json", "-rff", "jmh-result.json"};
+        }
+        String[] all = Arrays.copyOf(defaults, defaults.length + args.length);
+        System.arraycopy(args, 0, all, defaults.length, args.length);
+        Main.main(all);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph.benchmarks;
+
+import org.geolatte.graph.GraphBuilder;
+import org.geolatte.graph.LocateableGraph;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Measures building a graph from a synthetic road network (see {@link RoadNetwork}): adding all edges to a builder
+ * and building the graph, including its spatial index.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class GraphBuildBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    public int nodes;
+
+    @Param({"compressed", "grid"})
+    public String graphType;
+
+    @Param({"false", "true"})
+    public boolean contractChains;
+
+    private RoadNetwork network;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        network = RoadNetwork.generate(nodes, 42);
+    }
+
+    @Benchmark
+    public LocateableGraph<RoadNode, String> build() throws Exception {
+        GraphBuilder<RoadNode, String> builder = network.createBuilder("compressed".equals(graphType));
+        builder.setContractChains(contractChains);
+        return network.build(builder);
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph.benchmarks;
+
+import org.geolatte.data.PairNode;
+import org.geolatte.data.PairingHeap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Measures the {@link PairingHeap} operations used by the shortest path algorithms. Every invocation starts from an
+ * empty heap: the insert benchmark inserts all keys, the others insert all keys first and then delete the minimum
+ * until the heap is empty, after decreasing every key once in the decreaseKey benchmark.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HeapBenchmark {
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private Float[] keys;
+    private Float[] decreasedKeys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        keys = new Float[size];
+        decreasedKeys = new Float[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = random.nextFloat() * 1000;
+            decreasedKeys[i] = keys[i] * random.nextFloat();
+        }
+    }
+
+    @Benchmark
+    public PairingHeap<Float> insert() {
+        PairingHeap<Float> heap = new PairingHeap<Float>();
+        for (Float key : keys) {
+            heap.insert(key);
+        }
+        return heap;
+    }
+
+    @Benchmark
+    public float insertDeleteMin() {
+        PairingHeap<Float> heap = insert();
+        float sum = 0;
+        while (!heap.isEmpty()) {
+            sum += heap.deleteMin();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public float decreaseKey() {
+        PairingHeap<Float> heap = new PairingHeap<Float>();
+        PairNode<Float>[] nodes = new PairNode[size];
+        for (int i = 0; i < size; i++) {
+            nodes[i] = heap.insert(keys[i]);
+        }
+        for (int i = 0; i < size; i++) {
+            heap.decreaseKey(nodes[i], decreasedKeys[i]);
+        }
+        float sum = 0;
+        while (!heap.isEmpty()) {
+            sum += heap.deleteMin();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph.benchmarks;
+
+import org.geolatte.graph.InternalNode;
+import org.geolatte.graph.LocateableGraph;
+import org.geolatte.graph.PredGraph;
+import org.geolatte.graph.algorithms.PMinQueue;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Measures the {@link PMinQueue} of the shortest path algorithms, in the pattern of a search: every node is added
+ * with a random distance, half of the nodes get a shorter distance, and all nodes are extracted in order.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PMinQueueBenchmark {
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private Entry[] entries;
+    private float[] keys;
+
+    /**
+     * A minimal predecessor graph that only holds its node and distance.
+     */
+    private static final class Entry implements PredGraph<RoadNode, String> {
+
+        private final InternalNode<RoadNode, String> node;
+        private float weight;
+
+        private Entry(InternalNode<RoadNode, String> node) {
+            this.node = node;
+        }
+
+        public InternalNode<RoadNode, String> getInternalNode() {
+            return node;
+        }
+
+        public PredGraph<RoadNode, String> setPredecessor(PredGraph<RoadNode, String> pred) {
+            return this;
+        }
+
+        public PredGraph<RoadNode, String> setPredecessor(PredGraph<RoadNode, String> pred, int edgeId) {
+            return this;
+        }
+
+        public PredGraph<RoadNode, String> getPredecessor() {
+            return null;
+        }
+
+        public int getPredecessorEdge() {
+            return -1;
+        }
+
+        public void setWeight(float d) {
+            this.weight = d;
+        }
+
+        public float getWeight() {
+            return weight;
+        }
+
+        public InternalNode<RoadNode, String> getFirst() {
+            return node;
+        }
+
+        public Iterator<InternalNode<RoadNode, String>> iterator() {
+            return Collections.singletonList(node).iterator();
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        RoadNetwork network = RoadNetwork.generate(size, 42);
+        LocateableGraph<RoadNode, String> graph = network.build(network.createBuilder(true));
+        Random random = new Random(42);
+        entries = new Entry[graph.getNodeCount()];
+        keys = new float[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            entries[i] = new Entry(graph.getNode(i));
+            keys[i] = random.nextFloat() * 1000;
+        }
+    }
+
+    @Benchmark
+    public float addUpdateExtract() {
+        PMinQueue<RoadNode, String> queue = new PMinQueue<RoadNode, String>() {
+        };
+        for (int i = 0; i < entries.length; i++) {
+            entries[i].setWeight(keys[i]);
+            queue.add(entries[i], keys[i]);
+        }
+        for (int i = 0; i < entries.length; i += 2) {
+            entries[i].setWeight(keys[i] / 2);
+            queue.update(entries[i], keys[i] / 2);
+        }
+        float sum = 0;
+        while (!queue.isEmpty()) {
+            sum += queue.extractMin().getWeight();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph.benchmarks;
+
+import org.geolatte.data.RedBlackTree;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Measures the {@link RedBlackTree}: inserting random keys, looking up every key, and deleting every key. Every
+ * invocation starts from an empty tree.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RedBlackTreeBenchmark {
+
+    private static final Comparator<Integer> COMPARATOR = new Comparator<Integer>() {
+        public int compare(Integer o1, Integer o2) {
+            return o1.compareTo(o2);
+        }
+    };
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private Integer[] keys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        keys = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = random.nextInt();
+        }
+    }
+
+    private RedBlackTree<Integer, Integer> fill() {
+        RedBlackTree<Integer, Integer> tree = new RedBlackTree<Integer, Integer>(COMPARATOR);
+        for (Integer key : keys) {
+            tree.insert(key, key);
+        }
+        return tree;
+    }
+
+    @Benchmark
+    public RedBlackTree<Integer, Integer> insert() {
+        return fill();
+    }
+
+    @Benchmark
+    public long insertGet() {
+        RedBlackTree<Integer, Integer> tree = fill();
+        long sum = 0;
+        for (Integer key : keys) {
+            Integer value = tree.get(key);
+            sum += value == null ? 0 : value;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public boolean insertDelete() {
+        RedBlackTree<Integer, Integer> tree = fill();
+        for (Integer key : keys) {
+            tree.delete(key);
+        }
+        return tree.isEmpty();
+    }
+}
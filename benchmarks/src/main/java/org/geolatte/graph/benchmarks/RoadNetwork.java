@@ -0,0 +1,189 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph.benchmarks;
+
+import org.geolatte.graph.*;
+import org.geolatte.stubs.RoadNetworkGenerator;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * <p>
+ * A synthetic road network, used as benchmark input (see {@link RoadNetworkGenerator}). The generated edges are
+ * recorded, so that graphs can be built from the network repeatedly without generating it again. Edges have a
+ * distance and a travel time weight ({@link RoadNetworkGenerator#SCHEMA}); the benchmarks route on travel time.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public final class RoadNetwork {
+
+    static final int RESOLUTION = 100;
+
+    private final RoadNetworkGenerator generator;
+    private RoadNode[] nodes = new RoadNode[1024];
+    private int nodeCount;
+    private int[] from = new int[1024];
+    private int[] to = new int[1024];
+    private float[] weights = new float[2048];
+    private int edgeCount;
+
+    private RoadNetwork(RoadNetworkGenerator generator) {
+        this.generator = generator;
+    }
+
+    /**
+     * Generates a road network with about the given number of intersections.
+     *
+     * @param nodeCount The number of intersections, rounded up to a square.
+     * @param seed      The seed of the generator.
+     * @return A road network.
+     */
+    public static RoadNetwork generate(int nodeCount, long seed) {
+
+        RoadNetwork network = new RoadNetwork(new RoadNetworkGenerator((int) Math.ceil(Math.sqrt(nodeCount)), seed));
+        network.generator.generate(network.new Recorder(), network.new Recorder());
+        return network;
+    }
+
+    /**
+     * Adds all roads of this network to the given builder and builds the graph.
+     *
+     * @param builder The builder, created by {@link #createBuilder(boolean)}.
+     * @return The graph.
+     * @throws BuilderException If the graph could not be built.
+     */
+    public LocateableGraph<RoadNode, String> build(GraphBuilder<RoadNode, String> builder) throws BuilderException {
+
+        for (int e = 0; e < edgeCount; e++) {
+            builder.addEdge(nodes[from[e]], nodes[to[e]], new ArrayEdgeWeight(new float[]{weights[2 * e], weights[2 * e + 1]}));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Creates a builder for this network.
+     *
+     * @param compressed True for a compressed graph, false for a grid-indexed graph.
+     * @return A builder.
+     */
+    public GraphBuilder<RoadNode, String> createBuilder(boolean compressed) {
+        Extent extent = generator.getExtent();
+        return compressed ? Graphs.<RoadNode, String>createCompressedGraphBuilder(extent, RESOLUTION, RoadNetworkGenerator.SCHEMA)
+                : Graphs.<RoadNode, String>createGridIndexedGraphBuilder(extent, RESOLUTION, RoadNetworkGenerator.SCHEMA);
+    }
+
+    /**
+     * Picks random intersections of the largest strongly connected component of a graph built from this network, e.g.
+     * as the origins and destinations of queries. Intersections that were dropped from the graph, or that lie on an
+     * island, are skipped: queries to islands are answered without a search and would skew the timings.
+     *
+     * @param graph The graph built from this network.
+     * @param count The number of nodes.
+     * @param seed  The seed of the random generator.
+     * @return The nodes.
+     */
+    public RoadNode[] sample(Graph<RoadNode, String> graph, int count, long seed) {
+        StronglyConnectedComponents components = graph.getComponents();
+        int largest = components.getLargestComponent();
+        RoadNode[] candidates = new RoadNode[nodeCount];
+        int candidateCount = 0;
+        for (int i = 0; i < nodeCount; i++) {
+            InternalNode<RoadNode, String> node = nodes[i] == null ? null : graph.getInternalNode(nodes[i]);
+            if (node != null && components.getComponent(node) == largest) {
+                candidates[candidateCount++] = nodes[i];
+            }
+        }
+        Random random = new Random(seed);
+        RoadNode[] sample = new RoadNode[count];
+        for (int i = 0; i < count; i++) {
+            sample[i] = candidates[random.nextInt(candidateCount)];
+        }
+        return sample;
+    }
+
+    /**
+     * @return The factor that converts a straight-line distance into a lower bound of the travel time, for A*.
+     */
+    public float getDistanceToTime() {
+        return 1 / generator.getMaxSpeed();
+    }
+
+    public RoadNode[] getNodes() {
+        return Arrays.copyOf(nodes, nodeCount);
+    }
+
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    public Extent getExtent() {
+        return generator.getExtent();
+    }
+
+    /**
+     * Records the nodes and edges of the generator.
+     */
+    private final class Recorder implements NodeFactory<RoadNode>, GraphBuilder<RoadNode, String> {
+
+        public RoadNode createNode(long id, float x, float y) {
+            if (id >= nodes.length) {
+                nodes = Arrays.copyOf(nodes, (int) Math.max(id + 1, 2L * nodes.length));
+            }
+            nodes[(int) id] = new RoadNode((int) id, x, y);
+            nodeCount = Math.max(nodeCount, (int) id + 1);
+            return nodes[(int) id];
+        }
+
+        public void addEdge(RoadNode fromNode, RoadNode toNode, EdgeWeight edgeWeight) {
+            if (edgeCount == from.length) {
+                from = Arrays.copyOf(from, 2 * edgeCount);
+                to = Arrays.copyOf(to, 2 * edgeCount);
+                weights = Arrays.copyOf(weights, 4 * edgeCount);
+            }
+            from[edgeCount] = fromNode.getId();
+            to[edgeCount] = toNode.getId();
+            weights[2 * edgeCount] = edgeWeight.getValue(RoadNetworkGenerator.DISTANCE);
+            weights[2 * edgeCount + 1] = edgeWeight.getValue(RoadNetworkGenerator.TIME);
+            edgeCount++;
+        }
+
+        public void addEdge(RoadNode fromNode, RoadNode toNode, EdgeWeight edgeWeight, String edgeLabel) {
+            addEdge(fromNode, toNode, edgeWeight);
+        }
+
+        public void setContractChains(boolean contract) {
+        }
+
+        public void setMinComponentSize(int size) {
+        }
+
+        public void setLabelSchema(LabelSchema<String> schema) {
+        }
+
+        public LocateableGraph<RoadNode, String> build() {
+            throw new UnsupportedOperationException("The recorder only collects the generated edges");
+        }
+    }
+}
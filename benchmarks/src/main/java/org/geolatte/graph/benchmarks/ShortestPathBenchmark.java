@@ -0,0 +1,113 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph.benchmarks;
+
+import org.geolatte.graph.GraphTree;
+import org.geolatte.graph.LocateableGraph;
+import org.geolatte.graph.Path;
+import org.geolatte.graph.algorithms.GraphAlgorithm;
+import org.geolatte.graph.algorithms.GraphAlgorithms;
+import org.geolatte.stubs.RoadNetworkGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Measures point-to-point queries with Dijkstra and A*, and distance-limited searches, on synthetic road networks of
+ * 10^4 to 10^7 nodes (see {@link RoadNetwork}). Every invocation runs one query between the next pair of a fixed set
+ * of random nodes. The largest networks need a large heap, e.g. {@code -jvmArgsAppend -Xmx16g}.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class ShortestPathBenchmark {
+
+    private static final int QUERIES = 256;
+
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public int nodes;
+
+    @Param({"compressed", "grid"})
+    public String graphType;
+
+    /**
+     * The search radius of the distance-limited search, in seconds of travel time.
+     */
+    @Param({"300"})
+    public float radius;
+
+    private LocateableGraph<RoadNode, String> graph;
+    private float distanceToTime;
+    private RoadNode[] origins;
+    private RoadNode[] destinations;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        int next() {
+            return next++ & (QUERIES - 1);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        RoadNetwork network = RoadNetwork.generate(nodes, 42);
+        graph = network.build(network.createBuilder("compressed".equals(graphType)));
+        distanceToTime = network.getDistanceToTime();
+        origins = network.sample(graph, QUERIES, 1);
+        destinations = network.sample(graph, QUERIES, 2);
+    }
+
+    @Benchmark
+    public Path<RoadNode> dijkstra(Cursor cursor) {
+        int i = cursor.next();
+        GraphAlgorithm<Path<RoadNode>> algorithm = GraphAlgorithms.createDijkstra(graph, origins[i], destinations[i], RoadNetworkGenerator.TIME);
+        algorithm.execute();
+        return algorithm.getResult();
+    }
+
+    @Benchmark
+    public Path<RoadNode> aStar(Cursor cursor) {
+        int i = cursor.next();
+        GraphAlgorithm<Path<RoadNode>> algorithm = GraphAlgorithms.createAStar(graph, origins[i], destinations[i],
+                RoadNetworkGenerator.TIME, 1f, distanceToTime);
+        algorithm.execute();
+        return algorithm.getResult();
+    }
+
+    @Benchmark
+    public GraphTree<RoadNode, String> distanceLimited(Cursor cursor) {
+        int i = cursor.next();
+        GraphAlgorithm<GraphTree<RoadNode, String>> algorithm = GraphAlgorithms.createBFS(graph, origins[i], radius, RoadNetworkGenerator.TIME);
+        algorithm.execute();
+        return algorithm.getResult();
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph.benchmarks;
+
+import org.geolatte.graph.SpatialIndex;
+import org.geolatte.graph.SpatialIndexBuilder;
+import org.geolatte.graph.SpatialIndexes;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Measures nearest-neighbour queries on the grid index ({@link SpatialIndex#getNClosest}), for the nodes of a
+ * synthetic road network, at random locations.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SpatialIndexBenchmark {
+
+    private static final int QUERIES = 1024;
+
+    @Param({"10000", "1000000"})
+    public int nodes;
+
+    /**
+     * The cell size of the grid, relative to the node spacing.
+     */
+    @Param({"1", "4"})
+    public int cellSize;
+
+    @Param({"1", "10"})
+    public int neighbours;
+
+    private SpatialIndex<RoadNode> index;
+    private RoadNode[] locations;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+
+        int next() {
+            return next++ & (QUERIES - 1);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        RoadNetwork network = RoadNetwork.generate(nodes, 42);
+        SpatialIndexBuilder<RoadNode> builder = SpatialIndexes.createGridIndexBuilder(network.getExtent(),
+                cellSize * RoadNetwork.RESOLUTION);
+        for (RoadNode node : network.getNodes()) {
+            builder.insert(node);
+        }
+        index = builder.build();
+        Random random = new Random(7);
+        locations = new RoadNode[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            locations[i] = new RoadNode(-1, (float) (random.nextDouble() * network.getExtent().getWidth()),
+                    (float) (random.nextDouble() * network.getExtent().getHeight()));
+        }
+    }
+
+    @Benchmark
+    public List<RoadNode> getNClosest(Cursor cursor) {
+        return index.getNClosest(locations[cursor.next()], neighbours, 4 * RoadNetwork.RESOLUTION);
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * <p>
+ * A phase of a graph build: pruning of small components, chain contraction, creation of the graph, or the compaction
+ * of a dynamic graph.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+@Name("org.geolatte.graph.GraphBuildPhase")
+@Label("Graph Build Phase")
+@Category({"GeoLatte", "Graph"})
+@Description("Phase of a graph build")
+class GraphBuildPhaseEvent extends Event {
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Node Count")
+    @Description("Number of nodes that went into the phase")
+    int nodeCount;
+
+    @Label("Edge Count")
+    @Description("Number of edges that went into the phase")
+    int edgeCount;
+}
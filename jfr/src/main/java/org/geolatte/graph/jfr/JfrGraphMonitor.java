@@ -0,0 +1,175 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph.jfr;
+
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import org.geolatte.graph.GraphMonitor;
+
+/**
+ * <p>
+ * A {@link GraphMonitor} that emits the operations of the library as Java Flight Recorder events, in the "GeoLatte"
+ * category:
+ * </p>
+ * <ul>
+ * <li>org.geolatte.graph.RouteQuery</li>
+ * <li>org.geolatte.graph.GraphBuildPhase</li>
+ * <li>org.geolatte.graph.SpatialIndexBuild</li>
+ * <li>org.geolatte.graph.NearestQuery (disabled by default)</li>
+ * <li>org.geolatte.graph.TileLoad</li>
+ * </ul>
+ * <p>
+ * The events are enabled, disabled and filtered with the usual recording settings (e.g. a threshold). When no
+ * recording is running, or an event is disabled, an operation costs no more than a check of the event state.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public final class JfrGraphMonitor extends GraphMonitor {
+
+    private static final JfrGraphMonitor INSTANCE = new JfrGraphMonitor();
+
+    // checked before an event is allocated, so that a disabled event costs no allocation
+    private static final EventType ROUTE_QUERY = EventType.getEventType(RouteQueryEvent.class);
+    private static final EventType GRAPH_BUILD_PHASE = EventType.getEventType(GraphBuildPhaseEvent.class);
+    private static final EventType SPATIAL_INDEX_BUILD = EventType.getEventType(SpatialIndexBuildEvent.class);
+    private static final EventType NEAREST_QUERY = EventType.getEventType(NearestQueryEvent.class);
+    private static final EventType TILE_LOAD = EventType.getEventType(TileLoadEvent.class);
+
+    private JfrGraphMonitor() {
+    }
+
+    /**
+     * Installs the Flight Recorder monitor (see {@link GraphMonitor#install(GraphMonitor)}).
+     */
+    public static void install() {
+        GraphMonitor.install(INSTANCE);
+    }
+
+    /**
+     * Uninstalls the Flight Recorder monitor, if it is installed.
+     */
+    public static void uninstall() {
+        if (GraphMonitor.current() == INSTANCE) {
+            GraphMonitor.install(null);
+        }
+    }
+
+    /**
+     * Begins an event if it is enabled. The event type has been checked before the event was allocated, the event
+     * itself also applies the settings of the recordings.
+     *
+     * @return The event, or null if it is disabled.
+     */
+    private static Event begin(Event event) {
+        if (!event.isEnabled()) {
+            return null;
+        }
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends an event that was begun, and tells whether it passes the threshold of the recording.
+     */
+    private static boolean end(Object token) {
+        if (token == null) {
+            return false;
+        }
+        Event event = (Event) token;
+        event.end();
+        return event.shouldCommit();
+    }
+
+    public Object searchStarted() {
+        return ROUTE_QUERY.isEnabled() ? begin(new RouteQueryEvent()) : null;
+    }
+
+    public void searchFinished(Object token, String algorithm, int weightIndex, boolean found, int settledNodes,
+                               int pathLength) {
+        if (end(token)) {
+            RouteQueryEvent event = (RouteQueryEvent) token;
+            event.algorithm = algorithm;
+            event.weightIndex = weightIndex;
+            event.found = found;
+            event.settledNodes = settledNodes;
+            event.pathLength = pathLength;
+            event.commit();
+        }
+    }
+
+    public Object buildPhaseStarted(String phase) {
+        return GRAPH_BUILD_PHASE.isEnabled() ? begin(new GraphBuildPhaseEvent()) : null;
+    }
+
+    public void buildPhaseFinished(Object token, String phase, int nodeCount, int edgeCount) {
+        if (end(token)) {
+            GraphBuildPhaseEvent event = (GraphBuildPhaseEvent) token;
+            event.phase = phase;
+            event.nodeCount = nodeCount;
+            event.edgeCount = edgeCount;
+            event.commit();
+        }
+    }
+
+    public Object indexBuildStarted() {
+        return SPATIAL_INDEX_BUILD.isEnabled() ? begin(new SpatialIndexBuildEvent()) : null;
+    }
+
+    public void indexBuildFinished(Object token, int nodeCount, int cellCount) {
+        if (end(token)) {
+            SpatialIndexBuildEvent event = (SpatialIndexBuildEvent) token;
+            event.nodeCount = nodeCount;
+            event.cellCount = cellCount;
+            event.commit();
+        }
+    }
+
+    public Object nearestQueryStarted() {
+        return NEAREST_QUERY.isEnabled() ? begin(new NearestQueryEvent()) : null;
+    }
+
+    public void nearestQueryFinished(Object token, int requested, int candidates, int found) {
+        if (end(token)) {
+            NearestQueryEvent event = (NearestQueryEvent) token;
+            event.requested = requested;
+            event.candidates = candidates;
+            event.found = found;
+            event.commit();
+        }
+    }
+
+    public Object tileLoadStarted(int tile) {
+        return TILE_LOAD.isEnabled() ? begin(new TileLoadEvent()) : null;
+    }
+
+    public void tileLoadFinished(Object token, int tile, int nodeCount, int byteCount) {
+        if (end(token)) {
+            TileLoadEvent event = (TileLoadEvent) token;
+            event.tile = tile;
+            event.nodeCount = nodeCount;
+            event.size = byteCount;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph.jfr;
+
+import jdk.jfr.*;
+
+/**
+ * <p>
+ * A route query: an execution of a Dijkstra, A* or BFS algorithm.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+@Name("org.geolatte.graph.RouteQuery")
+@Label("Route Query")
+@Category({"GeoLatte", "Graph"})
+@Description("Execution of a shortest path or distance-limited search")
+class RouteQueryEvent extends Event {
+
+    @Label("Algorithm")
+    String algorithm;
+
+    @Label("Weight Index")
+    int weightIndex;
+
+    @Label("Found")
+    @Description("True if the destination was found")
+    boolean found;
+
+    @Label("Settled Nodes")
+    int settledNodes;
+
+    @Label("Path Length")
+    @Description("Number of nodes on the path, or reached by a search without destination")
+    int pathLength;
+}
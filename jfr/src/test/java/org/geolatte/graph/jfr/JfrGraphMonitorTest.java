@@ -0,0 +1,153 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph.jfr;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.geolatte.graph.*;
+import org.geolatte.graph.algorithms.GraphAlgorithms;
+import org.geolatte.stubs.MyLocatableNode;
+import org.geolatte.stubs.RoadNetworkGenerator;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Tests that the operations of the library are recorded as Flight Recorder events.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public class JfrGraphMonitorTest {
+
+    @After
+    public void tearDown() {
+        JfrGraphMonitor.uninstall();
+    }
+
+    private List<RecordedEvent> record(boolean nearestQueries) throws Exception {
+
+        JfrGraphMonitor.install();
+        Recording recording = new Recording();
+        recording.enable("org.geolatte.graph.RouteQuery");
+        recording.enable("org.geolatte.graph.GraphBuildPhase");
+        recording.enable("org.geolatte.graph.SpatialIndexBuild");
+        if (nearestQueries) {
+            recording.enable("org.geolatte.graph.NearestQuery");
+        }
+        recording.start();
+
+        RoadNetworkGenerator generator = new RoadNetworkGenerator(20, 1);
+        GraphBuilder<MyLocatableNode, String> builder = Graphs.createCompressedGraphBuilder(generator.getExtent(), 100,
+                RoadNetworkGenerator.SCHEMA);
+        builder.setMinComponentSize(10);
+        generator.generate(builder, new NodeFactory<MyLocatableNode>() {
+            public MyLocatableNode createNode(long id, float x, float y) {
+                return new MyLocatableNode((int) id, x, y);
+            }
+        });
+        LocateableGraph<MyLocatableNode, String> graph = builder.build();
+        MyLocatableNode origin = graph.getNode(0).getWrappedNode();
+        GraphAlgorithms.createDijkstra(graph, origin, graph.getNode(graph.getNodeCount() - 1).getWrappedNode(),
+                RoadNetworkGenerator.TIME).execute();
+        graph.getClosestNodes(origin, 3, 1000);
+
+        recording.stop();
+        File file = File.createTempFile("geolatte", ".jfr");
+        try {
+            recording.dump(file.toPath());
+            recording.close();
+            List<RecordedEvent> events = new ArrayList<RecordedEvent>();
+            for (RecordedEvent event : RecordingFile.readAllEvents(file.toPath())) {
+                if (event.getEventType().getName().startsWith("org.geolatte.graph.")) {
+                    events.add(event);
+                }
+            }
+            return events;
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static List<RecordedEvent> ofType(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> result = new ArrayList<RecordedEvent>();
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals("org.geolatte.graph." + name)) {
+                result.add(event);
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testEvents() throws Exception {
+
+        List<RecordedEvent> events = record(true);
+
+        List<RecordedEvent> phases = ofType(events, "GraphBuildPhase");
+        Assert.assertEquals(2, phases.size());
+        Assert.assertEquals("prune", phases.get(0).getString("phase"));
+        Assert.assertEquals("create", phases.get(1).getString("phase"));
+        Assert.assertTrue(phases.get(1).getInt("edgeCount") > 0);
+
+        Assert.assertEquals(1, ofType(events, "SpatialIndexBuild").size());
+
+        List<RecordedEvent> queries = ofType(events, "RouteQuery");
+        Assert.assertEquals(1, queries.size());
+        RecordedEvent query = queries.get(0);
+        Assert.assertEquals("Dijkstra", query.getString("algorithm"));
+        Assert.assertEquals(RoadNetworkGenerator.TIME, query.getInt("weightIndex"));
+        Assert.assertTrue(query.getBoolean("found"));
+        Assert.assertTrue(query.getInt("settledNodes") >= query.getInt("pathLength"));
+        Assert.assertTrue(query.getInt("pathLength") > 1);
+
+        List<RecordedEvent> nearest = ofType(events, "NearestQuery");
+        Assert.assertEquals(1, nearest.size());
+        Assert.assertEquals(3, nearest.get(0).getInt("requested"));
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+
+        List<RecordedEvent> events = record(false);
+        Assert.assertTrue(ofType(events, "NearestQuery").isEmpty());
+        Assert.assertEquals(1, ofType(events, "RouteQuery").size());
+    }
+
+    @Test
+    public void testNoRecording() throws Exception {
+
+        // without a recording, the hooks begin no event
+        JfrGraphMonitor.install();
+        GraphMonitor monitor = GraphMonitor.current();
+        Assert.assertNull(monitor.searchStarted());
+        Assert.assertNull(monitor.nearestQueryStarted());
+        Assert.assertNull(monitor.buildPhaseStarted("create"));
+    }
+}
@@ -50,4 +50,12 @@ public class ArrayEdgeWeight implements EdgeWeight {
 
         return weights[weightIndex];
     }
+
+    /**
+     * @return The number of weights.
+     */
+    public int size() {
+
+        return weights.length;
+    }
 }
@@ -0,0 +1,231 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Collapses chains of degree-2 nodes into single edges. A node is part of a chain when it only connects two other
+ * nodes, either as a one-way link (one incoming edge from one node, one outgoing edge to the other) or as a two-way
+ * link (edges in both directions to both nodes). Such nodes typically only carry the shape of a road.
+ * </p>
+ * <p>
+ * Every chain between two remaining nodes is replaced by one edge per direction. The weights of the new edge are the
+ * sums of the weights of the replaced edges, for every weight kind; its label is the label of the first replaced
+ * edge. The removed nodes are kept, in order, with the new edge so that paths can be expanded again. Chains that
+ * return to the node where they start, and rings that consist of chain nodes only, are left untouched.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+class ChainContraction {
+
+    private ChainContraction() {
+    }
+
+    /**
+     * Contracts the chains in the given edges.
+     *
+     * @param edges The nodes and edges of a graph.
+     * @return The nodes and edges after contraction.
+     */
+    static EdgeList contract(EdgeList edges) {
+
+        int n = edges.nodeCount;
+        int[] from = edges.from;
+        int[] to = edges.to;
+
+        // out and in adjacency (edge indexes) per node
+        int[] outStart = new int[n + 1];
+        int[] inStart = new int[n + 1];
+        for (int e = 0; e < edges.edgeCount; e++) {
+            outStart[from[e] + 1]++;
+            inStart[to[e] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            outStart[i + 1] += outStart[i];
+            inStart[i + 1] += inStart[i];
+        }
+        int[] outEdges = new int[edges.edgeCount];
+        int[] inEdges = new int[edges.edgeCount];
+        int[] outFill = Arrays.copyOf(outStart, n);
+        int[] inFill = Arrays.copyOf(inStart, n);
+        for (int e = 0; e < edges.edgeCount; e++) {
+            outEdges[outFill[from[e]]++] = e;
+            inEdges[inFill[to[e]]++] = e;
+        }
+
+        boolean[] inChain = new boolean[n];
+        for (int v = 0; v < n; v++) {
+            int outDegree = outStart[v + 1] - outStart[v];
+            int inDegree = inStart[v + 1] - inStart[v];
+            if (outDegree == 1 && inDegree == 1) {
+                inChain[v] = from[inEdges[inStart[v]]] != to[outEdges[outStart[v]]];
+            } else if (outDegree == 2 && inDegree == 2) {
+                int a = to[outEdges[outStart[v]]];
+                int b = to[outEdges[outStart[v] + 1]];
+                int c = from[inEdges[inStart[v]]];
+                int d = from[inEdges[inStart[v] + 1]];
+                inChain[v] = a != b && ((a == c && b == d) || (a == d && b == c));
+            }
+        }
+
+        int schemaSize = edges.weights.getSchema().size();
+        Output output = new Output(edges);
+        boolean[] removed = new boolean[n];
+        float[] sum = new float[schemaSize];
+        int[] chain = new int[16];
+
+        // walk the chains that start at the remaining nodes
+        for (int s = 0; s < n; s++) {
+            if (inChain[s]) {
+                continue;
+            }
+            for (int k = outStart[s]; k < outStart[s + 1]; k++) {
+                int e = outEdges[k];
+                if (!inChain[to[e]]) {
+                    output.copy(e);
+                    continue;
+                }
+                int length = 0;
+                for (int i = 0; i < schemaSize; i++) {
+                    sum[i] = edges.weights.getValue(e, i);
+                }
+                int previous = s;
+                int current = to[e];
+                while (inChain[current] && current != s) {
+                    if (length == chain.length) {
+                        chain = Arrays.copyOf(chain, 2 * length);
+                    }
+                    chain[length++] = current;
+                    int next = outEdges[outStart[current]];
+                    if (to[next] == previous) {
+                        next = outEdges[outStart[current] + 1];
+                    }
+                    for (int i = 0; i < schemaSize; i++) {
+                        sum[i] += edges.weights.getValue(next, i);
+                    }
+                    previous = current;
+                    current = to[next];
+                }
+                if (current == s) {
+                    // a loop back to s: keep the original edges
+                    output.copy(e);
+                    continue;
+                }
+                Object[] chainNodes = new Object[length];
+                for (int i = 0; i < length; i++) {
+                    removed[chain[i]] = true;
+                    chainNodes[i] = edges.nodes[chain[i]];
+                }
+                output.add(s, current, sum, edges.labels[e], chainNodes);
+            }
+        }
+
+        // chain nodes that were not removed keep their edges
+        for (int v = 0; v < n; v++) {
+            if (inChain[v] && !removed[v]) {
+                for (int k = outStart[v]; k < outStart[v + 1]; k++) {
+                    output.copy(outEdges[k]);
+                }
+            }
+        }
+        return output.toEdgeList(removed);
+    }
+
+    /**
+     * Collects the edges of the contracted graph.
+     */
+    private static class Output {
+
+        private final EdgeList source;
+        private final EdgeWeightTable weights;
+        private final EdgeListGraphBuilder.RowWeight row;
+        private final ArrayWeight sumWeight;
+        private int[] from = new int[16];
+        private int[] to = new int[16];
+        private Object[] labels = new Object[16];
+        private Object[][] chains = new Object[16][];
+        private int edgeCount = 0;
+
+        private Output(EdgeList source) {
+            this.source = source;
+            this.weights = new EdgeWeightTable(source.weights.getSchema());
+            this.row = new EdgeListGraphBuilder.RowWeight(source.weights);
+            this.sumWeight = new ArrayWeight();
+        }
+
+        private void copy(int e) {
+            row.edgeId = e;
+            append(source.from[e], source.to[e], row, source.labels[e], null);
+        }
+
+        private void add(int s, int t, float[] sum, Object label, Object[] chain) {
+            sumWeight.values = sum;
+            append(s, t, sumWeight, label, chain);
+        }
+
+        private void append(int s, int t, EdgeWeight weight, Object label, Object[] chain) {
+            if (edgeCount == from.length) {
+                int capacity = edgeCount + (edgeCount >> 1) + 1;
+                from = Arrays.copyOf(from, capacity);
+                to = Arrays.copyOf(to, capacity);
+                labels = Arrays.copyOf(labels, capacity);
+                chains = Arrays.copyOf(chains, capacity);
+            }
+            from[edgeCount] = s;
+            to[edgeCount] = t;
+            labels[edgeCount] = label;
+            chains[edgeCount] = chain;
+            weights.add(weight);
+            edgeCount++;
+        }
+
+        private EdgeList toEdgeList(boolean[] removed) {
+            int[] newId = new int[source.nodeCount];
+            Object[] nodes = new Object[source.nodeCount];
+            int nodeCount = 0;
+            for (int v = 0; v < source.nodeCount; v++) {
+                if (!removed[v]) {
+                    newId[v] = nodeCount;
+                    nodes[nodeCount++] = source.nodes[v];
+                }
+            }
+            for (int e = 0; e < edgeCount; e++) {
+                from[e] = newId[from[e]];
+                to[e] = newId[to[e]];
+            }
+            return new EdgeList(nodes, nodeCount, from, to, labels, weights, edgeCount, chains);
+        }
+    }
+
+    private static class ArrayWeight implements EdgeWeight {
+
+        private float[] values;
+
+        public float getValue(int weightIndex) {
+            return values[weightIndex];
+        }
+    }
+}
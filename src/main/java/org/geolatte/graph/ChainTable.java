@@ -0,0 +1,124 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>
+ * Side table that keeps, for every edge that replaces a contracted chain (see {@link ChainContraction}), the domain
+ * nodes of the chain. Only contracted edges take space: their ids are kept in a sorted array, and the nodes of all
+ * chains in one flat array.
+ * </p>
+ *
+ * @param <N> The domain node type.
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+final class ChainTable<N> {
+
+    private static final ChainTable<Object> EMPTY = new ChainTable<Object>(new int[0], new int[]{0}, new Object[0]);
+
+    private final int[] edgeIds;
+    private final int[] offsets;
+    private final Object[] nodes;
+
+    private ChainTable(int[] edgeIds, int[] offsets, Object[] nodes) {
+        this.edgeIds = edgeIds;
+        this.offsets = offsets;
+        this.nodes = nodes;
+    }
+
+    /**
+     * Creates the chain table for the given edges.
+     *
+     * @param edges    The edges, possibly with contracted chains.
+     * @param edgeIdOf The edge id of every edge in the edge list, or null if the edge ids are the positions in the
+     *                 list.
+     * @param <N>      The domain node type.
+     * @return A chain table.
+     */
+    @SuppressWarnings("unchecked")
+    static <N> ChainTable<N> create(EdgeList edges, int[] edgeIdOf) {
+        if (edges.chains == null) {
+            return (ChainTable<N>) EMPTY;
+        }
+        int count = 0;
+        int nodeCount = 0;
+        for (int e = 0; e < edges.edgeCount; e++) {
+            if (edges.chains[e] != null) {
+                count++;
+                nodeCount += edges.chains[e].length;
+            }
+        }
+        long[] packed = new long[count];
+        count = 0;
+        for (int e = 0; e < edges.edgeCount; e++) {
+            if (edges.chains[e] != null) {
+                packed[count++] = (long) (edgeIdOf == null ? e : edgeIdOf[e]) << 32 | e;
+            }
+        }
+        Arrays.sort(packed);
+        int[] edgeIds = new int[count];
+        int[] offsets = new int[count + 1];
+        Object[] nodes = new Object[nodeCount];
+        for (int i = 0; i < count; i++) {
+            edgeIds[i] = (int) (packed[i] >>> 32);
+            Object[] chain = edges.chains[(int) packed[i]];
+            System.arraycopy(chain, 0, nodes, offsets[i], chain.length);
+            offsets[i + 1] = offsets[i] + chain.length;
+        }
+        return new ChainTable<N>(edgeIds, offsets, nodes);
+    }
+
+    /**
+     * Gets the nodes that were contracted into the given edge.
+     *
+     * @param edgeId The edge id.
+     * @return The nodes in order from the start to the end of the edge, an empty list if the edge is not a contracted
+     *         chain.
+     */
+    List<N> get(int edgeId) {
+        int i = Arrays.binarySearch(edgeIds, edgeId);
+        if (i < 0) {
+            return Collections.emptyList();
+        }
+        final int start = offsets[i];
+        final int size = offsets[i + 1] - start;
+        return new AbstractList<N>() {
+            @SuppressWarnings("unchecked")
+            public N get(int index) {
+                if (index < 0 || index >= size) {
+                    throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+                }
+                return (N) nodes[start + index];
+            }
+
+            public int size() {
+                return size;
+            }
+        };
+    }
+}
@@ -0,0 +1,463 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>
+ * A graph that stores its adjacency lists as gap-encoded variable-length integers. Nodes are numbered so that nearby
+ * nodes have nearby ids (see {@link CompressedGraphBuilder}), which keeps the gaps between the ids in an adjacency
+ * list small: most neighbours take a single byte instead of an object reference.
+ * </p>
+ * <p>
+ * For every node, the outgoing list stores the number of edges, the first target id as a (zigzag-encoded) difference
+ * with the node id, and the following target ids as the difference with their predecessor. The outgoing edges of a
+ * node have consecutive edge ids. The incoming list stores, per edge, the source id and the edge id, both gap-encoded
+ * in the same way. The lists of {@value #BLOCK_SIZE} consecutive nodes form a block; only the byte offset of every
+ * block is indexed, the lists within a block are skipped while decoding.
+ * </p>
+ * <p>
+ * Compressed graphs can not be modified once built.
+ * </p>
+ *
+ * @param <N> The domain node type.
+ * @param <E> The edge label type.
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+class CompressedGraph<N extends Locatable, E> implements LocateableGraph<N, E> {
+
+    static final int BLOCK_SHIFT = 4;
+    static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+    private final CompressedNode<N, E>[] nodes;
+    private final byte[] out;
+    private final int[] outBlockOffset;
+    private final int[] blockFirstEdge;
+    private final byte[] in;
+    private final int[] inBlockOffset;
+    private final EdgeLabelTable<E> labels;
+    private final EdgeWeightTable weights;
+    private final ChainTable<N> chains;
+    private SpatialIndex<InternalNode<N, E>> index;
+    private volatile StronglyConnectedComponents components;
+
+    /**
+     * Creates a compressed graph.
+     *
+     * @param domainNodes The domain nodes, indexed by node id.
+     * @param firstEdge   The id of the first outgoing edge of every node, followed by the number of edges.
+     * @param edgeTo      The target node id of every edge. The targets of the edges of a node are sorted.
+     * @param labels      The labels of the edges.
+     * @param weights     The edge weights.
+     * @param chains      The nodes of the contracted chains.
+     */
+    @SuppressWarnings("unchecked")
+    CompressedGraph(Object[] domainNodes, int[] firstEdge, int[] edgeTo, EdgeLabelTable<E> labels, EdgeWeightTable weights,
+                    ChainTable<N> chains) {
+
+        int nodeCount = domainNodes.length;
+        int blockCount = (nodeCount + BLOCK_SIZE - 1) >> BLOCK_SHIFT;
+        this.nodes = (CompressedNode<N, E>[]) new CompressedNode<?, ?>[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            this.nodes[i] = new CompressedNode<N, E>(i, (N) domainNodes[i], this);
+        }
+        this.labels = labels;
+        this.weights = weights;
+        this.chains = chains;
+
+        // outgoing lists
+        this.blockFirstEdge = new int[blockCount];
+        this.outBlockOffset = new int[blockCount];
+        ByteWriter writer = new ByteWriter(edgeTo.length + 2 * nodeCount);
+        for (int i = 0; i < nodeCount; i++) {
+            if ((i & (BLOCK_SIZE - 1)) == 0) {
+                this.blockFirstEdge[i >> BLOCK_SHIFT] = firstEdge[i];
+                this.outBlockOffset[i >> BLOCK_SHIFT] = writer.size;
+            }
+            writer.writeVarInt(firstEdge[i + 1] - firstEdge[i]);
+            int previous = i;
+            for (int e = firstEdge[i]; e < firstEdge[i + 1]; e++) {
+                if (e == firstEdge[i]) {
+                    writer.writeVarInt(zigzag(edgeTo[e] - i));
+                } else {
+                    writer.writeVarInt(edgeTo[e] - previous);
+                }
+                previous = edgeTo[e];
+            }
+        }
+        this.out = writer.toArray();
+
+        // incoming lists: bucket the edges on their target, in edge id order, so sources and edge ids ascend
+        int[] firstIn = new int[nodeCount + 1];
+        for (int e = 0; e < edgeTo.length; e++) {
+            firstIn[edgeTo[e] + 1]++;
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            firstIn[i + 1] += firstIn[i];
+        }
+        int[] fill = Arrays.copyOf(firstIn, nodeCount);
+        int[] inSource = new int[edgeTo.length];
+        int[] inEdge = new int[edgeTo.length];
+        for (int source = 0; source < nodeCount; source++) {
+            for (int e = firstEdge[source]; e < firstEdge[source + 1]; e++) {
+                int slot = fill[edgeTo[e]]++;
+                inSource[slot] = source;
+                inEdge[slot] = e;
+            }
+        }
+        this.inBlockOffset = new int[blockCount];
+        writer = new ByteWriter(2 * edgeTo.length + 2 * nodeCount);
+        for (int i = 0; i < nodeCount; i++) {
+            if ((i & (BLOCK_SIZE - 1)) == 0) {
+                this.inBlockOffset[i >> BLOCK_SHIFT] = writer.size;
+            }
+            writer.writeVarInt(firstIn[i + 1] - firstIn[i]);
+            for (int k = firstIn[i]; k < firstIn[i + 1]; k++) {
+                if (k == firstIn[i]) {
+                    writer.writeVarInt(zigzag(inSource[k] - i));
+                    writer.writeVarInt(zigzag(inEdge[k] - blockFirstEdge[i >> BLOCK_SHIFT]));
+                } else {
+                    writer.writeVarInt(inSource[k] - inSource[k - 1]);
+                    writer.writeVarInt(inEdge[k] - inEdge[k - 1]);
+                }
+            }
+        }
+        this.in = writer.toArray();
+    }
+
+    void setIndex(SpatialIndex<InternalNode<N, E>> index) {
+        this.index = index;
+    }
+
+    public int getNodeCount() {
+        return nodes.length;
+    }
+
+    public CompressedNode<N, E> getNode(int id) {
+        return nodes[id];
+    }
+
+    /**
+     * @return The number of bytes used by the encoded adjacency lists and their block indexes.
+     */
+    long getAdjacencySizeInBytes() {
+        return out.length + in.length + 4L * (outBlockOffset.length + blockFirstEdge.length + inBlockOffset.length);
+    }
+
+    public List<InternalNode<N, E>> getNodesAt(Locatable loc) {
+        return Collections.unmodifiableList(this.index.getNodeAt(loc));
+    }
+
+    public List<InternalNode<N, E>> getClosestNodes(Locatable loc, int num, int distance) {
+        return Collections.unmodifiableList(this.index.getNClosest(loc, num, distance));
+    }
+
+    public InternalNode<N, E> getInternalNode(N node) {
+        for (InternalNode<N, E> nw : this.index.getNodeAt(node)) {
+            if (nw.getWrappedNode().equals(node)) {
+                return nw;
+            }
+        }
+        return null;
+    }
+
+    public Iterator<InternalNode<N, E>> iterator() {
+        return Collections.<InternalNode<N, E>>unmodifiableList(Arrays.<InternalNode<N, E>>asList(nodes)).iterator();
+    }
+
+    public EdgeIterator<N, E> getOutGoingEdges(InternalNode<N, E> internalNode, ContextualReachability<N, E, ?> contextualReachability) {
+        return new OutEdgeIterator(((CompressedNode<N, E>) internalNode).id, contextualReachability);
+    }
+
+    public EdgeIterator<N, E> getInComingEdges(InternalNode<N, E> internalNode, ContextualReachability<N, E, ?> contextualReachability) {
+        return new InEdgeIterator(((CompressedNode<N, E>) internalNode).id, contextualReachability);
+    }
+
+    public EdgeWeightTable getEdgeWeights() {
+        return weights;
+    }
+
+    public EdgeLabelTable<E> getEdgeLabels() {
+        return labels;
+    }
+
+    public List<N> getContractedNodes(int edgeId) {
+        return chains.get(edgeId);
+    }
+
+    public StronglyConnectedComponents getComponents() {
+        StronglyConnectedComponents result = components;
+        if (result == null) {
+            // computed once, queries only read the volatile field
+            synchronized (this) {
+                result = components;
+                if (result == null) {
+                    components = result = StronglyConnectedComponents.analyze(this);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the id of the edge between the given nodes.
+     *
+     * @param fromId The id of the node where the edge starts.
+     * @param toId   The id of the node where the edge ends.
+     * @return The edge id, or -1 if there is no such edge.
+     */
+    int findEdge(int fromId, int toId) {
+        OutEdgeIterator it = new OutEdgeIterator(fromId, null);
+        while (it.hasNext()) {
+            if (it.next().id == toId) {
+                return it.getEdgeId();
+            }
+        }
+        return -1;
+    }
+
+    E getLabel(int edgeId) {
+        return labels.getLabel(edgeId);
+    }
+
+    static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Decodes the lists of a block, from the block offset up to the list of a given node.
+     */
+    private abstract class ListDecoder implements EdgeIterator<N, E> {
+
+        final byte[] data;
+        final ContextualReachability<N, E, ?> contextualReachability;
+        final int nodeId;
+        int position;
+        int remaining;
+        int nextNode = -1;
+        int nextEdge;
+        CompressedNode<N, E> current;
+        int currentEdge;
+
+        ListDecoder(byte[] data, int[] blockOffset, int nodeId, int valuesPerEdge, ContextualReachability<N, E, ?> contextualReachability) {
+            this.data = data;
+            this.nodeId = nodeId;
+            this.contextualReachability = contextualReachability;
+            this.position = blockOffset[nodeId >> BLOCK_SHIFT];
+            int skippedEdges = 0;
+            for (int i = nodeId & ~(BLOCK_SIZE - 1); i < nodeId; i++) {
+                int degree = readVarInt();
+                skippedEdges += degree;
+                for (int k = degree * valuesPerEdge; k > 0; k--) {
+                    while (data[position++] < 0) {
+                        // skip continuation bytes
+                    }
+                }
+            }
+            this.remaining = readVarInt();
+            this.nextEdge = blockFirstEdge[nodeId >> BLOCK_SHIFT] + skippedEdges;
+        }
+
+        final int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                value |= (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+
+        /**
+         * Decodes the next edge into nextNode and nextEdge.
+         *
+         * @param first True for the first edge of the list.
+         */
+        abstract void decode(boolean first);
+
+        final void advance() {
+            while (remaining > 0) {
+                decode(nextNode < 0);
+                remaining--;
+                if (contextualReachability == null || contextualReachability.isReachable(nodes[nextNode])) {
+                    return;
+                }
+            }
+            nextNode = Integer.MIN_VALUE;
+        }
+
+        public boolean hasNext() {
+            return nextNode >= 0;
+        }
+
+        public CompressedNode<N, E> next() {
+            if (nextNode < 0) {
+                throw new NoSuchElementException();
+            }
+            current = nodes[nextNode];
+            currentEdge = nextEdge;
+            advance();
+            return current;
+        }
+
+        public int getEdgeId() {
+            if (current == null) {
+                throw new IllegalStateException("next() has not been called");
+            }
+            return currentEdge;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private final class OutEdgeIterator extends ListDecoder {
+
+        private OutEdgeIterator(int nodeId, ContextualReachability<N, E, ?> contextualReachability) {
+            super(out, outBlockOffset, nodeId, 1, contextualReachability);
+            nextEdge--;
+            advance();
+        }
+
+        void decode(boolean first) {
+            nextNode = first ? nodeId + unzigzag(readVarInt()) : nextNode + readVarInt();
+            nextEdge++;
+        }
+    }
+
+    private final class InEdgeIterator extends ListDecoder {
+
+        private InEdgeIterator(int nodeId, ContextualReachability<N, E, ?> contextualReachability) {
+            super(in, inBlockOffset, nodeId, 2, contextualReachability);
+            advance();
+        }
+
+        void decode(boolean first) {
+            if (first) {
+                nextNode = nodeId + unzigzag(readVarInt());
+                nextEdge = blockFirstEdge[nodeId >> BLOCK_SHIFT] + unzigzag(readVarInt());
+            } else {
+                nextNode += readVarInt();
+                nextEdge += readVarInt();
+            }
+        }
+    }
+
+    /**
+     * Growable byte array for variable-length integers.
+     */
+    private static class ByteWriter {
+
+        private byte[] data;
+        private int size = 0;
+
+        private ByteWriter(int capacity) {
+            this.data = new byte[Math.max(capacity, 16)];
+        }
+
+        private void writeVarInt(int value) {
+            if (size + 5 > data.length) {
+                data = Arrays.copyOf(data, data.length + (data.length >> 1) + 5);
+            }
+            while ((value & ~0x7f) != 0) {
+                data[size++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            data[size++] = (byte) value;
+        }
+
+        private byte[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+
+    /**
+     * A node of a compressed graph, identified by its position in the node ordering of the graph.
+     */
+    static final class CompressedNode<N extends Locatable, E> implements InternalNode<N, E> {
+
+        final int id;
+        private final N wrappedNode;
+        private final CompressedGraph<N, E> graph;
+
+        private CompressedNode(int id, N wrappedNode, CompressedGraph<N, E> graph) {
+            this.id = id;
+            this.wrappedNode = wrappedNode;
+            this.graph = graph;
+        }
+
+        public N getWrappedNode() {
+            return wrappedNode;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public void addEdge(InternalNode<N, E> toNode, EdgeWeight edgeWeight) {
+            throw new UnsupportedOperationException("A compressed graph can not be modified");
+        }
+
+        public void addEdge(InternalNode<N, E> toNode, EdgeWeight edgeWeight, E edgeLabel) {
+            throw new UnsupportedOperationException("A compressed graph can not be modified");
+        }
+
+        public void addReachableFrom(InternalNode<N, E> fromNode, int edgeId) {
+            throw new UnsupportedOperationException("A compressed graph can not be modified");
+        }
+
+        public float getWeightTo(InternalNode<N, E> toNode, int weightIndex) {
+            int edgeId = graph.findEdge(id, ((CompressedNode<N, E>) toNode).id);
+            return edgeId < 0 ? Float.MAX_VALUE : graph.weights.getValue(edgeId, weightIndex);
+        }
+
+        public E getLabelTo(InternalNode<N, E> toNode) {
+            int edgeId = graph.findEdge(id, ((CompressedNode<N, E>) toNode).id);
+            return edgeId < 0 ? null : graph.getLabel(edgeId);
+        }
+
+        public float getX() {
+            return wrappedNode.getX();
+        }
+
+        public float getY() {
+            return wrappedNode.getY();
+        }
+
+        public String toString() {
+            return String.format("CompressedNode %d, wraps: %s", id, wrappedNode);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Builds a {@link CompressedGraph}. When the graph is built, nodes are numbered along a Z-order curve over the
+ * extent, so that nodes that are close to each other get nearby ids, and the edges are renumbered so that the
+ * outgoing edges of every node have consecutive ids.
+ * </p>
+ *
+ * @param <N> The domain node type.
+ * @param <E> The edge label type.
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+class CompressedGraphBuilder<N extends Locatable, E> extends EdgeListGraphBuilder<N, E> {
+
+    CompressedGraphBuilder(Extent extent, int resolution, WeightSchema schema) {
+        super(extent, resolution, schema);
+    }
+
+    LocateableGraph<N, E> createGraph(EdgeList edges) throws BuilderException {
+
+        return createGraph(edges, new int[edges.edgeCount]);
+    }
+
+    /**
+     * Creates the compressed graph for the given edges.
+     *
+     * @param edges    The nodes and edges.
+     * @param edgeIdOf Receives the id in the new graph of every edge, indexed by its position in the edge list.
+     * @return The compressed graph.
+     * @throws BuilderException If the spatial index could not be built.
+     */
+    @SuppressWarnings("unchecked")
+    CompressedGraph<N, E> createGraph(EdgeList edges, int[] edgeIdOf) throws BuilderException {
+
+        int nodeCount = edges.nodeCount;
+        int edgeCount = edges.edgeCount;
+
+        // number the nodes along a Z-order curve
+        int[] newNodeId = spatialOrder(edges);
+        Object[] orderedNodes = new Object[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            orderedNodes[newNodeId[i]] = edges.nodes[i];
+        }
+
+        // bucket the edges on their from node and sort every bucket on the to node, this gives the new edge ids
+        int[] firstEdge = new int[nodeCount + 1];
+        for (int e = 0; e < edgeCount; e++) {
+            firstEdge[newNodeId[edges.from[e]] + 1]++;
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            firstEdge[i + 1] += firstEdge[i];
+        }
+        int[] fill = Arrays.copyOf(firstEdge, nodeCount);
+        long[] packed = new long[edgeCount];
+        for (int e = 0; e < edgeCount; e++) {
+            packed[fill[newNodeId[edges.from[e]]]++] = (long) newNodeId[edges.to[e]] << 31 | e;
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            Arrays.sort(packed, firstEdge[i], firstEdge[i + 1]);
+        }
+
+        int[] edgeTo = new int[edgeCount];
+        EdgeLabelTable<E> edgeLabels = new EdgeLabelTable<E>(labelSchema);
+        EdgeWeightTable orderedWeights = new EdgeWeightTable(edges.weights.getSchema());
+        RowWeight row = new RowWeight(edges.weights);
+        for (int e = 0; e < edgeCount; e++) {
+            int old = (int) (packed[e] & Integer.MAX_VALUE);
+            edgeIdOf[old] = e;
+            edgeTo[e] = newNodeId[edges.to[old]];
+            edgeLabels.add((E) edges.labels[old]);
+            row.edgeId = old;
+            orderedWeights.add(row);
+        }
+        orderedWeights.seal();
+
+        CompressedGraph<N, E> graph = new CompressedGraph<N, E>(orderedNodes, firstEdge, edgeTo, edgeLabels,
+                orderedWeights, ChainTable.<N>create(edges, edgeIdOf));
+        SpatialIndexBuilder<InternalNode<N, E>> indexBuilder = SpatialIndexes.createGridIndexBuilder(extent, resolution);
+        for (int i = 0; i < nodeCount; i++) {
+            indexBuilder.insert(graph.getNode(i));
+        }
+        graph.setIndex(indexBuilder.build());
+        return graph;
+    }
+
+    /**
+     * Computes the new node ids: the rank of every node along a Z-order (Morton) curve over the extent.
+     *
+     * @param edges The nodes and edges.
+     * @return The new id of every node, indexed by its position in the edge list.
+     */
+    private int[] spatialOrder(EdgeList edges) {
+        long[] packed = new long[edges.nodeCount];
+        double scaleX = extent.getWidth() > 0 ? 65535 / extent.getWidth() : 0;
+        double scaleY = extent.getHeight() > 0 ? 65535 / extent.getHeight() : 0;
+        for (int i = 0; i < edges.nodeCount; i++) {
+            Locatable node = (Locatable) edges.nodes[i];
+            int x = (int) ((node.getX() - extent.getMinX()) * scaleX);
+            int y = (int) ((node.getY() - extent.getMinY()) * scaleY);
+            long morton = interleave(x) << 1 | interleave(y);
+            packed[i] = morton << 31 | i;
+        }
+        Arrays.sort(packed);
+        int[] newIds = new int[edges.nodeCount];
+        for (int rank = 0; rank < edges.nodeCount; rank++) {
+            newIds[(int) (packed[rank] & Integer.MAX_VALUE)] = rank;
+        }
+        return newIds;
+    }
+
+    private static long interleave(int value) {
+        long v = value & 0xffffL;
+        v = (v | (v << 8)) & 0x00ff00ffL;
+        v = (v | (v << 4)) & 0x0f0f0f0fL;
+        v = (v | (v << 2)) & 0x33333333L;
+        v = (v | (v << 1)) & 0x55555555L;
+        return v;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * A graph that can be changed after it has been built: edges can be added and removed, and nodes can be disabled
+ * (e.g. for road closures). Changes are kept in an overlay on top of a compact base graph, and are merged into a new
+ * base graph by {@link #compact()}, either on request or periodically in the background.
+ * </p>
+ * <p>
+ * All methods can be called concurrently. Every change is published atomically; readers never block. Since every
+ * call of a graph method sees the latest changes, graph algorithms should be run on a {@link #snapshot()} when they
+ * need a consistent view of the graph for the duration of a query.
+ * </p>
+ * <p>
+ * The strongly connected components (see {@link #getComponents()}) are kept when edges are removed or nodes are
+ * disabled, since that can only split components. They may then group nodes that can no longer reach each other, which
+ * suits their use as a filter of unreachable destinations. They are computed again after edges are added, nodes are
+ * enabled or the graph is compacted.
+ * </p>
+ * <p>
+ * Node ids, edge ids and {@link InternalNode} instances are valid until the next compaction, which renumbers nodes and
+ * edges and creates a new weight table (see {@link #getEdgeWeights()}). Domain nodes remain the way to identify nodes
+ * across compactions. Code that keeps ids can detect a compaction with {@link #getCompactionCount()}; the indices
+ * built on a graph, such as arc-flags, contraction hierarchies, time-dependent weights and network Voronoi diagrams,
+ * refuse to work on a compacted graph and must be rebuilt.
+ * </p>
+ *
+ * @param <N> The domain node type.
+ * @param <E> The edge label type.
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public interface DynamicGraph<N, E> extends LocateableGraph<N, E> {
+
+    /**
+     * Adds a directed edge without label between the given nodes. Nodes that are not yet part of the graph are added.
+     *
+     * @param fromNode   The node from which the edge starts.
+     * @param toNode     The destination node for the edge.
+     * @param edgeWeight The weight.
+     */
+    public void addEdge(N fromNode, N toNode, EdgeWeight edgeWeight);
+
+    /**
+     * Adds a directed edge with the given label between the given nodes. Nodes that are not yet part of the graph are
+     * added.
+     *
+     * @param fromNode   The node from which the edge starts.
+     * @param toNode     The destination node for the edge.
+     * @param edgeWeight The weight.
+     * @param edgeLabel  The label object that will be associated with the edge.
+     */
+    public void addEdge(N fromNode, N toNode, EdgeWeight edgeWeight, E edgeLabel);
+
+    /**
+     * Removes the directed edges from the given node to the given node.
+     *
+     * @param fromNode The node from which the edges start.
+     * @param toNode   The destination node of the edges.
+     * @return True if an edge was removed.
+     */
+    public boolean removeEdge(N fromNode, N toNode);
+
+    /**
+     * Disables the given node: its incoming and outgoing edges can no longer be traversed. The node and its edges
+     * remain part of the graph, also after compaction, until the node is enabled again.
+     *
+     * @param node The node to disable.
+     * @return True if the node was enabled before.
+     */
+    public boolean disableNode(N node);
+
+    /**
+     * Enables a node that was disabled by {@link #disableNode(Object)}.
+     *
+     * @param node The node to enable.
+     * @return True if the node was disabled before.
+     */
+    public boolean enableNode(N node);
+
+    /**
+     * Gets the number of changes that are kept in the overlay: the number of added and removed edges since the last
+     * compaction.
+     *
+     * @return The size of the overlay.
+     */
+    public int getOverlaySize();
+
+    /**
+     * Gets the number of compactions that rebuilt the base graph. Node ids and edge ids obtained from this graph are
+     * valid as long as the count does not change.
+     *
+     * @return The compaction count, 0 for a graph that was never compacted.
+     */
+    public long getCompactionCount();
+
+    /**
+     * Gets an immutable view of the current state of this graph, that is not affected by later changes.
+     *
+     * @return A snapshot of this graph.
+     */
+    public LocateableGraph<N, E> snapshot();
+
+    /**
+     * Merges the overlay into a new base graph. Changes made while the compaction is running wait for it to finish;
+     * readers are not blocked, and see the new base graph once it is complete. Weight updates made on the weight table
+     * of the old base graph while the compaction is running are carried over to the new weight table; once the
+     * compaction is complete, the old weight table refuses updates with an {@link IllegalStateException}.
+     */
+    public void compact();
+
+    /**
+     * Starts compacting this graph in a background thread, at the given interval, whenever the overlay is not empty.
+     *
+     * @param interval The time between two compactions.
+     * @param unit     The unit of the interval.
+     */
+    public void startBackgroundCompaction(long interval, TimeUnit unit);
+
+    /**
+     * Stops the background compaction started by {@link #startBackgroundCompaction(long, TimeUnit)}.
+     */
+    public void stopBackgroundCompaction();
+}
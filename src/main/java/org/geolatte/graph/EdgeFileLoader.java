@@ -0,0 +1,686 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.*;
+
+/**
+ * <p>
+ * Loads the edges of a graph from a file into a {@link GraphBuilder}. Every record of the file describes one directed
+ * edge: the id and coordinates of the from node, the id and coordinates of the to node, and a fixed number of weights:
+ * </p>
+ * <pre>
+ * fromId, fromX, fromY, toId, toX, toY, weight0, ..., weightN
+ * </pre>
+ * <p>
+ * Two file formats are supported: delimited text with one record per line (see {@link #text(NodeFactory, char, int)}),
+ * and binary records in the big-endian layout written by {@link java.io.DataOutput} (ids as longs, coordinates and
+ * weights as floats, see {@link #binary(NodeFactory, int)}).
+ * </p>
+ * <p>
+ * The file is read in chunks through a {@link FileChannel} by a reader thread, and the chunks are parsed in parallel
+ * by a pool of parser threads. Numbers are parsed directly from the bytes, without creating strings. Parsed chunks
+ * are handed to the builder in file order, on the thread that called {@link #load(File, GraphBuilder)}, so the
+ * builder does not need to be thread-safe and edge ids follow the order of the file. The queue of chunks between the
+ * reader and the builder is bounded: when the builder falls behind, the reader waits. Nodes are interned by id, and
+ * are only created (by the {@link NodeFactory}) for the first edge that refers to them; the coordinates of later
+ * records for the same node are ignored.
+ * </p>
+ * <p>
+ * The {@link EdgeWeight} passed to the builder is reused for every edge; the builders of this library copy the
+ * weights when an edge is added.
+ * </p>
+ *
+ * @param <N> The domain node type.
+ * @param <E> The edge label type.
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public final class EdgeFileLoader<N, E> {
+
+    private final NodeFactory<N> nodeFactory;
+    private final boolean binary;
+    private final byte delimiter;
+    private final int weightCount;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int chunkSize = 1 << 20;
+    private int queueCapacity = 16;
+    private boolean skipHeader = false;
+
+    private EdgeFileLoader(NodeFactory<N> nodeFactory, boolean binary, char delimiter, int weightCount) {
+        if (weightCount < 1) {
+            throw new IllegalArgumentException("Every edge must have at least one weight");
+        }
+        if (delimiter > 127) {
+            throw new IllegalArgumentException("The delimiter must be an ASCII character");
+        }
+        this.nodeFactory = nodeFactory;
+        this.binary = binary;
+        this.delimiter = (byte) delimiter;
+        this.weightCount = weightCount;
+    }
+
+    /**
+     * Creates a loader for delimited text files, e.g. comma separated values. Fields may be surrounded by spaces or
+     * tabs; lines may end with "\n" or "\r\n". Empty lines are skipped.
+     *
+     * @param nodeFactory Creates the domain nodes.
+     * @param delimiter   The character that separates the fields of a record.
+     * @param weightCount The number of weights of every edge.
+     * @param <N>         The domain node type.
+     * @param <E>         The edge label type.
+     * @return A loader.
+     */
+    public static <N, E> EdgeFileLoader<N, E> text(NodeFactory<N> nodeFactory, char delimiter, int weightCount) {
+        return new EdgeFileLoader<N, E>(nodeFactory, false, delimiter, weightCount);
+    }
+
+    /**
+     * Creates a loader for binary files.
+     *
+     * @param nodeFactory Creates the domain nodes.
+     * @param weightCount The number of weights of every edge.
+     * @param <N>         The domain node type.
+     * @param <E>         The edge label type.
+     * @return A loader.
+     */
+    public static <N, E> EdgeFileLoader<N, E> binary(NodeFactory<N> nodeFactory, int weightCount) {
+        return new EdgeFileLoader<N, E>(nodeFactory, true, ',', weightCount);
+    }
+
+    /**
+     * Sets the number of parser threads. Defaults to the number of processors.
+     *
+     * @param threads The number of threads.
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one parser thread is needed");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Sets the number of bytes that are read and parsed at once. Defaults to 1MB. Lines that are longer than a chunk
+     * are supported, but make the chunk grow.
+     *
+     * @param chunkSize The chunk size in bytes.
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize < 64) {
+            throw new IllegalArgumentException("Chunk size must be at least 64 bytes");
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Sets the maximum number of chunks that are read or parsed, but not yet added to the builder. Defaults to 16.
+     *
+     * @param capacity The capacity of the queue.
+     */
+    public void setQueueCapacity(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Queue capacity must be at least 1");
+        }
+        this.queueCapacity = capacity;
+    }
+
+    /**
+     * Sets whether the first line of a text file is a header that must be skipped. Disabled by default.
+     *
+     * @param skipHeader True to skip the first line.
+     */
+    public void setSkipHeader(boolean skipHeader) {
+        this.skipHeader = skipHeader;
+    }
+
+    /**
+     * Loads all edges of the given file into the given builder.
+     *
+     * @param file    The file.
+     * @param builder The builder.
+     * @return The number of edges that were read.
+     * @throws IOException              If the file can not be read.
+     * @throws IllegalArgumentException If a record can not be parsed.
+     */
+    public long load(File file, GraphBuilder<N, E> builder) throws IOException {
+
+        final RandomAccessFile input = new RandomAccessFile(file, "r");
+        final BlockingQueue<Future<Batch>> queue = new ArrayBlockingQueue<Future<Batch>>(queueCapacity);
+        final ExecutorService parsers = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "edge-file-parser");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        final Throwable[] readFailure = new Throwable[1];
+        Thread reader = new Thread("edge-file-reader") {
+            public void run() {
+                try {
+                    read(input.getChannel(), parsers, queue);
+                } catch (InterruptedException e) {
+                    return; // the load was aborted
+                } catch (Throwable e) {
+                    readFailure[0] = e; // rethrown by the loading thread once it reaches the end marker
+                }
+                FutureTask<Batch> end = new FutureTask<Batch>(new Callable<Batch>() {
+                    public Batch call() {
+                        return null;
+                    }
+                });
+                end.run();
+                try {
+                    queue.put(end);
+                } catch (InterruptedException e) {
+                    // the load was aborted
+                }
+            }
+        };
+        reader.setDaemon(true);
+        reader.start();
+
+        long edgeCount = 0;
+        try {
+            Feeder feeder = new Feeder(builder);
+            while (true) {
+                Batch batch = queue.take().get();
+                if (batch == null) {
+                    break; // the end of the file
+                }
+                feeder.add(batch);
+                edgeCount += batch.count;
+            }
+            reader.join();
+            Throwable failure = readFailure[0];
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            } else if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            } else if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Loading was interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            reader.interrupt();
+            parsers.shutdownNow();
+            input.close();
+        }
+        return edgeCount;
+    }
+
+    /**
+     * Reads the file in chunks that end at a record boundary, and submits them to the parsers.
+     */
+    private void read(FileChannel channel, ExecutorService parsers, BlockingQueue<Future<Batch>> queue)
+            throws IOException, InterruptedException {
+
+        int recordSize = 8 + 4 + 4 + 8 + 4 + 4 + 4 * weightCount;
+        long position = 0;
+        long size = channel.size();
+        byte[] carry = new byte[0]; // the start of a record that did not fit in the previous chunk
+        boolean header = skipHeader && !binary;
+        while (position < size || carry.length > 0) {
+            int capacity = Math.max(chunkSize, carry.length * 2);
+            ByteBuffer buffer = ByteBuffer.allocate(capacity);
+            buffer.put(carry);
+            while (buffer.hasRemaining() && position < size) {
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                position += read;
+            }
+            byte[] bytes = buffer.array();
+            int length = buffer.position();
+            boolean last = position >= size;
+            int start = 0;
+            int end;
+            if (binary) {
+                end = last ? length : length - length % recordSize;
+            } else {
+                end = last ? length : lastIndexOf(bytes, length, (byte) '\n') + 1;
+                if (header && end > 0) {
+                    start = indexOf(bytes, end, (byte) '\n') + 1;
+                    if (start == 0) {
+                        start = end; // the file only has a header
+                    }
+                    header = false;
+                }
+            }
+            if (end <= 0 && !last) {
+                carry = Arrays.copyOf(bytes, length); // a record that is longer than the chunk: read more
+                continue;
+            }
+            carry = Arrays.copyOfRange(bytes, end, length);
+            final Chunk chunk = new Chunk(position - length + start, bytes, start, end);
+            queue.put(parsers.submit(new Callable<Batch>() {
+                public Batch call() {
+                    return binary ? parseBinary(chunk) : parseText(chunk);
+                }
+            }));
+            if (last) {
+                break;
+            }
+        }
+    }
+
+    private static int indexOf(byte[] bytes, int length, byte value) {
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int lastIndexOf(byte[] bytes, int length, byte value) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (bytes[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Parsing
+
+    private Batch parseBinary(Chunk chunk) {
+
+        int recordSize = 8 + 4 + 4 + 8 + 4 + 4 + 4 * weightCount;
+        int length = chunk.end - chunk.start;
+        if (length % recordSize != 0) {
+            throw new IllegalArgumentException("Incomplete edge record at byte offset " + (chunk.offset + length - length % recordSize));
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(chunk.bytes, chunk.start, length);
+        Batch batch = new Batch(length / recordSize, weightCount);
+        while (buffer.hasRemaining()) {
+            int i = batch.count++;
+            batch.fromIds[i] = buffer.getLong();
+            batch.coordinates[4 * i] = buffer.getFloat();
+            batch.coordinates[4 * i + 1] = buffer.getFloat();
+            batch.toIds[i] = buffer.getLong();
+            batch.coordinates[4 * i + 2] = buffer.getFloat();
+            batch.coordinates[4 * i + 3] = buffer.getFloat();
+            for (int k = 0; k < weightCount; k++) {
+                batch.weights[i * weightCount + k] = buffer.getFloat();
+            }
+        }
+        return batch;
+    }
+
+    private Batch parseText(Chunk chunk) {
+
+        TextParser parser = new TextParser(chunk, delimiter);
+        Batch batch = new Batch(Math.max(16, (chunk.end - chunk.start) / 32), weightCount);
+        while (parser.nextLine()) {
+            int i = batch.count;
+            batch.ensureCapacity(i + 1);
+            batch.fromIds[i] = parser.readLong();
+            batch.coordinates[4 * i] = parser.readFloat();
+            batch.coordinates[4 * i + 1] = parser.readFloat();
+            batch.toIds[i] = parser.readLong();
+            batch.coordinates[4 * i + 2] = parser.readFloat();
+            batch.coordinates[4 * i + 3] = parser.readFloat();
+            for (int k = 0; k < weightCount; k++) {
+                batch.weights[i * weightCount + k] = parser.readFloat();
+            }
+            parser.endLine();
+            batch.count++;
+        }
+        return batch;
+    }
+
+    /**
+     * Parses the fields of delimited text lines, directly from the bytes.
+     */
+    private static final class TextParser {
+
+        private static final double[] POWERS_OF_TEN = new double[23];
+
+        static {
+            POWERS_OF_TEN[0] = 1;
+            for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+                POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+            }
+        }
+
+        private final Chunk chunk;
+        private final byte[] bytes;
+        private final byte delimiter;
+        private int position;
+        private int lineStart;
+        private int fields;
+
+        private TextParser(Chunk chunk, byte delimiter) {
+            this.chunk = chunk;
+            this.bytes = chunk.bytes;
+            this.delimiter = delimiter;
+            this.position = chunk.start;
+        }
+
+        /**
+         * Moves to the start of the next non-empty line.
+         *
+         * @return False if there are no more lines.
+         */
+        private boolean nextLine() {
+            while (position < chunk.end && (bytes[position] == '\n' || bytes[position] == '\r')) {
+                position++;
+            }
+            lineStart = position;
+            fields = 0;
+            return position < chunk.end;
+        }
+
+        private void endLine() {
+            skipBlanks();
+            if (position < chunk.end && bytes[position] == '\r') {
+                position++;
+            }
+            if (position < chunk.end && bytes[position] != '\n') {
+                throw error("Too many fields");
+            }
+        }
+
+        private void skipBlanks() {
+            while (position < chunk.end && (bytes[position] == ' ' || bytes[position] == '\t')) {
+                position++;
+            }
+        }
+
+        /**
+         * Moves past the delimiter that precedes every field but the first.
+         */
+        private void startField() {
+            skipBlanks();
+            if (fields++ > 0) {
+                if (position >= chunk.end || bytes[position] != delimiter) {
+                    throw error("Missing field " + fields);
+                }
+                position++;
+                skipBlanks();
+            }
+        }
+
+        private long readLong() {
+            startField();
+            boolean negative = false;
+            if (position < chunk.end && (bytes[position] == '-' || bytes[position] == '+')) {
+                negative = bytes[position++] == '-';
+            }
+            int first = position;
+            long value = 0;
+            while (position < chunk.end && bytes[position] >= '0' && bytes[position] <= '9') {
+                value = value * 10 + (bytes[position++] - '0');
+            }
+            if (position == first || position - first > 18) {
+                throw error("Invalid id in field " + fields);
+            }
+            return negative ? -value : value;
+        }
+
+        private float readFloat() {
+            startField();
+            boolean negative = false;
+            if (position < chunk.end && (bytes[position] == '-' || bytes[position] == '+')) {
+                negative = bytes[position++] == '-';
+            }
+            long mantissa = 0;
+            int exponent = 0;
+            int digits = 0;
+            boolean fraction = false;
+            while (position < chunk.end) {
+                byte b = bytes[position];
+                if (b >= '0' && b <= '9') {
+                    if (mantissa < 100000000000000000L) {
+                        mantissa = mantissa * 10 + (b - '0');
+                        if (fraction) {
+                            exponent--;
+                        }
+                    } else if (!fraction) {
+                        exponent++; // digits beyond the precision of a long
+                    }
+                    digits++;
+                } else if (b == '.' && !fraction) {
+                    fraction = true;
+                } else {
+                    break;
+                }
+                position++;
+            }
+            if (digits == 0) {
+                throw error("Invalid number in field " + fields);
+            }
+            if (position < chunk.end && (bytes[position] == 'e' || bytes[position] == 'E')) {
+                position++;
+                boolean negativeExponent = false;
+                if (position < chunk.end && (bytes[position] == '-' || bytes[position] == '+')) {
+                    negativeExponent = bytes[position++] == '-';
+                }
+                int value = 0;
+                int first = position;
+                while (position < chunk.end && bytes[position] >= '0' && bytes[position] <= '9' && value < 1000) {
+                    value = value * 10 + (bytes[position++] - '0');
+                }
+                if (position == first) {
+                    throw error("Invalid exponent in field " + fields);
+                }
+                exponent += negativeExponent ? -value : value;
+            }
+            double result = mantissa;
+            if (exponent > 0) {
+                result = exponent < POWERS_OF_TEN.length ? result * POWERS_OF_TEN[exponent] : result * Math.pow(10, exponent);
+            } else if (exponent < 0) {
+                result = -exponent < POWERS_OF_TEN.length ? result / POWERS_OF_TEN[-exponent] : result / Math.pow(10, -exponent);
+            }
+            return (float) (negative ? -result : result);
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " in edge record at byte offset "
+                    + (chunk.offset + lineStart - chunk.start));
+        }
+    }
+
+    // Feeding the builder
+
+    /**
+     * Adds parsed batches to the builder, interning the nodes by id.
+     */
+    private final class Feeder {
+
+        private final GraphBuilder<N, E> builder;
+        private final LongIntMap ids = new LongIntMap();
+        private Object[] nodes = new Object[1024];
+        private final BatchWeight weight = new BatchWeight(weightCount);
+
+        private Feeder(GraphBuilder<N, E> builder) {
+            this.builder = builder;
+        }
+
+        @SuppressWarnings("unchecked")
+        private N intern(long id, float x, float y) {
+            int index = ids.get(id);
+            if (index < 0) {
+                index = ids.size();
+                ids.put(id, index);
+                if (index == nodes.length) {
+                    nodes = Arrays.copyOf(nodes, 2 * index);
+                }
+                nodes[index] = nodeFactory.createNode(id, x, y);
+            }
+            return (N) nodes[index];
+        }
+
+        private void add(Batch batch) {
+            weight.values = batch.weights;
+            for (int i = 0; i < batch.count; i++) {
+                N from = intern(batch.fromIds[i], batch.coordinates[4 * i], batch.coordinates[4 * i + 1]);
+                N to = intern(batch.toIds[i], batch.coordinates[4 * i + 2], batch.coordinates[4 * i + 3]);
+                weight.offset = i * weightCount;
+                builder.addEdge(from, to, weight);
+            }
+        }
+    }
+
+    private static final class BatchWeight implements EdgeWeight {
+
+        private final int weightCount;
+        private float[] values;
+        private int offset;
+
+        private BatchWeight(int weightCount) {
+            this.weightCount = weightCount;
+        }
+
+        public float getValue(int weightIndex) {
+            if (weightIndex < 0 || weightIndex >= weightCount) {
+                // the batch array holds the weights of the next edges beyond this edge's own
+                throw new IndexOutOfBoundsException("Invalid weight index: " + weightIndex
+                        + ", the file holds " + weightCount + " weights per edge");
+            }
+            return values[offset + weightIndex];
+        }
+    }
+
+    /**
+     * A range of bytes of the file, that starts and ends at a record boundary.
+     */
+    private static final class Chunk {
+
+        private final long offset;
+        private final byte[] bytes;
+        private final int start;
+        private final int end;
+
+        private Chunk(long offset, byte[] bytes, int start, int end) {
+            this.offset = offset;
+            this.bytes = bytes;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * The parsed records of a chunk.
+     */
+    private static final class Batch {
+
+        private final int weightCount;
+        private long[] fromIds;
+        private long[] toIds;
+        private float[] coordinates; // fromX, fromY, toX, toY per record
+        private float[] weights;
+        private int count;
+
+        private Batch(int capacity, int weightCount) {
+            this.weightCount = weightCount;
+            this.fromIds = new long[capacity];
+            this.toIds = new long[capacity];
+            this.coordinates = new float[4 * capacity];
+            this.weights = new float[weightCount * capacity];
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > fromIds.length) {
+                int newCapacity = Math.max(capacity, 2 * fromIds.length);
+                fromIds = Arrays.copyOf(fromIds, newCapacity);
+                toIds = Arrays.copyOf(toIds, newCapacity);
+                coordinates = Arrays.copyOf(coordinates, 4 * newCapacity);
+                weights = Arrays.copyOf(weights, weightCount * newCapacity);
+            }
+        }
+    }
+
+    /**
+     * Open addressing hash map from long keys to non-negative int values, without boxing.
+     */
+    private static final class LongIntMap {
+
+        private long[] keys = new long[1024];
+        private int[] values = new int[1024];
+        private boolean[] used = new boolean[1024];
+        private int size = 0;
+
+        private int slot(long key, int length) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32)) & (length - 1);
+        }
+
+        private int get(long key) {
+            int i = slot(key, keys.length);
+            while (used[i]) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+                i = (i + 1) & (keys.length - 1);
+            }
+            return -1;
+        }
+
+        private void put(long key, int value) {
+            if (2 * (size + 1) > keys.length) {
+                long[] oldKeys = keys;
+                int[] oldValues = values;
+                boolean[] oldUsed = used;
+                keys = new long[2 * oldKeys.length];
+                values = new int[keys.length];
+                used = new boolean[keys.length];
+                for (int i = 0; i < oldKeys.length; i++) {
+                    if (oldUsed[i]) {
+                        insert(oldKeys[i], oldValues[i]);
+                    }
+                }
+            }
+            insert(key, value);
+            size++;
+        }
+
+        private void insert(long key, int value) {
+            int i = slot(key, keys.length);
+            while (used[i]) {
+                i = (i + 1) & (keys.length - 1);
+            }
+            keys[i] = key;
+            values[i] = value;
+            used[i] = true;
+        }
+
+        private int size() {
+            return size;
+        }
+    }
+}
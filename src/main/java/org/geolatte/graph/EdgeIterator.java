@@ -0,0 +1,47 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph;
+
+import java.util.Iterator;
+
+/**
+ * <p>
+ * Iterates over the edges that connect a node to its neighbours. {@link #next()} returns the neighbouring node,
+ * {@link #getEdgeId()} the id of the edge that leads to (or comes from) that node. The edge id can be used to read the
+ * edge weights from the {@link EdgeWeightTable} of the graph.
+ * </p>
+ *
+ * @param <N> The domain node type.
+ * @param <E> The edge label type.
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public interface EdgeIterator<N, E> extends Iterator<InternalNode<N, E>> {
+
+    /**
+     * Gets the id of the edge to the node that was returned by the last call to {@link #next()}.
+     *
+     * @return An edge id.
+     * @throws IllegalStateException When {@link #next()} has not been called yet.
+     */
+    int getEdgeId();
+}
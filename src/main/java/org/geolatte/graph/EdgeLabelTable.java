@@ -0,0 +1,253 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * Stores the labels of all edges of a graph. Labels are interned: equal labels are stored once in a table of distinct
+ * labels, and every edge only holds the int index of its label in that table. Labels are resolved by edge id (see
+ * {@link EdgeIterator#getEdgeId()}).
+ * </p>
+ * <p>
+ * Next to the labels, the table can hold typed attribute columns that are derived from the labels, e.g. the way id or
+ * the road class of a road segment (see {@link LabelSchema}). The values of a column are stored in a primitive array
+ * per distinct label, so they can be read for a path without touching the label objects.
+ * </p>
+ * <p>
+ * Edges are added while the graph is built, or when an edge is added to a {@link DynamicGraph}. Reading the table is
+ * thread-safe.
+ * </p>
+ *
+ * @param <E> The edge label type.
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public final class EdgeLabelTable<E> {
+
+    private static final int NO_LABEL = -1;
+
+    private final LabelSchema<E> schema;
+    private final Map<Object, Integer> distinct = new HashMap<Object, Integer>();
+    private volatile Object[] labels = new Object[16];
+    private volatile Object[] columns; // per column an int[] or a byte[] with the value of every distinct label
+    private volatile int[] edgeLabels = new int[16];
+    private volatile int labelCount = 0;
+    private volatile int edgeCount = 0;
+
+    /**
+     * Creates an empty label table.
+     *
+     * @param schema The attribute columns of the table.
+     */
+    EdgeLabelTable(LabelSchema<E> schema) {
+        this.schema = schema;
+        this.columns = new Object[schema.size()];
+        for (int c = 0; c < schema.size(); c++) {
+            columns[c] = schema.isByteColumn(c) ? new byte[16] : new int[16];
+        }
+    }
+
+    /**
+     * Adds an edge with the given label.
+     *
+     * @param label The label of the edge, or null if the edge has no label.
+     * @return The edge id.
+     * @throws IllegalArgumentException When the value of a byte column is out of range.
+     */
+    synchronized int add(E label) {
+        return addEdge(label == null ? NO_LABEL : intern(label));
+    }
+
+    /**
+     * Adds an edge with the label of the given index in the table of distinct labels.
+     *
+     * @param labelIndex The label index, or -1 if the edge has no label.
+     * @return The edge id.
+     */
+    synchronized int addEdge(int labelIndex) {
+        if (labelIndex >= labelCount) {
+            throw new IndexOutOfBoundsException("No label with index " + labelIndex);
+        }
+        int[] indices = edgeLabels;
+        if (edgeCount == indices.length) {
+            indices = Arrays.copyOf(indices, edgeCount + (edgeCount >> 1) + 1);
+        }
+        indices[edgeCount] = labelIndex;
+        edgeLabels = indices;
+        return edgeCount++;
+    }
+
+    private int intern(E label) {
+        Integer index = distinct.get(label);
+        if (index != null) {
+            return index;
+        }
+        int[] values = new int[schema.size()];
+        for (int c = 0; c < values.length; c++) {
+            LabelAttribute<? super E> attribute = schema.getAttribute(c);
+            if (attribute == null) {
+                throw new UnsupportedOperationException("The values of column " + schema.getName(c) + " can not be derived");
+            }
+            values[c] = attribute.valueOf(label);
+        }
+        return addDistinct(label, values);
+    }
+
+    /**
+     * Adds a distinct label, with the given values of the attribute columns.
+     *
+     * @param label  The label.
+     * @param values The values, one for every column of the schema.
+     * @return The label index.
+     * @throws IllegalArgumentException When the value of a byte column is out of range.
+     */
+    synchronized int addDistinct(E label, int[] values) {
+        Object[] newColumns = columns;
+        Object[] newLabels = labels;
+        if (labelCount == newLabels.length) {
+            int capacity = labelCount + (labelCount >> 1) + 1;
+            newLabels = Arrays.copyOf(newLabels, capacity);
+            newColumns = new Object[columns.length];
+            for (int c = 0; c < columns.length; c++) {
+                newColumns[c] = schema.isByteColumn(c) ? Arrays.copyOf((byte[]) columns[c], capacity)
+                        : Arrays.copyOf((int[]) columns[c], capacity);
+            }
+        }
+        for (int c = 0; c < values.length; c++) {
+            if (schema.isByteColumn(c)) {
+                if (values[c] != (byte) values[c]) {
+                    throw new IllegalArgumentException("Value " + values[c] + " of " + label + " does not fit in byte column " + schema.getName(c));
+                }
+                ((byte[]) newColumns[c])[labelCount] = (byte) values[c];
+            } else {
+                ((int[]) newColumns[c])[labelCount] = values[c];
+            }
+        }
+        newLabels[labelCount] = label;
+        distinct.put(label, labelCount);
+        columns = newColumns;
+        labels = newLabels;
+        return labelCount++;
+    }
+
+    /**
+     * @return The attribute columns of this table.
+     */
+    public LabelSchema<E> getSchema() {
+        return schema;
+    }
+
+    /**
+     * @return The number of edges.
+     */
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * @return The number of distinct labels.
+     */
+    public int getDistinctLabelCount() {
+        return labelCount;
+    }
+
+    /**
+     * Gets the label of an edge.
+     *
+     * @param edgeId The edge id.
+     * @return The label, or null if the edge has no label.
+     */
+    @SuppressWarnings("unchecked")
+    public E getLabel(int edgeId) {
+        int index = edgeLabels[edgeId];
+        return index == NO_LABEL ? null : (E) labels[index];
+    }
+
+    /**
+     * Gets the index of the label of an edge in the table of distinct labels. Edges with the same label have the same
+     * label index.
+     *
+     * @param edgeId The edge id.
+     * @return The label index, or -1 if the edge has no label.
+     */
+    public int getLabelIndex(int edgeId) {
+        return edgeLabels[edgeId];
+    }
+
+    /**
+     * Gets a label from the table of distinct labels.
+     *
+     * @param labelIndex The label index.
+     * @return The label.
+     */
+    @SuppressWarnings("unchecked")
+    public E getDistinctLabel(int labelIndex) {
+        if (labelIndex >= labelCount) {
+            throw new IndexOutOfBoundsException("No label with index " + labelIndex);
+        }
+        return (E) labels[labelIndex];
+    }
+
+    /**
+     * Gets the value of an attribute column for an edge. The values of byte columns are widened to int.
+     *
+     * @param edgeId The edge id.
+     * @param column The column index (see {@link LabelSchema#indexOf(String)}).
+     * @return The value, or 0 if the edge has no label.
+     */
+    public int getInt(int edgeId, int column) {
+        int index = edgeLabels[edgeId];
+        return index == NO_LABEL ? 0 : getDistinctValue(index, column);
+    }
+
+    /**
+     * Gets the value of a byte column for an edge.
+     *
+     * @param edgeId The edge id.
+     * @param column The column index (see {@link LabelSchema#indexOf(String)}).
+     * @return The value, or 0 if the edge has no label.
+     * @throws IllegalArgumentException When the column is not a byte column.
+     */
+    public byte getByte(int edgeId, int column) {
+        if (!schema.isByteColumn(column)) {
+            throw new IllegalArgumentException("Not a byte column: " + schema.getName(column));
+        }
+        int index = edgeLabels[edgeId];
+        return index == NO_LABEL ? 0 : ((byte[]) columns[column])[index];
+    }
+
+    /**
+     * Gets the value of an attribute column for a distinct label.
+     *
+     * @param labelIndex The label index.
+     * @param column     The column index.
+     * @return The value.
+     */
+    int getDistinctValue(int labelIndex, int column) {
+        Object values = columns[column];
+        return schema.isByteColumn(column) ? ((byte[]) values)[labelIndex] : ((int[]) values)[labelIndex];
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph;
+
+/**
+ * <p>
+ * The nodes and edges collected by a graph builder, before they are turned into a graph. Nodes are identified by
+ * their position in {@link #nodes}, edges by their position in the edge arrays (which is also their row in
+ * {@link #weights}).
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+class EdgeList {
+
+    final Object[] nodes;
+    final int nodeCount;
+    final int[] from;
+    final int[] to;
+    final Object[] labels;
+    final EdgeWeightTable weights;
+    final int edgeCount;
+    /**
+     * The domain nodes that were contracted into every edge, null for edges that are not contracted chains. Null if
+     * no chains were contracted.
+     */
+    final Object[][] chains;
+
+    EdgeList(Object[] nodes, int nodeCount, int[] from, int[] to, Object[] labels, EdgeWeightTable weights,
+             int edgeCount, Object[][] chains) {
+        this.nodes = nodes;
+        this.nodeCount = nodeCount;
+        this.from = from;
+        this.to = to;
+        this.labels = labels;
+        this.weights = weights;
+        this.edgeCount = edgeCount;
+        this.chains = chains;
+    }
+}
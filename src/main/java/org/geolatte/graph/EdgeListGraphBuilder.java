@@ -0,0 +1,188 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * Base class for graph builders that collect all nodes and edges in flat arrays, and only create the graph
+ * representation when {@link #build()} is called.
+ * </p>
+ *
+ * @param <N> The domain node type.
+ * @param <E> The edge label type.
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+abstract class EdgeListGraphBuilder<N extends Locatable, E> implements GraphBuilder<N, E> {
+
+    final Extent extent;
+    final int resolution;
+    final WeightSchema schema;
+    private boolean contractChains = false;
+    private int minComponentSize = 0;
+    LabelSchema<E> labelSchema = LabelSchema.none();
+
+    private Map<N, Integer> map = new HashMap<N, Integer>(); // map is used to quickly locate Nodes based on node equality.
+    private Object[] nodes;
+    private int[] from;
+    private int[] to;
+    private Object[] labels;
+    private EdgeWeightTable weights;
+    private int edgeCount;
+
+    EdgeListGraphBuilder(Extent extent, int resolution, WeightSchema schema) {
+        this.extent = extent;
+        this.resolution = resolution;
+        this.schema = schema;
+        reset();
+    }
+
+    private void reset() {
+        map = new HashMap<N, Integer>();
+        nodes = new Object[16];
+        from = new int[16];
+        to = new int[16];
+        labels = new Object[16];
+        weights = new EdgeWeightTable(schema);
+        edgeCount = 0;
+    }
+
+    public void setContractChains(boolean contract) {
+        this.contractChains = contract;
+    }
+
+    public void setMinComponentSize(int size) {
+        this.minComponentSize = size;
+    }
+
+    public void setLabelSchema(LabelSchema<E> schema) {
+        if (schema == null) {
+            throw new IllegalArgumentException("Label schema can not be null");
+        }
+        this.labelSchema = schema;
+    }
+
+    public void addEdge(N fromNode, N toNode, EdgeWeight edgeWeight) {
+
+        addEdge(fromNode, toNode, edgeWeight, null);
+    }
+
+    public void addEdge(N fromNode, N toNode, EdgeWeight edgeWeight, E edgeLabel) {
+
+        if (fromNode.equals(toNode)) {
+            return;
+        }
+        if (edgeCount == from.length) {
+            int capacity = edgeCount + (edgeCount >> 1) + 1;
+            from = Arrays.copyOf(from, capacity);
+            to = Arrays.copyOf(to, capacity);
+            labels = Arrays.copyOf(labels, capacity);
+        }
+        from[edgeCount] = lookup(fromNode);
+        to[edgeCount] = lookup(toNode);
+        labels[edgeCount] = edgeLabel;
+        weights.add(edgeWeight);
+        edgeCount++;
+    }
+
+    private int lookup(N node) {
+        Integer id = map.get(node);
+        if (id == null) {
+            if (node.getX() < extent.getMinX() || node.getX() > extent.getMaxX()
+                    || node.getY() < extent.getMinY() || node.getY() > extent.getMaxY()) {
+                throw new RuntimeException("Tried insert object that lies out of bounds: " + node);
+            }
+            id = map.size();
+            if (id == nodes.length) {
+                nodes = Arrays.copyOf(nodes, id + (id >> 1) + 1);
+            }
+            nodes[id] = node;
+            map.put(node, id);
+        }
+        return id;
+    }
+
+    public LocateableGraph<N, E> build() throws BuilderException {
+
+        if (map.isEmpty()) {
+            throw new IllegalStateException("No nodes added since last built");
+        }
+        EdgeList edges = new EdgeList(nodes, map.size(), from, to, labels, weights, edgeCount, null);
+        reset(); // empty to save on memory.
+        GraphMonitor monitor = GraphMonitor.current();
+        if (minComponentSize > 1) {
+            Object token = monitor == null ? null : monitor.buildPhaseStarted("prune");
+            EdgeList pruned = StronglyConnectedComponents.prune(edges, minComponentSize);
+            if (monitor != null) {
+                monitor.buildPhaseFinished(token, "prune", edges.nodeCount, edges.edgeCount);
+            }
+            edges = pruned;
+            if (edges.nodeCount == 0) {
+                throw new IllegalStateException("No component has at least " + minComponentSize + " nodes");
+            }
+        }
+        if (contractChains) {
+            Object token = monitor == null ? null : monitor.buildPhaseStarted("contract");
+            EdgeList contracted = ChainContraction.contract(edges);
+            if (monitor != null) {
+                monitor.buildPhaseFinished(token, "contract", edges.nodeCount, edges.edgeCount);
+            }
+            edges = contracted;
+        }
+        Object token = monitor == null ? null : monitor.buildPhaseStarted("create");
+        LocateableGraph<N, E> graph = createGraph(edges);
+        if (monitor != null) {
+            monitor.buildPhaseFinished(token, "create", edges.nodeCount, edges.edgeCount);
+        }
+        return graph;
+    }
+
+    /**
+     * Creates the graph from the collected edges.
+     *
+     * @param edges The nodes and edges of the graph.
+     * @return The graph.
+     * @throws BuilderException If the graph could not be built.
+     */
+    abstract LocateableGraph<N, E> createGraph(EdgeList edges) throws BuilderException;
+
+    /**
+     * Presents a row of a weight table as an {@link EdgeWeight}, used to copy weights to another table.
+     */
+    static class RowWeight implements EdgeWeight {
+
+        private final EdgeWeightTable table;
+        int edgeId;
+
+        RowWeight(EdgeWeightTable table) {
+            this.table = table;
+        }
+
+        public float getValue(int weightIndex) {
+            return table.getValue(edgeId, weightIndex);
+        }
+    }
+}
@@ -0,0 +1,405 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Columnar storage of the edge weights of a graph. Every weight kind of the {@link WeightSchema} is stored as one
+ * contiguous column, indexed by edge id. Edge ids are assigned in the order in which edges are added to the graph and
+ * are handed out by the edge iterators of the graph (see {@link EdgeIterator#getEdgeId()}).
+ * </p>
+ * <p>
+ * {@link EdgeWeight} objects are only used as input when building a graph; their values are copied into the columns
+ * of this table. When the graph is built, every column is converted to the {@link WeightEncoding} declared by the
+ * schema. Values are decoded transparently by {@link #getValue(int, int)}.
+ * </p>
+ * <p>
+ * Once the graph is built, weights can still be changed (e.g. travel times from a traffic feed) with
+ * {@link #updateWeight(int, int, float)} or {@link #update(WeightUpdateBatch)}. Every update publishes a new version
+ * of the weights atomically. Updated values are kept in pages of {@value #PAGE_SIZE} edges that are copied on write,
+ * so an update only copies the pages it touches and never the encoded columns. Readers do not lock: a
+ * {@link #snapshot()} keeps seeing the version that was current when it was taken, which is how the graph algorithms
+ * get a consistent view of the weights for the duration of a query, while later queries see the new weights.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public final class EdgeWeightTable {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int PAGE_SHIFT = 12;
+    /**
+     * The number of edges in a page of updated weights.
+     */
+    public static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private WeightSchema schema; // null until the first edge is added, when it is inferred from its weight
+    private final boolean snapshot;
+    private final EdgeWeightTable lineage; // the table that was built, shared by its snapshots
+    private float[][] staging; // float values while edges are being added, null once sealed
+    private volatile Version version;
+    private volatile boolean retired; // replaced by the table of a compacted graph
+    private int edgeCount = 0; // number of edges while staging, number of encoded edges once sealed
+
+    /**
+     * Creates an empty table for the given schema.
+     *
+     * @param schema The schema that declares the weight kinds, or null to infer it from the first edge weight that
+     *               is added (see {@link WeightSchema#inferred(EdgeWeight)}).
+     */
+    EdgeWeightTable(WeightSchema schema) {
+        this.snapshot = false;
+        this.lineage = this;
+        if (schema != null) {
+            initialize(schema);
+        }
+    }
+
+    private void initialize(WeightSchema schema) {
+        this.schema = schema;
+        this.staging = new float[schema.size()][INITIAL_CAPACITY];
+        this.version = new Version(0, 0, new WeightColumn[schema.size()], new float[schema.size()][][]);
+        wrapStaging();
+    }
+
+    private EdgeWeightTable(WeightSchema schema, int edgeCount, Version version, EdgeWeightTable lineage) {
+        this.schema = schema;
+        this.snapshot = true;
+        this.lineage = lineage;
+        this.edgeCount = edgeCount;
+        this.version = version;
+    }
+
+    private void wrapStaging() {
+        for (int i = 0; i < staging.length; i++) {
+            version.columns[i] = new WeightColumn.FloatColumn(staging[i]);
+        }
+    }
+
+    /**
+     * Appends the values of the given edge weight, one value for every weight kind of the schema.
+     *
+     * @param edgeWeight The edge weight.
+     * @return The id of the new edge.
+     * @throws IllegalStateException When the table has been sealed.
+     */
+    int add(EdgeWeight edgeWeight) {
+        if (schema == null) {
+            initialize(WeightSchema.inferred(edgeWeight));
+        }
+        if (staging == null) {
+            throw new IllegalStateException("Can not add edges to a built graph");
+        }
+        if (edgeWeight instanceof ArrayEdgeWeight && ((ArrayEdgeWeight) edgeWeight).size() < staging.length) {
+            throw new IllegalArgumentException("Edge weight has " + ((ArrayEdgeWeight) edgeWeight).size()
+                    + " values, the graph stores " + staging.length + " weight kinds");
+        }
+        if (edgeCount == staging[0].length) {
+            int capacity = edgeCount + (edgeCount >> 1) + 1;
+            for (int i = 0; i < staging.length; i++) {
+                staging[i] = Arrays.copyOf(staging[i], capacity);
+            }
+            wrapStaging();
+        }
+        for (int i = 0; i < staging.length; i++) {
+            staging[i][edgeCount] = edgeWeight.getValue(i);
+        }
+        return edgeCount++;
+    }
+
+    /**
+     * Encodes the columns as declared by the schema and releases the build-time storage. Called when the graph is
+     * built; no edges can be added afterwards.
+     *
+     * @throws IllegalArgumentException When a weight can not be represented in the encoding of its kind.
+     */
+    void seal() {
+        if (schema == null) {
+            initialize(WeightSchema.single());
+        }
+        if (staging == null) {
+            return;
+        }
+        WeightColumn[] columns = new WeightColumn[staging.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = schema.getEncoding(i).encode(staging[i], edgeCount);
+        }
+        version = new Version(0, edgeCount, columns, version.pages);
+        staging = null;
+    }
+
+    /**
+     * Appends an edge to a sealed table, and publishes the result as a new version. The values of appended edges are
+     * kept in pages of updated values, as if they had been updated.
+     *
+     * @param edgeWeight The edge weight.
+     * @return The id of the new edge.
+     * @throws IllegalStateException When the table has not been sealed.
+     */
+    synchronized int append(EdgeWeight edgeWeight) {
+        if (staging != null || snapshot) {
+            throw new IllegalStateException("Only the weights of a built graph can be appended to");
+        }
+        Version current = version;
+        int edgeId = current.edgeCount;
+        int page = edgeId >>> PAGE_SHIFT;
+        float[] values = new float[current.pages.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = edgeWeight.getValue(i);
+            if (Float.isNaN(values[i])) {
+                throw new IllegalArgumentException("Weight of new edge is NaN");
+            }
+        }
+        float[][][] pages = current.pages.clone();
+        for (int i = 0; i < pages.length; i++) {
+            if (pages[i] == null || page >= pages[i].length) {
+                pages[i] = pages[i] == null ? new float[page + 1][] : Arrays.copyOf(pages[i], 2 * page + 1);
+            } else if (pages[i][page] == null) {
+                // earlier versions may read the decoded column at this page, they must not see a page being filled
+                pages[i] = pages[i].clone();
+            }
+            if (pages[i][page] == null) {
+                pages[i][page] = decodePage(current.columns[i], page);
+            }
+            // earlier versions never read beyond their own edge count, so the new slot can be written in place
+            pages[i][page][edgeId & PAGE_MASK] = values[i];
+        }
+        version = new Version(current.number + 1, edgeId + 1, current.columns, pages);
+        return edgeId;
+    }
+
+    /**
+     * @return The schema of this table. A table that infers its schema returns the single-weight schema until its
+     *         first edge is added.
+     */
+    public WeightSchema getSchema() {
+        return schema == null ? WeightSchema.single() : schema;
+    }
+
+    /**
+     * @return The number of edges in this table.
+     */
+    public int getEdgeCount() {
+        return staging != null || version == null ? edgeCount : version.edgeCount;
+    }
+
+    /**
+     * Gets the weight of the given kind for the given edge.
+     *
+     * @param edgeId      The edge id.
+     * @param weightIndex The kind of weight to return.
+     * @return A weight value.
+     * @throws IndexOutOfBoundsException When the weight index is not valid.
+     */
+    public float getValue(int edgeId, int weightIndex) {
+        return version.getValue(edgeId, weightIndex);
+    }
+
+    /**
+     * Gets the version of the weights, starting at 0 when the graph is built and incremented by every update.
+     *
+     * @return The version number.
+     */
+    public long getVersion() {
+        return version.number;
+    }
+
+    /**
+     * Gets an immutable view of the current version of the weights. Later updates of this table are not visible in
+     * the snapshot. Taking a snapshot is cheap: it does not copy any weights.
+     *
+     * @return A snapshot of this table, or this table if it is a snapshot itself.
+     * @throws IllegalStateException When the graph has not been built yet.
+     */
+    public EdgeWeightTable snapshot() {
+        if (snapshot) {
+            return this;
+        }
+        if (staging != null) {
+            throw new IllegalStateException("The graph has not been built");
+        }
+        Version current = version;
+        return new EdgeWeightTable(schema, edgeCount, current, lineage);
+    }
+
+    /**
+     * Tells whether the given table holds the weights of the same edges as this table: a table shares its lineage
+     * with all its snapshots. The compaction of a {@link DynamicGraph} creates a table with a new lineage, since it
+     * renumbers the edges; this tells whether indices built on the edge ids of a graph are still valid.
+     *
+     * @param other A weight table.
+     * @return True if both tables have the same lineage.
+     */
+    public boolean isSameLineage(EdgeWeightTable other) {
+        return other != null && other.lineage == lineage;
+    }
+
+    /**
+     * Refuses all further updates, once the table is replaced by the table of a compacted graph. The caller holds the
+     * lock of this table, so that no update is applied between its last look at the weights and the replacement.
+     */
+    void retire() {
+        retired = true;
+    }
+
+    /**
+     * @return True if this table is a snapshot, which can not be updated.
+     */
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Changes a single weight, and publishes the result as a new version.
+     *
+     * @param edgeId      The edge id.
+     * @param weightIndex The kind of weight to change.
+     * @param value       The new weight.
+     * @return The new version number.
+     * @throws IllegalArgumentException      When the edge id or weight index is not valid, or the value is NaN.
+     * @throws IllegalStateException         When the graph has not been built yet, or was compacted since.
+     * @throws UnsupportedOperationException When this table is a snapshot.
+     */
+    public long updateWeight(int edgeId, int weightIndex, float value) {
+        WeightUpdateBatch batch = new WeightUpdateBatch();
+        batch.add(edgeId, weightIndex, value);
+        return update(batch);
+    }
+
+    /**
+     * Applies all changes of the given batch, and publishes the result as a single new version. Readers either see
+     * none or all of the changes. If one of the changes is not valid, none of them is applied. Updates are applied
+     * one at a time; readers are never blocked.
+     *
+     * @param batch The changes.
+     * @return The new version number.
+     * @throws IllegalArgumentException      When an edge id or weight index is not valid, or a value is NaN.
+     * @throws IllegalStateException         When the graph has not been built yet, or was compacted since.
+     * @throws UnsupportedOperationException When this table is a snapshot.
+     */
+    public synchronized long update(WeightUpdateBatch batch) {
+        if (snapshot) {
+            throw new UnsupportedOperationException("A snapshot can not be updated");
+        }
+        if (staging != null) {
+            throw new IllegalStateException("The graph has not been built");
+        }
+        if (retired) {
+            throw new IllegalStateException("The graph was compacted, its edges are in a new weight table");
+        }
+        Version current = version;
+        float[][][] pages = current.pages.clone();
+        boolean[][] copied = new boolean[pages.length][];
+        for (int k = 0; k < batch.size(); k++) {
+            int edgeId = batch.getEdgeId(k);
+            int weightIndex = batch.getWeightIndex(k);
+            float value = batch.getValue(k);
+            if (edgeId < 0 || edgeId >= current.edgeCount) {
+                throw new IllegalArgumentException("No edge with id " + edgeId);
+            }
+            if (weightIndex < 0 || weightIndex >= pages.length) {
+                throw new IllegalArgumentException("No weight kind with index " + weightIndex);
+            }
+            if (Float.isNaN(value)) {
+                throw new IllegalArgumentException("Weight of edge " + edgeId + " is NaN");
+            }
+            if (copied[weightIndex] == null) {
+                int pageCount = (current.edgeCount + PAGE_SIZE - 1) >> PAGE_SHIFT;
+                pages[weightIndex] = pages[weightIndex] == null ? new float[pageCount][] : pages[weightIndex].clone();
+                copied[weightIndex] = new boolean[pages[weightIndex].length];
+            }
+            int page = edgeId >>> PAGE_SHIFT;
+            if (!copied[weightIndex][page]) {
+                float[] values = pages[weightIndex][page];
+                pages[weightIndex][page] = values == null ? decodePage(current.columns[weightIndex], page) : values.clone();
+                copied[weightIndex][page] = true;
+            }
+            pages[weightIndex][page][edgeId & PAGE_MASK] = value;
+        }
+        version = new Version(current.number + 1, current.edgeCount, current.columns, pages);
+        return current.number + 1;
+    }
+
+    private float[] decodePage(WeightColumn column, int page) {
+        int first = page << PAGE_SHIFT;
+        float[] values = new float[PAGE_SIZE];
+        for (int i = 0; i < Math.min(PAGE_SIZE, edgeCount - first); i++) {
+            values[i] = column.get(first + i);
+        }
+        return values;
+    }
+
+    /**
+     * Gets the approximate memory used by the values of the given weight kind, in their encoded form, including the
+     * pages of updated values.
+     *
+     * @param weightIndex The weight index.
+     * @return A size in bytes.
+     */
+    public long getSizeInBytes(int weightIndex) {
+        Version current = version;
+        long size = current.columns[weightIndex].sizeInBytes();
+        float[][] pages = current.pages[weightIndex];
+        if (pages != null) {
+            size += 4L * pages.length;
+            for (float[] page : pages) {
+                if (page != null) {
+                    size += 4L * page.length;
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * An immutable version of the weights: the encoded columns, and the pages of updated values per weight kind.
+     */
+    private static final class Version {
+
+        private final long number;
+        private final int edgeCount;
+        private final WeightColumn[] columns;
+        private final float[][][] pages; // per weight index, null if no weight of this kind was updated
+
+        private Version(long number, int edgeCount, WeightColumn[] columns, float[][][] pages) {
+            this.number = number;
+            this.edgeCount = edgeCount;
+            this.columns = columns;
+            this.pages = pages;
+        }
+
+        private float getValue(int edgeId, int weightIndex) {
+            float[][] updated = pages[weightIndex];
+            if (updated != null) {
+                float[] page = updated[edgeId >>> PAGE_SHIFT];
+                if (page != null) {
+                    return page[edgeId & PAGE_MASK];
+                }
+            }
+            return columns[weightIndex].get(edgeId);
+        }
+    }
+}
@@ -0,0 +1,833 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+
+/**
+ * <p>
+ * {@link TiledGraph} implementation that reads its tiles from a file written by
+ * {@link #write(Graph, Extent, int, int, int, TileCodec, File)}.
+ * </p>
+ * <p>
+ * File layout: a header (extent, tile grid, node and edge counts, weight kinds), the weights of all edges, the label
+ * table (the distinct labels with their attribute columns, and the label index of every edge), the strongly connected
+ * components (see {@link StronglyConnectedComponents}) with the component of every node, one segment per tile,
+ * a directory with the position of every segment, and the position of the directory in the last 8 bytes.
+ * Nodes are numbered tile by tile, and edges by their source node, so every tile holds a consecutive range of node
+ * ids and outgoing edge ids. A tile segment holds the domain nodes of the tile, their outgoing adjacency (target node
+ * ids), their incoming adjacency (source node ids and edge ids), and the contracted chains of the outgoing edges. The
+ * weights, labels and components stay in memory, so that queries never need to load all tiles. The spatial index of a tile is rebuilt from the node coordinates when the tile is loaded.
+ * </p>
+ *
+ * @param <N> The domain node type.
+ * @param <E> The edge label type.
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+class FileTiledGraph<N extends Locatable, E> implements TiledGraph<N, E> {
+
+    private static final int MAGIC = 0x47475449; // "GGTI"
+    private static final int FORMAT_VERSION = 3;
+
+    private final TileCodec<N, E> codec;
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final Extent extent;
+    private final int tilesX;
+    private final int tilesY;
+    private final int resolution;
+    private final int nodeCount;
+    private final EdgeWeightTable weights;
+    private final EdgeLabelTable<E> labels;
+    private final int[] tileFirstNode; // per tile, followed by the node count
+    private final int[] tileFirstEdge; // per tile, followed by the edge count
+    private final long[] tileOffset;
+    private final int[] tileLength;
+    private final TileCache cache;
+    private final TileMetrics metrics = new TileMetrics();
+    private final StronglyConnectedComponents components;
+
+    FileTiledGraph(File path, TileCodec<N, E> codec, int maxTiles) throws IOException {
+
+        if (maxTiles < 1) {
+            throw new IllegalArgumentException("At least one tile must fit in memory");
+        }
+        this.codec = codec;
+        this.cache = new TileCache(maxTiles);
+        this.file = new RandomAccessFile(path, "r");
+        this.channel = file.getChannel();
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path)));
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Not a tiled graph file: " + path);
+            }
+            extent = new Extent(in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble());
+            tilesX = in.readInt();
+            tilesY = in.readInt();
+            resolution = in.readInt();
+            nodeCount = in.readInt();
+            int edgeCount = in.readInt();
+            String[] names = new String[in.readInt()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = in.readUTF();
+            }
+            weights = new EdgeWeightTable(WeightSchema.of(names));
+            ValueWeight row = new ValueWeight(names.length);
+            for (int e = 0; e < edgeCount; e++) {
+                for (int i = 0; i < names.length; i++) {
+                    row.values[i] = in.readFloat();
+                }
+                weights.add(row);
+            }
+            weights.seal();
+            labels = readLabels(in, edgeCount);
+            components = StronglyConnectedComponents.read(in, nodeCount);
+        } finally {
+            in.close();
+        }
+
+        int tileCount = tilesX * tilesY;
+        file.seek(file.length() - 8);
+        file.seek(file.readLong());
+        byte[] directory = new byte[tileCount * 24 + 8];
+        file.readFully(directory);
+        DataInputStream dir = new DataInputStream(new ByteArrayInputStream(directory));
+        tileFirstNode = new int[tileCount + 1];
+        tileFirstEdge = new int[tileCount + 1];
+        tileOffset = new long[tileCount];
+        tileLength = new int[tileCount];
+        for (int t = 0; t < tileCount; t++) {
+            tileFirstNode[t] = dir.readInt();
+            tileFirstEdge[t] = dir.readInt();
+            tileOffset[t] = dir.readLong();
+            tileLength[t] = dir.readInt();
+            dir.readInt(); // reserved
+        }
+        tileFirstNode[tileCount] = dir.readInt();
+        tileFirstEdge[tileCount] = dir.readInt();
+    }
+
+    private EdgeLabelTable<E> readLabels(DataInput in, int edgeCount) throws IOException {
+        String[] names = new String[in.readInt()];
+        boolean[] byteColumns = new boolean[names.length];
+        for (int c = 0; c < names.length; c++) {
+            names[c] = in.readUTF();
+            byteColumns[c] = in.readBoolean();
+        }
+        EdgeLabelTable<E> table = new EdgeLabelTable<E>(LabelSchema.<E>stored(names, byteColumns));
+        int labelCount = in.readInt();
+        int[] values = new int[names.length];
+        for (int l = 0; l < labelCount; l++) {
+            E label = codec.readLabel(in);
+            for (int c = 0; c < names.length; c++) {
+                values[c] = in.readInt();
+            }
+            table.addDistinct(label, values);
+        }
+        for (int e = 0; e < edgeCount; e++) {
+            table.addEdge(in.readInt());
+        }
+        return table;
+    }
+
+    /**
+     * Writes the given graph as a tiled graph file.
+     */
+    static <N extends Locatable, E> void write(Graph<N, E> graph, Extent extent, int tilesX, int tilesY,
+                                               int resolution, TileCodec<N, E> codec, File path) throws IOException {
+
+        if (tilesX < 1 || tilesY < 1) {
+            throw new IllegalArgumentException("There must be at least one tile in both directions");
+        }
+        int tileCount = tilesX * tilesY;
+        int n = graph.getNodeCount();
+
+        // number the nodes tile by tile
+        int[] tileOf = new int[n];
+        int[] tileFirstNode = new int[tileCount + 1];
+        for (int v = 0; v < n; v++) {
+            N node = graph.getNode(v).getWrappedNode();
+            if (node.getX() < extent.getMinX() || node.getX() > extent.getMaxX()
+                    || node.getY() < extent.getMinY() || node.getY() > extent.getMaxY()) {
+                throw new IllegalArgumentException("Node lies outside the extent: " + node);
+            }
+            tileOf[v] = tileOf(extent, tilesX, tilesY, node.getX(), node.getY());
+            tileFirstNode[tileOf[v] + 1]++;
+        }
+        for (int t = 0; t < tileCount; t++) {
+            tileFirstNode[t + 1] += tileFirstNode[t];
+        }
+        int[] fill = Arrays.copyOf(tileFirstNode, tileCount);
+        int[] newId = new int[n];
+        int[] order = new int[n];
+        for (int v = 0; v < n; v++) {
+            newId[v] = fill[tileOf[v]]++;
+            order[newId[v]] = v;
+        }
+
+        // number the edges by their source node
+        int[] outStart = new int[n + 1];
+        int[] outTarget = new int[16];
+        int[] oldEdge = new int[16];
+        int edgeCount = 0;
+        for (int i = 0; i < n; i++) {
+            EdgeIterator<N, E> edges = graph.getOutGoingEdges(graph.getNode(order[i]), null);
+            while (edges.hasNext()) {
+                if (edgeCount == outTarget.length) {
+                    outTarget = Arrays.copyOf(outTarget, 2 * edgeCount);
+                    oldEdge = Arrays.copyOf(oldEdge, 2 * edgeCount);
+                }
+                outTarget[edgeCount] = newId[edges.next().getId()];
+                oldEdge[edgeCount] = edges.getEdgeId();
+                edgeCount++;
+            }
+            outStart[i + 1] = edgeCount;
+        }
+        int[] inStart = new int[n + 1];
+        for (int e = 0; e < edgeCount; e++) {
+            inStart[outTarget[e] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            inStart[i + 1] += inStart[i];
+        }
+        int[] inSource = new int[edgeCount];
+        int[] inEdge = new int[edgeCount];
+        fill = Arrays.copyOf(inStart, n);
+        for (int i = 0; i < n; i++) {
+            for (int e = outStart[i]; e < outStart[i + 1]; e++) {
+                inSource[fill[outTarget[e]]] = i;
+                inEdge[fill[outTarget[e]]++] = e;
+            }
+        }
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)));
+        try {
+            EdgeWeightTable table = graph.getEdgeWeights().snapshot();
+            WeightSchema schema = table.getSchema();
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeDouble(extent.getMinX());
+            out.writeDouble(extent.getMinY());
+            out.writeDouble(extent.getMaxX());
+            out.writeDouble(extent.getMaxY());
+            out.writeInt(tilesX);
+            out.writeInt(tilesY);
+            out.writeInt(resolution);
+            out.writeInt(n);
+            out.writeInt(edgeCount);
+            out.writeInt(schema.size());
+            for (int i = 0; i < schema.size(); i++) {
+                out.writeUTF(schema.getName(i));
+            }
+            for (int e = 0; e < edgeCount; e++) {
+                for (int i = 0; i < schema.size(); i++) {
+                    out.writeFloat(table.getValue(oldEdge[e], i));
+                }
+            }
+            EdgeLabelTable<E> labels = graph.getEdgeLabels();
+            LabelSchema<E> labelSchema = labels.getSchema();
+            out.writeInt(labelSchema.size());
+            for (int c = 0; c < labelSchema.size(); c++) {
+                out.writeUTF(labelSchema.getName(c));
+                out.writeBoolean(labelSchema.isByteColumn(c));
+            }
+            int labelCount = labels.getDistinctLabelCount();
+            out.writeInt(labelCount);
+            for (int l = 0; l < labelCount; l++) {
+                codec.writeLabel(labels.getDistinctLabel(l), out);
+                for (int c = 0; c < labelSchema.size(); c++) {
+                    out.writeInt(labels.getDistinctValue(l, c));
+                }
+            }
+            for (int e = 0; e < edgeCount; e++) {
+                out.writeInt(labels.getLabelIndex(oldEdge[e]));
+            }
+            graph.getComponents().write(out, order);
+            out.flush();
+            long position = path.length(); // the tile segments follow the header, the weights, labels and components
+
+            ByteArrayOutputStream directoryBytes = new ByteArrayOutputStream();
+            DataOutputStream directory = new DataOutputStream(directoryBytes);
+            for (int t = 0; t < tileCount; t++) {
+                ByteArrayOutputStream segmentBytes = new ByteArrayOutputStream();
+                DataOutputStream segment = new DataOutputStream(segmentBytes);
+                int first = tileFirstNode[t];
+                int last = tileFirstNode[t + 1];
+                for (int i = first; i < last; i++) {
+                    codec.writeNode(graph.getNode(order[i]).getWrappedNode(), segment);
+                }
+                for (int i = first; i < last; i++) {
+                    segment.writeInt(outStart[i + 1] - outStart[i]);
+                    for (int e = outStart[i]; e < outStart[i + 1]; e++) {
+                        segment.writeInt(outTarget[e]);
+                    }
+                }
+                for (int i = first; i < last; i++) {
+                    segment.writeInt(inStart[i + 1] - inStart[i]);
+                    for (int k = inStart[i]; k < inStart[i + 1]; k++) {
+                        segment.writeInt(inSource[k]);
+                        segment.writeInt(inEdge[k]);
+                    }
+                }
+                for (int i = first; i < last; i++) {
+                    for (int e = outStart[i]; e < outStart[i + 1]; e++) {
+                        List<N> chain = graph.getContractedNodes(oldEdge[e]);
+                        segment.writeInt(chain.size());
+                        for (N node : chain) {
+                            codec.writeNode(node, segment);
+                        }
+                    }
+                }
+                segment.flush();
+                directory.writeInt(first);
+                directory.writeInt(outStart[first]);
+                directory.writeLong(position);
+                directory.writeInt(segmentBytes.size());
+                directory.writeInt(0); // reserved
+                segmentBytes.writeTo(out);
+                position += segmentBytes.size();
+            }
+            directory.writeInt(n);
+            directory.writeInt(edgeCount);
+            directory.flush();
+            directoryBytes.writeTo(out);
+            out.writeLong(position);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static int tileOf(Extent extent, int tilesX, int tilesY, double x, double y) {
+        int tx = (int) ((x - extent.getMinX()) / extent.getWidth() * tilesX);
+        int ty = (int) ((y - extent.getMinY()) / extent.getHeight() * tilesY);
+        tx = Math.max(0, Math.min(tilesX - 1, tx));
+        ty = Math.max(0, Math.min(tilesY - 1, ty));
+        return ty * tilesX + tx;
+    }
+
+    // Tiles
+
+    /**
+     * Gets the tile with the given index, loading it if it is not in memory.
+     */
+    private Tile<N, E> getTile(int t) {
+        Tile<N, E> tile = cache.lookup(t);
+        if (tile != null) {
+            metrics.hit();
+            return tile;
+        }
+        GraphMonitor monitor = GraphMonitor.current();
+        Object monitorToken = monitor == null ? null : monitor.tileLoadStarted(t);
+        long start = System.nanoTime();
+        try {
+            tile = load(t);
+        } catch (IOException e) {
+            if (monitor != null) {
+                monitor.tileLoadFinished(monitorToken, t, -1, tileLength[t]);
+            }
+            throw new RuntimeException("Could not load tile " + t, e);
+        }
+        metrics.loaded(System.nanoTime() - start);
+        if (monitor != null) {
+            monitor.tileLoadFinished(monitorToken, t, tile.nodes.length, tileLength[t]);
+        }
+        return cache.store(t, tile);
+    }
+
+    private Tile<N, E> tileOfNode(int id) {
+        int t = Arrays.binarySearch(tileFirstNode, id);
+        if (t < 0) {
+            t = -t - 2;
+        } else {
+            // skip empty tiles that start at the same id
+            while (tileFirstNode[t + 1] == id) {
+                t++;
+            }
+        }
+        return getTile(t);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Tile<N, E> load(int t) throws IOException {
+
+        ByteBuffer buffer = ByteBuffer.allocate(tileLength[t]);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, tileOffset[t] + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of tiled graph file");
+            }
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer.array()));
+        int first = tileFirstNode[t];
+        int count = tileFirstNode[t + 1] - first;
+        Tile<N, E> tile = new Tile<N, E>(first, tileFirstEdge[t], count);
+        for (int i = 0; i < count; i++) {
+            tile.nodes[i] = new TiledNode<N, E>(first + i, t, codec.readNode(in), this);
+            tile.lookup.put(tile.nodes[i].getWrappedNode(), tile.nodes[i]);
+        }
+        int[][] lists = readLists(in, count, 1);
+        tile.outStart = lists[0];
+        tile.outTargets = lists[1];
+        lists = readLists(in, count, 2);
+        tile.inStart = lists[0];
+        tile.inPairs = lists[1];
+        int outCount = tile.outTargets.length;
+        for (int e = 0; e < outCount; e++) {
+            int chainLength = in.readInt();
+            if (chainLength > 0) {
+                if (tile.chains == null) {
+                    tile.chains = new Locatable[outCount][];
+                }
+                tile.chains[e] = new Locatable[chainLength];
+                for (int k = 0; k < chainLength; k++) {
+                    tile.chains[e][k] = codec.readNode(in);
+                }
+            }
+        }
+        if (count > 0) {
+            float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+            for (TiledNode<N, E> node : tile.nodes) {
+                minX = Math.min(minX, node.getX());
+                minY = Math.min(minY, node.getY());
+                maxX = Math.max(maxX, node.getX());
+                maxY = Math.max(maxY, node.getY());
+            }
+            SpatialIndexBuilder<InternalNode<N, E>> builder = SpatialIndexes.createGridIndexBuilder(
+                    new Extent(minX, minY, maxX, maxY), resolution);
+            for (TiledNode<N, E> node : tile.nodes) {
+                builder.insert(node);
+            }
+            try {
+                tile.index = builder.build();
+            } catch (BuilderException e) {
+                throw new IOException("Could not index tile " + t);
+            }
+        }
+        return tile;
+    }
+
+    /**
+     * Reads the adjacency lists of the nodes of a tile: a count per node, followed by that many groups of the given
+     * number of ints. Returns the start of every list, and the values.
+     */
+    private int[][] readLists(DataInputStream in, int count, int width) throws IOException {
+        int[] start = new int[count + 1];
+        int[] values = new int[16];
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            int degree = in.readInt();
+            if (size + degree * width > values.length) {
+                values = Arrays.copyOf(values, Math.max(2 * values.length, size + degree * width));
+            }
+            for (int k = 0; k < degree * width; k++) {
+                values[size++] = in.readInt();
+            }
+            start[i + 1] = start[i] + degree;
+        }
+        return new int[][]{start, Arrays.copyOf(values, size)};
+    }
+
+    // Graph methods
+
+    public int getTileCount() {
+        return tileOffset.length;
+    }
+
+    public TileMetrics getTileMetrics() {
+        return metrics;
+    }
+
+    public void close() throws IOException {
+        file.close();
+    }
+
+    public InternalNode<N, E> getInternalNode(N node) {
+        if (node.getX() < extent.getMinX() || node.getX() > extent.getMaxX()
+                || node.getY() < extent.getMinY() || node.getY() > extent.getMaxY()) {
+            return null;
+        }
+        int t = tileOf(extent, tilesX, tilesY, node.getX(), node.getY());
+        if (tileFirstNode[t] == tileFirstNode[t + 1]) {
+            return null;
+        }
+        return getTile(t).lookup.get(node);
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public InternalNode<N, E> getNode(int id) {
+        if (id < 0 || id >= nodeCount) {
+            throw new IndexOutOfBoundsException("No node with id " + id);
+        }
+        Tile<N, E> tile = tileOfNode(id);
+        return tile.nodes[id - tile.firstNode];
+    }
+
+    public EdgeIterator<N, E> getOutGoingEdges(InternalNode<N, E> internalNode, ContextualReachability<N, E, ?> contextualReachability) {
+        TiledNode<N, E> node = (TiledNode<N, E>) internalNode;
+        Tile<N, E> tile = getTile(node.tile);
+        int local = node.id - tile.firstNode;
+        return new TiledEdgeIterator(tile, tile.outStart[local], tile.outStart[local + 1], false, contextualReachability);
+    }
+
+    public EdgeIterator<N, E> getInComingEdges(InternalNode<N, E> internalNode, ContextualReachability<N, E, ?> contextualReachability) {
+        TiledNode<N, E> node = (TiledNode<N, E>) internalNode;
+        Tile<N, E> tile = getTile(node.tile);
+        int local = node.id - tile.firstNode;
+        return new TiledEdgeIterator(tile, tile.inStart[local], tile.inStart[local + 1], true, contextualReachability);
+    }
+
+    public EdgeWeightTable getEdgeWeights() {
+        return weights;
+    }
+
+    public EdgeLabelTable<E> getEdgeLabels() {
+        return labels;
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<N> getContractedNodes(int edgeId) {
+        int t = Arrays.binarySearch(tileFirstEdge, edgeId);
+        if (t < 0) {
+            t = -t - 2;
+        } else {
+            while (tileFirstEdge[t + 1] == edgeId) {
+                t++;
+            }
+        }
+        Tile<N, E> tile = getTile(t);
+        if (tile.chains == null || tile.chains[edgeId - tile.firstEdge] == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(Arrays.asList((N[]) tile.chains[edgeId - tile.firstEdge]));
+    }
+
+    public StronglyConnectedComponents getComponents() {
+        return components;
+    }
+
+    public List<InternalNode<N, E>> getNodesAt(Locatable loc) {
+        List<InternalNode<N, E>> result = new ArrayList<InternalNode<N, E>>();
+        if (loc == null || loc.getX() < extent.getMinX() || loc.getX() > extent.getMaxX()
+                || loc.getY() < extent.getMinY() || loc.getY() > extent.getMaxY()) {
+            return result;
+        }
+        Tile<N, E> tile = getTile(tileOf(extent, tilesX, tilesY, loc.getX(), loc.getY()));
+        for (TiledNode<N, E> node : tile.nodes) {
+            if (node.getX() == loc.getX() && node.getY() == loc.getY()) {
+                result.add(node);
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    public List<InternalNode<N, E>> getClosestNodes(final Locatable location, int number, int maxDistance) {
+        int minTile = tileOf(extent, tilesX, tilesY, location.getX() - maxDistance, location.getY() - maxDistance);
+        int maxTile = tileOf(extent, tilesX, tilesY, location.getX() + maxDistance, location.getY() + maxDistance);
+        List<InternalNode<N, E>> result = new ArrayList<InternalNode<N, E>>();
+        for (int ty = minTile / tilesX; ty <= maxTile / tilesX; ty++) {
+            for (int tx = minTile % tilesX; tx <= maxTile % tilesX; tx++) {
+                int t = ty * tilesX + tx;
+                if (tileFirstNode[t] < tileFirstNode[t + 1]) {
+                    result.addAll(getTile(t).index.getNClosest(location, number, maxDistance));
+                }
+            }
+        }
+        Collections.sort(result, new Comparator<InternalNode<N, E>>() {
+            public int compare(InternalNode<N, E> a, InternalNode<N, E> b) {
+                return Double.compare(distance(location, a), distance(location, b));
+            }
+        });
+        return Collections.unmodifiableList(result.size() > number ? result.subList(0, number) : result);
+    }
+
+    private static double distance(Locatable a, Locatable b) {
+        double dx = a.getX() - b.getX();
+        double dy = a.getY() - b.getY();
+        return Math.sqrt(dx * dx + dy * dy);
+    }
+
+    public Iterator<InternalNode<N, E>> iterator() {
+        return new Iterator<InternalNode<N, E>>() {
+            private int next = 0;
+
+            public boolean hasNext() {
+                return next < nodeCount;
+            }
+
+            public InternalNode<N, E> next() {
+                if (next >= nodeCount) {
+                    throw new NoSuchElementException();
+                }
+                return getNode(next++);
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Finds the edge from the given node to the given node.
+     */
+    private int findEdge(TiledNode<N, E> from, InternalNode<N, E> to) {
+        Tile<N, E> tile = getTile(from.tile);
+        int local = from.id - tile.firstNode;
+        for (int e = tile.outStart[local]; e < tile.outStart[local + 1]; e++) {
+            if (tile.outTargets[e] == to.getId()) {
+                return e;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Iterates over a range of the outgoing or incoming adjacency of a tile. The tiles of the neighbours are loaded
+     * when the iterator reaches them.
+     */
+    private class TiledEdgeIterator implements EdgeIterator<N, E> {
+
+        private final Tile<N, E> tile;
+        private final int end;
+        private final boolean incoming;
+        private final ContextualReachability<N, E, ?> reachability;
+        private int position;
+        private Tile<N, E> neighbourTile;
+        private InternalNode<N, E> next;
+        private int nextEdgeId;
+        private int currentEdgeId = -1;
+
+        private TiledEdgeIterator(Tile<N, E> tile, int start, int end, boolean incoming,
+                                  ContextualReachability<N, E, ?> reachability) {
+            this.tile = tile;
+            this.position = start;
+            this.end = end;
+            this.incoming = incoming;
+            this.reachability = reachability;
+            this.neighbourTile = tile;
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (position < end) {
+                int neighbour = incoming ? tile.inPairs[2 * position] : tile.outTargets[position];
+                int edgeId = incoming ? tile.inPairs[2 * position + 1] : tile.firstEdge + position;
+                position++;
+                if (neighbour < neighbourTile.firstNode || neighbour >= neighbourTile.firstNode + neighbourTile.nodes.length) {
+                    neighbourTile = tileOfNode(neighbour);
+                }
+                InternalNode<N, E> candidate = neighbourTile.nodes[neighbour - neighbourTile.firstNode];
+                if (reachability == null || reachability.isReachable(candidate)) {
+                    next = candidate;
+                    nextEdgeId = edgeId;
+                    return;
+                }
+            }
+        }
+
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        public InternalNode<N, E> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            InternalNode<N, E> result = next;
+            currentEdgeId = nextEdgeId;
+            advance();
+            return result;
+        }
+
+        public int getEdgeId() {
+            if (currentEdgeId < 0) {
+                throw new IllegalStateException("next() has not been called");
+            }
+            return currentEdgeId;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * The loaded contents of a tile.
+     */
+    private static final class Tile<N extends Locatable, E> {
+
+        private final int firstNode;
+        private final int firstEdge;
+        private final TiledNode<N, E>[] nodes;
+        private final Map<N, TiledNode<N, E>> lookup;
+        private int[] outStart;
+        private int[] outTargets;
+        private int[] inStart;
+        private int[] inPairs;
+        private Locatable[][] chains; // domain nodes, typed as their bound so they can be viewed as a list of N
+        private SpatialIndex<InternalNode<N, E>> index;
+
+        @SuppressWarnings("unchecked")
+        private Tile(int firstNode, int firstEdge, int nodeCount) {
+            this.firstNode = firstNode;
+            this.firstEdge = firstEdge;
+            this.nodes = (TiledNode<N, E>[]) new TiledNode<?, ?>[nodeCount];
+            this.lookup = new HashMap<N, TiledNode<N, E>>();
+        }
+    }
+
+    /**
+     * A bounded cache of tiles, that evicts the least recently used tile when it is full.
+     */
+    private class TileCache {
+
+        private final LinkedHashMap<Integer, Tile<N, E>> tiles;
+
+        @SuppressWarnings("serial")
+        private TileCache(final int maxTiles) {
+            tiles = new LinkedHashMap<Integer, Tile<N, E>>(16, 0.75f, true) {
+                protected boolean removeEldestEntry(Map.Entry<Integer, Tile<N, E>> eldest) {
+                    if (size() > maxTiles) {
+                        metrics.evicted();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        private synchronized Tile<N, E> lookup(int t) {
+            return tiles.get(t);
+        }
+
+        /**
+         * Stores a loaded tile, unless another thread stored the same tile in the meantime.
+         */
+        private synchronized Tile<N, E> store(int t, Tile<N, E> tile) {
+            Tile<N, E> existing = tiles.get(t);
+            if (existing != null) {
+                return existing;
+            }
+            tiles.put(t, tile);
+            return tile;
+        }
+    }
+
+    /**
+     * A node of a tiled graph. Nodes are equal when they have the same id in the same graph.
+     */
+    private static final class TiledNode<N extends Locatable, E> implements InternalNode<N, E> {
+
+        private final int id;
+        private final int tile;
+        private final N wrappedNode;
+        private final FileTiledGraph<N, E> graph;
+
+        private TiledNode(int id, int tile, N wrappedNode, FileTiledGraph<N, E> graph) {
+            this.id = id;
+            this.tile = tile;
+            this.wrappedNode = wrappedNode;
+            this.graph = graph;
+        }
+
+        public N getWrappedNode() {
+            return wrappedNode;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public void addEdge(InternalNode<N, E> toNode, EdgeWeight edgeWeight) {
+            throw new UnsupportedOperationException("A tiled graph can not be modified");
+        }
+
+        public void addEdge(InternalNode<N, E> toNode, EdgeWeight edgeWeight, E edgeLabel) {
+            throw new UnsupportedOperationException("A tiled graph can not be modified");
+        }
+
+        public void addReachableFrom(InternalNode<N, E> fromNode, int edgeId) {
+            throw new UnsupportedOperationException("A tiled graph can not be modified");
+        }
+
+        public float getWeightTo(InternalNode<N, E> toNode, int weightIndex) {
+            int local = graph.findEdge(this, toNode);
+            if (local < 0) {
+                return Float.MAX_VALUE;
+            }
+            return graph.weights.getValue(graph.tileFirstEdge[tile] + local, weightIndex);
+        }
+
+        public E getLabelTo(InternalNode<N, E> toNode) {
+            int local = graph.findEdge(this, toNode);
+            return local < 0 ? null : graph.labels.getLabel(graph.tileFirstEdge[tile] + local);
+        }
+
+        public float getX() {
+            return wrappedNode.getX();
+        }
+
+        public float getY() {
+            return wrappedNode.getY();
+        }
+
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof TiledNode)) {
+                return false;
+            }
+            TiledNode<?, ?> other = (TiledNode<?, ?>) o;
+            return id == other.id && graph == other.graph;
+        }
+
+        public int hashCode() {
+            return id;
+        }
+
+        public String toString() {
+            return "TiledNode, wraps: " + wrappedNode;
+        }
+    }
+
+    private static final class ValueWeight implements EdgeWeight {
+
+        private final float[] values;
+
+        private ValueWeight(int size) {
+            this.values = new float[size];
+        }
+
+        public float getValue(int weightIndex) {
+            return values[weightIndex];
+        }
+    }
+}
@@ -21,7 +21,7 @@
 
 package org.geolatte.graph;
 
-import java.util.Iterator;
+import java.util.List;
 
 /**
  * Representation of a graph of internal nodes.
@@ -42,6 +42,22 @@ public interface Graph<N, E> extends Iterable<InternalNode<N, E>> {
      */
     InternalNode<N, E> getInternalNode(N node);
 
+    /**
+     * Gets the number of nodes in this graph. The nodes have ids from 0 to the node count - 1 (see
+     * {@link InternalNode#getId()}).
+     *
+     * @return The number of nodes.
+     */
+    int getNodeCount();
+
+    /**
+     * Gets the internal node with the given id.
+     *
+     * @param id The node id, between 0 and {@link #getNodeCount()} - 1.
+     * @return The internal node with the given id.
+     */
+    InternalNode<N, E> getNode(int id);
+
     /**
      * Gets the edges that start from the given internalNode, depending on the given modus.
      *
@@ -49,7 +65,7 @@ public interface Graph<N, E> extends Iterable<InternalNode<N, E>> {
      * @param contextualReachability An object to determine whether an edge can be used. Can be null.
      * @return A internalNode iterator for the outgoing nodes.
      */
-    Iterator<InternalNode<N, E>> getOutGoingEdges(InternalNode<N, E> internalNode, ContextualReachability<N, E, ?> contextualReachability);
+    EdgeIterator<N, E> getOutGoingEdges(InternalNode<N, E> internalNode, ContextualReachability<N, E, ?> contextualReachability);
     // TODO : getOutgoingEdges -> return iterable so it can be used in for loops
 
     // TODO: add this? would be very convenient for clients
@@ -62,6 +78,42 @@ public interface Graph<N, E> extends Iterable<InternalNode<N, E>> {
      * @param contextualReachability An object to determine whether an edge can be used. Can be null.
      * @return A internalNode iterator for the incoming nodes.
      */
-    Iterator<InternalNode<N, E>> getInComingEdges(InternalNode<N, E> internalNode, ContextualReachability<N, E, ?> contextualReachability);
+    EdgeIterator<N, E> getInComingEdges(InternalNode<N, E> internalNode, ContextualReachability<N, E, ?> contextualReachability);
+
+    /**
+     * Gets the columnar weight storage of this graph. The weights of an edge are looked up by the edge id returned by
+     * the edge iterators of this graph. Weights can be updated while the graph is in use; algorithms work on a
+     * {@link EdgeWeightTable#snapshot()} of the weights.
+     *
+     * @return The edge weights.
+     */
+    EdgeWeightTable getEdgeWeights();
+
+    /**
+     * Gets the interned labels of the edges of this graph, with their attribute columns (see
+     * {@link GraphBuilder#setLabelSchema(LabelSchema)}). The label of an edge is looked up by the edge id returned by
+     * the edge iterators of this graph.
+     *
+     * @return The edge labels.
+     */
+    EdgeLabelTable<E> getEdgeLabels();
+
+    /**
+     * Gets the domain nodes that were removed from the graph when the chain of degree-2 nodes they belonged to was
+     * contracted into the given edge (see {@link GraphBuilder#setContractChains(boolean)}).
+     *
+     * @param edgeId The edge id.
+     * @return The contracted nodes, in order from the start to the end of the edge. An empty list if the edge does not
+     *         replace a chain.
+     */
+    List<N> getContractedNodes(int edgeId);
+
+    /**
+     * Gets the strongly connected components of this graph. The components are computed when this method is first
+     * called.
+     *
+     * @return The strongly connected components.
+     */
+    StronglyConnectedComponents getComponents();
 
 }
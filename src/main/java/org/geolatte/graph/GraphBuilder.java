@@ -51,6 +51,36 @@ public interface GraphBuilder<N, E> {
      */
     public void addEdge(N fromNode, N toNode, EdgeWeight edgeWeight, E edgeLabel);
 
+    /**
+     * Sets whether chains of degree-2 nodes are contracted when the graph is built. A node is part of a chain when it
+     * only connects two other nodes, either by a one-way link or by edges in both directions to both nodes (e.g. shape
+     * points of a road). Every chain is replaced by a single edge per direction, with the sum of the weights of the
+     * chain for every weight kind, and the label of the first edge of the chain. The contracted nodes are no longer
+     * nodes of the graph, but paths found by the graph algorithms still include them. Disabled by default.
+     *
+     * @param contract True to contract chains.
+     */
+    public void setContractChains(boolean contract);
+
+    /**
+     * Sets the minimum number of nodes of the strongly connected components that are kept when the graph is built
+     * (see {@link StronglyConnectedComponents}). Smaller components, typically unreachable islands such as parking
+     * lots or data errors, are removed together with their edges, so that queries from or to them fail immediately
+     * instead of exploring the whole island or the whole graph. Components are pruned before chains are contracted.
+     * By default all components are kept.
+     *
+     * @param size The minimum component size, 0 or 1 to keep all components.
+     */
+    public void setMinComponentSize(int size);
+
+    /**
+     * Sets the attribute columns that are derived from the edge labels and stored in the label table of the graph
+     * (see {@link Graph#getEdgeLabels()}). By default no columns are stored.
+     *
+     * @param schema The label schema.
+     */
+    public void setLabelSchema(LabelSchema<E> schema);
+
     /**
      * Builds the graph.
      *
@@ -0,0 +1,170 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph;
+
+/**
+ * <p>
+ * Receives the begin and end of the expensive operations of the library: route queries, the phases of a graph build,
+ * spatial index builds and nearest-neighbour queries, and tile loads. A monitor can forward them to a profiler, e.g.
+ * as Java Flight Recorder events.
+ * </p>
+ * <p>
+ * Every operation is reported as a pair of calls: the object returned by the <code>...Started</code> method is passed
+ * back to the matching <code>...Finished</code> method, so that a monitor can keep state per operation without
+ * allocating when it is not interested. All methods do nothing by default. Monitors are called on the thread that
+ * executes the operation, and must be thread-safe.
+ * </p>
+ * <p>
+ * At most one monitor is installed at a time (see {@link #install(GraphMonitor)}). When no monitor is installed, the
+ * cost of monitoring is a single volatile read per operation.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public abstract class GraphMonitor {
+
+    private static volatile GraphMonitor current;
+
+    /**
+     * Installs the monitor that receives all operations from now on.
+     *
+     * @param monitor The monitor, or null to stop monitoring.
+     */
+    public static void install(GraphMonitor monitor) {
+        current = monitor;
+    }
+
+    /**
+     * @return The installed monitor, or null if no monitor is installed.
+     */
+    public static GraphMonitor current() {
+        return current;
+    }
+
+    /**
+     * Called when a route query starts.
+     *
+     * @return A token that is passed to {@link #searchFinished(Object, String, int, boolean, int, int)}.
+     */
+    public Object searchStarted() {
+        return null;
+    }
+
+    /**
+     * Called when a route query has finished.
+     *
+     * @param token        The token returned by {@link #searchStarted()}.
+     * @param algorithm    The name of the algorithm, e.g. "Dijkstra", "A*" or "BFS".
+     * @param weightIndex  The index of the weight that was minimized.
+     * @param found        True if the destination was found.
+     * @param settledNodes The number of settled nodes.
+     * @param pathLength   The number of nodes on the resulting path, or reached by a search without destination.
+     */
+    public void searchFinished(Object token, String algorithm, int weightIndex, boolean found, int settledNodes,
+                               int pathLength) {
+    }
+
+    /**
+     * Called when a phase of a graph build starts.
+     *
+     * @param phase The name of the phase: "prune", "contract" or "create" for a build, "compact" for the compaction
+     *              of a {@link DynamicGraph}, "hierarchy" for the preprocessing of a contraction hierarchy,
+     *              "overlay" for the partition of a multi-level overlay, "customize" for its customization,
+     *              "arcflags" for the preprocessing of arc-flags and "labels" for the hub labels of a weight index.
+     * @return A token that is passed to {@link #buildPhaseFinished(Object, String, int, int)}.
+     */
+    public Object buildPhaseStarted(String phase) {
+        return null;
+    }
+
+    /**
+     * Called when a phase of a graph build has finished.
+     *
+     * @param token     The token returned by {@link #buildPhaseStarted(String)}.
+     * @param phase     The name of the phase.
+     * @param nodeCount The number of nodes that went into the phase.
+     * @param edgeCount The number of edges that went into the phase.
+     */
+    public void buildPhaseFinished(Object token, String phase, int nodeCount, int edgeCount) {
+    }
+
+    /**
+     * Called when the build of a spatial index starts.
+     *
+     * @return A token that is passed to {@link #indexBuildFinished(Object, int, int)}.
+     */
+    public Object indexBuildStarted() {
+        return null;
+    }
+
+    /**
+     * Called when the build of a spatial index has finished.
+     *
+     * @param token     The token returned by {@link #indexBuildStarted()}.
+     * @param nodeCount The number of indexed nodes.
+     * @param cellCount The number of cells of the index.
+     */
+    public void indexBuildFinished(Object token, int nodeCount, int cellCount) {
+    }
+
+    /**
+     * Called when a nearest-neighbour query on a spatial index starts.
+     *
+     * @return A token that is passed to {@link #nearestQueryFinished(Object, int, int, int)}.
+     */
+    public Object nearestQueryStarted() {
+        return null;
+    }
+
+    /**
+     * Called when a nearest-neighbour query on a spatial index has finished.
+     *
+     * @param token      The token returned by {@link #nearestQueryStarted()}.
+     * @param requested  The requested number of neighbours.
+     * @param candidates The number of candidates within the maximum distance.
+     * @param found      The number of returned neighbours.
+     */
+    public void nearestQueryFinished(Object token, int requested, int candidates, int found) {
+    }
+
+    /**
+     * Called when a tile of a {@link TiledGraph} is loaded.
+     *
+     * @param tile The index of the tile.
+     * @return A token that is passed to {@link #tileLoadFinished(Object, int, int, int)}.
+     */
+    public Object tileLoadStarted(int tile) {
+        return null;
+    }
+
+    /**
+     * Called when a tile of a {@link TiledGraph} has been loaded.
+     *
+     * @param token     The token returned by {@link #tileLoadStarted(int)}.
+     * @param tile      The index of the tile.
+     * @param nodeCount The number of nodes of the tile, -1 if the load failed.
+     * @param byteCount The size of the tile in the file.
+     */
+    public void tileLoadFinished(Object token, int tile, int nodeCount, int byteCount) {
+    }
+}
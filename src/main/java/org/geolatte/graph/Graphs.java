@@ -21,6 +21,8 @@
 
 package org.geolatte.graph;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -29,7 +31,9 @@ import java.util.*;
 public class Graphs {
 
     /**
-     * Creates a builder for directed grid-indexed graphs.
+     * Creates a builder for directed grid-indexed graphs. The graph stores the weights that the first edge provides:
+     * all values of an {@link ArrayEdgeWeight}, or a single weight (weight index 0) for any other edge weight. Use
+     * {@link #createGridIndexedGraphBuilder(Extent, int, WeightSchema)} to declare the weights explicitly.
      *
      * @param extent     The extent that determines the bounds of the graph.
      * @param resolution The grid resolution.
@@ -39,69 +43,181 @@ public class Graphs {
      */
     public static <N extends Locatable, E> GraphBuilder<N, E> createGridIndexedGraphBuilder(Extent extent, int resolution) {
 
-        return new GridIndexedGraphBuilder<N, E>(extent, resolution);
+        return new GridIndexedGraphBuilder<N, E>(extent, resolution, null);
     }
 
-    // Builder implementation
-    private static class GridIndexedGraphBuilder<N extends Locatable, E> implements GraphBuilder<N, E> {
+    /**
+     * Creates a builder for directed grid-indexed graphs that stores the weight kinds declared by the given schema.
+     *
+     * @param extent     The extent that determines the bounds of the graph.
+     * @param resolution The grid resolution.
+     * @param schema     The weight kinds to store for every edge.
+     * @param <N>        Type of the domain nodes.
+     * @param <E>        The edge label type.
+     * @return A builder for grid indexed graphs.
+     */
+    public static <N extends Locatable, E> GraphBuilder<N, E> createGridIndexedGraphBuilder(Extent extent, int resolution, WeightSchema schema) {
 
-        private final SpatialIndexBuilder<InternalNode<N, E>> indexBuilder;
-        private final Map<N, InternalNode<N, E>> map = new HashMap<N, InternalNode<N, E>>(); // map is used to quickly locate Nodes based on node equality.
+        return new GridIndexedGraphBuilder<N, E>(extent, resolution, schema);
+    }
 
-        private GridIndexedGraphBuilder(Extent extent, int resolution) {
+    /**
+     * Creates a builder for directed graphs with compressed adjacency lists. Compared to grid-indexed graphs, these
+     * graphs use far less memory per edge, at the cost of decoding the adjacency lists while iterating over edges.
+     * Compressed graphs can not be modified once built. The graph stores the weights that the first edge
+     * provides, as for {@link #createGridIndexedGraphBuilder(Extent, int)}.
+     *
+     * @param extent     The extent that determines the bounds of the graph.
+     * @param resolution The resolution of the spatial index.
+     * @param <N>        Type of the domain nodes.
+     * @param <E>        The edge label type.
+     * @return A builder for compressed graphs.
+     */
+    public static <N extends Locatable, E> GraphBuilder<N, E> createCompressedGraphBuilder(Extent extent, int resolution) {
 
-            this.indexBuilder = SpatialIndexes.createGridIndexBuilder(extent, resolution);
-        }
+        return new CompressedGraphBuilder<N, E>(extent, resolution, null);
+    }
 
+    /**
+     * Creates a builder for directed graphs with compressed adjacency lists (see
+     * {@link #createCompressedGraphBuilder(Extent, int)}) that stores the weight kinds declared by the given schema.
+     *
+     * @param extent     The extent that determines the bounds of the graph.
+     * @param resolution The resolution of the spatial index.
+     * @param schema     The weight kinds to store for every edge.
+     * @param <N>        Type of the domain nodes.
+     * @param <E>        The edge label type.
+     * @return A builder for compressed graphs.
+     */
+    public static <N extends Locatable, E> GraphBuilder<N, E> createCompressedGraphBuilder(Extent extent, int resolution, WeightSchema schema) {
 
-        public LocateableGraph<N, E> build() throws BuilderException {
+        return new CompressedGraphBuilder<N, E>(extent, resolution, schema);
+    }
 
-            if (map.isEmpty()) {
-                throw new IllegalStateException("No nodes added since last built");
-            }
+    /**
+     * Creates a builder for directed graphs that can be changed after they have been built (see {@link DynamicGraph}).
+     * The base graph has compressed adjacency lists (see {@link #createCompressedGraphBuilder(Extent, int)}). The
+     * graph stores the weights that the first edge provides, as for
+     * {@link #createGridIndexedGraphBuilder(Extent, int)}.
+     *
+     * @param extent     The extent that determines the bounds of the graph, also for nodes added after it is built.
+     * @param resolution The resolution of the spatial index.
+     * @param <N>        Type of the domain nodes.
+     * @param <E>        The edge label type.
+     * @return A builder for dynamic graphs.
+     */
+    public static <N extends Locatable, E> DynamicGraphBuilder<N, E> createDynamicGraphBuilder(Extent extent, int resolution) {
 
-            map.clear(); // empty to save on memory.
-            SpatialIndex<InternalNode<N, E>> index = this.indexBuilder.build();
-            return new GridIndexedGraph<N, E>(index);
-        }
+        return new OverlayGraph.Builder<N, E>(extent, resolution, null);
+    }
+
+    /**
+     * Creates a builder for dynamic graphs (see {@link #createDynamicGraphBuilder(Extent, int)}) that stores the
+     * weight kinds declared by the given schema.
+     *
+     * @param extent     The extent that determines the bounds of the graph, also for nodes added after it is built.
+     * @param resolution The resolution of the spatial index.
+     * @param schema     The weight kinds to store for every edge.
+     * @param <N>        Type of the domain nodes.
+     * @param <E>        The edge label type.
+     * @return A builder for dynamic graphs.
+     */
+    public static <N extends Locatable, E> DynamicGraphBuilder<N, E> createDynamicGraphBuilder(Extent extent, int resolution, WeightSchema schema) {
+
+        return new OverlayGraph.Builder<N, E>(extent, resolution, schema);
+    }
+
+    /**
+     * Writes the given graph to a file as a tiled graph, that can be opened with
+     * {@link #openTiledGraph(File, TileCodec, int)}. The extent is divided in a grid of tiles, and every tile holds
+     * the nodes that lie within it, with their edges.
+     *
+     * @param graph      The graph to write.
+     * @param extent     The extent of the graph, all nodes must lie within it.
+     * @param tilesX     The number of tiles along the x axis.
+     * @param tilesY     The number of tiles along the y axis.
+     * @param resolution The resolution of the spatial index of every tile.
+     * @param codec      Converts the nodes and labels of the graph to bytes.
+     * @param file       The file to write.
+     * @param <N>        Type of the domain nodes.
+     * @param <E>        The edge label type.
+     * @throws IOException If the file can not be written.
+     */
+    public static <N extends Locatable, E> void writeTiledGraph(Graph<N, E> graph, Extent extent, int tilesX, int tilesY,
+                                                                int resolution, TileCodec<N, E> codec, File file) throws IOException {
+
+        FileTiledGraph.write(graph, extent, tilesX, tilesY, resolution, codec, file);
+    }
+
+    /**
+     * Opens a tiled graph file written by {@link #writeTiledGraph}. Tiles are loaded when they are needed, and at
+     * most the given number of tiles is kept in memory.
+     *
+     * @param file     The file.
+     * @param codec    Converts the nodes and labels of the graph from bytes.
+     * @param maxTiles The maximum number of tiles to keep in memory.
+     * @param <N>      Type of the domain nodes.
+     * @param <E>      The edge label type.
+     * @return The tiled graph. It should be closed when it is no longer used.
+     * @throws IOException If the file can not be read.
+     */
+    public static <N extends Locatable, E> TiledGraph<N, E> openTiledGraph(File file, TileCodec<N, E> codec, int maxTiles) throws IOException {
+
+        return new FileTiledGraph<N, E>(file, codec, maxTiles);
+    }
+
+    // Builder implementation
+    private static class GridIndexedGraphBuilder<N extends Locatable, E> extends EdgeListGraphBuilder<N, E> {
 
-        public void addEdge(N fromNode, N toNode, EdgeWeight edgeWeight) {
+        private GridIndexedGraphBuilder(Extent extent, int resolution, WeightSchema schema) {
 
-            addEdge(fromNode, toNode, edgeWeight, null);
+            super(extent, resolution, schema);
         }
 
-        public void addEdge(N fromNode, N toNode, EdgeWeight edgeWeight, E edgeLabel) {
+        @SuppressWarnings("unchecked")
+        LocateableGraph<N, E> createGraph(EdgeList edges) throws BuilderException {
 
-            if (fromNode.equals(toNode)) {
-                return;
-                //System.err.println("Tried adding zero-length edge");
+            EdgeWeightTable weights = edges.weights;
+            weights.seal();
+            EdgeLabelTable<E> labels = new EdgeLabelTable<E>(labelSchema);
+            for (int e = 0; e < edges.edgeCount; e++) {
+                labels.add((E) edges.labels[e]);
             }
 
-            // Lookup nodes or create them if new
-            InternalNode<N, E> fNw = this.map.get(fromNode);
-            InternalNode<N, E> toNw = this.map.get(toNode);
-            if (fNw == null) {
-                fNw = new LocatedInternalNodeWrapper<N, E>(fromNode);
-                this.indexBuilder.insert(fNw);
-                this.map.put(fromNode, fNw);
+            SpatialIndexBuilder<InternalNode<N, E>> indexBuilder = SpatialIndexes.createGridIndexBuilder(extent, resolution);
+            LocatedInternalNodeWrapper<N, E>[] wrappers =
+                    (LocatedInternalNodeWrapper<N, E>[]) new LocatedInternalNodeWrapper<?, ?>[edges.nodeCount];
+            for (int i = 0; i < edges.nodeCount; i++) {
+                wrappers[i] = new LocatedInternalNodeWrapper<N, E>((N) edges.nodes[i], weights, labels, i);
+                indexBuilder.insert(wrappers[i]);
             }
-            if (toNw == null) {
-                toNw = new LocatedInternalNodeWrapper<N, E>(toNode);
-                this.indexBuilder.insert(toNw);
-                this.map.put(toNode, toNw);
+
+            // Add the edges between the nodes, edge ids are the positions in the edge list
+            for (int e = 0; e < edges.edgeCount; e++) {
+                wrappers[edges.from[e]].addEdge(wrappers[edges.to[e]], e);
             }
 
-            // Add the edge between the nodes
-            fNw.addEdge(toNw, edgeWeight, edgeLabel);
+            SpatialIndex<InternalNode<N, E>> index = indexBuilder.build();
+            return new GridIndexedGraph<N, E>(wrappers, index, weights, labels, ChainTable.<N>create(edges, null));
         }
 
         private static class GridIndexedGraph<N extends Locatable, E> implements LocateableGraph<N, E> {
 
+            private final InternalNode<N, E>[] nodes;
             private final SpatialIndex<InternalNode<N, E>> index;
+            private final EdgeWeightTable weights;
+            private final EdgeLabelTable<E> labels;
+            private final ChainTable<N> chains;
+            private volatile StronglyConnectedComponents components;
 
-            private GridIndexedGraph(SpatialIndex<InternalNode<N, E>> index) {
+            private GridIndexedGraph(InternalNode<N, E>[] nodes, SpatialIndex<InternalNode<N, E>> index,
+                                     EdgeWeightTable weights, EdgeLabelTable<E> labels, ChainTable<N> chains) {
 
+                this.nodes = nodes;
                 this.index = index;
+                this.weights = weights;
+                this.labels = labels;
+                this.chains = chains;
             }
 
 
@@ -129,89 +245,105 @@ public class Graphs {
                 return null;
             }
 
-
-            public Iterator<InternalNode<N, E>> getOutGoingEdges(InternalNode<N, E> internalNode, ContextualReachability<N, E, ?> contextualReachability) {
-
-                if (contextualReachability == null) {
-                    contextualReachability = new EmptyContextualReachability<N, E, Object>();
-                }
-                return new OutEdgeIteratorImpl<N, E>((InternalNodeWrapper<N, E>) internalNode, contextualReachability);
+            public int getNodeCount() {
+                return this.nodes.length;
             }
 
-            public Iterator<InternalNode<N, E>> getInComingEdges(InternalNode<N, E> internalNode, ContextualReachability<N, E, ?> contextualReachability) {
-
-                if (contextualReachability == null) {
-                    contextualReachability = new EmptyContextualReachability<N, E, Object>();
-                }
-                return new InEdgeIteratorImpl<N, E>((InternalNodeWrapper<N, E>) internalNode, contextualReachability);
+            public InternalNode<N, E> getNode(int id) {
+                return this.nodes[id];
             }
-        }
 
-        /**
-         * Simple private implementation of OutEdgeIterator.
-         *
-         * @param <N>
-         */
-        private static class OutEdgeIteratorImpl<N extends Locatable, E> implements Iterator<InternalNode<N, E>> {
 
-            final Iterator<InternalNode<N, E>> reachableNodesIterator;
+            public EdgeIterator<N, E> getOutGoingEdges(InternalNode<N, E> internalNode, ContextualReachability<N, E, ?> contextualReachability) {
 
-            private OutEdgeIteratorImpl(InternalNodeWrapper<N, E> from, ContextualReachability<N, E, ?> contextualReachability) {
+                InternalNodeWrapper<N, E> wrapper = (InternalNodeWrapper<N, E>) internalNode;
+                return new EdgeIteratorImpl<N, E>(wrapper.toNodes, wrapper.toEdges, contextualReachability);
+            }
 
+            public EdgeIterator<N, E> getInComingEdges(InternalNode<N, E> internalNode, ContextualReachability<N, E, ?> contextualReachability) {
 
-                List<InternalNode<N, E>> reachableNodes = new ArrayList<InternalNode<N, E>>();
-                for (InternalNode<N, E> node : from.toNodes) {
-                    if (contextualReachability.isReachable(node)) {
-                        reachableNodes.add(node);
-                    }
-                }
-                reachableNodesIterator = reachableNodes.iterator();
+                InternalNodeWrapper<N, E> wrapper = (InternalNodeWrapper<N, E>) internalNode;
+                return new EdgeIteratorImpl<N, E>(wrapper.getReachableFrom(), wrapper.fromEdges, contextualReachability);
             }
 
-            public boolean hasNext() {
-                return reachableNodesIterator.hasNext();
+            public EdgeWeightTable getEdgeWeights() {
+                return this.weights;
             }
 
-            public InternalNode<N, E> next() {
-
-                return reachableNodesIterator.next();
+            public EdgeLabelTable<E> getEdgeLabels() {
+                return this.labels;
             }
 
-            public void remove() {
-
-                throw new UnsupportedOperationException();
+            public List<N> getContractedNodes(int edgeId) {
+                return this.chains.get(edgeId);
             }
 
+            public StronglyConnectedComponents getComponents() {
+                StronglyConnectedComponents result = this.components;
+                if (result == null) {
+                    // computed once, queries only read the volatile field
+                    synchronized (this) {
+                        result = this.components;
+                        if (result == null) {
+                            this.components = result = StronglyConnectedComponents.analyze(this);
+                        }
+                    }
+                }
+                return result;
+            }
         }
 
         /**
-         * Simple private implementation of InEdgeIterator.
+         * Simple private implementation of EdgeIterator over the outgoing or incoming edges of a node. Neighbours that
+         * are not reachable are skipped while iterating.
          *
          * @param <N>
          */
-        private static class InEdgeIteratorImpl<N extends Locatable, E> implements Iterator<InternalNode<N, E>> {
+        private static class EdgeIteratorImpl<N extends Locatable, E> implements EdgeIterator<N, E> {
 
-            final Iterator<InternalNode<N, E>> reachableNodesIterator;
+            private final InternalNode<N, E>[] nodes;
+            private final int[] edges;
+            private final ContextualReachability<N, E, ?> contextualReachability;
+            private int next = -1;
+            private int current = -1;
 
-            private InEdgeIteratorImpl(InternalNodeWrapper<N, E> to, ContextualReachability<N, E, ?> contextualReachability) {
+            private EdgeIteratorImpl(InternalNode<N, E>[] nodes, int[] edges, ContextualReachability<N, E, ?> contextualReachability) {
 
+                this.nodes = nodes;
+                this.edges = edges;
+                this.contextualReachability = contextualReachability;
+                advance();
+            }
 
-                List<InternalNode<N, E>> reachableFromNodes = new ArrayList<InternalNode<N, E>>();
-                for (InternalNode<N, E> node : to.getReachableFrom()) {
-                    if (contextualReachability.isReachable(node)) {
-                        reachableFromNodes.add(node);
+            private void advance() {
+                next++;
+                if (contextualReachability != null) {
+                    while (next < nodes.length && !contextualReachability.isReachable(nodes[next])) {
+                        next++;
                     }
                 }
-                reachableNodesIterator = reachableFromNodes.iterator();
             }
 
             public boolean hasNext() {
-                return reachableNodesIterator.hasNext();
+                return next < nodes.length;
             }
 
             public InternalNode<N, E> next() {
 
-                return reachableNodesIterator.next();
+                if (next >= nodes.length) {
+                    throw new NoSuchElementException();
+                }
+                current = next;
+                advance();
+                return nodes[current];
+            }
+
+            public int getEdgeId() {
+
+                if (current < 0) {
+                    throw new IllegalStateException("next() has not been called");
+                }
+                return edges[current];
             }
 
             public void remove() {
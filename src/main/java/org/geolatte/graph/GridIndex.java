@@ -93,6 +93,8 @@ class GridIndex<T extends Locatable> implements SpatialIndex<T> {
         if (locatable == null || num == 0) {
             return new ArrayList<T>();
         }
+        GraphMonitor monitor = GraphMonitor.current();
+        Object monitorToken = monitor == null ? null : monitor.nearestQueryStarted();
 
         // Real min and max values
         double maxX = Math.min(locatable.getX() + maxDistance, this.extent.getMaxX());
@@ -144,6 +146,9 @@ class GridIndex<T extends Locatable> implements SpatialIndex<T> {
         for (int i = 0; i < Math.min(num, candidates.size()); i++) {
             result.add((T)candidates.get(i).obj); // TODO : not sure why this cast is required (does not compile without)
         }
+        if (monitor != null) {
+            monitor.nearestQueryFinished(monitorToken, num, candidates.size(), result.size());
+        }
 
         return result;
     }
@@ -41,6 +41,14 @@ public interface InternalNode<N, E> extends Locatable {
      */
     N getWrappedNode();
 
+    /**
+     * Gets the id of this node in its graph. Node ids are dense: they range from 0 to the number of nodes in the graph
+     * - 1, so algorithms can keep per-node data in arrays.
+     *
+     * @return The node id.
+     */
+    int getId();
+
     /**
      * Creates a label-less edge from this node to a given node.
      *
@@ -58,7 +66,14 @@ public interface InternalNode<N, E> extends Locatable {
      */
     void addEdge(InternalNode<N, E> toNode, EdgeWeight edgeWeight, E edgeLabel);
 
-    void addReachableFrom(InternalNode<N, E> fromNode);
+    /**
+     * Registers an incoming edge from the given node. Called by {@link #addEdge(InternalNode, EdgeWeight, Object)} on
+     * the 'to' node.
+     *
+     * @param fromNode The node from which the edge starts.
+     * @param edgeId   The id of the edge.
+     */
+    void addReachableFrom(InternalNode<N, E> fromNode, int edgeId);
 
     /**
      * Gets the edge weight to get from this node to the given {@code toNode}, using the given weight index (see
@@ -36,19 +36,35 @@ class InternalNodeWrapper<N, E> implements InternalNode<N, E> {
     // performance reasons, it should not be implemented.
 
     final N wrappedNodal;
+    final int id;
+    final EdgeWeightTable weights;
+    final EdgeLabelTable<E> labels;
     InternalNodeWrapper<N, E>[] toNodes = new InternalNodeWrapper[0];
-    EdgeWeight[] toWeights = new EdgeWeight[0];
-    Object[] toLabels = new Object[0];
+    int[] toEdges = new int[0];
     private InternalNode<N, E>[] fromInternalNodes = new InternalNode[0];
+    int[] fromEdges = new int[0];
 
-    InternalNodeWrapper(N node) {
+    /**
+     * @param node    The wrapped domain node.
+     * @param weights The weight table of the graph, the weights of new edges are appended to this table.
+     * @param labels  The label table of the graph, the labels of new edges are appended to this table.
+     * @param id      The id of the node in the graph.
+     */
+    InternalNodeWrapper(N node, EdgeWeightTable weights, EdgeLabelTable<E> labels, int id) {
         this.wrappedNodal = node;
+        this.id = id;
+        this.weights = weights;
+        this.labels = labels;
     }
 
     public N getWrappedNode() {
         return this.wrappedNodal;
     }
 
+    public int getId() {
+        return this.id;
+    }
+
     public void addEdge(InternalNode<N, E> toInternalNode, EdgeWeight edgeWeight) {
 
         addEdge(toInternalNode, edgeWeight, null);
@@ -58,16 +74,29 @@ class InternalNodeWrapper<N, E> implements InternalNode<N, E> {
 
         // TODO : do not add multiple edges between the same pair of nodes
 
+        int edgeId = weights.add(edgeWeight);
+        if (labels.add(edgeLabel) != edgeId) {
+            throw new IllegalStateException("The weight and label tables are out of step");
+        }
+        addEdge(toInternalNode, edgeId);
+    }
+
+    /**
+     * Adds an edge whose weights and label are already stored in the weight and label tables.
+     *
+     * @param toInternalNode The node to connect to.
+     * @param edgeId         The id of the edge in the weight and label tables.
+     */
+    void addEdge(InternalNode<N, E> toInternalNode, int edgeId) {
+
         //add the outgoing edge (complete information)
         toNodes = Arrays.copyOf(toNodes, toNodes.length + 1);
-        toWeights = Arrays.copyOf(toWeights, toWeights.length + 1);
-        toLabels = Arrays.copyOf(toLabels, toLabels.length + 1);
+        toEdges = Arrays.copyOf(toEdges, toEdges.length + 1);
         toNodes[toNodes.length - 1] = (InternalNodeWrapper<N, E>) toInternalNode;
-        toWeights[toWeights.length - 1] = edgeWeight;
-        toLabels[toLabels.length - 1] = edgeLabel;
+        toEdges[toEdges.length - 1] = edgeId;
 
         //add the incoming edge info
-        toInternalNode.addReachableFrom(this);
+        toInternalNode.addReachableFrom(this, edgeId);
     }
 
     protected InternalNode<N, E>[] getConnected() {
@@ -82,27 +111,28 @@ class InternalNodeWrapper<N, E> implements InternalNode<N, E> {
         return this.fromInternalNodes;
     }
 
-    public void addReachableFrom(InternalNode<N, E> fromInternalNode) {
+    public void addReachableFrom(InternalNode<N, E> fromInternalNode, int edgeId) {
         this.fromInternalNodes = Arrays.copyOf(this.fromInternalNodes, this.fromInternalNodes.length + 1);
         this.fromInternalNodes[this.fromInternalNodes.length - 1] = fromInternalNode;
+        this.fromEdges = Arrays.copyOf(this.fromEdges, this.fromEdges.length + 1);
+        this.fromEdges[this.fromEdges.length - 1] = edgeId;
     }
 
     public float getWeightTo(InternalNode<N, E> toInternalNode, int weightKind) {
 
         for (int i = 0; i < this.toNodes.length; i++) {
             if (this.toNodes[i].wrappedNodal.equals(toInternalNode.getWrappedNode())) {
-                return this.toWeights[i].getValue(weightKind);
+                return this.weights.getValue(this.toEdges[i], weightKind);
             }
         }
         return Float.MAX_VALUE;
     }
 
-    @SuppressWarnings("unchecked")
     public E getLabelTo(InternalNode<N, E> toNode) {
 
         for (int i = 0; i < this.toNodes.length; i++) {
-            if (this.toNodes[i].wrappedNodal.equals(toNode.getWrappedNode())) {
-                return (E) this.toLabels[i];
+            if (this.toNodes[i] == toNode) {
+                return this.labels.getLabel(this.toEdges[i]);
             }
         }
         return null;
@@ -0,0 +1,171 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Declares the typed attribute columns that are stored next to the labels of a graph (see {@link EdgeLabelTable}).
+ * The position of a column in the schema is the column index that is used to read its values.
+ * </p>
+ *
+ * @param <E> The edge label type.
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public final class LabelSchema<E> {
+
+    private final String[] names;
+    private final boolean[] byteColumns;
+    private final LabelAttribute<? super E>[] attributes;
+
+    /**
+     * Creates a schema without attribute columns. This is the schema used when no schema is declared.
+     *
+     * @param <E> The edge label type.
+     * @return An empty label schema.
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> LabelSchema<E> none() {
+        LabelAttribute<? super E>[] attributes = (LabelAttribute<? super E>[]) new LabelAttribute<?>[0];
+        return new LabelSchema<E>(new String[0], new boolean[0], attributes);
+    }
+
+    /**
+     * Creates a schema with columns whose values were stored before, e.g. in a file. Labels can not be added to a
+     * table with such a schema.
+     */
+    @SuppressWarnings("unchecked")
+    static <E> LabelSchema<E> stored(String[] names, boolean[] byteColumns) {
+        LabelAttribute<? super E>[] attributes = (LabelAttribute<? super E>[]) new LabelAttribute<?>[names.length];
+        return new LabelSchema<E>(names, byteColumns, attributes);
+    }
+
+    private LabelSchema(String[] names, boolean[] byteColumns, LabelAttribute<? super E>[] attributes) {
+        this.names = names;
+        this.byteColumns = byteColumns;
+        this.attributes = attributes;
+    }
+
+    /**
+     * Creates a copy of this schema with an additional column of int values.
+     *
+     * @param name      The name of the column, e.g. "wayId".
+     * @param attribute Derives the value of the column from a label.
+     * @return A new schema.
+     * @throws IllegalArgumentException When the schema already has a column with the given name.
+     */
+    public LabelSchema<E> withIntColumn(String name, LabelAttribute<? super E> attribute) {
+        return with(name, false, attribute);
+    }
+
+    /**
+     * Creates a copy of this schema with an additional column of byte values. The attribute must return values in
+     * the range of a byte.
+     *
+     * @param name      The name of the column, e.g. "roadClass".
+     * @param attribute Derives the value of the column from a label.
+     * @return A new schema.
+     * @throws IllegalArgumentException When the schema already has a column with the given name.
+     */
+    public LabelSchema<E> withByteColumn(String name, LabelAttribute<? super E> attribute) {
+        return with(name, true, attribute);
+    }
+
+    @SuppressWarnings("unchecked")
+    private LabelSchema<E> with(String name, boolean byteColumn, LabelAttribute<? super E> attribute) {
+        if (name == null || attribute == null) {
+            throw new IllegalArgumentException("Column name and attribute can not be null");
+        }
+        if (Arrays.asList(names).contains(name)) {
+            throw new IllegalArgumentException("Duplicate label column: " + name);
+        }
+        String[] newNames = Arrays.copyOf(names, names.length + 1);
+        boolean[] newByteColumns = Arrays.copyOf(byteColumns, byteColumns.length + 1);
+        LabelAttribute<? super E>[] newAttributes = Arrays.copyOf(attributes, attributes.length + 1);
+        newNames[names.length] = name;
+        newByteColumns[names.length] = byteColumn;
+        newAttributes[names.length] = attribute;
+        return new LabelSchema<E>(newNames, newByteColumns, newAttributes);
+    }
+
+    /**
+     * @return The number of columns.
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Gets the name of the column with the given index.
+     *
+     * @param column The column index.
+     * @return The name of the column.
+     * @throws IndexOutOfBoundsException When the given index is not valid.
+     */
+    public String getName(int column) {
+        return names[column];
+    }
+
+    /**
+     * Checks whether the column with the given index holds byte values.
+     *
+     * @param column The column index.
+     * @return True for a byte column, false for an int column.
+     * @throws IndexOutOfBoundsException When the given index is not valid.
+     */
+    public boolean isByteColumn(int column) {
+        return byteColumns[column];
+    }
+
+    /**
+     * Gets the index of the column with the given name.
+     *
+     * @param name The name of the column.
+     * @return The column index.
+     * @throws IllegalArgumentException When the schema has no column with the given name.
+     */
+    public int indexOf(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown label column: " + name);
+    }
+
+    LabelAttribute<? super E> getAttribute(int column) {
+        return attributes[column];
+    }
+
+    public String toString() {
+        StringBuilder builder = new StringBuilder("LabelSchema[");
+        for (int i = 0; i < names.length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(names[i]).append(':').append(byteColumns[i] ? "byte" : "int");
+        }
+        return builder.append(']').toString();
+    }
+}
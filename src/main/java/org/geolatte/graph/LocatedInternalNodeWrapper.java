@@ -11,8 +11,8 @@ package org.geolatte.graph;
  */
 public class LocatedInternalNodeWrapper<N extends Locatable, E> extends InternalNodeWrapper<N, E> {
 
-    LocatedInternalNodeWrapper(N node) {
-        super(node);
+    LocatedInternalNodeWrapper(N node, EdgeWeightTable weights, EdgeLabelTable<E> labels, int id) {
+        super(node, weights, labels, id);
     }
 
     public float getX() {
@@ -0,0 +1,45 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph;
+
+/**
+ * <p>
+ * Creates the domain nodes of a graph that is loaded from a file (see {@link EdgeFileLoader}). Every node id is passed
+ * once: nodes are interned by id, so the same node object is used for all edges of a node.
+ * </p>
+ *
+ * @param <N> The domain node type.
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public interface NodeFactory<N> {
+
+    /**
+     * Creates the domain node with the given id.
+     *
+     * @param id The id of the node in the file.
+     * @param x  The x coordinate of the node.
+     * @param y  The y coordinate of the node.
+     * @return A domain node.
+     */
+    public N createNode(long id, float x, float y);
+}
@@ -0,0 +1,836 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * {@link DynamicGraph} implementation that keeps the changes in an overlay on top of a {@link CompressedGraph}.
+ * </p>
+ * <p>
+ * The state of the graph (base graph plus overlay) is an immutable {@link State} object, that is replaced as a whole
+ * by every change. Writers are serialized; readers read the current state once per call. The overlay is stored in
+ * append-only arrays that are shared by consecutive states: added edges, the order in which edges were removed and
+ * the order in which nodes were disabled or enabled. A state only reads the entries below its own counts, so a change
+ * costs the same regardless of the size of the overlay. The overlay is bounded by compaction, which builds a new
+ * compressed base graph from the current state.
+ * </p>
+ *
+ * @param <N> The domain node type.
+ * @param <E> The edge label type.
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+class OverlayGraph<N extends Locatable, E> implements DynamicGraph<N, E> {
+
+    private final Extent extent;
+    private final int resolution;
+    private final WeightSchema schema;
+    private volatile State<N, E> state;
+    private ScheduledExecutorService compactor;
+
+    private OverlayGraph(Extent extent, int resolution, WeightSchema schema, CompressedGraph<N, E> base) {
+        this.extent = extent;
+        this.resolution = resolution;
+        this.schema = schema;
+        this.state = new State<N, E>(new Base<N, E>(this, base, Collections.<Integer>emptySet(), 0));
+    }
+
+    // Graph methods, on the current state
+
+    public InternalNode<N, E> getInternalNode(N node) {
+        return state.getInternalNode(node);
+    }
+
+    public int getNodeCount() {
+        return state.getNodeCount();
+    }
+
+    public InternalNode<N, E> getNode(int id) {
+        return state.getNode(id);
+    }
+
+    public EdgeIterator<N, E> getOutGoingEdges(InternalNode<N, E> internalNode, ContextualReachability<N, E, ?> contextualReachability) {
+        return state.getOutGoingEdges(internalNode, contextualReachability);
+    }
+
+    public EdgeIterator<N, E> getInComingEdges(InternalNode<N, E> internalNode, ContextualReachability<N, E, ?> contextualReachability) {
+        return state.getInComingEdges(internalNode, contextualReachability);
+    }
+
+    public EdgeWeightTable getEdgeWeights() {
+        return state.getEdgeWeights();
+    }
+
+    public EdgeLabelTable<E> getEdgeLabels() {
+        return state.getEdgeLabels();
+    }
+
+    public List<N> getContractedNodes(int edgeId) {
+        return state.getContractedNodes(edgeId);
+    }
+
+    public StronglyConnectedComponents getComponents() {
+        return state.getComponents();
+    }
+
+    public List<InternalNode<N, E>> getNodesAt(Locatable loc) {
+        return state.getNodesAt(loc);
+    }
+
+    public List<InternalNode<N, E>> getClosestNodes(Locatable location, int number, int maxDistance) {
+        return state.getClosestNodes(location, number, maxDistance);
+    }
+
+    public Iterator<InternalNode<N, E>> iterator() {
+        return state.iterator();
+    }
+
+    public LocateableGraph<N, E> snapshot() {
+        return state.snapshot();
+    }
+
+    public long getCompactionCount() {
+        return state.base.compaction;
+    }
+
+    public int getOverlaySize() {
+        State<N, E> current = state;
+        return current.addedCount + current.removedCount;
+    }
+
+    // Changes
+
+    public void addEdge(N fromNode, N toNode, EdgeWeight edgeWeight) {
+        addEdge(fromNode, toNode, edgeWeight, null);
+    }
+
+    public synchronized void addEdge(N fromNode, N toNode, EdgeWeight edgeWeight, E edgeLabel) {
+
+        if (fromNode.equals(toNode)) {
+            return;
+        }
+        State<N, E> next = new State<N, E>(state);
+        OverlayNode<N, E> from = next.lookup(fromNode);
+        OverlayNode<N, E> to = next.lookup(toNode);
+        int edgeId = next.base.weights.append(edgeWeight);
+        if (next.base.labels.add(edgeLabel) != edgeId) {
+            throw new IllegalStateException("The weight and label tables are out of step");
+        }
+        next.append(from.id, to.id, edgeId);
+        state = next;
+    }
+
+    public synchronized boolean removeEdge(N fromNode, N toNode) {
+
+        State<N, E> current = state;
+        InternalNode<N, E> from = current.getInternalNode(fromNode);
+        if (from == null) {
+            return false;
+        }
+        State<N, E> next = null;
+        EdgeIterator<N, E> edges = current.iterate(from.getId(), true, null, false);
+        while (edges.hasNext()) {
+            if (edges.next().getWrappedNode().equals(toNode)) {
+                if (next == null) {
+                    next = new State<N, E>(current);
+                }
+                next.remove(edges.getEdgeId()); // not seen by the iteration, which reads the current state
+            }
+        }
+        if (next == null) {
+            return false;
+        }
+        next.components = current.components;
+        state = next;
+        return true;
+    }
+
+    public boolean disableNode(N node) {
+        return setDisabled(node, true);
+    }
+
+    public boolean enableNode(N node) {
+        return setDisabled(node, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized boolean setDisabled(N node, boolean disabled) {
+
+        State<N, E> current = state;
+        OverlayNode<N, E> internalNode = (OverlayNode<N, E>) current.getInternalNode(node);
+        if (internalNode == null || current.isDisabled(internalNode) == disabled) {
+            return false;
+        }
+        State<N, E> next = new State<N, E>(current);
+        next.toggle(internalNode);
+        if (disabled) {
+            next.components = current.components;
+        }
+        state = next;
+        return true;
+    }
+
+    // Compaction
+
+    public synchronized void compact() {
+
+        State<N, E> current = state;
+        if (current.addedCount == 0 && current.removedCount == 0) {
+            return;
+        }
+        GraphMonitor monitor = GraphMonitor.current();
+        Object monitorToken = monitor == null ? null : monitor.buildPhaseStarted("compact");
+
+        // collect the remaining edges of the current state, with their current weights
+        Object[] nodes = new Object[current.nodeCount];
+        for (int i = 0; i < current.nodeCount; i++) {
+            nodes[i] = current.nodes[i].getWrappedNode();
+        }
+        int capacity = current.base.edgeCount + current.addedCount;
+        int[] from = new int[capacity];
+        int[] to = new int[capacity];
+        int[] oldEdgeIds = new int[capacity];
+        Object[] labels = new Object[capacity];
+        Object[][] chains = new Object[capacity][];
+        EdgeWeightTable oldWeights = current.base.weights;
+        EdgeWeightTable start = oldWeights.snapshot();
+        EdgeWeightTable weights = new EdgeWeightTable(schema);
+        EdgeListGraphBuilder.RowWeight row = new EdgeListGraphBuilder.RowWeight(start);
+        int edgeCount = 0;
+        for (int v = 0; v < current.nodeCount; v++) {
+            EdgeIterator<N, E> edges = current.iterate(v, true, null, false);
+            while (edges.hasNext()) {
+                from[edgeCount] = v;
+                to[edgeCount] = edges.next().getId();
+                row.edgeId = edges.getEdgeId();
+                oldEdgeIds[edgeCount] = row.edgeId;
+                labels[edgeCount] = current.getLabel(row.edgeId);
+                List<N> chain = current.getContractedNodes(row.edgeId);
+                chains[edgeCount] = chain.isEmpty() ? null : chain.toArray();
+                weights.add(row);
+                edgeCount++;
+            }
+        }
+        EdgeList edgeList = new EdgeList(nodes, current.nodeCount, from, to, labels, weights, edgeCount, chains);
+        CompressedGraphBuilder<N, E> builder = new CompressedGraphBuilder<N, E>(extent, resolution, schema);
+        builder.setLabelSchema(current.base.labels.getSchema());
+        int[] newEdgeIds = new int[edgeCount];
+        CompressedGraph<N, E> graph;
+        try {
+            graph = builder.createGraph(edgeList, newEdgeIds);
+        } catch (BuilderException e) {
+            throw new IllegalStateException("Compaction failed");
+        }
+
+        // disabled nodes stay disabled, under their new id
+        Set<Integer> disabled = new HashSet<Integer>();
+        for (int v = 0; v < current.nodeCount; v++) {
+            if (current.isDisabled(current.nodes[v])) {
+                disabled.add(graph.getInternalNode(current.nodes[v].getWrappedNode()).getId());
+            }
+        }
+        State<N, E> next = new State<N, E>(new Base<N, E>(this, graph, disabled, current.base.compaction + 1));
+
+        // weight updates made while compacting are replayed on the new table, later ones are refused by the old table
+        synchronized (oldWeights) {
+            EdgeWeightTable end = oldWeights.snapshot();
+            if (end.getVersion() != start.getVersion()) {
+                WeightUpdateBatch batch = new WeightUpdateBatch();
+                for (int e = 0; e < edgeCount; e++) {
+                    for (int i = 0; i < schema.size(); i++) {
+                        float value = end.getValue(oldEdgeIds[e], i);
+                        if (value != start.getValue(oldEdgeIds[e], i)) {
+                            batch.add(newEdgeIds[e], i, value);
+                        }
+                    }
+                }
+                if (batch.size() > 0) {
+                    graph.getEdgeWeights().update(batch);
+                }
+            }
+            oldWeights.retire();
+            state = next;
+        }
+        if (monitor != null) {
+            monitor.buildPhaseFinished(monitorToken, "compact", edgeList.nodeCount, edgeList.edgeCount);
+        }
+    }
+
+    public synchronized void startBackgroundCompaction(long interval, TimeUnit unit) {
+
+        stopBackgroundCompaction();
+        compactor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "graph-compaction");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        compactor.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                try {
+                    compact();
+                } catch (RuntimeException e) {
+                    // keep the overlay, and try again at the next interval
+                }
+            }
+        }, interval, interval, unit);
+    }
+
+    public synchronized void stopBackgroundCompaction() {
+
+        if (compactor != null) {
+            compactor.shutdown();
+            compactor = null;
+        }
+    }
+
+    /**
+     * A base graph, and the nodes that wrap its nodes. Shared by all states until the next compaction.
+     */
+    private static final class Base<N extends Locatable, E> {
+
+        private final OverlayGraph<N, E> owner;
+        private final CompressedGraph<N, E> graph;
+        private final OverlayNode<N, E>[] nodes;
+        private final EdgeWeightTable weights;
+        private final EdgeLabelTable<E> labels;
+        private final int edgeCount;
+        private final long compaction;
+        // the added nodes of all states on this base; a state only sees the nodes below its own node count
+        private final Map<N, OverlayNode<N, E>> addedNodes = new ConcurrentHashMap<N, OverlayNode<N, E>>();
+
+        @SuppressWarnings("unchecked")
+        private Base(OverlayGraph<N, E> owner, CompressedGraph<N, E> graph, Set<Integer> disabledNodes,
+                     long compaction) {
+            this.owner = owner;
+            this.compaction = compaction;
+            this.graph = graph;
+            this.weights = graph.getEdgeWeights();
+            this.labels = graph.getEdgeLabels();
+            this.edgeCount = weights.getEdgeCount();
+            this.nodes = (OverlayNode<N, E>[]) new OverlayNode<?, ?>[graph.getNodeCount()];
+            for (int i = 0; i < nodes.length; i++) {
+                nodes[i] = new OverlayNode<N, E>(i, graph.getNode(i).getWrappedNode(), owner, this,
+                        disabledNodes.contains(i));
+            }
+        }
+    }
+
+    /**
+     * An immutable state of the graph: the base graph and the overlay of changes.
+     */
+    private static final class State<N extends Locatable, E> implements LocateableGraph<N, E> {
+
+        private final Base<N, E> base;
+        private final EdgeWeightTable weights;
+
+        // The arrays below are shared by consecutive states and only appended to, until they are grown into a copy.
+        // Entries written after a state was published may or may not be seen by its readers; a state ignores every
+        // entry at or beyond its own counts, and only the entries below them are guaranteed to be visible.
+
+        // nodes, including the added nodes
+        private OverlayNode<N, E>[] nodes;
+        private int nodeCount;
+
+        // added edges, by index. The edges of a node form a chain of indices + 1, that starts at the node.
+        private int[] addedFrom;
+        private int[] addedTo;
+        private int[] addedNextOut;
+        private int[] addedNextIn;
+        private int addedCount;
+
+        // the number of the removal of each edge, by edge id: the edge is removed if it is not 0 and <= removedCount
+        private int[] removedAt;
+        private int removedCount;
+
+        // nodes that were disabled or enabled, in order. The toggles of a node form a chain like the added edges.
+        private int[] toggleNext;
+        private int toggleCount;
+
+        private volatile StronglyConnectedComponents components;
+
+        private State(Base<N, E> base) {
+            this.base = base;
+            this.weights = base.weights;
+            this.nodes = base.nodes;
+            this.nodeCount = base.nodes.length;
+            this.addedFrom = new int[0];
+            this.addedTo = new int[0];
+            this.addedNextOut = new int[0];
+            this.addedNextIn = new int[0];
+            this.toggleNext = new int[0];
+        }
+
+        /**
+         * Creates a copy of the given state, to be changed before it is published. The components are not copied,
+         * since the change may affect them; changes that only remove edges or disable nodes can not join components,
+         * and keep them.
+         */
+        private State(State<N, E> state) {
+            this(state, state.weights);
+        }
+
+        private State(State<N, E> state, EdgeWeightTable weights) {
+            this.base = state.base;
+            this.weights = weights;
+            this.nodes = state.nodes;
+            this.nodeCount = state.nodeCount;
+            this.addedFrom = state.addedFrom;
+            this.addedTo = state.addedTo;
+            this.addedNextOut = state.addedNextOut;
+            this.addedNextIn = state.addedNextIn;
+            this.addedCount = state.addedCount;
+            this.removedAt = state.removedAt;
+            this.removedCount = state.removedCount;
+            this.toggleNext = state.toggleNext;
+            this.toggleCount = state.toggleCount;
+        }
+
+        /**
+         * Creates an immutable view of this state. The snapshot has the same topology, so it shares the components.
+         */
+        private State<N, E> snapshot() {
+            State<N, E> snapshot = new State<N, E>(this, weights.snapshot());
+            snapshot.components = getComponents();
+            return snapshot;
+        }
+
+        /**
+         * Gets the node for the given domain node, adding it if it is not yet part of the graph.
+         */
+        @SuppressWarnings("unchecked")
+        private OverlayNode<N, E> lookup(N node) {
+            OverlayNode<N, E> found = (OverlayNode<N, E>) getInternalNode(node);
+            if (found != null) {
+                return found;
+            }
+            Extent extent = base.owner.extent;
+            if (node.getX() < extent.getMinX() || node.getX() > extent.getMaxX()
+                    || node.getY() < extent.getMinY() || node.getY() > extent.getMaxY()) {
+                throw new RuntimeException("Tried insert object that lies out of bounds: " + node);
+            }
+            if (nodeCount == nodes.length) {
+                nodes = Arrays.copyOf(nodes, nodeCount + (nodeCount >> 1) + 1);
+            }
+            found = new OverlayNode<N, E>(nodeCount, node, base.owner, base, false);
+            nodes[nodeCount++] = found;
+            base.addedNodes.put(node, found);
+            return found;
+        }
+
+        private void append(int from, int to, int edgeId) {
+            if (edgeId != base.edgeCount + addedCount) {
+                throw new IllegalStateException("Edge ids out of sync with the weight table");
+            }
+            if (addedCount == addedFrom.length) {
+                int capacity = addedCount + (addedCount >> 1) + 1;
+                addedFrom = Arrays.copyOf(addedFrom, capacity);
+                addedTo = Arrays.copyOf(addedTo, capacity);
+                addedNextOut = Arrays.copyOf(addedNextOut, capacity);
+                addedNextIn = Arrays.copyOf(addedNextIn, capacity);
+            }
+            addedFrom[addedCount] = from;
+            addedTo[addedCount] = to;
+            OverlayNode<N, E> fromNode = nodes[from];
+            OverlayNode<N, E> toNode = nodes[to];
+            if (fromNode.lastOut == 0) {
+                fromNode.firstOut = addedCount + 1;
+            } else {
+                addedNextOut[fromNode.lastOut - 1] = addedCount + 1;
+            }
+            fromNode.lastOut = addedCount + 1;
+            if (toNode.lastIn == 0) {
+                toNode.firstIn = addedCount + 1;
+            } else {
+                addedNextIn[toNode.lastIn - 1] = addedCount + 1;
+            }
+            toNode.lastIn = addedCount + 1;
+            addedCount++;
+        }
+
+        private void remove(int edgeId) {
+            if (removedAt == null || edgeId >= removedAt.length) {
+                int capacity = Math.max(edgeId + 1, base.edgeCount + addedCount);
+                capacity += capacity >> 3;
+                removedAt = removedAt == null ? new int[capacity] : Arrays.copyOf(removedAt, capacity);
+            }
+            removedAt[edgeId] = ++removedCount;
+        }
+
+        private boolean isRemoved(int edgeId) {
+            int[] removed = removedAt;
+            if (removed == null || edgeId >= removed.length) {
+                return false;
+            }
+            int at = removed[edgeId];
+            return at != 0 && at <= removedCount;
+        }
+
+        private void toggle(OverlayNode<N, E> node) {
+            if (toggleCount == toggleNext.length) {
+                toggleNext = Arrays.copyOf(toggleNext, toggleCount + (toggleCount >> 1) + 1);
+            }
+            if (node.lastToggle == 0) {
+                node.firstToggle = toggleCount + 1;
+            } else {
+                toggleNext[node.lastToggle - 1] = toggleCount + 1;
+            }
+            node.lastToggle = toggleCount + 1;
+            toggleCount++;
+        }
+
+        /**
+         * A node is disabled if it was disabled in the base graph, and every toggle of the node in this state flips it.
+         */
+        private boolean isDisabled(OverlayNode<N, E> node) {
+            boolean disabled = node.baseDisabled;
+            int toggle = node.firstToggle;
+            while (toggle != 0 && toggle <= toggleCount) {
+                disabled = !disabled;
+                toggle = toggleNext[toggle - 1];
+            }
+            return disabled;
+        }
+
+        private EdgeIterator<N, E> iterate(int nodeId, boolean outgoing, ContextualReachability<N, E, ?> reachability,
+                                           boolean skipDisabled) {
+            return new OverlayEdgeIterator<N, E>(this, nodeId, outgoing, reachability, skipDisabled);
+        }
+
+        private E getLabel(int edgeId) {
+            return base.labels.getLabel(edgeId);
+        }
+
+        public InternalNode<N, E> getInternalNode(N node) {
+            InternalNode<N, E> baseNode = base.graph.getInternalNode(node);
+            if (baseNode != null) {
+                return base.nodes[baseNode.getId()];
+            }
+            // the map may hold a node added after this state, or by a change that failed
+            OverlayNode<N, E> added = base.addedNodes.get(node);
+            return added != null && added.id < nodeCount && nodes[added.id] == added ? added : null;
+        }
+
+        public int getNodeCount() {
+            return nodeCount;
+        }
+
+        public InternalNode<N, E> getNode(int id) {
+            if (id >= nodeCount) {
+                throw new IndexOutOfBoundsException("No node with id " + id);
+            }
+            return nodes[id];
+        }
+
+        public EdgeIterator<N, E> getOutGoingEdges(InternalNode<N, E> internalNode, ContextualReachability<N, E, ?> contextualReachability) {
+            return iterate(internalNode.getId(), true, contextualReachability, true);
+        }
+
+        public EdgeIterator<N, E> getInComingEdges(InternalNode<N, E> internalNode, ContextualReachability<N, E, ?> contextualReachability) {
+            return iterate(internalNode.getId(), false, contextualReachability, true);
+        }
+
+        public EdgeWeightTable getEdgeWeights() {
+            return weights;
+        }
+
+        public EdgeLabelTable<E> getEdgeLabels() {
+            return base.labels;
+        }
+
+        public List<N> getContractedNodes(int edgeId) {
+            if (edgeId < base.edgeCount) {
+                return base.graph.getContractedNodes(edgeId);
+            }
+            return Collections.emptyList();
+        }
+
+        public StronglyConnectedComponents getComponents() {
+            StronglyConnectedComponents result = components;
+            if (result == null) {
+                // computed once per state, queries only read the volatile field
+                synchronized (this) {
+                    result = components;
+                    if (result == null) {
+                        components = result = StronglyConnectedComponents.analyze(this);
+                    }
+                }
+            }
+            return result;
+        }
+
+        public List<InternalNode<N, E>> getNodesAt(Locatable loc) {
+            List<InternalNode<N, E>> result = new ArrayList<InternalNode<N, E>>();
+            for (InternalNode<N, E> node : base.graph.getNodesAt(loc)) {
+                result.add(base.nodes[node.getId()]);
+            }
+            for (int i = base.nodes.length; i < nodeCount; i++) {
+                if (loc != null && nodes[i].getX() == loc.getX() && nodes[i].getY() == loc.getY()) {
+                    result.add(nodes[i]);
+                }
+            }
+            return Collections.unmodifiableList(result);
+        }
+
+        public List<InternalNode<N, E>> getClosestNodes(final Locatable location, int number, int maxDistance) {
+            List<InternalNode<N, E>> result = new ArrayList<InternalNode<N, E>>();
+            for (InternalNode<N, E> node : base.graph.getClosestNodes(location, number, maxDistance)) {
+                result.add(base.nodes[node.getId()]);
+            }
+            if (nodeCount > base.nodes.length) {
+                for (int i = base.nodes.length; i < nodeCount; i++) {
+                    if (distance(location, nodes[i]) <= maxDistance) {
+                        result.add(nodes[i]);
+                    }
+                }
+                Collections.sort(result, new Comparator<InternalNode<N, E>>() {
+                    public int compare(InternalNode<N, E> a, InternalNode<N, E> b) {
+                        return Double.compare(distance(location, a), distance(location, b));
+                    }
+                });
+                if (result.size() > number) {
+                    result = result.subList(0, number);
+                }
+            }
+            return Collections.unmodifiableList(result);
+        }
+
+        private static double distance(Locatable a, Locatable b) {
+            double dx = a.getX() - b.getX();
+            double dy = a.getY() - b.getY();
+            return Math.sqrt(dx * dx + dy * dy);
+        }
+
+        public Iterator<InternalNode<N, E>> iterator() {
+            List<InternalNode<N, E>> list = Arrays.<InternalNode<N, E>>asList(nodes).subList(0, nodeCount);
+            return Collections.unmodifiableList(list).iterator();
+        }
+    }
+
+    /**
+     * Iterates over the edges of a node in the base graph, followed by its edges in the overlay. Removed edges are
+     * skipped, and so are edges from or to disabled nodes, unless disabled nodes are included.
+     */
+    private static final class OverlayEdgeIterator<N extends Locatable, E> implements EdgeIterator<N, E> {
+
+        private final State<N, E> state;
+        private final boolean outgoing;
+        private final ContextualReachability<N, E, ?> reachability;
+        private final boolean skipDisabled;
+        private final EdgeIterator<N, E> baseEdges;
+        private int overlayNext; // index + 1 of the next added edge in the chain of the node, 0 at the end
+        private OverlayNode<N, E> next;
+        private int nextEdgeId = -1;
+        private int currentEdgeId = -1;
+
+        private OverlayEdgeIterator(State<N, E> state, int nodeId, boolean outgoing,
+                                    ContextualReachability<N, E, ?> reachability, boolean skipDisabled) {
+            this.state = state;
+            this.outgoing = outgoing;
+            this.reachability = reachability;
+            this.skipDisabled = skipDisabled;
+            OverlayNode<N, E> node = state.nodes[nodeId];
+            boolean empty = skipDisabled && state.isDisabled(node);
+            if (!empty && nodeId < state.base.nodes.length) {
+                CompressedGraph<N, E> graph = state.base.graph;
+                baseEdges = outgoing ? graph.getOutGoingEdges(graph.getNode(nodeId), null)
+                        : graph.getInComingEdges(graph.getNode(nodeId), null);
+            } else {
+                baseEdges = null;
+            }
+            this.overlayNext = empty ? 0 : (outgoing ? node.firstOut : node.firstIn);
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (baseEdges != null && baseEdges.hasNext()) {
+                OverlayNode<N, E> candidate = state.base.nodes[baseEdges.next().getId()];
+                if (accept(candidate, baseEdges.getEdgeId())) {
+                    next = candidate;
+                    nextEdgeId = baseEdges.getEdgeId();
+                    return;
+                }
+            }
+            // the chain is in the order of addition, so it ends at the first edge added after this state was published
+            while (overlayNext != 0 && overlayNext <= state.addedCount) {
+                int index = overlayNext - 1;
+                overlayNext = (outgoing ? state.addedNextOut : state.addedNextIn)[index];
+                OverlayNode<N, E> candidate = state.nodes[outgoing ? state.addedTo[index] : state.addedFrom[index]];
+                if (accept(candidate, state.base.edgeCount + index)) {
+                    next = candidate;
+                    nextEdgeId = state.base.edgeCount + index;
+                    return;
+                }
+            }
+        }
+
+        private boolean accept(OverlayNode<N, E> node, int edgeId) {
+            return !state.isRemoved(edgeId)
+                    && !(skipDisabled && state.isDisabled(node))
+                    && (reachability == null || reachability.isReachable(node));
+        }
+
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        public InternalNode<N, E> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            InternalNode<N, E> result = next;
+            currentEdgeId = nextEdgeId;
+            advance();
+            return result;
+        }
+
+        public int getEdgeId() {
+            if (currentEdgeId < 0) {
+                throw new IllegalStateException("next() has not been called");
+            }
+            return currentEdgeId;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * A node of a dynamic graph. Its id is valid for the base graph it was created for, and the overlay on top of it.
+     */
+    private static final class OverlayNode<N extends Locatable, E> implements InternalNode<N, E> {
+
+        private final int id;
+        private final N wrappedNode;
+        private final OverlayGraph<N, E> owner;
+        private final Base<N, E> base;
+        private final boolean baseDisabled;
+
+        // the chains of the overlay (see State), as index + 1. The first entries are read by all states, the last
+        // entries only by the writer.
+        private int firstOut;
+        private int lastOut;
+        private int firstIn;
+        private int lastIn;
+        private int firstToggle;
+        private int lastToggle;
+
+        private OverlayNode(int id, N wrappedNode, OverlayGraph<N, E> owner, Base<N, E> base, boolean baseDisabled) {
+            this.id = id;
+            this.wrappedNode = wrappedNode;
+            this.owner = owner;
+            this.base = base;
+            this.baseDisabled = baseDisabled;
+        }
+
+        public N getWrappedNode() {
+            return wrappedNode;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public void addEdge(InternalNode<N, E> toNode, EdgeWeight edgeWeight) {
+            throw new UnsupportedOperationException("Use DynamicGraph.addEdge()");
+        }
+
+        public void addEdge(InternalNode<N, E> toNode, EdgeWeight edgeWeight, E edgeLabel) {
+            throw new UnsupportedOperationException("Use DynamicGraph.addEdge()");
+        }
+
+        public void addReachableFrom(InternalNode<N, E> fromNode, int edgeId) {
+            throw new UnsupportedOperationException("Use DynamicGraph.addEdge()");
+        }
+
+        /**
+         * Finds the current edge from this node to the given node, that can be traversed.
+         */
+        private int findEdge(State<N, E> state, InternalNode<N, E> toNode) {
+            InternalNode<N, E> self = state.base == base ? this : state.getInternalNode(wrappedNode);
+            if (self == null) {
+                return -1;
+            }
+            EdgeIterator<N, E> edges = state.iterate(self.getId(), true, null, true);
+            while (edges.hasNext()) {
+                if (edges.next().getWrappedNode().equals(toNode.getWrappedNode())) {
+                    return edges.getEdgeId();
+                }
+            }
+            return -1;
+        }
+
+        public float getWeightTo(InternalNode<N, E> toNode, int weightIndex) {
+            State<N, E> state = owner.state;
+            int edgeId = findEdge(state, toNode);
+            return edgeId < 0 ? Float.MAX_VALUE : state.weights.getValue(edgeId, weightIndex);
+        }
+
+        public E getLabelTo(InternalNode<N, E> toNode) {
+            State<N, E> state = owner.state;
+            int edgeId = findEdge(state, toNode);
+            return edgeId < 0 ? null : state.getLabel(edgeId);
+        }
+
+        public float getX() {
+            return wrappedNode.getX();
+        }
+
+        public float getY() {
+            return wrappedNode.getY();
+        }
+
+        public String toString() {
+            return "OverlayNode, wraps: " + wrappedNode;
+        }
+    }
+
+    /**
+     * Builds an {@link OverlayGraph} on top of a compressed base graph.
+     */
+    static final class Builder<N extends Locatable, E> extends CompressedGraphBuilder<N, E> implements DynamicGraphBuilder<N, E> {
+
+        Builder(Extent extent, int resolution, WeightSchema schema) {
+            super(extent, resolution, schema);
+        }
+
+        public DynamicGraph<N, E> build() throws BuilderException {
+            return (DynamicGraph<N, E>) super.build();
+        }
+
+        @SuppressWarnings("unchecked")
+        LocateableGraph<N, E> createGraph(EdgeList edges) throws BuilderException {
+            return new OverlayGraph<N, E>(extent, resolution, edges.weights.getSchema(),
+                    (CompressedGraph<N, E>) super.createGraph(edges));
+        }
+    }
+}
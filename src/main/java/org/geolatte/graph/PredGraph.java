@@ -45,11 +45,27 @@ public interface PredGraph<N, E> extends Traversal<N, E> {
      */
     PredGraph<N, E> setPredecessor(PredGraph<N, E> pred);
 
+    /**
+     * Sets the predecessor of the current node, along with the edge that leads from the predecessor to the current
+     * node.
+     *
+     * @param pred   The predecessor.
+     * @param edgeId The id of the edge from the predecessor to the current node.
+     * @return The given pred.
+     */
+    PredGraph<N, E> setPredecessor(PredGraph<N, E> pred, int edgeId);
+
     /**
      * @return The predecessor of the current node. Null if this is the getFirst element of the path.
      */
     PredGraph<N, E> getPredecessor();
 
+    /**
+     * @return The id of the edge from the predecessor to the current node. -1 if there is no predecessor or if the
+     *         predecessor was set without an edge.
+     */
+    int getPredecessorEdge();
+
     /**
      * Sets the weight up to the current node. This usually takes into account its predecessors (the path before this
      * node).
@@ -53,6 +53,11 @@ public class SpatialIndexes {
         // value / resolution provides the cell number
         private final List<Locatable>[][] grid;
         private final int xNumCells, yNumCells;
+        private int nodeCount;
+
+        // the build is monitored from the creation of the builder, as the inserts make up most of it
+        private final GraphMonitor monitor = GraphMonitor.current();
+        private final Object monitorToken = monitor == null ? null : monitor.indexBuildStarted();
 
         @SuppressWarnings("unchecked")
         private GridIndexBuilder(Extent extent, float resolution) {
@@ -99,12 +104,16 @@ public class SpatialIndexes {
 
             }
             cell.add(node);
+            nodeCount++;
 
         }
 
         public SpatialIndex<N> build() throws BuilderException {
             GridIndex<N> index = new GridIndex<N>(this.extent, this.resolution);
             index.setGrid(toCompressedArray(this.grid));
+            if (monitor != null) {
+                monitor.indexBuildFinished(monitorToken, nodeCount, xNumCells * yNumCells);
+            }
             return index;
         }
 
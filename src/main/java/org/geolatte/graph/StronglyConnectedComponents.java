@@ -0,0 +1,359 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * <p>
+ * The strongly connected components of a graph: maximal sets of nodes in which every node can be reached from every
+ * other node. Road networks typically consist of one large component, and a number of small islands (parking lots,
+ * data errors) that can not be reached from, or can not reach, the rest of the network.
+ * </p>
+ * <p>
+ * Components are numbered from 0 to {@link #getComponentCount()} - 1, in reverse topological order: if any node of
+ * component a has an edge to a node of another component b, then a > b. Together with the knowledge of which
+ * components have edges to or from other components, this lets {@link #mayReach(int, int)} rule out most unreachable
+ * destinations without a search. Components are computed with an iterative version of Tarjan's algorithm, in time
+ * linear in the number of nodes and edges.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public final class StronglyConnectedComponents {
+
+    private final int[] component;
+    private final int[] sizes;
+    private final boolean[] hasOutgoing;
+    private final boolean[] hasIncoming;
+
+    /**
+     * Computes the components of a graph given as adjacency arrays.
+     *
+     * @param nodeCount The number of nodes.
+     * @param start     The position of the first outgoing edge of every node in targets, followed by the number of
+     *                  edges.
+     * @param targets   The target node of every edge.
+     */
+    private StronglyConnectedComponents(int nodeCount, int[] start, int[] targets) {
+
+        component = new int[nodeCount];
+        Arrays.fill(component, -1);
+        int[] index = new int[nodeCount];
+        Arrays.fill(index, -1);
+        int[] low = new int[nodeCount];
+        int[] next = new int[nodeCount];
+        int[] call = new int[nodeCount];
+        int[] stack = new int[nodeCount];
+        int[] found = new int[nodeCount];
+        int counter = 0;
+        int count = 0;
+        int stackSize = 0;
+
+        for (int root = 0; root < nodeCount; root++) {
+            if (index[root] >= 0) {
+                continue;
+            }
+            int depth = 0;
+            call[depth++] = root;
+            index[root] = low[root] = counter++;
+            next[root] = start[root];
+            stack[stackSize++] = root;
+            while (depth > 0) {
+                int v = call[depth - 1];
+                if (next[v] < start[v + 1]) {
+                    int w = targets[next[v]++];
+                    if (index[w] < 0) {
+                        index[w] = low[w] = counter++;
+                        next[w] = start[w];
+                        stack[stackSize++] = w;
+                        call[depth++] = w;
+                    } else if (component[w] < 0 && index[w] < low[v]) {
+                        // w is still on the stack
+                        low[v] = index[w];
+                    }
+                } else {
+                    depth--;
+                    if (low[v] == index[v]) {
+                        int w;
+                        int size = 0;
+                        do {
+                            w = stack[--stackSize];
+                            component[w] = count;
+                            size++;
+                        } while (w != v);
+                        found[count++] = size;
+                    }
+                    if (depth > 0) {
+                        int u = call[depth - 1];
+                        if (low[v] < low[u]) {
+                            low[u] = low[v];
+                        }
+                    }
+                }
+            }
+        }
+
+        sizes = Arrays.copyOf(found, count);
+        hasOutgoing = new boolean[count];
+        hasIncoming = new boolean[count];
+        for (int v = 0; v < nodeCount; v++) {
+            for (int k = start[v]; k < start[v + 1]; k++) {
+                int w = targets[k];
+                if (component[v] != component[w]) {
+                    hasOutgoing[component[v]] = true;
+                    hasIncoming[component[w]] = true;
+                }
+            }
+        }
+    }
+
+    private StronglyConnectedComponents(int[] component, int[] sizes, boolean[] hasOutgoing, boolean[] hasIncoming) {
+        this.component = component;
+        this.sizes = sizes;
+        this.hasOutgoing = hasOutgoing;
+        this.hasIncoming = hasIncoming;
+    }
+
+    /**
+     * Writes the components, for a copy of the graph with renumbered nodes.
+     *
+     * @param out   The output.
+     * @param order The id in the analyzed graph of every node of the copy, by its id in the copy.
+     * @throws IOException If the components could not be written.
+     */
+    void write(DataOutput out, int[] order) throws IOException {
+        out.writeInt(sizes.length);
+        for (int c = 0; c < sizes.length; c++) {
+            out.writeInt(sizes[c]);
+            out.writeBoolean(hasOutgoing[c]);
+            out.writeBoolean(hasIncoming[c]);
+        }
+        for (int v : order) {
+            out.writeInt(component[v]);
+        }
+    }
+
+    /**
+     * Reads components written by {@link #write(DataOutput, int[])}.
+     *
+     * @param in        The input.
+     * @param nodeCount The number of nodes of the graph.
+     * @return The components.
+     * @throws IOException If the components could not be read.
+     */
+    static StronglyConnectedComponents read(DataInput in, int nodeCount) throws IOException {
+        int count = in.readInt();
+        int[] sizes = new int[count];
+        boolean[] hasOutgoing = new boolean[count];
+        boolean[] hasIncoming = new boolean[count];
+        for (int c = 0; c < count; c++) {
+            sizes[c] = in.readInt();
+            hasOutgoing[c] = in.readBoolean();
+            hasIncoming[c] = in.readBoolean();
+        }
+        int[] component = new int[nodeCount];
+        for (int v = 0; v < nodeCount; v++) {
+            component[v] = in.readInt();
+        }
+        return new StronglyConnectedComponents(component, sizes, hasOutgoing, hasIncoming);
+    }
+
+    /**
+     * Computes the strongly connected components of the given graph. Graphs keep their components (see
+     * {@link Graph#getComponents()}), so this method is normally only called by graph implementations.
+     *
+     * @param graph The graph.
+     * @param <N>   The domain node type.
+     * @param <E>   The edge label type.
+     * @return The components of the graph.
+     */
+    public static <N, E> StronglyConnectedComponents analyze(Graph<N, E> graph) {
+
+        int nodeCount = graph.getNodeCount();
+        int[] from = new int[graph.getEdgeWeights().getEdgeCount()];
+        int[] to = new int[from.length];
+        int edgeCount = 0;
+        for (InternalNode<N, E> node : graph) {
+            EdgeIterator<N, E> edges = graph.getOutGoingEdges(node, null);
+            while (edges.hasNext()) {
+                if (edgeCount == from.length) {
+                    from = Arrays.copyOf(from, edgeCount + (edgeCount >> 1) + 1);
+                    to = Arrays.copyOf(to, from.length);
+                }
+                from[edgeCount] = node.getId();
+                to[edgeCount] = edges.next().getId();
+                edgeCount++;
+            }
+        }
+        return create(nodeCount, from, to, edgeCount);
+    }
+
+    /**
+     * Computes the strongly connected components of a graph given as a list of edges.
+     */
+    private static StronglyConnectedComponents create(int nodeCount, int[] from, int[] to, int edgeCount) {
+
+        int[] start = new int[nodeCount + 1];
+        for (int e = 0; e < edgeCount; e++) {
+            start[from[e] + 1]++;
+        }
+        for (int v = 0; v < nodeCount; v++) {
+            start[v + 1] += start[v];
+        }
+        int[] fill = Arrays.copyOf(start, nodeCount);
+        int[] targets = new int[edgeCount];
+        for (int e = 0; e < edgeCount; e++) {
+            targets[fill[from[e]]++] = to[e];
+        }
+        return new StronglyConnectedComponents(nodeCount, start, targets);
+    }
+
+    /**
+     * Removes the nodes of all components that have less than the given number of nodes, together with their edges.
+     *
+     * @param edges   The nodes and edges of a graph.
+     * @param minSize The minimum number of nodes of the components to keep.
+     * @return The remaining nodes and edges, or the given edges if no component is removed.
+     */
+    static EdgeList prune(EdgeList edges, int minSize) {
+
+        StronglyConnectedComponents components = create(edges.nodeCount, edges.from, edges.to, edges.edgeCount);
+        int[] newId = new int[edges.nodeCount];
+        Object[] nodes = new Object[edges.nodeCount];
+        int nodeCount = 0;
+        for (int v = 0; v < edges.nodeCount; v++) {
+            if (components.sizes[components.component[v]] >= minSize) {
+                newId[v] = nodeCount;
+                nodes[nodeCount++] = edges.nodes[v];
+            } else {
+                newId[v] = -1;
+            }
+        }
+        if (nodeCount == edges.nodeCount) {
+            return edges;
+        }
+
+        int[] from = new int[edges.edgeCount];
+        int[] to = new int[edges.edgeCount];
+        Object[] labels = new Object[edges.edgeCount];
+        Object[][] chains = edges.chains == null ? null : new Object[edges.edgeCount][];
+        EdgeWeightTable weights = new EdgeWeightTable(edges.weights.getSchema());
+        EdgeListGraphBuilder.RowWeight row = new EdgeListGraphBuilder.RowWeight(edges.weights);
+        int edgeCount = 0;
+        for (int e = 0; e < edges.edgeCount; e++) {
+            if (newId[edges.from[e]] < 0 || newId[edges.to[e]] < 0) {
+                continue;
+            }
+            from[edgeCount] = newId[edges.from[e]];
+            to[edgeCount] = newId[edges.to[e]];
+            labels[edgeCount] = edges.labels[e];
+            if (chains != null) {
+                chains[edgeCount] = edges.chains[e];
+            }
+            row.edgeId = e;
+            weights.add(row);
+            edgeCount++;
+        }
+        return new EdgeList(nodes, nodeCount, from, to, labels, weights, edgeCount, chains);
+    }
+
+    /**
+     * @return The number of components.
+     */
+    public int getComponentCount() {
+        return sizes.length;
+    }
+
+    /**
+     * Gets the component of the node with the given id (see {@link InternalNode#getId()}).
+     *
+     * @param nodeId The node id.
+     * @return The component id.
+     */
+    public int getComponent(int nodeId) {
+        return component[nodeId];
+    }
+
+    /**
+     * Gets the component of the given node.
+     *
+     * @param node A node of the analyzed graph.
+     * @return The component id.
+     */
+    public int getComponent(InternalNode<?, ?> node) {
+        return component[node.getId()];
+    }
+
+    /**
+     * @param component The component id.
+     * @return The number of nodes in the given component.
+     */
+    public int getComponentSize(int component) {
+        return sizes[component];
+    }
+
+    /**
+     * @return The id of the component with the most nodes, -1 if the graph has no nodes.
+     */
+    public int getLargestComponent() {
+        int largest = -1;
+        for (int c = 0; c < sizes.length; c++) {
+            if (largest < 0 || sizes[c] > sizes[largest]) {
+                largest = c;
+            }
+        }
+        return largest;
+    }
+
+    /**
+     * Determines whether a node of one component may be able to reach a node of another component. If this method
+     * returns false, there is no path between the components. If it returns true, there is a path when both
+     * components are the same; otherwise a search is needed to find out.
+     *
+     * @param fromComponent The component of the origin.
+     * @param toComponent   The component of the destination.
+     * @return False if the destination is certainly not reachable from the origin.
+     */
+    public boolean mayReach(int fromComponent, int toComponent) {
+        if (fromComponent == toComponent) {
+            return true;
+        }
+        return fromComponent > toComponent && hasOutgoing[fromComponent] && hasIncoming[toComponent];
+    }
+
+    /**
+     * Determines whether the given destination node may be reachable from the given origin node (see
+     * {@link #mayReach(int, int)}).
+     *
+     * @param origin      The origin node.
+     * @param destination The destination node.
+     * @return False if the destination is certainly not reachable from the origin.
+     */
+    public boolean mayReach(InternalNode<?, ?> origin, InternalNode<?, ?> destination) {
+        return mayReach(component[origin.getId()], component[destination.getId()]);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * <p>
+ * Converts the domain nodes and edge labels of a graph to and from bytes, so that a graph can be stored as a tiled
+ * graph file (see {@link Graphs#writeTiledGraph}) and tiles can be loaded on demand.
+ * </p>
+ *
+ * @param <N> The domain node type.
+ * @param <E> The edge label type.
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public interface TileCodec<N, E> {
+
+    /**
+     * Writes a domain node.
+     *
+     * @param node The node.
+     * @param out  The output to write to.
+     * @throws IOException If writing fails.
+     */
+    public void writeNode(N node, DataOutput out) throws IOException;
+
+    /**
+     * Reads a domain node written by {@link #writeNode(Object, DataOutput)}. The node must be equal to the node that was
+     * written.
+     *
+     * @param in The input to read from.
+     * @return The node.
+     * @throws IOException If reading fails.
+     */
+    public N readNode(DataInput in) throws IOException;
+
+    /**
+     * Writes an edge label. Never called for null labels.
+     *
+     * @param label The label.
+     * @param out   The output to write to.
+     * @throws IOException If writing fails.
+     */
+    public void writeLabel(E label, DataOutput out) throws IOException;
+
+    /**
+     * Reads an edge label written by {@link #writeLabel(Object, DataOutput)}.
+     *
+     * @param in The input to read from.
+     * @return The label.
+     * @throws IOException If reading fails.
+     */
+    public E readLabel(DataInput in) throws IOException;
+}
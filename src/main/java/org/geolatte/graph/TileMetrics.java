@@ -0,0 +1,109 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Counters of the tile cache of a {@link TiledGraph}. The counters are updated while the graph is used.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public final class TileMetrics {
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong loadNanos = new AtomicLong();
+    private final AtomicLong maxLoadNanos = new AtomicLong();
+
+    TileMetrics() {
+    }
+
+    void hit() {
+        hits.incrementAndGet();
+    }
+
+    void loaded(long nanos) {
+        misses.incrementAndGet();
+        loadNanos.addAndGet(nanos);
+        long max = maxLoadNanos.get();
+        while (nanos > max && !maxLoadNanos.compareAndSet(max, nanos)) {
+            max = maxLoadNanos.get();
+        }
+    }
+
+    void evicted() {
+        evictions.incrementAndGet();
+    }
+
+    /**
+     * @return The number of tile requests that were served from memory.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return The number of tile requests that required the tile to be loaded.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return The number of tiles that were evicted from memory.
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return The total time spent loading tiles, in nanoseconds.
+     */
+    public long getTotalLoadTimeNanos() {
+        return loadNanos.get();
+    }
+
+    /**
+     * @return The longest time spent loading a single tile, in nanoseconds.
+     */
+    public long getMaxLoadTimeNanos() {
+        return maxLoadNanos.get();
+    }
+
+    /**
+     * @return The average time spent loading a tile, in nanoseconds. 0 if no tile was loaded.
+     */
+    public long getAverageLoadTimeNanos() {
+        long count = misses.get();
+        return count == 0 ? 0 : loadNanos.get() / count;
+    }
+
+    public String toString() {
+        return String.format("TileMetrics[hits=%d, misses=%d, evictions=%d, avgLoad=%dns, maxLoad=%dns]",
+                getHits(), getMisses(), getEvictions(), getAverageLoadTimeNanos(), getMaxLoadTimeNanos());
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph;
+
+import java.io.IOException;
+
+/**
+ * <p>
+ * A graph that is stored in a file as a grid of tiles over its extent, and only keeps a bounded number of tiles in
+ * memory. Every tile holds the nodes that lie within it and their adjacency lists. Tiles are loaded when they are
+ * first needed, e.g. when an edge iterator crosses into a tile, and the least recently used tiles are evicted when the
+ * cache is full. The edge weights are kept in memory for all edges, so that they can be updated (see
+ * {@link EdgeWeightTable}), and so are the interned edge labels (see {@link EdgeLabelTable}).
+ * </p>
+ * <p>
+ * The graph can be used like any other graph. Internal nodes are equal when they have the same id, so the nodes of a
+ * tile that was evicted and loaded again are interchangeable with the nodes of the earlier copy.
+ * </p>
+ *
+ * @param <N> The domain node type.
+ * @param <E> The edge label type.
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public interface TiledGraph<N, E> extends LocateableGraph<N, E> {
+
+    /**
+     * @return The number of tiles of this graph.
+     */
+    public int getTileCount();
+
+    /**
+     * @return The counters of the tile cache of this graph.
+     */
+    public TileMetrics getTileMetrics();
+
+    /**
+     * Closes the file of this graph. Tiles that are not in memory can no longer be loaded.
+     *
+     * @throws IOException If closing the file fails.
+     */
+    public void close() throws IOException;
+}
@@ -0,0 +1,310 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+
+
+package org.geolatte.graph;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * Time-dependent travel times for the edges of a graph. Edges can be given a {@link TravelTimeFunction}; all other
+ * edges take a constant travel time, read from a weight index of the edge weights of the graph when a search
+ * traverses them. Weight updates of that weight index are thus seen by the time-dependent searches as well.
+ * </p>
+ * <p>
+ * The breakpoints of all functions are stored in two shared arrays, and edges with equal functions, e.g. the same
+ * rush-hour profile, share their breakpoints. Every edge only costs the index of its function.
+ * </p>
+ * <p>
+ * Time-dependent weights are created with a {@link Builder} and are immutable. They cover the edges the graph had
+ * when the builder was created; edges added later, e.g. to a {@link DynamicGraph}, take the constant travel time of
+ * the weight index. They are valid for the graph and its snapshots, see {@link #forGraph(Graph)}, but not across a
+ * {@link DynamicGraph#compact() compaction}, which replaces the weight table.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public final class TimeDependentWeights {
+
+    private final EdgeWeightTable weights;
+    private final int weightIndex;
+    // the function of every edge, or -1 for a constant travel time
+    private final int[] edgeFunctions;
+    // the breakpoints of function f are at functionOffsets[f] to functionOffsets[f + 1] - 1
+    private final int[] functionOffsets;
+    private final float[] departures;
+    private final float[] travelTimes;
+    private final float[] minima;
+
+    private TimeDependentWeights(EdgeWeightTable weights, int weightIndex, int[] edgeFunctions,
+                                 int[] functionOffsets, float[] departures, float[] travelTimes, float[] minima) {
+        this.weights = weights;
+        this.weightIndex = weightIndex;
+        this.edgeFunctions = edgeFunctions;
+        this.functionOffsets = functionOffsets;
+        this.departures = departures;
+        this.travelTimes = travelTimes;
+        this.minima = minima;
+    }
+
+    /**
+     * @return The weight index of the constant travel times.
+     */
+    public int getWeightIndex() {
+        return weightIndex;
+    }
+
+    /**
+     * @return The edge weights of the graph.
+     */
+    public EdgeWeightTable getEdgeWeights() {
+        return weights;
+    }
+
+    /**
+     * Gets these time-dependent weights on the edge weights of a graph, as the time-dependent searches on that graph
+     * see them: the constant travel times are read from its weight table. The graph must be the graph these weights
+     * were built for, or a snapshot of it.
+     *
+     * @param graph The graph.
+     * @return Time-dependent weights with the same functions, on the edge weights of the graph.
+     * @throws IllegalArgumentException When the weights of the graph are not the weights these were built for.
+     */
+    public TimeDependentWeights forGraph(Graph<?, ?> graph) {
+        EdgeWeightTable graphWeights = graph.getEdgeWeights();
+        if (graphWeights == weights) {
+            return this;
+        }
+        if (!weights.isSameLineage(graphWeights)) {
+            throw new IllegalArgumentException("The time-dependent weights do not belong to the graph");
+        }
+        return new TimeDependentWeights(graphWeights, weightIndex, edgeFunctions, functionOffsets, departures,
+                travelTimes, minima);
+    }
+
+    /**
+     * Gets the function of an edge, or -1 for a constant travel time; edges added after these weights were built
+     * have none.
+     */
+    private int function(int edgeId) {
+        return edgeId < edgeFunctions.length ? edgeFunctions[edgeId] : -1;
+    }
+
+    /**
+     * @param edgeId The id of an edge.
+     * @return True if the edge has a travel-time function, false if its travel time is constant.
+     */
+    public boolean isTimeDependent(int edgeId) {
+        return function(edgeId) >= 0;
+    }
+
+    /**
+     * Gets the travel time of an edge for a departure time.
+     *
+     * @param edgeId    The id of the edge.
+     * @param departure The departure time.
+     * @return The travel time.
+     */
+    public float getTravelTime(int edgeId, float departure) {
+        int f = function(edgeId);
+        if (f < 0) {
+            return weights.getValue(edgeId, weightIndex);
+        }
+        return TravelTimeFunction.evaluate(departures, travelTimes, functionOffsets[f], functionOffsets[f + 1],
+                departure);
+    }
+
+    /**
+     * Gets the smallest travel time of an edge over all departure times, e.g. for lower bounds.
+     *
+     * @param edgeId The id of the edge.
+     * @return The smallest travel time.
+     */
+    public float getMinimumTravelTime(int edgeId) {
+        int f = function(edgeId);
+        return f < 0 ? weights.getValue(edgeId, weightIndex) : minima[f];
+    }
+
+    /**
+     * @param edgeId The id of an edge.
+     * @return The number of breakpoints of the function of the edge, 0 if its travel time is constant.
+     */
+    public int getBreakpointCount(int edgeId) {
+        int f = function(edgeId);
+        return f < 0 ? 0 : functionOffsets[f + 1] - functionOffsets[f];
+    }
+
+    /**
+     * @param edgeId The id of an edge with a travel-time function.
+     * @param i      The index of a breakpoint of the function.
+     * @return The departure time of the breakpoint.
+     */
+    public float getDeparture(int edgeId, int i) {
+        return departures[functionOffsets[function(edgeId)] + i];
+    }
+
+    /**
+     * Gets the travel-time function of an edge.
+     *
+     * @param edgeId The id of the edge.
+     * @return The travel-time function, or a constant function with the current weight if the edge has none.
+     */
+    public TravelTimeFunction getFunction(int edgeId) {
+        int f = function(edgeId);
+        if (f < 0) {
+            return TravelTimeFunction.constant(weights.getValue(edgeId, weightIndex));
+        }
+        int from = functionOffsets[f];
+        int to = functionOffsets[f + 1];
+        return new TravelTimeFunction(Arrays.copyOfRange(departures, from, to),
+                Arrays.copyOfRange(travelTimes, from, to));
+    }
+
+    /**
+     * @return The number of distinct travel-time functions.
+     */
+    public int getFunctionCount() {
+        return functionOffsets.length - 1;
+    }
+
+    /**
+     * @return The number of bytes taken by the functions and the function indices of the edges.
+     */
+    public long getSizeInBytes() {
+        return 4L * (edgeFunctions.length + functionOffsets.length + minima.length)
+                + 8L * departures.length;
+    }
+
+    /**
+     * <p>
+     * Collects the travel-time functions of the edges of a graph, and builds the {@link TimeDependentWeights}.
+     * </p>
+     */
+    public static final class Builder {
+
+        private final EdgeWeightTable weights;
+        private final int weightIndex;
+        private final int[] edgeFunctions;
+        private final Map<TravelTimeFunction, Integer> functionIds = new HashMap<TravelTimeFunction, Integer>();
+        private TravelTimeFunction[] functions = new TravelTimeFunction[16];
+
+        /**
+         * Creates a builder for the edges of a graph.
+         *
+         * @param graph       The graph.
+         * @param weightIndex The weight index of the constant travel times of the edges without a function.
+         */
+        public Builder(Graph<?, ?> graph, int weightIndex) {
+            this.weights = graph.getEdgeWeights();
+            if (weightIndex < 0 || weightIndex >= weights.getSchema().size()) {
+                throw new IllegalArgumentException("Invalid weight index: " + weightIndex);
+            }
+            this.weightIndex = weightIndex;
+            this.edgeFunctions = new int[weights.getEdgeCount()];
+            Arrays.fill(edgeFunctions, -1);
+        }
+
+        /**
+         * Sets the travel-time function of an edge.
+         *
+         * @param edgeId   The id of the edge.
+         * @param function The travel-time function, or null for the constant travel time of the weight index.
+         * @return This builder.
+         * @throws IllegalArgumentException When the edge does not exist.
+         */
+        public Builder set(int edgeId, TravelTimeFunction function) {
+            if (edgeId < 0 || edgeId >= edgeFunctions.length) {
+                throw new IllegalArgumentException("No such edge: " + edgeId);
+            }
+            if (function == null) {
+                edgeFunctions[edgeId] = -1;
+                return this;
+            }
+            Integer id = functionIds.get(function);
+            if (id == null) {
+                id = functionIds.size();
+                if (id == functions.length) {
+                    functions = Arrays.copyOf(functions, 2 * id);
+                }
+                functions[id] = function;
+                functionIds.put(function, id);
+            }
+            edgeFunctions[edgeId] = id;
+            return this;
+        }
+
+        /**
+         * Builds the time-dependent weights. Only the functions that are still used by an edge are kept.
+         *
+         * @return The time-dependent weights.
+         */
+        public TimeDependentWeights build() {
+            int[] newIds = new int[functionIds.size()];
+            Arrays.fill(newIds, -1);
+            int count = 0;
+            int breakpoints = 0;
+            for (int f : edgeFunctions) {
+                if (f >= 0 && newIds[f] < 0) {
+                    newIds[f] = count++;
+                    breakpoints += functions[f].getBreakpointCount();
+                }
+            }
+            int[] offsets = new int[count + 1];
+            float[] departures = new float[breakpoints];
+            float[] travelTimes = new float[breakpoints];
+            float[] minima = new float[count];
+            for (int f = 0; f < newIds.length; f++) {
+                int id = newIds[f];
+                if (id < 0) {
+                    continue;
+                }
+                TravelTimeFunction function = functions[f];
+                int n = function.getBreakpointCount();
+                offsets[id + 1] = n;
+                minima[id] = function.getMinimum();
+            }
+            for (int id = 0; id < count; id++) {
+                offsets[id + 1] += offsets[id];
+            }
+            for (int f = 0; f < newIds.length; f++) {
+                int id = newIds[f];
+                if (id < 0) {
+                    continue;
+                }
+                TravelTimeFunction function = functions[f];
+                for (int i = 0; i < function.getBreakpointCount(); i++) {
+                    departures[offsets[id] + i] = function.getDeparture(i);
+                    travelTimes[offsets[id] + i] = function.getBreakpointTravelTime(i);
+                }
+            }
+            int[] edges = new int[edgeFunctions.length];
+            for (int e = 0; e < edges.length; e++) {
+                edges[e] = edgeFunctions[e] < 0 ? -1 : newIds[edgeFunctions[e]];
+            }
+            return new TimeDependentWeights(weights, weightIndex, edges, offsets, departures, travelTimes, minima);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+
+
+package org.geolatte.graph;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * A piecewise-linear travel-time function: the time it takes to traverse an edge or a path as a function of the
+ * departure time. It is given by breakpoints, pairs of a departure time and a travel time, and interpolates linearly
+ * between them. Before the first and after the last breakpoint the travel time is constant.
+ * </p>
+ * <p>
+ * The function must have the FIFO property: departing later never means arriving earlier, i.e. the arrival time
+ * (departure plus travel time) does not decrease over the breakpoints. Time-dependent searches rely on it to be
+ * correct. The units of time are up to the user, but must be the same as the ones of the static weights that the
+ * functions are combined with (see {@link TimeDependentWeights}).
+ * </p>
+ * <p>
+ * A travel-time function is immutable.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public final class TravelTimeFunction {
+
+    private final float[] departures;
+    private final float[] travelTimes;
+
+    /**
+     * Creates a travel-time function that does not depend on the departure time.
+     *
+     * @param travelTime The travel time.
+     * @return A travel-time function.
+     * @throws IllegalArgumentException When the travel time is negative or not finite.
+     */
+    public static TravelTimeFunction constant(float travelTime) {
+        return new TravelTimeFunction(new float[]{0f}, new float[]{travelTime});
+    }
+
+    /**
+     * Creates a travel-time function from its breakpoints.
+     *
+     * @param departures  The departure times of the breakpoints, in increasing order.
+     * @param travelTimes The travel times at the breakpoints.
+     * @throws IllegalArgumentException When there are no breakpoints, the arrays differ in length, the departure times
+     *                                  are not increasing, a travel time is negative or not finite, or the function
+     *                                  does not have the FIFO property.
+     */
+    public TravelTimeFunction(float[] departures, float[] travelTimes) {
+        if (departures.length == 0 || departures.length != travelTimes.length) {
+            throw new IllegalArgumentException("A travel-time function requires as many departure times as travel "
+                    + "times, and at least one of both");
+        }
+        for (int i = 0; i < departures.length; i++) {
+            if (!(travelTimes[i] >= 0) || Float.isInfinite(travelTimes[i]) || Float.isNaN(departures[i])) {
+                throw new IllegalArgumentException("Invalid breakpoint: " + departures[i] + ", " + travelTimes[i]);
+            }
+            if (i > 0 && departures[i] <= departures[i - 1]) {
+                throw new IllegalArgumentException("Departure times must increase: " + departures[i]);
+            }
+            if (i > 0 && departures[i] + travelTimes[i] < departures[i - 1] + travelTimes[i - 1]) {
+                throw new IllegalArgumentException("Travel-time function is not FIFO at departure " + departures[i]);
+            }
+        }
+        this.departures = Arrays.copyOf(departures, departures.length);
+        this.travelTimes = Arrays.copyOf(travelTimes, travelTimes.length);
+    }
+
+    /**
+     * @return The number of breakpoints.
+     */
+    public int getBreakpointCount() {
+        return departures.length;
+    }
+
+    /**
+     * @param i The index of a breakpoint.
+     * @return The departure time of the breakpoint.
+     */
+    public float getDeparture(int i) {
+        return departures[i];
+    }
+
+    /**
+     * @param i The index of a breakpoint.
+     * @return The travel time at the breakpoint.
+     */
+    public float getBreakpointTravelTime(int i) {
+        return travelTimes[i];
+    }
+
+    /**
+     * Gets the travel time for a departure time.
+     *
+     * @param departure The departure time.
+     * @return The travel time.
+     */
+    public float getTravelTime(float departure) {
+        return evaluate(departures, travelTimes, 0, departures.length, departure);
+    }
+
+    /**
+     * @return The smallest travel time over all departure times.
+     */
+    public float getMinimum() {
+        float min = travelTimes[0];
+        for (float travelTime : travelTimes) {
+            min = Math.min(min, travelTime);
+        }
+        return min;
+    }
+
+    /**
+     * @return The largest travel time over all departure times.
+     */
+    public float getMaximum() {
+        float max = travelTimes[0];
+        for (float travelTime : travelTimes) {
+            max = Math.max(max, travelTime);
+        }
+        return max;
+    }
+
+    /**
+     * Evaluates a piecewise-linear function that is stored in a range of shared arrays.
+     *
+     * @param departures  The departure times of the breakpoints.
+     * @param travelTimes The travel times at the breakpoints.
+     * @param from        The index of the first breakpoint.
+     * @param to          The index after the last breakpoint.
+     * @param departure   The departure time.
+     * @return The travel time.
+     */
+    static float evaluate(float[] departures, float[] travelTimes, int from, int to, float departure) {
+        if (departure <= departures[from]) {
+            return travelTimes[from];
+        }
+        if (departure >= departures[to - 1]) {
+            return travelTimes[to - 1];
+        }
+        // the last breakpoint at or before the departure
+        int low = from;
+        int high = to - 1;
+        while (high - low > 1) {
+            int mid = (low + high) >>> 1;
+            if (departures[mid] <= departure) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        float t0 = departures[low];
+        float f0 = travelTimes[low];
+        return f0 + (travelTimes[high] - f0) * (departure - t0) / (departures[high] - t0);
+    }
+
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TravelTimeFunction)) {
+            return false;
+        }
+        TravelTimeFunction other = (TravelTimeFunction) o;
+        return Arrays.equals(departures, other.departures) && Arrays.equals(travelTimes, other.travelTimes);
+    }
+
+    public int hashCode() {
+        return 31 * Arrays.hashCode(departures) + Arrays.hashCode(travelTimes);
+    }
+
+    public String toString() {
+        StringBuilder builder = new StringBuilder("TravelTimeFunction[");
+        for (int i = 0; i < departures.length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(departures[i]).append(':').append(travelTimes[i]);
+        }
+        return builder.append(']').toString();
+    }
+}
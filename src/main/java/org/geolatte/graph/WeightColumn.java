@@ -0,0 +1,309 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * A single column of an {@link EdgeWeightTable}: the values of one weight kind for all edges, indexed by edge id. The
+ * subclasses store the values in the representation selected by a {@link WeightEncoding} and decode them on access.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+abstract class WeightColumn {
+
+    /**
+     * Gets the (decoded) value for the given edge.
+     *
+     * @param edgeId The edge id.
+     * @return The weight value.
+     */
+    abstract float get(int edgeId);
+
+    /**
+     * @return The approximate number of bytes used by the values of this column.
+     */
+    abstract long sizeInBytes();
+
+    /**
+     * Stores the values as 32-bit floats, without loss of precision.
+     */
+    static final class FloatColumn extends WeightColumn {
+
+        private final float[] values;
+
+        FloatColumn(float[] values) {
+            this.values = values;
+        }
+
+        float get(int edgeId) {
+            return values[edgeId];
+        }
+
+        long sizeInBytes() {
+            return 4L * values.length;
+        }
+    }
+
+    /**
+     * Stores the values as IEEE 754 half-precision (16-bit) floats.
+     */
+    static final class HalfFloatColumn extends WeightColumn {
+
+        private final short[] values;
+
+        HalfFloatColumn(float[] source, int size) {
+            this.values = new short[size];
+            for (int i = 0; i < size; i++) {
+                this.values[i] = toHalf(source[i]);
+                if (isInfinite(values[i]) && !Float.isInfinite(source[i])) {
+                    throw new IllegalArgumentException(String.format(
+                            "Weight %s of edge %d can not be stored as half-precision float", source[i], i));
+                }
+            }
+        }
+
+        float get(int edgeId) {
+            return toFloat(values[edgeId]);
+        }
+
+        long sizeInBytes() {
+            return 2L * values.length;
+        }
+
+        private static boolean isInfinite(short half) {
+            return (half & 0x7fff) == 0x7c00;
+        }
+
+        /**
+         * Converts a float to the nearest half-precision float (round half to even). Values beyond the half-precision
+         * range become infinite.
+         *
+         * @param value The value to convert.
+         * @return The bits of the half-precision float.
+         */
+        static short toHalf(float value) {
+            int bits = Float.floatToIntBits(value);
+            int sign = (bits >>> 16) & 0x8000;
+            int magnitude = bits & 0x7fffffff;
+
+            if (magnitude >= 0x7f800000) {
+                // infinity or NaN
+                return (short) (sign | 0x7c00 | (magnitude > 0x7f800000 ? 0x200 : 0));
+            }
+            if (magnitude >= 0x477ff000) {
+                // rounds to a value beyond the largest half (65504)
+                return (short) (sign | 0x7c00);
+            }
+            if (magnitude >= 0x38800000) {
+                // normal half: rebias the exponent and round the mantissa
+                int half = ((magnitude >>> 23) - 112) << 10 | (magnitude & 0x7fffff) >>> 13;
+                int rest = magnitude & 0x1fff;
+                if (rest > 0x1000 || (rest == 0x1000 && (half & 1) != 0)) {
+                    half++;
+                }
+                return (short) (sign | half);
+            }
+            if (magnitude < 0x33000000) {
+                // too small, rounds to zero
+                return (short) sign;
+            }
+            // subnormal half
+            int exponent = magnitude >>> 23;
+            int mantissa = (magnitude & 0x7fffff) | 0x800000;
+            int shift = 126 - exponent;
+            int half = mantissa >>> shift;
+            int rest = mantissa & ((1 << shift) - 1);
+            int halfway = 1 << (shift - 1);
+            if (rest > halfway || (rest == halfway && (half & 1) != 0)) {
+                half++;
+            }
+            return (short) (sign | half);
+        }
+
+        /**
+         * Converts a half-precision float to a float.
+         *
+         * @param half The bits of the half-precision float.
+         * @return The float value.
+         */
+        static float toFloat(short half) {
+            int bits = half & 0xffff;
+            int sign = (bits & 0x8000) << 16;
+            int exponent = (bits >>> 10) & 0x1f;
+            int mantissa = bits & 0x3ff;
+            if (exponent == 0x1f) {
+                return Float.intBitsToFloat(sign | 0x7f800000 | (mantissa << 13));
+            }
+            if (exponent == 0) {
+                float subnormal = mantissa * 0x1.0p-24f;
+                return sign == 0 ? subnormal : -subnormal;
+            }
+            return Float.intBitsToFloat(sign | (exponent + 112) << 23 | (mantissa << 13));
+        }
+    }
+
+    /**
+     * Stores the values as unsigned 16-bit multiples of a fixed resolution.
+     */
+    static final class FixedPoint16Column extends WeightColumn {
+
+        private final char[] values;
+        private final float resolution;
+
+        FixedPoint16Column(float[] source, int size, float resolution) {
+            this.resolution = resolution;
+            this.values = new char[size];
+            for (int i = 0; i < size; i++) {
+                long scaled = Math.round((double) source[i] / resolution);
+                if (scaled < 0 || scaled > Character.MAX_VALUE || Float.isNaN(source[i])) {
+                    throw new IllegalArgumentException(String.format(
+                            "Weight %s of edge %d can not be stored as 16-bit fixed-point with resolution %s", source[i], i, resolution));
+                }
+                this.values[i] = (char) scaled;
+            }
+        }
+
+        float get(int edgeId) {
+            return values[edgeId] * resolution;
+        }
+
+        long sizeInBytes() {
+            return 2L * values.length;
+        }
+    }
+
+    /**
+     * Stores the values as signed 32-bit multiples of a fixed resolution.
+     */
+    static final class FixedPoint32Column extends WeightColumn {
+
+        private final int[] values;
+        private final float resolution;
+
+        FixedPoint32Column(float[] source, int size, float resolution) {
+            this.resolution = resolution;
+            this.values = new int[size];
+            for (int i = 0; i < size; i++) {
+                long scaled = Math.round((double) source[i] / resolution);
+                if (scaled < Integer.MIN_VALUE || scaled > Integer.MAX_VALUE || Float.isNaN(source[i])) {
+                    throw new IllegalArgumentException(String.format(
+                            "Weight %s of edge %d can not be stored as 32-bit fixed-point with resolution %s", source[i], i, resolution));
+                }
+                this.values[i] = (int) scaled;
+            }
+        }
+
+        float get(int edgeId) {
+            return values[edgeId] * resolution;
+        }
+
+        long sizeInBytes() {
+            return 4L * values.length;
+        }
+    }
+
+    /**
+     * Stores every distinct value once in a dictionary, and a byte index into the dictionary per edge. Used when a
+     * weight kind has at most 256 distinct values.
+     */
+    static final class ByteDictionaryColumn extends WeightColumn {
+
+        private final float[] dictionary;
+        private final byte[] codes;
+
+        ByteDictionaryColumn(float[] dictionary, byte[] codes) {
+            this.dictionary = dictionary;
+            this.codes = codes;
+        }
+
+        float get(int edgeId) {
+            return dictionary[codes[edgeId] & 0xff];
+        }
+
+        long sizeInBytes() {
+            return codes.length + 4L * dictionary.length;
+        }
+    }
+
+    /**
+     * Stores every distinct value once in a dictionary, and a 16-bit index into the dictionary per edge. Used when a
+     * weight kind has at most 65536 distinct values.
+     */
+    static final class CharDictionaryColumn extends WeightColumn {
+
+        private final float[] dictionary;
+        private final char[] codes;
+
+        CharDictionaryColumn(float[] dictionary, char[] codes) {
+            this.dictionary = dictionary;
+            this.codes = codes;
+        }
+
+        float get(int edgeId) {
+            return dictionary[codes[edgeId]];
+        }
+
+        long sizeInBytes() {
+            return 2L * codes.length + 4L * dictionary.length;
+        }
+    }
+
+    /**
+     * Builds a dictionary column for the given values.
+     *
+     * @param source The values.
+     * @param size   The number of values to use from source.
+     * @return A dictionary column.
+     * @throws IllegalArgumentException When there are more than 65536 distinct values.
+     */
+    static WeightColumn dictionary(float[] source, int size) {
+        float[] distinct = Arrays.copyOf(source, size);
+        Arrays.sort(distinct);
+        int count = 0;
+        for (int i = 0; i < distinct.length; i++) {
+            if (count == 0 || Float.compare(distinct[count - 1], distinct[i]) != 0) {
+                distinct[count++] = distinct[i];
+            }
+        }
+        if (count > 1 << 16) {
+            throw new IllegalArgumentException(String.format(
+                    "%d distinct weights can not be stored in a dictionary of at most %d values", count, 1 << 16));
+        }
+        float[] dictionary = Arrays.copyOf(distinct, count);
+        if (count <= 1 << 8) {
+            byte[] codes = new byte[size];
+            for (int i = 0; i < size; i++) {
+                codes[i] = (byte) Arrays.binarySearch(dictionary, source[i]);
+            }
+            return new ByteDictionaryColumn(dictionary, codes);
+        }
+        char[] codes = new char[size];
+        for (int i = 0; i < size; i++) {
+            codes[i] = (char) Arrays.binarySearch(dictionary, source[i]);
+        }
+        return new CharDictionaryColumn(dictionary, codes);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Determines how the values of a weight kind are stored in the {@link EdgeWeightTable} of a graph. Weights are always
+ * read back as floats through {@link EdgeWeightTable#getValue(int, int)}; the encoding only trades precision for
+ * memory.
+ * </p>
+ * <p>
+ * The available encodings are:
+ * <ul>
+ * <li>{@link #FLOAT}: 32-bit floats, the default;</li>
+ * <li>{@link #HALF_FLOAT}: 16-bit IEEE 754 half-precision floats (about 3 significant digits, max. 65504; infinite
+ * weights are kept);</li>
+ * <li>{@link #fixedPoint16(float)}: unsigned 16-bit multiples of a resolution;</li>
+ * <li>{@link #fixedPoint32(float)}: signed 32-bit multiples of a resolution;</li>
+ * <li>{@link #DICTIONARY}: a table of distinct values with an 8- or 16-bit index per edge, for weight kinds with few
+ * distinct values.</li>
+ * </ul>
+ * Encodings are declared per weight kind with {@link WeightSchema#withEncoding(String, WeightEncoding)}, and applied
+ * when the graph is built. A value that can not be represented makes the build fail with an
+ * {@link IllegalArgumentException}.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public abstract class WeightEncoding {
+
+    /**
+     * Stores weights as 32-bit floats.
+     */
+    public static final WeightEncoding FLOAT = new WeightEncoding("float") {
+        WeightColumn encode(float[] values, int size) {
+            return new WeightColumn.FloatColumn(values.length == size ? values : Arrays.copyOf(values, size));
+        }
+    };
+
+    /**
+     * Stores weights as 16-bit half-precision floats.
+     */
+    public static final WeightEncoding HALF_FLOAT = new WeightEncoding("half-float") {
+        WeightColumn encode(float[] values, int size) {
+            return new WeightColumn.HalfFloatColumn(values, size);
+        }
+    };
+
+    /**
+     * Stores weights as indexes into a table of the distinct weight values. At most 65536 distinct values are
+     * supported.
+     */
+    public static final WeightEncoding DICTIONARY = new WeightEncoding("dictionary") {
+        WeightColumn encode(float[] values, int size) {
+            return WeightColumn.dictionary(values, size);
+        }
+    };
+
+    /**
+     * Creates an encoding that stores weights as unsigned 16-bit multiples of the given resolution, e.g. a resolution
+     * of 0.5 stores weights between 0 and 32767.5 with an error of at most 0.25.
+     *
+     * @param resolution The resolution, must be positive.
+     * @return A fixed-point encoding.
+     */
+    public static WeightEncoding fixedPoint16(final float resolution) {
+        checkResolution(resolution);
+        return new WeightEncoding("fixed-point-16/" + resolution) {
+            WeightColumn encode(float[] values, int size) {
+                return new WeightColumn.FixedPoint16Column(values, size, resolution);
+            }
+        };
+    }
+
+    /**
+     * Creates an encoding that stores weights as signed 32-bit multiples of the given resolution.
+     *
+     * @param resolution The resolution, must be positive.
+     * @return A fixed-point encoding.
+     */
+    public static WeightEncoding fixedPoint32(final float resolution) {
+        checkResolution(resolution);
+        return new WeightEncoding("fixed-point-32/" + resolution) {
+            WeightColumn encode(float[] values, int size) {
+                return new WeightColumn.FixedPoint32Column(values, size, resolution);
+            }
+        };
+    }
+
+    private static void checkResolution(float resolution) {
+        if (!(resolution > 0) || Float.isInfinite(resolution)) {
+            throw new IllegalArgumentException("Resolution must be a positive number");
+        }
+    }
+
+    private final String name;
+
+    private WeightEncoding(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Encodes the given values into a column.
+     *
+     * @param values The values, indexed by edge id.
+     * @param size   The number of values to use.
+     * @return A column with the encoded values.
+     */
+    abstract WeightColumn encode(float[] values, int size);
+
+    public String toString() {
+        return name;
+    }
+}
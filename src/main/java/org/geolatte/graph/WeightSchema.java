@@ -0,0 +1,175 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Declares the named kinds of weight that are stored for every edge of a graph. The position of a name in the schema
+ * is the weight index that algorithms use to select a weight (see also {@link EdgeWeight#getValue(int)}).
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public final class WeightSchema {
+
+    private final String[] names;
+    private final WeightEncoding[] encodings;
+
+    /**
+     * Creates a schema with the given weight kinds. The weight index of a kind is its position in the argument list.
+     *
+     * @param names The names of the weight kinds, e.g. "distance", "time".
+     * @return A weight schema.
+     * @throws IllegalArgumentException When no names are given or when a name is null or occurs twice.
+     */
+    public static WeightSchema of(String... names) {
+        return new WeightSchema(names);
+    }
+
+    /**
+     * Creates a schema with a single, unnamed weight kind. This is the schema used when no schema is declared.
+     *
+     * @return A single-weight schema.
+     */
+    public static WeightSchema single() {
+        return new WeightSchema(new String[]{"weight"});
+    }
+
+    /**
+     * Creates the schema of a graph that was built without a schema, from the first edge weight that was added: an
+     * {@link ArrayEdgeWeight} gives a weight kind per value, any other edge weight a single one. The first kind is
+     * named "weight" as in {@link #single()}, the next ones "weight1", "weight2", and so on.
+     *
+     * @param edgeWeight The first edge weight.
+     * @return A schema with all weight kinds of the edge weight.
+     */
+    static WeightSchema inferred(EdgeWeight edgeWeight) {
+        int size = edgeWeight instanceof ArrayEdgeWeight ? Math.max(1, ((ArrayEdgeWeight) edgeWeight).size()) : 1;
+        String[] names = new String[size];
+        names[0] = "weight";
+        for (int i = 1; i < size; i++) {
+            names[i] = "weight" + i;
+        }
+        return new WeightSchema(names);
+    }
+
+    private WeightSchema(String[] names) {
+        if (names == null || names.length == 0) {
+            throw new IllegalArgumentException("A weight schema requires at least one weight kind");
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (names[i] == null) {
+                throw new IllegalArgumentException("Weight kind names can not be null");
+            }
+            for (int j = 0; j < i; j++) {
+                if (names[j].equals(names[i])) {
+                    throw new IllegalArgumentException("Duplicate weight kind: " + names[i]);
+                }
+            }
+        }
+        this.names = Arrays.copyOf(names, names.length);
+        this.encodings = new WeightEncoding[names.length];
+        Arrays.fill(this.encodings, WeightEncoding.FLOAT);
+    }
+
+    private WeightSchema(String[] names, WeightEncoding[] encodings) {
+        this.names = names;
+        this.encodings = encodings;
+    }
+
+    /**
+     * Creates a copy of this schema in which the weight kind with the given name is stored with the given encoding.
+     * By default, all weight kinds are stored as {@link WeightEncoding#FLOAT}.
+     *
+     * @param name     The name of the weight kind.
+     * @param encoding The encoding.
+     * @return A new schema.
+     * @throws IllegalArgumentException When the schema has no weight kind with the given name.
+     */
+    public WeightSchema withEncoding(String name, WeightEncoding encoding) {
+        if (encoding == null) {
+            throw new IllegalArgumentException("Encoding can not be null");
+        }
+        WeightEncoding[] newEncodings = Arrays.copyOf(encodings, encodings.length);
+        newEncodings[indexOf(name)] = encoding;
+        return new WeightSchema(names, newEncodings);
+    }
+
+    /**
+     * @return The number of weight kinds.
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Gets the name of the weight kind with the given index.
+     *
+     * @param weightIndex The weight index.
+     * @return The name of the weight kind.
+     * @throws IndexOutOfBoundsException When the given index is not valid.
+     */
+    public String getName(int weightIndex) {
+        return names[weightIndex];
+    }
+
+    /**
+     * Gets the encoding of the weight kind with the given index.
+     *
+     * @param weightIndex The weight index.
+     * @return The encoding used to store the weight kind.
+     * @throws IndexOutOfBoundsException When the given index is not valid.
+     */
+    public WeightEncoding getEncoding(int weightIndex) {
+        return encodings[weightIndex];
+    }
+
+    /**
+     * Gets the weight index of the weight kind with the given name.
+     *
+     * @param name The name of the weight kind.
+     * @return The weight index.
+     * @throws IllegalArgumentException When the schema has no weight kind with the given name.
+     */
+    public int indexOf(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unknown weight kind: " + name);
+    }
+
+    public String toString() {
+        StringBuilder builder = new StringBuilder("WeightSchema[");
+        for (int i = 0; i < names.length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(names[i]).append(':').append(encodings[i]);
+        }
+        return builder.append(']').toString();
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * A set of weight changes that are applied to an {@link EdgeWeightTable} as one atomic update (see
+ * {@link EdgeWeightTable#update(WeightUpdateBatch)}). When the same weight is changed more than once in a batch, the
+ * last change wins.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public final class WeightUpdateBatch {
+
+    private int[] edgeIds = new int[16];
+    private int[] weightIndexes = new int[16];
+    private float[] values = new float[16];
+    private int size = 0;
+
+    /**
+     * Adds a weight change to this batch.
+     *
+     * @param edgeId      The edge id.
+     * @param weightIndex The kind of weight to change.
+     * @param value       The new weight.
+     */
+    public void add(int edgeId, int weightIndex, float value) {
+        if (size == edgeIds.length) {
+            int capacity = size + (size >> 1) + 1;
+            edgeIds = Arrays.copyOf(edgeIds, capacity);
+            weightIndexes = Arrays.copyOf(weightIndexes, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        edgeIds[size] = edgeId;
+        weightIndexes[size] = weightIndex;
+        values[size] = value;
+        size++;
+    }
+
+    /**
+     * @return The number of changes in this batch.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all changes from this batch, so that it can be reused.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    int getEdgeId(int i) {
+        return edgeIds[i];
+    }
+
+    int getWeightIndex(int i) {
+        return weightIndexes[i];
+    }
+
+    float getValue(int i) {
+        return values[i];
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+
+
+package org.geolatte.graph;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * A linear combination of weight indices: the weight of an edge is the sum of its weights for the weight indices,
+ * each multiplied by a coefficient. This lets a search trade off e.g. travel time against distance at query time,
+ * without a graph or an {@link EdgeWeight} per combination.
+ * </p>
+ * <p>
+ * The coefficients can not be negative, so that the combined weights are not negative when the weights are not, and a
+ * heuristic that is admissible for every weight index stays admissible for the combination when it is combined with
+ * the same coefficients (see {@link #combine(float[])}).
+ * </p>
+ * <p>
+ * A weight vector is immutable.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public final class WeightVector {
+
+    private final int[] weightIndices;
+    private final float[] coefficients;
+
+    /**
+     * Creates a weight vector with a single weight index.
+     *
+     * @param weightIndex The weight index.
+     * @param coefficient The coefficient of the weight index.
+     * @return A weight vector.
+     * @throws IllegalArgumentException When the weight index or the coefficient is negative.
+     */
+    public static WeightVector of(int weightIndex, float coefficient) {
+        return new WeightVector(new int[0], new float[0]).with(weightIndex, coefficient);
+    }
+
+    private WeightVector(int[] weightIndices, float[] coefficients) {
+        this.weightIndices = weightIndices;
+        this.coefficients = coefficients;
+    }
+
+    /**
+     * Creates a copy of this weight vector in which a weight index has the given coefficient.
+     *
+     * @param weightIndex The weight index.
+     * @param coefficient The coefficient of the weight index.
+     * @return A new weight vector.
+     * @throws IllegalArgumentException When the weight index or the coefficient is negative.
+     */
+    public WeightVector with(int weightIndex, float coefficient) {
+        if (weightIndex < 0) {
+            throw new IllegalArgumentException("Weight index can not be negative: " + weightIndex);
+        }
+        if (!(coefficient >= 0) || Float.isInfinite(coefficient)) {
+            throw new IllegalArgumentException("Coefficient must be a finite, positive number: " + coefficient);
+        }
+        for (int i = 0; i < weightIndices.length; i++) {
+            if (weightIndices[i] == weightIndex) {
+                float[] newCoefficients = Arrays.copyOf(coefficients, coefficients.length);
+                newCoefficients[i] = coefficient;
+                return new WeightVector(weightIndices, newCoefficients);
+            }
+        }
+        int[] newIndices = Arrays.copyOf(weightIndices, weightIndices.length + 1);
+        float[] newCoefficients = Arrays.copyOf(coefficients, coefficients.length + 1);
+        newIndices[weightIndices.length] = weightIndex;
+        newCoefficients[coefficients.length] = coefficient;
+        return new WeightVector(newIndices, newCoefficients);
+    }
+
+    /**
+     * @return The number of weight indices.
+     */
+    public int size() {
+        return weightIndices.length;
+    }
+
+    /**
+     * Gets a weight index of this vector.
+     *
+     * @param i The position of the weight index, in the order in which the weight indices were added.
+     * @return The weight index.
+     * @throws IndexOutOfBoundsException When the given position is not valid.
+     */
+    public int getWeightIndex(int i) {
+        return weightIndices[i];
+    }
+
+    /**
+     * Gets the coefficient of a weight index of this vector.
+     *
+     * @param i The position of the weight index, in the order in which the weight indices were added.
+     * @return The coefficient.
+     * @throws IndexOutOfBoundsException When the given position is not valid.
+     */
+    public float getCoefficient(int i) {
+        return coefficients[i];
+    }
+
+    /**
+     * Gets the combined weight of an edge.
+     *
+     * @param weights The edge weights.
+     * @param edgeId  The id of the edge.
+     * @return The sum of the weights of the edge for the weight indices, times their coefficients.
+     */
+    public float getValue(EdgeWeightTable weights, int edgeId) {
+        float value = 0;
+        for (int i = 0; i < weightIndices.length; i++) {
+            value += coefficients[i] * weights.getValue(edgeId, weightIndices[i]);
+        }
+        return value;
+    }
+
+    /**
+     * Combines values given per weight index with the coefficients of this vector. If every value is a lower bound
+     * for the weight of its weight index, e.g. the factor that converts a straight-line distance to a lower bound on
+     * the travel time, the combination is a lower bound for the combined weight.
+     *
+     * @param values The values, indexed by weight index.
+     * @return The sum of the values for the weight indices of this vector, times their coefficients.
+     * @throws IndexOutOfBoundsException When a weight index of this vector has no value.
+     */
+    public float combine(float[] values) {
+        float value = 0;
+        for (int i = 0; i < weightIndices.length; i++) {
+            value += coefficients[i] * values[weightIndices[i]];
+        }
+        return value;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof WeightVector)) {
+            return false;
+        }
+        WeightVector other = (WeightVector) o;
+        return Arrays.equals(weightIndices, other.weightIndices) && Arrays.equals(coefficients, other.coefficients);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(weightIndices) + Arrays.hashCode(coefficients);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder stBuf = new StringBuilder("WeightVector[");
+        for (int i = 0; i < weightIndices.length; i++) {
+            if (i > 0) {
+                stBuf.append(" + ");
+            }
+            stBuf.append(coefficients[i]).append(" * #").append(weightIndices[i]);
+        }
+        return stBuf.append(']').toString();
+    }
+}
@@ -0,0 +1,395 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+
+package org.geolatte.graph.algorithms;
+
+import org.geolatte.graph.*;
+
+import java.util.*;
+
+/**
+ * <p>
+ * Finds a shortest path and a few meaningfully different alternatives to it with the via-node method, in a constant
+ * number of searches. A forward shortest path tree from the origin and a backward one to the destination (over the
+ * incoming edges) are grown up to the length of the shortest path times the maximum stretch. Every node reached by
+ * both then defines a via path: the forward tree path to the node followed by the backward tree path from it.
+ * </p>
+ * <p>
+ * The candidates are grouped by plateau: a plateau is a path on which both trees agree, and all nodes of a plateau
+ * give the same via path. A long plateau means the via path is a shortest path over a long stretch. The plateaus are
+ * tried from the best ratio of length to plateau, and a via path is accepted if
+ * <ul>
+ * <li>it is at most the maximum stretch longer than the shortest path,</li>
+ * <li>it shares at most a fraction of the length of the shortest path with the shortest path and the accepted
+ * alternatives,</li>
+ * <li>it is locally optimal: every subpath up to a fraction of the length of the shortest path is a shortest path.
+ * This holds if the plateau is at least that long; otherwise a search tells whether the subpath from that length
+ * before the plateau to that length after it is a shortest path. At most a few such searches are done per
+ * alternative.</li>
+ * </ul>
+ * </p>
+ * <p>
+ * The result starts with the shortest path, followed by at most the requested number of alternatives, and is empty if
+ * the destination can not be reached.
+ * </p>
+ *
+ * @param <N> The type of domain node.
+ * @param <E> The edge label type.
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+class AlternativeRoutes<N, E> implements GraphAlgorithm<List<Path<N>>>, MonitoredAlgorithm {
+
+    // the number of local optimality searches per requested alternative
+    private static final int TESTS_PER_ALTERNATIVE = 4;
+
+    private final Graph<N, E> graph;
+    private final InternalNode<N, E> origin;
+    private final InternalNode<N, E> destination;
+    private final int weightIndex;
+    private final int maxAlternatives;
+    private final float maxStretch;
+    private final float maxSharing;
+    private final float localOptimality;
+    private SearchListener listener = GraphAlgorithms.getDefaultSearchListener();
+    private List<Path<N>> result;
+
+    private EdgeWeightTable weights;
+    private int settledNodes;
+    private int scannedEdges;
+
+    AlternativeRoutes(Graph<N, E> graph, N origin, N destination, int weightIndex, int maxAlternatives,
+                      float maxStretch, float maxSharing, float localOptimality) {
+        if (maxAlternatives < 0) {
+            throw new IllegalArgumentException("Number of alternatives can not be negative");
+        }
+        if (maxStretch < 0 || maxSharing < 0 || maxSharing > 1 || localOptimality < 0 || localOptimality > 1) {
+            throw new IllegalArgumentException("The stretch must be positive, the sharing and local optimality "
+                    + "fractions between 0 and 1");
+        }
+        this.graph = graph;
+        this.origin = graph.getInternalNode(origin);
+        this.destination = graph.getInternalNode(destination);
+        if (this.origin == null || this.destination == null) {
+            throw new IllegalArgumentException("Node not in graph: " + (this.origin == null ? origin : destination));
+        }
+        this.weightIndex = weightIndex;
+        this.maxAlternatives = maxAlternatives;
+        this.maxStretch = maxStretch;
+        this.maxSharing = maxSharing;
+        this.localOptimality = localOptimality;
+    }
+
+    public void setSearchListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    public void execute() {
+        SearchListener listener = this.listener;
+        GraphMonitor monitor = GraphMonitor.current();
+        Object monitorToken = monitor == null ? null : monitor.searchStarted();
+        long start = System.nanoTime();
+        settledNodes = scannedEdges = 0;
+        result = search();
+        long duration = System.nanoTime() - start;
+        if (monitor != null) {
+            monitor.searchFinished(monitorToken, "Alternatives", weightIndex, !result.isEmpty(), settledNodes,
+                    result.size());
+        }
+        if (listener != null) {
+            listener.searchFinished(new SearchStats("Alternatives", origin.getWrappedNode(),
+                    destination.getWrappedNode(), !result.isEmpty(), settledNodes, scannedEdges, 0, 0, 0, 0, duration));
+        }
+    }
+
+    public List<Path<N>> getResult() {
+        return result;
+    }
+
+    private List<Path<N>> search() {
+        List<Path<N>> paths = new ArrayList<Path<N>>();
+        if (!graph.getComponents().mayReach(origin, destination)) {
+            return paths;
+        }
+        weights = graph.getEdgeWeights().snapshot();
+        int s = origin.getId();
+        int t = destination.getId();
+        Tree forward = new Tree(s, true);
+        forward.grow(t, Float.POSITIVE_INFINITY);
+        if (!forward.heap.isSettled(t)) {
+            return paths;
+        }
+        float shortest = forward.heap.getKey(t);
+        float limit = shortest * (1 + maxStretch);
+        forward.grow(-1, limit);
+        Tree backward = new Tree(t, false);
+        backward.grow(-1, limit);
+
+        // the plateaus: the paths on which the forward and the backward tree agree
+        int n = graph.getNodeCount();
+        int[] plateauStart = new int[n];
+        int[] plateauEnd = new int[n];
+        for (int i = 0; i < forward.settledCount; i++) {
+            int v = forward.settled[i];
+            int u = forward.parent[v];
+            plateauStart[v] = u >= 0 && backward.heap.isSettled(u) && backward.parent[u] == v ? plateauStart[u] : v;
+        }
+        for (int i = 0; i < backward.settledCount; i++) {
+            int v = backward.settled[i];
+            int w = backward.parent[v];
+            plateauEnd[v] = w >= 0 && forward.heap.isSettled(w) && forward.parent[w] == v ? plateauEnd[w] : v;
+        }
+
+        // one candidate per plateau, except the one of the shortest path
+        List<Candidate> candidates = new ArrayList<Candidate>();
+        for (int i = 0; i < forward.settledCount; i++) {
+            int v = forward.settled[i];
+            if (!backward.heap.isSettled(v) || plateauStart[v] != v || v == s) {
+                continue;
+            }
+            float length = forward.heap.getKey(v) + backward.heap.getKey(v);
+            int end = plateauEnd[v];
+            if (length <= limit && forward.heap.isSettled(end)) {
+                candidates.add(new Candidate(v, end, length, forward.heap.getKey(end) - forward.heap.getKey(v)));
+            }
+        }
+        Collections.sort(candidates);
+
+        ViaPath best = new ViaPath(forward, backward, t, t);
+        paths.add(best.toPath());
+        BitSet used = new BitSet();
+        best.markEdges(used);
+        int tests = TESTS_PER_ALTERNATIVE * maxAlternatives;
+        float local = localOptimality * shortest;
+        for (Candidate candidate : candidates) {
+            if (paths.size() > maxAlternatives) {
+                break;
+            }
+            ViaPath path = new ViaPath(forward, backward, candidate.via, candidate.plateauEnd);
+            if (!path.isSimple() || path.sharedWeight(used) > maxSharing * shortest) {
+                continue;
+            }
+            if (path.plateauLength() < local) {
+                if (tests-- == 0) {
+                    break;
+                }
+                if (!path.isLocallyOptimal(local)) {
+                    continue;
+                }
+            }
+            paths.add(path.toPath());
+            path.markEdges(used);
+        }
+        return paths;
+    }
+
+    /**
+     * A shortest path tree, grown forward from the origin or backward from the destination.
+     */
+    private final class Tree {
+
+        private final boolean forward;
+        private final NodeHeap heap;
+        // the next node towards the root of the tree, and the edge to it
+        private final int[] parent;
+        private final int[] parentEdge;
+        // the nodes in the order they were settled
+        private final int[] settled;
+        private int settledCount;
+
+        private Tree(int root, boolean forward) {
+            int n = graph.getNodeCount();
+            this.forward = forward;
+            heap = new NodeHeap(n);
+            parent = new int[n];
+            parentEdge = new int[n];
+            settled = new int[n];
+            heap.update(root, 0);
+            parent[root] = -1;
+            parentEdge[root] = -1;
+        }
+
+        /**
+         * Settles nodes until a target is settled, or the next node lies beyond a distance.
+         */
+        private void grow(int target, float limit) {
+            while (!heap.isEmpty() && heap.minKey() <= limit) {
+                float d = heap.minKey();
+                int x = heap.extractMin();
+                settled[settledCount++] = x;
+                settledNodes++;
+                InternalNode<N, E> node = graph.getNode(x);
+                EdgeIterator<N, E> edges = forward ? graph.getOutGoingEdges(node, null)
+                        : graph.getInComingEdges(node, null);
+                while (edges.hasNext()) {
+                    int y = edges.next().getId();
+                    scannedEdges++;
+                    int edgeId = edges.getEdgeId();
+                    if (heap.update(y, d + weights.getValue(edgeId, weightIndex))) {
+                        parent[y] = x;
+                        parentEdge[y] = edgeId;
+                    }
+                }
+                if (x == target) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * A plateau, ordered by the length of its via path minus the length of the plateau.
+     */
+    private static final class Candidate implements Comparable<Candidate> {
+
+        private final int via;
+        private final int plateauEnd;
+        private final float score;
+
+        private Candidate(int via, int plateauEnd, float length, float plateauLength) {
+            this.via = via;
+            this.plateauEnd = plateauEnd;
+            this.score = length - plateauLength;
+        }
+
+        public int compareTo(Candidate other) {
+            return Float.compare(score, other.score);
+        }
+    }
+
+    /**
+     * The path over a via node: its nodes, the edges between them and the distance from the origin to every node.
+     */
+    private final class ViaPath {
+
+        private final int[] nodes;
+        private final int[] edges;
+        private final float[] distance;
+        private final int plateauFrom;
+        private final int plateauTo;
+
+        private ViaPath(Tree forward, Tree backward, int via, int plateauEnd) {
+            int count = 0;
+            for (int v = via; v >= 0; v = forward.parent[v]) {
+                count++;
+            }
+            int viaIndex = count - 1;
+            for (int v = backward.parent[via]; v >= 0; v = backward.parent[v]) {
+                count++;
+            }
+            nodes = new int[count];
+            edges = new int[count - 1];
+            distance = new float[count];
+            int i = viaIndex;
+            for (int v = via; v >= 0; v = forward.parent[v], i--) {
+                nodes[i] = v;
+                distance[i] = forward.heap.getKey(v);
+                if (i > 0) {
+                    edges[i - 1] = forward.parentEdge[v];
+                }
+            }
+            i = viaIndex;
+            float viaDistance = distance[viaIndex];
+            float viaRemaining = backward.heap.getKey(via);
+            int plateauEndIndex = viaIndex;
+            for (int v = via; backward.parent[v] >= 0; v = backward.parent[v]) {
+                edges[i] = backward.parentEdge[v];
+                nodes[++i] = backward.parent[v];
+                distance[i] = viaDistance + viaRemaining - backward.heap.getKey(nodes[i]);
+                if (nodes[i] == plateauEnd) {
+                    plateauEndIndex = i;
+                }
+            }
+            plateauFrom = viaIndex;
+            plateauTo = plateauEndIndex;
+        }
+
+        private boolean isSimple() {
+            Set<Integer> seen = new HashSet<Integer>();
+            for (int v : nodes) {
+                if (!seen.add(v)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private float sharedWeight(BitSet used) {
+            float shared = 0;
+            for (int i = 0; i < edges.length; i++) {
+                if (used.get(edges[i])) {
+                    shared += distance[i + 1] - distance[i];
+                }
+            }
+            return shared;
+        }
+
+        private void markEdges(BitSet used) {
+            for (int edge : edges) {
+                used.set(edge);
+            }
+        }
+
+        /**
+         * Gets the length of the plateau. The parts of the path before the end of the plateau and after its start are
+         * shortest paths, so that every subpath that is not longer than the plateau is a shortest path.
+         */
+        private float plateauLength() {
+            return distance[plateauTo] - distance[plateauFrom];
+        }
+
+        /**
+         * Tells whether the subpath from a given length before the plateau to a given length after it is a shortest
+         * path, with a search between its ends.
+         */
+        private boolean isLocallyOptimal(float length) {
+            int from = plateauFrom;
+            while (from > 0 && distance[plateauFrom] - distance[from] < length) {
+                from--;
+            }
+            int to = plateauTo;
+            while (to < nodes.length - 1 && distance[to] - distance[plateauTo] < length) {
+                to++;
+            }
+            float subpath = distance[to] - distance[from];
+            Tree test = new Tree(nodes[from], true);
+            test.grow(nodes[to], subpath);
+            return test.heap.getKey(nodes[to]) >= subpath * (1 - 1e-5f);
+        }
+
+        private Path<N> toPath() {
+            BasicPath<N> path = new BasicPath<N>();
+            for (int i = nodes.length - 1; i >= 0; i--) {
+                path.insert(graph.getNode(nodes[i]).getWrappedNode());
+                if (i > 0) {
+                    List<N> chain = graph.getContractedNodes(edges[i - 1]);
+                    for (int j = chain.size() - 1; j >= 0; j--) {
+                        path.insert(chain.get(j));
+                    }
+                }
+            }
+            path.setTotalWeight(distance[nodes.length - 1]);
+            path.setValid(true);
+            return path;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+
+package org.geolatte.graph.algorithms;
+
+import org.geolatte.graph.*;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Arc-flags for goal-directed Dijkstra searches on one weight index. The nodes are partitioned into regions, and every
+ * edge carries a flag per region that tells whether the edge lies on a shortest path to a node of that region. A
+ * search to a destination only follows the edges flagged for the region of the destination, and so stays close to the
+ * shortest path.
+ * </p>
+ * <p>
+ * The regions come from recursive coordinate bisection. An edge is flagged for its own region when both ends lie in
+ * it, and for the regions it leads to over a shortest path tree, grown by a backward search from every node of a region
+ * with an edge coming in from another region. The flags of an edge are stored in a <code>long[]</code> bitset, one bit
+ * per region. Preprocessing is spread over a number of threads, and takes a full search per boundary node: the flags
+ * are meant for graphs with static weights, they are computed from a snapshot and do not follow weight updates.
+ * </p>
+ * <p>
+ * Use the flags with {@link GraphAlgorithms#createDijkstra(ArcFlags, Object, Object)}. Edges and nodes that were
+ * added to the graph after the preprocessing are never pruned. The flags are immutable and thread-safe.
+ * </p>
+ *
+ * @param <N> The type of domain node.
+ * @param <E> The edge label type.
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public final class ArcFlags<N, E> {
+
+    private final Graph<N, E> graph;
+    private final EdgeWeightTable weights;
+    private final int weightIndex;
+    private final int regionCount;
+    private final int[] region;
+    // the bits of an edge are at edgeId * words
+    private final int words;
+    private final int edgeCount;
+    private final long[] flags;
+
+    ArcFlags(Graph<N, E> graph, int weightIndex, int[] region, int regionCount, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be at least 1");
+        }
+        this.graph = graph;
+        this.weights = graph.getEdgeWeights();
+        this.weightIndex = weightIndex;
+        this.regionCount = regionCount;
+        this.region = region;
+        this.words = (regionCount + 63) >>> 6;
+        this.edgeCount = graph.getEdgeWeights().getEdgeCount();
+        this.flags = new long[edgeCount * words];
+        new Preprocessor(threads).run();
+    }
+
+    /**
+     * Partitions the nodes of a graph into regions of about the same size, by recursive coordinate bisection.
+     *
+     * @return The region of every node.
+     */
+    static <N extends Locatable, E> int[] partition(Graph<N, E> graph, int regionCount) {
+        int n = graph.getNodeCount();
+        int[] order = new int[n];
+        float[] x = new float[n];
+        float[] y = new float[n];
+        for (int v = 0; v < n; v++) {
+            order[v] = v;
+            N node = graph.getNode(v).getWrappedNode();
+            x[v] = node.getX();
+            y[v] = node.getY();
+        }
+        int[] region = new int[n];
+        split(order, new long[n], x, y, 0, n, 0, regionCount, region);
+        return region;
+    }
+
+    private static void split(int[] order, long[] keys, float[] x, float[] y, int from, int to, int first, int count,
+                              int[] region) {
+        if (count == 1) {
+            for (int i = from; i < to; i++) {
+                region[order[i]] = first;
+            }
+            return;
+        }
+        MultiLevelOverlay.bisect(order, keys, x, y, from, to);
+        int half = count / 2;
+        int middle = from + (int) ((long) (to - from) * half / count);
+        split(order, keys, x, y, from, middle, first, half, region);
+        split(order, keys, x, y, middle, to, first + half, count - half, region);
+    }
+
+    /**
+     * @return The graph of the flags.
+     */
+    public Graph<N, E> getGraph() {
+        return graph;
+    }
+
+    /**
+     * Checks that the graph was not compacted since the flags were computed, which renumbers its nodes and edges.
+     *
+     * @throws IllegalStateException If the graph was compacted.
+     */
+    void checkNotCompacted() {
+        if (!weights.isSameLineage(graph.getEdgeWeights())) {
+            throw new IllegalStateException("The graph was compacted after the arc-flags were computed");
+        }
+    }
+
+    /**
+     * @return The weight index of the flags.
+     */
+    public int getWeightIndex() {
+        return weightIndex;
+    }
+
+    /**
+     * @return The number of regions.
+     */
+    public int getRegionCount() {
+        return regionCount;
+    }
+
+    /**
+     * @param nodeId The id of a node.
+     * @return The region of the node, or -1 if the node was added after the preprocessing.
+     */
+    public int getRegion(int nodeId) {
+        return nodeId < region.length ? region[nodeId] : -1;
+    }
+
+    /**
+     * Tells whether an edge may lie on a shortest path to a region.
+     *
+     * @param edgeId The id of the edge.
+     * @param region The region, -1 for any region.
+     * @return False if the edge can be skipped by a search to the region.
+     */
+    public boolean isFlagged(int edgeId, int region) {
+        if (region < 0 || edgeId >= edgeCount) {
+            return true;
+        }
+        return (flags[edgeId * words + (region >>> 6)] & (1L << region)) != 0;
+    }
+
+    /**
+     * @return The size of the flags in bytes.
+     */
+    public long getSizeInBytes() {
+        return 8L * flags.length;
+    }
+
+    /**
+     * Computes the flags, one region per task.
+     */
+    private final class Preprocessor {
+
+        private final int threads;
+        private final int n = graph.getNodeCount();
+        // the incoming edges per node, with their source and edge id
+        private final int[] inStart = new int[n + 1];
+        private final int[] inSource;
+        private final int[] inEdge;
+        private final float[] inWeight;
+
+        private Preprocessor(int threads) {
+            this.threads = threads;
+            int total = 0;
+            for (int v = 0; v < n; v++) {
+                EdgeIterator<N, E> edges = graph.getOutGoingEdges(graph.getNode(v), null);
+                while (edges.hasNext()) {
+                    inStart[edges.next().getId() + 1]++;
+                    total++;
+                }
+            }
+            for (int v = 0; v < n; v++) {
+                inStart[v + 1] += inStart[v];
+            }
+            inSource = new int[total];
+            inEdge = new int[total];
+            inWeight = new float[total];
+            int[] fill = Arrays.copyOf(inStart, n);
+            EdgeWeightTable weights = graph.getEdgeWeights().snapshot();
+            for (int v = 0; v < n; v++) {
+                EdgeIterator<N, E> edges = graph.getOutGoingEdges(graph.getNode(v), null);
+                while (edges.hasNext()) {
+                    int k = fill[edges.next().getId()]++;
+                    inSource[k] = v;
+                    inEdge[k] = edges.getEdgeId();
+                    inWeight[k] = weights.getValue(inEdge[k], weightIndex);
+                }
+            }
+        }
+
+        private void run() {
+            final int[][] regionNodes = regionNodes();
+            DistanceMatrix.parallel(threads, regionCount, new DistanceMatrix.WorkerFactory() {
+                public DistanceMatrix.Worker create() {
+                    final NodeHeap heap = new NodeHeap(n);
+                    final int[] treeEdge = new int[n];
+                    final boolean[] flagged = new boolean[edgeCount];
+                    return new DistanceMatrix.Worker() {
+                        public void run(int r) {
+                            Arrays.fill(flagged, false);
+                            flagRegion(r, regionNodes[r], heap, treeEdge, flagged);
+                            store(r, flagged);
+                        }
+                    };
+                }
+            });
+        }
+
+        private int[][] regionNodes() {
+            int[] counts = new int[regionCount];
+            for (int v = 0; v < n; v++) {
+                counts[region[v]]++;
+            }
+            int[][] nodes = new int[regionCount][];
+            for (int r = 0; r < regionCount; r++) {
+                nodes[r] = new int[counts[r]];
+                counts[r] = 0;
+            }
+            for (int v = 0; v < n; v++) {
+                nodes[region[v]][counts[region[v]]++] = v;
+            }
+            return nodes;
+        }
+
+        /**
+         * Marks the edges inside a region, and the edges of the backward shortest path trees of its boundary nodes.
+         */
+        private void flagRegion(int r, int[] nodes, NodeHeap heap, int[] treeEdge, boolean[] flagged) {
+            for (int b : nodes) {
+                boolean boundary = false;
+                for (int i = inStart[b]; i < inStart[b + 1]; i++) {
+                    if (region[inSource[i]] == r) {
+                        flagged[inEdge[i]] = true;
+                    } else {
+                        boundary = true;
+                    }
+                }
+                if (!boundary) {
+                    continue;
+                }
+                heap.update(b, 0);
+                while (!heap.isEmpty()) {
+                    float d = heap.minKey();
+                    int x = heap.extractMin();
+                    if (x != b) {
+                        flagged[treeEdge[x]] = true;
+                    }
+                    for (int i = inStart[x]; i < inStart[x + 1]; i++) {
+                        if (heap.update(inSource[i], d + inWeight[i])) {
+                            treeEdge[inSource[i]] = inEdge[i];
+                        }
+                    }
+                }
+                heap.clear();
+            }
+        }
+
+        private void store(int r, boolean[] flagged) {
+            int word = r >>> 6;
+            long bit = 1L << r;
+            synchronized (flags) {
+                for (int e = 0; e < edgeCount; e++) {
+                    if (flagged[e]) {
+                        flags[e * words + word] |= bit;
+                    }
+                }
+            }
+        }
+    }
+}
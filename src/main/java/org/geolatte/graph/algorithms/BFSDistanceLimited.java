@@ -21,8 +21,11 @@
 
 package org.geolatte.graph.algorithms;
 
+import org.geolatte.graph.EdgeIterator;
+import org.geolatte.graph.EdgeWeightTable;
 import org.geolatte.graph.EmptyContextualReachability;
 import org.geolatte.graph.Graph;
+import org.geolatte.graph.GraphMonitor;
 import org.geolatte.graph.GraphTree;
 import org.geolatte.graph.GraphTreeIterator;
 import org.geolatte.graph.InternalNode;
@@ -40,7 +43,7 @@ import java.util.*;
  * @param <N> The type of domain node
  * @param <E> The edge label type.
  */
-public class BFSDistanceLimited<N, E> implements GraphAlgorithm<GraphTree<N, E>> {
+public class BFSDistanceLimited<N, E> implements GraphAlgorithm<GraphTree<N, E>>, MonitoredAlgorithm {
 
     private final InternalNode<N, E> source;
     private final float maxDistance;
@@ -48,6 +51,13 @@ public class BFSDistanceLimited<N, E> implements GraphAlgorithm<GraphTree<N, E>>
     private GraphTree<N, E> result;
     private final int weightIndex;
     private final RoutingContextualReachability<N, E, BFSState<N, E>> contextualReachability;
+    private SearchListener listener = GraphAlgorithms.getDefaultSearchListener();
+
+    // search counters, reported to the listener
+    private int settledNodes;
+    private int scannedEdges;
+    private int queueInserts;
+    private int maxQueueSize;
 
     BFSDistanceLimited(Graph<N, E> graph, N source, float maxDistance, int weightIndex) {
         this(graph, source, maxDistance, weightIndex, new EmptyContextualReachability<N, E, BFSState<N, E>>());
@@ -63,8 +73,33 @@ public class BFSDistanceLimited<N, E> implements GraphAlgorithm<GraphTree<N, E>>
     }
 
 
+    public void setSearchListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
     public void execute() {
+        SearchListener listener = this.listener;
+        GraphMonitor monitor = GraphMonitor.current();
+        if (listener == null && monitor == null) {
+            search();
+            return;
+        }
+        Object monitorToken = monitor == null ? null : monitor.searchStarted();
+        long start = System.nanoTime();
+        search();
+        long duration = System.nanoTime() - start;
+        if (monitor != null) {
+            monitor.searchFinished(monitorToken, "BFS", weightIndex, true, settledNodes, settledNodes);
+        }
+        if (listener != null) {
+            listener.searchFinished(new SearchStats("BFS", source.getWrappedNode(), null, true, settledNodes,
+                    scannedEdges, queueInserts - 1, queueInserts, 0, maxQueueSize, duration));
+        }
+    }
 
+    private void search() {
+        settledNodes = scannedEdges = queueInserts = maxQueueSize = 0;
+        EdgeWeightTable weights = this.graph.getEdgeWeights().snapshot();
 
         // List of new nodes with predecessors (as bfs state): nodes where we might still add a successor without going beyond the maxDistance.
         Queue<BFSState<N, E>> greyNodes = new LinkedList<BFSState<N, E>>();
@@ -74,22 +109,29 @@ public class BFSDistanceLimited<N, E> implements GraphAlgorithm<GraphTree<N, E>>
         BFSState<N, E> ws = new BFSState<N, E>(this.source);
         ws.distance = 0.f;
         greyNodes.add(ws);
+        queueInserts++;
 
         while (!greyNodes.isEmpty()) {
+            if (greyNodes.size() > maxQueueSize) {
+                maxQueueSize = greyNodes.size();
+            }
             BFSState<N, E> wu = greyNodes.remove();
+            settledNodes++;
 
 
             // TODO : Is the context set correctly here?
             contextualReachability.setContext(wu);
-            Iterator<InternalNode<N, E>> outEdges = this.graph.getOutGoingEdges(wu.internalNode, contextualReachability);
+            EdgeIterator<N, E> outEdges = this.graph.getOutGoingEdges(wu.internalNode, contextualReachability);
             while (outEdges.hasNext()) {
                 InternalNode<N, E> v = outEdges.next();
+                scannedEdges++;
                 BFSState<N, E> wv = new BFSState<N, E>(v);
                 if (!greyNodes.contains(wv) && !blackNodes.contains(wv)) {
-                    wv.distance = wu.distance + wu.internalNode.getWeightTo(v, weightIndex);
+                    wv.distance = wu.distance + weights.getValue(outEdges.getEdgeId(), weightIndex);
                     if (wv.distance <= maxDistance) {
                         wv.setPredecessor(wu);
                         greyNodes.add(wv);
+                        queueInserts++;
                     }
                 }
             }
@@ -40,6 +40,7 @@ class BasicPredGraph<N, E> implements PredGraph<N, E> {
 
     private final InternalNode<N, E> internalNode;
     private PredGraph<N, E> predecessor = null;
+    private int predecessorEdge = -1;
     private float weight;
 
     BasicPredGraph(InternalNode<N, E> n, float weight) {
@@ -93,10 +94,19 @@ class BasicPredGraph<N, E> implements PredGraph<N, E> {
     }
 
     public PredGraph<N, E> setPredecessor(PredGraph<N, E> pred) {
+        return setPredecessor(pred, -1);
+    }
+
+    public PredGraph<N, E> setPredecessor(PredGraph<N, E> pred, int edgeId) {
         this.predecessor = pred;
+        this.predecessorEdge = pred == null ? -1 : edgeId;
         return pred;
     }
 
+    public int getPredecessorEdge() {
+        return predecessorEdge;
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
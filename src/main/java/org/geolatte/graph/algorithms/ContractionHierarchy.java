@@ -0,0 +1,505 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph.algorithms;
+
+import org.geolatte.graph.*;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/**
+ * <p>
+ * A contraction hierarchy of a graph for one weight index: the nodes are ordered by importance, and contracted one by
+ * one from the least important, adding shortcut edges between the neighbours of a contracted node where it lies on
+ * their only shortest path. A shortest path then always goes up in the order and comes back down, so that queries
+ * only search upward from both ends, and settle a tiny fraction of the nodes a Dijkstra search settles.
+ * </p>
+ * <p>
+ * The node order is chosen greedily by edge difference (shortcuts added minus edges removed) and the number of
+ * contracted neighbours; the priorities of the neighbours of a node are updated after it is contracted. Witness
+ * searches are bounded, which may add a few superfluous shortcuts but never affects the distances. The hierarchy is
+ * built from a snapshot of the weights; it does not follow later weight updates, and it ignores contextual
+ * reachability. Create it with
+ * {@link GraphAlgorithms#createContractionHierarchy(Graph, int)}, and use it for point-to-point distances
+ * ({@link #distance(Object, Object)}) or many-to-many distance matrices
+ * ({@link GraphAlgorithms#createDistanceMatrix(ContractionHierarchy, java.util.List, java.util.List, int)}).
+ * </p>
+ * <p>
+ * A hierarchy is immutable and thread-safe.
+ * </p>
+ *
+ * @param <N> The type of domain node.
+ * @param <E> The edge label type.
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public final class ContractionHierarchy<N, E> {
+
+    // the number of nodes a witness search may settle, when contracting and when estimating the priority of a node
+    private static final int WITNESS_LIMIT = 100;
+    private static final int SIMULATION_LIMIT = 20;
+
+    private final Graph<N, E> graph;
+    private final EdgeWeightTable weights;
+    private final int weightIndex;
+    private final int nodeCount;
+    private final int[] rank;
+    private final int shortcutCount;
+
+    // the edges to more important nodes, per node
+    final int[] upStart;
+    final int[] upTarget;
+    final float[] upWeight;
+
+    // the edges from more important nodes, per node, with their source
+    final int[] downStart;
+    final int[] downSource;
+    final float[] downWeight;
+
+    private final ThreadLocal<NodeHeap[]> heaps = new ThreadLocal<NodeHeap[]>() {
+        @Override
+        protected NodeHeap[] initialValue() {
+            return new NodeHeap[]{new NodeHeap(nodeCount), new NodeHeap(nodeCount)};
+        }
+    };
+
+    ContractionHierarchy(Graph<N, E> graph, int weightIndex) {
+        this.graph = graph;
+        this.weights = graph.getEdgeWeights();
+        this.weightIndex = weightIndex;
+        this.nodeCount = graph.getNodeCount();
+        Contractor contractor = new Contractor(graph, weightIndex);
+        contractor.run();
+        this.rank = contractor.rank;
+        this.shortcutCount = contractor.shortcutCount;
+        this.upStart = new int[nodeCount + 1];
+        int[][] up = toArrays(contractor.upTarget, contractor.upWeight, contractor.upCount, upStart);
+        this.upTarget = up[0];
+        this.upWeight = toFloats(up[1]);
+        this.downStart = new int[nodeCount + 1];
+        int[][] down = toArrays(contractor.downSource, contractor.downWeight, contractor.downCount, downStart);
+        this.downSource = down[0];
+        this.downWeight = toFloats(down[1]);
+    }
+
+    /**
+     * Packs per-node edge lists into one array of nodes and one of weights (as raw int bits), filling in the start of
+     * every list.
+     */
+    private int[][] toArrays(int[][] nodes, float[][] weights, int[] counts, int[] start) {
+        for (int v = 0; v < nodeCount; v++) {
+            start[v + 1] = start[v] + counts[v];
+        }
+        int[] packedNodes = new int[start[nodeCount]];
+        int[] packedWeights = new int[start[nodeCount]];
+        for (int v = 0; v < nodeCount; v++) {
+            for (int i = 0; i < counts[v]; i++) {
+                packedNodes[start[v] + i] = nodes[v][i];
+                packedWeights[start[v] + i] = Float.floatToRawIntBits(weights[v][i]);
+            }
+        }
+        return new int[][]{packedNodes, packedWeights};
+    }
+
+    private static float[] toFloats(int[] bits) {
+        float[] values = new float[bits.length];
+        for (int i = 0; i < bits.length; i++) {
+            values[i] = Float.intBitsToFloat(bits[i]);
+        }
+        return values;
+    }
+
+    /**
+     * @return The graph of this hierarchy.
+     */
+    public Graph<N, E> getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return The weight index of this hierarchy.
+     */
+    public int getWeightIndex() {
+        return weightIndex;
+    }
+
+    /**
+     * @return The number of shortcut edges that were added.
+     */
+    public int getShortcutCount() {
+        return shortcutCount;
+    }
+
+    /**
+     * Gets the position of a node in the contraction order: 0 for the first contracted (least important) node.
+     *
+     * @param nodeId The id of the node.
+     * @return The rank of the node.
+     */
+    public int getRank(int nodeId) {
+        return rank[nodeId];
+    }
+
+    /**
+     * Gets the id of a domain node.
+     *
+     * @throws IllegalArgumentException If the node is not in the graph.
+     * @throws IllegalStateException    If the graph was compacted since the hierarchy was built, which renumbers its
+     *                                  nodes.
+     */
+    int idOf(N node) {
+        if (!weights.isSameLineage(graph.getEdgeWeights())) {
+            throw new IllegalStateException("The graph was compacted after the hierarchy was built");
+        }
+        InternalNode<N, E> internal = graph.getInternalNode(node);
+        if (internal == null) {
+            throw new IllegalArgumentException("Node not in graph: " + node);
+        }
+        return internal.getId();
+    }
+
+    /**
+     * Gets the shortest path distance between two nodes.
+     *
+     * @param origin      The origin.
+     * @param destination The destination.
+     * @return The distance, or positive infinity if the destination can not be reached.
+     * @throws IllegalArgumentException If one of the nodes is not in the graph.
+     * @throws IllegalStateException    If the graph was compacted since the hierarchy was built.
+     */
+    public float distance(N origin, N destination) {
+        int s = idOf(origin);
+        int t = idOf(destination);
+        NodeHeap[] pair = heaps.get();
+        NodeHeap forward = pair[0];
+        NodeHeap backward = pair[1];
+        float best = Float.POSITIVE_INFINITY;
+        try {
+            forward.update(s, 0);
+            backward.update(t, 0);
+            while (true) {
+                boolean forwardActive = !forward.isEmpty() && forward.minKey() < best;
+                boolean backwardActive = !backward.isEmpty() && backward.minKey() < best;
+                if (!forwardActive && !backwardActive) {
+                    return best;
+                }
+                if (forwardActive) {
+                    best = step(forward, backward, best, upStart, upTarget, upWeight, downStart, downSource, downWeight);
+                }
+                if (backwardActive) {
+                    best = step(backward, forward, best, downStart, downSource, downWeight, upStart, upTarget, upWeight);
+                }
+            }
+        } finally {
+            forward.clear();
+            backward.clear();
+        }
+    }
+
+    /**
+     * Settles the next node of one direction of a bidirectional query, and returns the new best distance.
+     */
+    private static float step(NodeHeap heap, NodeHeap other, float best, int[] start, int[] target, float[] weight,
+                              int[] stallStart, int[] stallNode, float[] stallWeight) {
+        float d = heap.minKey();
+        int x = heap.extractMin();
+        if (other.isReached(x)) {
+            best = Math.min(best, d + other.getKey(x));
+        }
+        if (!isStalled(heap, x, d, stallStart, stallNode, stallWeight)) {
+            for (int i = start[x]; i < start[x + 1]; i++) {
+                heap.update(target[i], d + weight[i]);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Tells whether a settled node is reached with a shorter distance over an edge from a more important node, in
+     * which case the node can not be on a shortest up-path and need not be expanded (stall-on-demand).
+     */
+    static boolean isStalled(NodeHeap heap, int x, float d, int[] start, int[] node, float[] weight) {
+        for (int i = start[x]; i < start[x + 1]; i++) {
+            if (heap.getKey(node[i]) + weight[i] < d) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Contracts the nodes of a graph, and collects the edges of the hierarchy.
+     */
+    private static final class Contractor {
+
+        private final int n;
+        // the remaining graph, with shortcuts
+        private final int[][] outTo;
+        private final float[][] outWeight;
+        private final int[] outCount;
+        private final int[][] inFrom;
+        private final float[][] inWeight;
+        private final int[] inCount;
+        private final boolean[] contracted;
+        private final int[] deletedNeighbours;
+        private final int[] priority;
+        private final NodeHeap witness;
+        // marks the targets of the current witness search
+        private final int[] targetMark;
+        private int mark;
+        // the node whose contraction last updated the priority of a node
+        private final int[] updated;
+
+        // the result
+        private final int[] rank;
+        private final int[][] upTarget;
+        private final float[][] upWeight;
+        private final int[] upCount;
+        private final int[][] downSource;
+        private final float[][] downWeight;
+        private final int[] downCount;
+        private int shortcutCount;
+
+        private <N, E> Contractor(Graph<N, E> graph, int weightIndex) {
+            this.n = graph.getNodeCount();
+            outTo = new int[n][];
+            outWeight = new float[n][];
+            outCount = new int[n];
+            inFrom = new int[n][];
+            inWeight = new float[n][];
+            inCount = new int[n];
+            contracted = new boolean[n];
+            deletedNeighbours = new int[n];
+            priority = new int[n];
+            witness = new NodeHeap(n);
+            targetMark = new int[n];
+            updated = new int[n];
+            Arrays.fill(updated, -1);
+            rank = new int[n];
+            upTarget = new int[n][];
+            upWeight = new float[n][];
+            upCount = new int[n];
+            downSource = new int[n][];
+            downWeight = new float[n][];
+            downCount = new int[n];
+            for (int v = 0; v < n; v++) {
+                outTo[v] = new int[4];
+                outWeight[v] = new float[4];
+                inFrom[v] = new int[4];
+                inWeight[v] = new float[4];
+            }
+            EdgeWeightTable weights = graph.getEdgeWeights().snapshot();
+            for (int v = 0; v < n; v++) {
+                EdgeIterator<N, E> edges = graph.getOutGoingEdges(graph.getNode(v), null);
+                while (edges.hasNext()) {
+                    int w = edges.next().getId();
+                    if (w != v) {
+                        addEdge(v, w, weights.getValue(edges.getEdgeId(), weightIndex));
+                    }
+                }
+            }
+        }
+
+        /**
+         * Adds an edge, or lowers the weight of the existing edge between the same nodes.
+         */
+        private void addEdge(int u, int w, float weight) {
+            int[] to = outTo[u];
+            for (int i = 0; i < outCount[u]; i++) {
+                if (to[i] == w) {
+                    if (weight < outWeight[u][i]) {
+                        outWeight[u][i] = weight;
+                        int[] from = inFrom[w];
+                        for (int k = 0; k < inCount[w]; k++) {
+                            if (from[k] == u) {
+                                inWeight[w][k] = weight;
+                                break;
+                            }
+                        }
+                    }
+                    return;
+                }
+            }
+            if (outCount[u] == to.length) {
+                outTo[u] = Arrays.copyOf(to, to.length * 2);
+                outWeight[u] = Arrays.copyOf(outWeight[u], to.length * 2);
+            }
+            outTo[u][outCount[u]] = w;
+            outWeight[u][outCount[u]++] = weight;
+            if (inCount[w] == inFrom[w].length) {
+                inFrom[w] = Arrays.copyOf(inFrom[w], inCount[w] * 2);
+                inWeight[w] = Arrays.copyOf(inWeight[w], inCount[w] * 2);
+            }
+            inFrom[w][inCount[w]] = u;
+            inWeight[w][inCount[w]++] = weight;
+        }
+
+        /**
+         * Removes the edges of a contracted node from the lists of its neighbours.
+         */
+        private void detach(int v) {
+            for (int j = 0; j < outCount[v]; j++) {
+                int w = outTo[v][j];
+                remove(inFrom[w], inWeight[w], inCount, w, v);
+                deletedNeighbours[w]++;
+            }
+            for (int i = 0; i < inCount[v]; i++) {
+                int u = inFrom[v][i];
+                remove(outTo[u], outWeight[u], outCount, u, v);
+                deletedNeighbours[u]++;
+            }
+        }
+
+        private static void remove(int[] nodes, float[] weights, int[] counts, int owner, int node) {
+            int count = counts[owner];
+            for (int i = 0; i < count; i++) {
+                if (nodes[i] == node) {
+                    nodes[i] = nodes[count - 1];
+                    weights[i] = weights[count - 1];
+                    counts[owner] = count - 1;
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Contracts a node, or only counts the shortcuts it needs.
+         *
+         * @return The number of shortcuts.
+         */
+        private int contract(int v, boolean simulate) {
+            int shortcuts = 0;
+            int limit = simulate ? SIMULATION_LIMIT : WITNESS_LIMIT;
+            for (int i = 0; i < inCount[v]; i++) {
+                int u = inFrom[v][i];
+                float toV = inWeight[v][i];
+                float max = -1;
+                int targets = 0;
+                mark++;
+                for (int j = 0; j < outCount[v]; j++) {
+                    int w = outTo[v][j];
+                    if (w != u) {
+                        max = Math.max(max, toV + outWeight[v][j]);
+                        if (targetMark[w] != mark) {
+                            targetMark[w] = mark;
+                            targets++;
+                        }
+                    }
+                }
+                if (targets == 0) {
+                    continue;
+                }
+                witnessSearch(u, v, max, limit, targets);
+                for (int j = 0; j < outCount[v]; j++) {
+                    int w = outTo[v][j];
+                    float viaV = toV + outWeight[v][j];
+                    if (w != u && witness.getKey(w) > viaV) {
+                        shortcuts++;
+                        if (!simulate) {
+                            addEdge(u, w, viaV);
+                        }
+                    }
+                }
+                witness.clear();
+            }
+            return shortcuts;
+        }
+
+        /**
+         * Searches the shortest paths from a node that avoid the node that is contracted, up to a maximum distance,
+         * until the marked targets are settled.
+         */
+        private void witnessSearch(int source, int avoid, float max, int limit, int targets) {
+            witness.update(source, 0);
+            int settled = 0;
+            while (!witness.isEmpty() && witness.minKey() <= max && settled++ < limit) {
+                float d = witness.minKey();
+                int x = witness.extractMin();
+                if (targetMark[x] == mark && --targets == 0) {
+                    return;
+                }
+                for (int j = 0; j < outCount[x]; j++) {
+                    int y = outTo[x][j];
+                    if (y != avoid) {
+                        witness.update(y, d + outWeight[x][j]);
+                    }
+                }
+            }
+        }
+
+        private int computePriority(int v) {
+            return 4 * (contract(v, true) - inCount[v] - outCount[v]) + deletedNeighbours[v];
+        }
+
+        private static long entry(int priority, int v) {
+            return ((long) priority << 32) | v;
+        }
+
+        private void run() {
+            PriorityQueue<Long> queue = new PriorityQueue<Long>(Math.max(1, n));
+            for (int v = 0; v < n; v++) {
+                priority[v] = computePriority(v);
+                queue.add(entry(priority[v], v));
+            }
+            int next = 0;
+            while (!queue.isEmpty()) {
+                long top = queue.poll();
+                int v = (int) top;
+                if (contracted[v] || (int) (top >> 32) != priority[v]) {
+                    continue; // stale entry
+                }
+                // the remaining neighbours are all contracted later: they are the up and down edges of the node
+                upTarget[v] = Arrays.copyOf(outTo[v], outCount[v]);
+                upWeight[v] = Arrays.copyOf(outWeight[v], outCount[v]);
+                upCount[v] = outCount[v];
+                downSource[v] = Arrays.copyOf(inFrom[v], inCount[v]);
+                downWeight[v] = Arrays.copyOf(inWeight[v], inCount[v]);
+                downCount[v] = inCount[v];
+                shortcutCount += contract(v, false);
+                detach(v);
+                contracted[v] = true;
+                rank[v] = next++;
+                outTo[v] = inFrom[v] = null;
+                outWeight[v] = inWeight[v] = null;
+                outCount[v] = inCount[v] = 0;
+                // the neighbours lost an edge and may have gained shortcuts
+                updateNeighbours(v, upTarget[v], upCount[v], queue);
+                updateNeighbours(v, downSource[v], downCount[v], queue);
+            }
+        }
+
+        private void updateNeighbours(int v, int[] neighbours, int count, PriorityQueue<Long> queue) {
+            for (int i = 0; i < count; i++) {
+                int w = neighbours[i];
+                if (updated[w] == v) {
+                    continue; // both an up and a down neighbour
+                }
+                updated[w] = v;
+                int p = computePriority(w);
+                if (p != priority[w]) {
+                    priority[w] = p;
+                    queue.add(entry(p, w));
+                }
+            }
+        }
+    }
+}
@@ -37,12 +37,12 @@ class DefaultRelaxer<N, E> implements Relaxer<N, E> {
 
     private float newWeight;
 
-    public boolean relax(PredGraph<N, E> u, PredGraph<N, E> v, int weightIndex) {
+    public boolean relax(PredGraph<N, E> u, PredGraph<N, E> v, int edgeId, float edgeWeight) {
 
-        float r = u.getWeight() + u.getInternalNode().getWeightTo(v.getInternalNode(), weightIndex);
+        float r = u.getWeight() + edgeWeight;
         if (r < v.getWeight()) {
             v.setWeight(r);
-            v.setPredecessor(u);
+            v.setPredecessor(u, edgeId);
             newWeight = update(v.getInternalNode(), v.getWeight());
             return true;
         } else {
@@ -52,7 +52,7 @@ class DefaultRelaxer<N, E> implements Relaxer<N, E> {
     }
 
     /**
-     * Method called from {@link #relax(org.geolatte.graph.PredGraph, org.geolatte.graph.PredGraph, int)} to
+     * Method called from {@link #relax(org.geolatte.graph.PredGraph, org.geolatte.graph.PredGraph, int, float)} to
      * determine the new weight for the given node.
      *
      * @param nd         The node.
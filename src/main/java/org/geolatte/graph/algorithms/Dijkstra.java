@@ -24,7 +24,7 @@ package org.geolatte.graph.algorithms;
 import org.geolatte.graph.*;
 
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -35,66 +35,186 @@ import java.util.Set;
  *
  * @author Karel Maesen
  */
-public class Dijkstra<N, E> implements GraphAlgorithm<Path<N>> {
+public class Dijkstra<N, E> implements GraphAlgorithm<Path<N>>, MonitoredAlgorithm {
 
     private final InternalNode<N, E> origin;
     private final InternalNode<N, E> destination;
     private final Graph<N, E> graph;
     private final int weightIndex;
+    private final WeightVector weightVector;
     private Path<N> result;
 
 
     private final PMinQueue<N, E> minQueue;
     private final Relaxer<N, E> relaxer;
     private final RoutingContextualReachability<N, E, Traversal<N, E>> reachability;
+    private SearchListener listener = GraphAlgorithms.getDefaultSearchListener();
+    private ArcFlags<N, E> arcFlags;
+    private int[] blockedOriginEdges;
+    private PredGraph<N, E> resultNode;
+
+    // search counters, reported to the listener
+    private int settledNodes;
+    private int scannedEdges;
+    private int improvedEdges;
+    private int queueInserts;
+    private int queueDecreaseKeys;
+    private int maxQueueSize;
 
     protected Dijkstra(Graph<N, E> graph, N origin, N destination, Relaxer<N, E> relaxer, int weightIndex, RoutingContextualReachability<N, E, Traversal<N, E>> reachability) {
 
+        this(graph, origin, destination, relaxer, weightIndex, null, reachability);
+    }
+
+    protected Dijkstra(Graph<N, E> graph, N origin, N destination, Relaxer<N, E> relaxer, int weightIndex) {
+
+        this(graph, origin, destination, relaxer, weightIndex, new EmptyContextualReachability<N, E, Traversal<N, E>>());
+    }
+
+    /**
+     * Constructs a search that minimizes a linear combination of weight indices. The combined weight of every edge is
+     * passed to the relaxer; a heuristic relaxer must use a heuristic that is combined with the same coefficients.
+     */
+    protected Dijkstra(Graph<N, E> graph, N origin, N destination, Relaxer<N, E> relaxer, WeightVector weightVector, RoutingContextualReachability<N, E, Traversal<N, E>> reachability) {
+
+        this(graph, origin, destination, relaxer, weightVector.getWeightIndex(0), weightVector, reachability);
+    }
+
+    private Dijkstra(Graph<N, E> graph, N origin, N destination, Relaxer<N, E> relaxer, int weightIndex, WeightVector weightVector, RoutingContextualReachability<N, E, Traversal<N, E>> reachability) {
+
         this.graph = graph;
 
         this.origin = this.graph.getInternalNode(origin);
         this.destination = this.graph.getInternalNode(destination);
         this.weightIndex = weightIndex;
+        this.weightVector = weightVector;
         this.relaxer = relaxer;
         this.minQueue = new PMinQueue<N, E>();
         this.reachability = reachability;
         this.reachability.setOriginDestination(this.origin.getWrappedNode(), this.destination.getWrappedNode());
     }
 
-    protected Dijkstra(Graph<N, E> graph, N origin, N destination, Relaxer<N, E> relaxer, int weightIndex) {
+    public void setSearchListener(SearchListener listener) {
+        this.listener = listener;
+    }
 
-        this(graph, origin, destination, relaxer, weightIndex, new EmptyContextualReachability<N, E, Traversal<N, E>>());
+    /**
+     * Sets the arc-flags that prune the search: only the edges flagged for the region of the destination are followed.
+     * The flags must belong to the graph and weight index of this search.
+     *
+     * @param arcFlags The arc-flags, or null to follow all edges.
+     */
+    void setArcFlags(ArcFlags<N, E> arcFlags) {
+        this.arcFlags = arcFlags;
+    }
+
+    /**
+     * Excludes edges out of the origin from the search, by their edge id. Unlike a reachability, which masks nodes,
+     * this tells apart parallel edges between the same two nodes.
+     *
+     * @param edgeIds The ids of the edges out of the origin that the search must not take, or null to take all edges.
+     */
+    void setBlockedOriginEdges(int[] edgeIds) {
+        this.blockedOriginEdges = edgeIds;
     }
 
     public void execute() {
+        SearchListener listener = this.listener;
+        GraphMonitor monitor = GraphMonitor.current();
+        if (listener == null && monitor == null) {
+            search();
+            return;
+        }
+        Object monitorToken = monitor == null ? null : monitor.searchStarted();
+        long start = System.nanoTime();
+        search();
+        long duration = System.nanoTime() - start;
+        String algorithm = relaxer instanceof HeuristicRelaxer ? "A*" : "Dijkstra";
+        if (monitor != null) {
+            int pathLength = 0;
+            if (result != null) {
+                for (N node : result) {
+                    pathLength++;
+                }
+            }
+            monitor.searchFinished(monitorToken, algorithm, weightIndex, result != null, settledNodes, pathLength);
+        }
+        if (listener != null) {
+            listener.searchFinished(new SearchStats(algorithm, origin.getWrappedNode(), destination.getWrappedNode(),
+                    result != null, settledNodes, scannedEdges, improvedEdges, queueInserts, queueDecreaseKeys,
+                    maxQueueSize, duration));
+        }
+    }
+
+    private void search() {
+        settledNodes = scannedEdges = improvedEdges = queueInserts = queueDecreaseKeys = maxQueueSize = 0;
+        resultNode = null;
+        if (!graph.getComponents().mayReach(this.origin, this.destination)) {
+            return; // the destination lies in a component that can not be reached from the origin
+        }
+        EdgeWeightTable weights = graph.getEdgeWeights().snapshot();
+        ArcFlags<N, E> arcFlags = this.arcFlags;
+        int region = arcFlags == null ? -1 : arcFlags.getRegion(destination.getId());
         Set<InternalNode<N, E>> closed = new HashSet<InternalNode<N, E>>();
         BasicPredGraph<N, E> startPG = new BasicPredGraph<N, E>(this.origin, 0.0f);
         minQueue.add(startPG, Float.POSITIVE_INFINITY);
+        queueInserts++;
         while (!minQueue.isEmpty()) {
+            if (minQueue.size() > maxQueueSize) {
+                maxQueueSize = minQueue.size();
+            }
             PredGraph<N, E> pu = minQueue.extractMin();
+            settledNodes++;
             closed.add(pu.getInternalNode());
             if (isDone(pu)) {
                 return;
             }
             InternalNode<N, E> u = pu.getInternalNode();
             reachability.setContext(pu);
-            Iterator<InternalNode<N, E>> outEdges = graph.getOutGoingEdges(u, reachability);
+            EdgeIterator<N, E> outEdges = graph.getOutGoingEdges(u, reachability);
             while (outEdges.hasNext()) {
                 InternalNode<N, E> v = outEdges.next();
+                int edgeId = outEdges.getEdgeId();
+                if (region >= 0 && !arcFlags.isFlagged(edgeId, region)) {
+                    continue;
+                }
+                if (pu == startPG && isBlockedOriginEdge(edgeId)) {
+                    continue;
+                }
+                scannedEdges++;
                 if (closed.contains(v)) {
                     continue;
                 }
                 PredGraph<N, E> pv = minQueue.get(v);
-                if (pv == null) {
+                boolean queued = pv != null;
+                if (!queued) {
                     pv = new BasicPredGraph<N, E>(v,
                             Float.POSITIVE_INFINITY);
                     minQueue.add(pv, Float.POSITIVE_INFINITY);
+                    queueInserts++;
                 }
-                if (this.relaxer.relax(pu, pv, weightIndex)) {
+                float edgeWeight = weightVector == null ? weights.getValue(edgeId, weightIndex)
+                        : weightVector.getValue(weights, edgeId);
+                if (this.relaxer.relax(pu, pv, edgeId, edgeWeight)) {
                     this.minQueue.update(pv, this.relaxer.newTotalWeight());
+                    improvedEdges++;
+                    if (queued) {
+                        queueDecreaseKeys++;
+                    }
+                }
+            }
+        }
+    }
+
+    private boolean isBlockedOriginEdge(int edgeId) {
+        if (blockedOriginEdges != null) {
+            for (int blocked : blockedOriginEdges) {
+                if (blocked == edgeId) {
+                    return true;
                 }
             }
         }
+        return false;
     }
 
     boolean isDone(PredGraph<N, E> pu) {
@@ -106,20 +226,60 @@ public class Dijkstra<N, E> implements GraphAlgorithm<Path<N>> {
     }
 
     private Path<N> toPath(PredGraph<N, E> p) {
+        resultNode = p;
         BasicPath<N> path = new BasicPath<N>();
         path.setTotalWeight(p.getWeight());
         path.insert(p.getInternalNode().getWrappedNode());
+        int edgeId = p.getPredecessorEdge();
         PredGraph<N, E> next = p.getPredecessor();
 
         while (next != null) {
+            insertContractedNodes(path, edgeId);
             path.insert(next.getInternalNode().getWrappedNode());
+            edgeId = next.getPredecessorEdge();
             next = next.getPredecessor();
         }
         path.setValid(true);
         return path;
     }
 
+    /**
+     * Re-expands an edge that replaces a contracted chain of nodes, by inserting the chain nodes in the path.
+     *
+     * @param path   The path, built backwards.
+     * @param edgeId The id of the edge to expand.
+     */
+    private void insertContractedNodes(BasicPath<N> path, int edgeId) {
+        if (edgeId < 0) {
+            return;
+        }
+        List<N> chain = graph.getContractedNodes(edgeId);
+        for (int i = chain.size() - 1; i >= 0; i--) {
+            path.insert(chain.get(i));
+        }
+    }
+
     public Path<N> getResult() {
         return this.result;
     }
+
+    /**
+     * Gets the ids of the edges of the result, from the origin to the destination.
+     *
+     * @return The edge ids, or null if no path was found.
+     */
+    int[] getResultEdges() {
+        if (resultNode == null) {
+            return null;
+        }
+        int count = 0;
+        for (PredGraph<N, E> p = resultNode; p.getPredecessor() != null; p = p.getPredecessor()) {
+            count++;
+        }
+        int[] edges = new int[count];
+        for (PredGraph<N, E> p = resultNode; p.getPredecessor() != null; p = p.getPredecessor()) {
+            edges[--count] = p.getPredecessorEdge();
+        }
+        return edges;
+    }
 }
@@ -0,0 +1,102 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph.algorithms;
+
+import org.geolatte.graph.EdgeIterator;
+import org.geolatte.graph.EdgeWeightTable;
+import org.geolatte.graph.Graph;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * Computes a distance matrix with a Dijkstra search per source, that stops when all targets are settled.
+ * </p>
+ *
+ * @param <N> The type of domain node.
+ * @param <E> The edge label type.
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+class DijkstraDistanceMatrix<N, E> extends DistanceMatrix<N, E> {
+
+    private final Graph<N, E> graph;
+    private final int weightIndex;
+
+    DijkstraDistanceMatrix(Graph<N, E> graph, List<N> sources, List<N> targets, int weightIndex, int threads) {
+        super("Dijkstra matrix", graph, sources, targets, threads);
+        this.graph = graph;
+        this.weightIndex = weightIndex;
+    }
+
+    float[][] compute() {
+        final float[][] matrix = new float[sources.length][];
+        final EdgeWeightTable weights = graph.getEdgeWeights().snapshot();
+        final int nodeCount = graph.getNodeCount();
+        final boolean[] isTarget = new boolean[nodeCount];
+        int distinct = 0;
+        for (int t : targets) {
+            if (!isTarget[t]) {
+                isTarget[t] = true;
+                distinct++;
+            }
+        }
+        final int targetCount = distinct;
+        parallel(sources.length, new WorkerFactory() {
+            public Worker create() {
+                final NodeHeap heap = new NodeHeap(nodeCount);
+                return new Worker() {
+                    public void run(int i) {
+                        heap.update(sources[i], 0);
+                        int remaining = targetCount;
+                        int settled = 0;
+                        while (!heap.isEmpty() && remaining > 0) {
+                            float d = heap.minKey();
+                            int x = heap.extractMin();
+                            settled++;
+                            if (isTarget[x]) {
+                                remaining--;
+                            }
+                            EdgeIterator<N, E> edges = graph.getOutGoingEdges(graph.getNode(x), null);
+                            while (edges.hasNext()) {
+                                int y = edges.next().getId();
+                                heap.update(y, d + weights.getValue(edges.getEdgeId(), weightIndex));
+                            }
+                        }
+                        float[] row = new float[targets.length];
+                        Arrays.fill(row, Float.POSITIVE_INFINITY);
+                        for (int j = 0; j < targets.length; j++) {
+                            if (heap.isSettled(targets[j])) {
+                                row[j] = heap.getKey(targets[j]);
+                            }
+                        }
+                        matrix[i] = row;
+                        heap.clear();
+                        addSettled(settled);
+                    }
+                };
+            }
+        });
+        return matrix;
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph.algorithms;
+
+import org.geolatte.graph.Graph;
+import org.geolatte.graph.GraphMonitor;
+import org.geolatte.graph.InternalNode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Base class of the algorithms that compute the shortest path distances from a list of sources to a list of targets.
+ * The result is a matrix with a row per source and a column per target, holding positive infinity where a target
+ * can not be reached. The work is spread over a number of threads.
+ * </p>
+ *
+ * @param <N> The type of domain node.
+ * @param <E> The edge label type.
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+abstract class DistanceMatrix<N, E> implements GraphAlgorithm<float[][]>, MonitoredAlgorithm {
+
+    private final String algorithm;
+    final int[] sources;
+    final int[] targets;
+    private final int threads;
+    private final AtomicLong settledNodes = new AtomicLong();
+    private SearchListener listener = GraphAlgorithms.getDefaultSearchListener();
+    private float[][] result;
+
+    DistanceMatrix(String algorithm, Graph<N, E> graph, List<N> sources, List<N> targets, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be at least 1");
+        }
+        this.algorithm = algorithm;
+        this.sources = toIds(graph, sources);
+        this.targets = toIds(graph, targets);
+        this.threads = threads;
+    }
+
+    private static <N, E> int[] toIds(Graph<N, E> graph, List<N> nodes) {
+        int[] ids = new int[nodes.size()];
+        for (int i = 0; i < ids.length; i++) {
+            InternalNode<N, E> node = graph.getInternalNode(nodes.get(i));
+            if (node == null) {
+                throw new IllegalArgumentException("Node not in graph: " + nodes.get(i));
+            }
+            ids[i] = node.getId();
+        }
+        return ids;
+    }
+
+    public void setSearchListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    public void execute() {
+        SearchListener listener = this.listener;
+        GraphMonitor monitor = GraphMonitor.current();
+        if (listener == null && monitor == null) {
+            result = compute();
+            return;
+        }
+        Object monitorToken = monitor == null ? null : monitor.searchStarted();
+        settledNodes.set(0);
+        long start = System.nanoTime();
+        result = compute();
+        long duration = System.nanoTime() - start;
+        int settled = (int) Math.min(Integer.MAX_VALUE, settledNodes.get());
+        if (monitor != null) {
+            monitor.searchFinished(monitorToken, algorithm, -1, true, settled, 0);
+        }
+        if (listener != null) {
+            listener.searchFinished(new SearchStats(algorithm, null, null, true, settled, 0, 0, 0, 0, 0, duration));
+        }
+    }
+
+    public float[][] getResult() {
+        return result;
+    }
+
+    /**
+     * Computes the matrix.
+     */
+    abstract float[][] compute();
+
+    /**
+     * Counts settled nodes for the search statistics.
+     */
+    void addSettled(int count) {
+        settledNodes.addAndGet(count);
+    }
+
+    /**
+     * Work done by a single thread, with its own search state.
+     */
+    interface Worker {
+
+        /**
+         * Does the work for one item.
+         *
+         * @param index The index of the item.
+         */
+        void run(int index);
+    }
+
+    /**
+     * Creates the worker of a thread.
+     */
+    interface WorkerFactory {
+
+        Worker create();
+    }
+
+    /**
+     * Runs the items 0 to count - 1 on the threads of this algorithm, each thread with its own worker.
+     */
+    void parallel(int count, WorkerFactory factory) {
+        parallel(threads, count, factory);
+    }
+
+    /**
+     * Runs the items 0 to count - 1 on a number of threads, each thread with its own worker.
+     */
+    static void parallel(int threads, int count, WorkerFactory factory) {
+        if (Math.min(threads, count) <= 1) {
+            parallel(null, threads, count, factory);
+            return;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, count));
+        try {
+            parallel(executor, threads, count, factory);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Runs the items 0 to count - 1 on a number of threads of an executor, each thread with its own worker. Algorithms
+     * that run many small batches share one executor over all batches, rather than starting threads for each batch.
+     *
+     * @param executor The executor, which must be able to run the threads concurrently; it may be null if
+     *                 {@code threads} is 1.
+     */
+    static void parallel(ExecutorService executor, int threads, final int count, final WorkerFactory factory) {
+        int threadCount = Math.min(threads, count);
+        if (threadCount <= 1) {
+            Worker worker = factory.create();
+            for (int i = 0; i < count; i++) {
+                worker.run(i);
+            }
+            return;
+        }
+        final AtomicInteger next = new AtomicInteger();
+        List<Future<Object>> futures = new ArrayList<Future<Object>>(threadCount);
+        try {
+            for (int t = 0; t < threadCount; t++) {
+                futures.add(executor.submit(new Callable<Object>() {
+                    public Object call() {
+                        Worker worker = factory.create();
+                        int i;
+                        while ((i = next.getAndIncrement()) < count) {
+                            worker.run(i);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Object> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the worker threads", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            next.set(count); // a failed item stops the other threads
+            for (Future<Object> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+}
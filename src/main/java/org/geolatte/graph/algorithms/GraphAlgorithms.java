@@ -21,13 +21,22 @@
 
 package org.geolatte.graph.algorithms;
 
+import org.geolatte.graph.EmptyContextualReachability;
 import org.geolatte.graph.Graph;
+import org.geolatte.graph.GraphMonitor;
 import org.geolatte.graph.GraphTree;
 import org.geolatte.graph.Locatable;
 import org.geolatte.graph.LocateableGraph;
 import org.geolatte.graph.Path;
 import org.geolatte.graph.RoutingContextualReachability;
+import org.geolatte.graph.TimeDependentWeights;
 import org.geolatte.graph.Traversal;
+import org.geolatte.graph.TravelTimeFunction;
+import org.geolatte.graph.WeightVector;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Offers a number of static factory methods to instantiate pre-configured graph algorithms.
@@ -37,6 +46,40 @@ import org.geolatte.graph.Traversal;
  */
 public class GraphAlgorithms {
 
+    private static volatile SearchListener defaultSearchListener;
+
+    /**
+     * Sets the search listener that is set on every algorithm created afterwards, e.g. a {@link SearchHistogram} that
+     * aggregates the statistics of all searches in an application.
+     *
+     * @param listener The listener, or null to not collect statistics by default.
+     */
+    public static void setDefaultSearchListener(SearchListener listener) {
+        defaultSearchListener = listener;
+    }
+
+    /**
+     * @return The search listener that is set on newly created algorithms, or null.
+     */
+    public static SearchListener getDefaultSearchListener() {
+        return defaultSearchListener;
+    }
+
+    /**
+     * Sets the search listener of the given algorithm.
+     *
+     * @param algorithm The algorithm.
+     * @param listener  The listener, or null to stop collecting statistics.
+     * @throws UnsupportedOperationException If the algorithm is not a {@link MonitoredAlgorithm}.
+     */
+    public static void setSearchListener(GraphAlgorithm<?> algorithm, SearchListener listener) {
+        if (!(algorithm instanceof MonitoredAlgorithm)) {
+            throw new UnsupportedOperationException("Algorithm does not report search statistics: "
+                    + algorithm.getClass().getName());
+        }
+        ((MonitoredAlgorithm) algorithm).setSearchListener(listener);
+    }
+
     /**
      * Creates a {@link BFSDistanceLimited} algorithm instance.
      *
@@ -95,6 +138,166 @@ public class GraphAlgorithms {
         return new Dijkstra<N, E>(graph, origin, destination, GraphAlgorithms.<N, E>createDefaultRelaxer(), weightKind, contextualReachability);
     }
 
+    /**
+     * Constructs a Dijkstra shortest-path algorithm that minimizes a linear combination of weight indices.
+     *
+     * @param graph        The graph on which to run the Dijkstra algorithm.
+     * @param origin       The internalNode from which to start routing.
+     * @param destination  The destination internalNode to which to find a shortest path.
+     * @param weightVector The weight indices and their coefficients.
+     * @param <N>          Type of nodes in the graph.
+     * @param <E>          The edge label type.
+     * @return A Dijkstra algorithm for the combined weights.
+     */
+    public static <N, E> GraphAlgorithm<Path<N>> createDijkstra(Graph<N, E> graph,
+                                                                N origin,
+                                                                N destination,
+                                                                WeightVector weightVector) {
+
+        return new Dijkstra<N, E>(graph, origin, destination, GraphAlgorithms.<N, E>createDefaultRelaxer(),
+                weightVector, new EmptyContextualReachability<N, E, Traversal<N, E>>());
+    }
+
+    /**
+     * Constructs a Dijkstra shortest-path algorithm that only follows the edges flagged for the region of the
+     * destination, on the graph and weight index of the arc-flags.
+     *
+     * @param arcFlags    The arc-flags.
+     * @param origin      The internalNode from which to start routing.
+     * @param destination The destination internalNode to which to find a shortest path.
+     * @param <N>         Type of nodes in the graph.
+     * @param <E>         The edge label type.
+     * @return A Dijkstra algorithm pruned by arc-flags.
+     * @throws IllegalStateException If the graph of the arc-flags was compacted since they were computed.
+     */
+    public static <N, E> GraphAlgorithm<Path<N>> createDijkstra(ArcFlags<N, E> arcFlags, N origin, N destination) {
+
+        arcFlags.checkNotCompacted();
+        Dijkstra<N, E> dijkstra = new Dijkstra<N, E>(arcFlags.getGraph(), origin, destination,
+                GraphAlgorithms.<N, E>createDefaultRelaxer(), arcFlags.getWeightIndex());
+        dijkstra.setArcFlags(arcFlags);
+        return dijkstra;
+    }
+
+    /**
+     * Constructs an algorithm that finds the k shortest loopless paths between two nodes (Yen's algorithm), from
+     * shortest to longest.
+     *
+     * @param graph       The graph.
+     * @param origin      The node from which to start routing.
+     * @param destination The destination node.
+     * @param weightIndex The index to lookup the weight.
+     * @param k           The number of paths.
+     * @param threads     The number of threads to spread the spur searches of a path over.
+     * @param <N>         Type of nodes in the graph.
+     * @param <E>         The edge label type.
+     * @return A k shortest paths algorithm.
+     * @throws IllegalArgumentException If a node is not in the graph, or k or the number of threads is smaller
+     *                                  than 1.
+     */
+    public static <N, E> GraphAlgorithm<List<Path<N>>> createKShortestPaths(Graph<N, E> graph, N origin,
+                                                                           N destination, int weightIndex, int k,
+                                                                           int threads) {
+
+        return new KShortestPaths<N, E>(graph, origin, destination, weightIndex, k, threads);
+    }
+
+    /**
+     * Constructs an algorithm that finds a shortest path and up to a number of alternatives to it with the via-node
+     * method. The alternatives are at most 25% longer than the shortest path, share at most 80% of its length with the
+     * shortest path and the other alternatives, and every subpath of up to 25% of its length is a shortest path.
+     *
+     * @param graph           The graph.
+     * @param origin          The node from which to start routing.
+     * @param destination     The destination node.
+     * @param weightIndex     The index to lookup the weight.
+     * @param maxAlternatives The maximum number of alternatives.
+     * @param <N>             Type of nodes in the graph.
+     * @param <E>             The edge label type.
+     * @return An algorithm that finds the shortest path followed by the alternatives.
+     * @throws IllegalArgumentException If a node is not in the graph, or the number of alternatives is negative.
+     */
+    public static <N, E> GraphAlgorithm<List<Path<N>>> createAlternativeRoutes(Graph<N, E> graph, N origin,
+                                                                              N destination, int weightIndex,
+                                                                              int maxAlternatives) {
+
+        return createAlternativeRoutes(graph, origin, destination, weightIndex, maxAlternatives, 0.25f, 0.8f, 0.25f);
+    }
+
+    /**
+     * Constructs an algorithm that finds a shortest path and up to a number of alternatives to it with the via-node
+     * method.
+     *
+     * @param graph           The graph.
+     * @param origin          The node from which to start routing.
+     * @param destination     The destination node.
+     * @param weightIndex     The index to lookup the weight.
+     * @param maxAlternatives The maximum number of alternatives.
+     * @param maxStretch      How much longer than the shortest path an alternative may be, as a fraction of the
+     *                        shortest path.
+     * @param maxSharing      How much an alternative may share with the shortest path and the other alternatives,
+     *                        as a fraction of the shortest path.
+     * @param localOptimality The length of the subpaths of an alternative that must be shortest paths, as a fraction
+     *                        of the shortest path.
+     * @param <N>             Type of nodes in the graph.
+     * @param <E>             The edge label type.
+     * @return An algorithm that finds the shortest path followed by the alternatives.
+     * @throws IllegalArgumentException If a node is not in the graph, the number of alternatives or the stretch is
+     *                                  negative, or a fraction is not between 0 and 1.
+     */
+    public static <N, E> GraphAlgorithm<List<Path<N>>> createAlternativeRoutes(Graph<N, E> graph, N origin,
+                                                                              N destination, int weightIndex,
+                                                                              int maxAlternatives, float maxStretch,
+                                                                              float maxSharing,
+                                                                              float localOptimality) {
+
+        return new AlternativeRoutes<N, E>(graph, origin, destination, weightIndex, maxAlternatives, maxStretch,
+                maxSharing, localOptimality);
+    }
+
+    /**
+     * Constructs an algorithm that finds the exact Pareto set of paths between two nodes over several weight indices:
+     * the paths for which no other path is at least as good for every weight index and better for one.
+     *
+     * @param graph         The graph.
+     * @param origin        The node from which to start routing.
+     * @param destination   The destination node.
+     * @param weightIndices The weight indices of the criteria.
+     * @param <N>           Type of nodes in the graph.
+     * @param <E>           The edge label type.
+     * @return An algorithm that finds the Pareto paths, with their totals per weight index.
+     * @throws IllegalArgumentException If a node is not in the graph, or no weight index is given.
+     */
+    public static <N, E> GraphAlgorithm<List<ParetoPath<N>>> createParetoPaths(Graph<N, E> graph, N origin,
+                                                                              N destination, int... weightIndices) {
+
+        return createParetoPaths(graph, origin, destination, weightIndices, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Constructs an algorithm that finds the Pareto set of paths between two nodes over several weight indices, with
+     * epsilon-dominance and bounded label sets to cap the number of paths.
+     *
+     * @param graph            The graph.
+     * @param origin           The node from which to start routing.
+     * @param destination      The destination node.
+     * @param weightIndices    The weight indices of the criteria.
+     * @param epsilon          The fraction by which a path may be worse for every criterion than a path that covers
+     *                         it, 0 for the exact Pareto set.
+     * @param maxLabelsPerNode The maximum number of paths kept per node.
+     * @param <N>              Type of nodes in the graph.
+     * @param <E>              The edge label type.
+     * @return An algorithm that finds the Pareto paths, with their totals per weight index.
+     * @throws IllegalArgumentException If a node is not in the graph, no weight index is given, the epsilon is
+     *                                  negative or the maximum number of labels is smaller than 1.
+     */
+    public static <N, E> GraphAlgorithm<List<ParetoPath<N>>> createParetoPaths(Graph<N, E> graph, N origin,
+                                                                              N destination, int[] weightIndices,
+                                                                              float epsilon, int maxLabelsPerNode) {
+
+        return new ParetoPaths<N, E>(graph, origin, destination, weightIndices, epsilon, maxLabelsPerNode);
+    }
+
     /**
      * Constructs an A* shortest path algorithm with a straight-line distance heuristic.
      *
@@ -120,6 +323,302 @@ public class GraphAlgorithms {
 
     }
 
+    /**
+     * Constructs an A* shortest path algorithm that minimizes a linear combination of weight indices, with a
+     * straight-line distance heuristic. The factors that convert distance to the units of the weight indices are
+     * combined with the coefficients of the weight vector, so the heuristic stays admissible if every factor is.
+     *
+     * @param graph           The graph on which to run the Dijkstra algorithm.
+     * @param origin          The internalNode from which to start routing.
+     * @param destination     The destination internalNode to which to find a shortest path.
+     * @param weightVector    The weight indices and their coefficients.
+     * @param heuristicWeight The importance of the heuristic factor.
+     * @param factors         Factors to convert distance to edge weights units, indexed by weight index.
+     * @param <N>             Type of nodes in the graph.
+     * @param <E>             The edge label type.
+     * @return An A* algorithm for the combined weights.
+     */
+    public static <N extends Locatable, E> GraphAlgorithm<Path<N>> createAStar(LocateableGraph<N, E> graph,
+                                                                               N origin,
+                                                                               N destination,
+                                                                               WeightVector weightVector,
+                                                                               float heuristicWeight,
+                                                                               float[] factors) {
+
+        Relaxer<N, E> relaxer = createAStarRelaxer(heuristicWeight, weightVector.combine(factors), destination);
+        return new Dijkstra<N, E>(graph, origin, destination, relaxer, weightVector,
+                new EmptyContextualReachability<N, E, Traversal<N, E>>());
+    }
+
+    /**
+     * Constructs a time-dependent Dijkstra algorithm, that finds the earliest arrival at the destination for a
+     * departure time. The total weight of the resulting path is its travel time.
+     *
+     * @param graph       The graph.
+     * @param weights     The time-dependent weights of the graph.
+     * @param origin      The node from which to start routing.
+     * @param destination The destination node.
+     * @param departure   The departure time at the origin.
+     * @param <N>         Type of nodes in the graph.
+     * @param <E>         The edge label type.
+     * @return A time-dependent Dijkstra algorithm.
+     * @throws IllegalArgumentException If a node is not in the graph, or the weights belong to another graph.
+     */
+    public static <N, E> GraphAlgorithm<Path<N>> createTimeDependentDijkstra(Graph<N, E> graph,
+                                                                             TimeDependentWeights weights,
+                                                                             N origin, N destination,
+                                                                             float departure) {
+
+        return new TimeDependentDijkstra<N, E>(graph, weights, origin, destination, departure, null);
+    }
+
+    /**
+     * Constructs a time-dependent A* algorithm with a straight-line distance heuristic, that finds the earliest
+     * arrival at the destination for a departure time. The total weight of the resulting path is its travel time.
+     *
+     * @param graph       The graph.
+     * @param weights     The time-dependent weights of the graph.
+     * @param origin      The node from which to start routing.
+     * @param destination The destination node.
+     * @param departure   The departure time at the origin.
+     * @param factor      Factor to convert distance to a lower bound on the travel time at any departure time,
+     *                    e.g. one over the highest speed.
+     * @param <N>         Type of nodes in the graph.
+     * @param <E>         The edge label type.
+     * @return A time-dependent A* algorithm.
+     * @throws IllegalArgumentException If a node is not in the graph, or the weights belong to another graph.
+     */
+    public static <N extends Locatable, E> GraphAlgorithm<Path<N>> createTimeDependentAStar(
+            LocateableGraph<N, E> graph, TimeDependentWeights weights, N origin, N destination, float departure,
+            float factor) {
+
+        return new TimeDependentDijkstra<N, E>(graph, weights, origin, destination, departure,
+                new DistanceHeuristicStrategy<N>(factor));
+    }
+
+    /**
+     * Constructs an algorithm that computes the travel-time profile between two nodes over a window of departure
+     * times: the travel time of the earliest arrival at the destination, as a function of the departure time.
+     *
+     * @param graph             The graph.
+     * @param weights           The time-dependent weights of the graph.
+     * @param origin            The node from which to start routing.
+     * @param destination       The destination node.
+     * @param earliestDeparture The start of the departure window.
+     * @param latestDeparture   The end of the departure window.
+     * @param <N>               Type of nodes in the graph.
+     * @param <E>               The edge label type.
+     * @return An algorithm that computes the travel-time profile, which is null if the destination can not be
+     *         reached.
+     * @throws IllegalArgumentException If a node is not in the graph, the weights belong to another graph, or the
+     *                                  window ends before it starts.
+     */
+    public static <N, E> GraphAlgorithm<TravelTimeFunction> createTravelTimeProfile(Graph<N, E> graph,
+                                                                                    TimeDependentWeights weights,
+                                                                                    N origin, N destination,
+                                                                                    float earliestDeparture,
+                                                                                    float latestDeparture) {
+
+        return new TravelTimeProfile<N, E>(graph, weights, origin, destination, earliestDeparture,
+                latestDeparture);
+    }
+
+    /**
+     * Creates an algorithm that computes the shortest path distances from every source to every target, with a
+     * Dijkstra search per source. The result has a row per source and a column per target, and holds positive
+     * infinity where a target can not be reached.
+     *
+     * @param graph       The graph.
+     * @param sources     The sources.
+     * @param targets     The targets.
+     * @param weightIndex The index to lookup the weight.
+     * @param threads     The number of threads to spread the sources over.
+     * @param <N>         The type of domain node.
+     * @param <E>         The edge label type.
+     * @return A distance matrix algorithm.
+     */
+    public static <N, E> GraphAlgorithm<float[][]> createDistanceMatrix(Graph<N, E> graph, List<N> sources,
+                                                                        List<N> targets, int weightIndex, int threads) {
+
+        return new DijkstraDistanceMatrix<N, E>(graph, sources, targets, weightIndex, threads);
+    }
+
+    /**
+     * Creates an algorithm that computes the shortest path distances from every source to every target on a
+     * contraction hierarchy, with the bucket algorithm. The result is the same as the one of
+     * {@link #createDistanceMatrix(Graph, List, List, int, int)} for the weight index of the hierarchy.
+     *
+     * @param hierarchy The contraction hierarchy.
+     * @param sources   The sources.
+     * @param targets   The targets.
+     * @param threads   The number of threads to spread the searches over.
+     * @param <N>       The type of domain node.
+     * @param <E>       The edge label type.
+     * @return A distance matrix algorithm.
+     */
+    public static <N, E> GraphAlgorithm<float[][]> createDistanceMatrix(ContractionHierarchy<N, E> hierarchy,
+                                                                        List<N> sources, List<N> targets, int threads) {
+
+        return new HierarchyDistanceMatrix<N, E>(hierarchy, sources, targets, threads);
+    }
+
+    /**
+     * Builds the contraction hierarchy of a graph for a weight index. Building takes a while, the hierarchy is meant
+     * to be built once and used for many queries.
+     *
+     * @param graph       The graph.
+     * @param weightIndex The index to lookup the weight.
+     * @param <N>         The type of domain node.
+     * @param <E>         The edge label type.
+     * @return The contraction hierarchy.
+     */
+    public static <N, E> ContractionHierarchy<N, E> createContractionHierarchy(Graph<N, E> graph, int weightIndex) {
+
+        GraphMonitor monitor = GraphMonitor.current();
+        Object monitorToken = monitor == null ? null : monitor.buildPhaseStarted("hierarchy");
+        ContractionHierarchy<N, E> hierarchy = new ContractionHierarchy<N, E>(graph, weightIndex);
+        if (monitor != null) {
+            monitor.buildPhaseFinished(monitorToken, "hierarchy", graph.getNodeCount(),
+                    graph.getEdgeWeights().getEdgeCount());
+        }
+        return hierarchy;
+    }
+
+    /**
+     * Derives the hub labels of one weight index from a contraction hierarchy. More weight indices can be added later,
+     * or loaded from a file.
+     *
+     * @param hierarchy The contraction hierarchy.
+     * @param <N>       The type of domain node.
+     * @param <E>       The edge label type.
+     * @return The hub labels.
+     */
+    public static <N, E> HubLabels<N, E> createHubLabels(ContractionHierarchy<N, E> hierarchy) {
+        return createHubLabels(Collections.singletonList(hierarchy));
+    }
+
+    /**
+     * Derives the hub labels of one or more weight indices from contraction hierarchies of the same graph. More
+     * weight indices can be added later, or loaded from a file.
+     *
+     * @param hierarchies The contraction hierarchies, one per weight index.
+     * @param <N>         The type of domain node.
+     * @param <E>         The edge label type.
+     * @return The hub labels.
+     * @throws IllegalArgumentException If no hierarchies are given, or they belong to different graphs.
+     */
+    public static <N, E> HubLabels<N, E> createHubLabels(List<ContractionHierarchy<N, E>> hierarchies) {
+
+        if (hierarchies.isEmpty()) {
+            throw new IllegalArgumentException("At least one hierarchy is required");
+        }
+        Graph<N, E> graph = hierarchies.get(0).getGraph();
+        HubLabels<N, E> labels = new HubLabels<N, E>(graph);
+        GraphMonitor monitor = GraphMonitor.current();
+        for (ContractionHierarchy<N, E> hierarchy : hierarchies) {
+            Object monitorToken = monitor == null ? null : monitor.buildPhaseStarted("labels");
+            labels.add(hierarchy);
+            if (monitor != null) {
+                monitor.buildPhaseFinished(monitorToken, "labels", graph.getNodeCount(),
+                        graph.getEdgeWeights().getEdgeCount());
+            }
+        }
+        return labels;
+    }
+
+    /**
+     * Computes the arc-flags of a graph for a weight index. Preprocessing runs a full backward search from every node
+     * on the boundary of a region; it is meant for medium-size graphs with static weights.
+     *
+     * @param graph       The graph.
+     * @param weightIndex The index to lookup the weight.
+     * @param regions     The number of regions; every edge takes a bit per region.
+     * @param threads     The number of threads to spread the regions over.
+     * @param <N>         The type of domain node.
+     * @param <E>         The edge label type.
+     * @return The arc-flags.
+     * @throws IllegalArgumentException If the number of regions or threads is smaller than 1.
+     */
+    public static <N extends Locatable, E> ArcFlags<N, E> createArcFlags(Graph<N, E> graph, int weightIndex,
+                                                                         int regions, int threads) {
+
+        if (regions < 1) {
+            throw new IllegalArgumentException("Number of regions must be at least 1");
+        }
+        GraphMonitor monitor = GraphMonitor.current();
+        Object monitorToken = monitor == null ? null : monitor.buildPhaseStarted("arcflags");
+        ArcFlags<N, E> arcFlags = new ArcFlags<N, E>(graph, weightIndex, ArcFlags.partition(graph, regions), regions,
+                threads);
+        if (monitor != null) {
+            monitor.buildPhaseFinished(monitorToken, "arcflags", graph.getNodeCount(),
+                    graph.getEdgeWeights().getEdgeCount());
+        }
+        return arcFlags;
+    }
+
+    /**
+     * Assigns every node of a graph to its nearest facility, by the distance from the facility to the node, with one
+     * multi-source Dijkstra search.
+     *
+     * @param graph       The graph.
+     * @param weightIndex The index to lookup the weight.
+     * @param facilities  The facilities; their indices in the diagram follow the iteration order.
+     * @param <N>         The type of domain node.
+     * @param <E>         The edge label type.
+     * @return The network Voronoi diagram of the facilities.
+     * @throws IllegalArgumentException If a facility is not in the graph, or occurs twice.
+     */
+    public static <N, E> NetworkVoronoi<N, E> createNetworkVoronoi(Graph<N, E> graph, int weightIndex,
+                                                                   Collection<? extends N> facilities) {
+
+        return createNetworkVoronoi(graph, weightIndex, facilities, false);
+    }
+
+    /**
+     * Assigns every node of a graph to its nearest facility with one multi-source Dijkstra search.
+     *
+     * @param graph        The graph.
+     * @param weightIndex  The index to lookup the weight.
+     * @param facilities   The facilities; their indices in the diagram follow the iteration order.
+     * @param toFacilities True to measure the distance from the nodes to the facilities, false to measure it from
+     *                     the facilities to the nodes.
+     * @param <N>          The type of domain node.
+     * @param <E>          The edge label type.
+     * @return The network Voronoi diagram of the facilities.
+     * @throws IllegalArgumentException If a facility is not in the graph, or occurs twice.
+     */
+    public static <N, E> NetworkVoronoi<N, E> createNetworkVoronoi(Graph<N, E> graph, int weightIndex,
+                                                                   Collection<? extends N> facilities,
+                                                                   boolean toFacilities) {
+
+        return new NetworkVoronoi<N, E>(graph, weightIndex, toFacilities, facilities);
+    }
+
+    /**
+     * Partitions a graph into the nested cells of a multi-level overlay. The overlay answers queries for a weight
+     * index once it is customized with {@link MultiLevelOverlay#customize(int, int)}.
+     *
+     * @param graph     The graph.
+     * @param cellSizes The maximum number of nodes in a cell, per level, from the lowest level up. The sizes must
+     *                  increase, e.g. 256, 4096, 65536.
+     * @param <N>       The type of domain node.
+     * @param <E>       The edge label type.
+     * @return The overlay, without customized weight indices.
+     * @throws IllegalArgumentException If no cell sizes are given, or they do not increase.
+     */
+    public static <N extends Locatable, E> MultiLevelOverlay<N, E> createMultiLevelOverlay(Graph<N, E> graph,
+                                                                                           int... cellSizes) {
+
+        GraphMonitor monitor = GraphMonitor.current();
+        Object monitorToken = monitor == null ? null : monitor.buildPhaseStarted("overlay");
+        MultiLevelOverlay<N, E> overlay = new MultiLevelOverlay<N, E>(graph, cellSizes);
+        if (monitor != null) {
+            monitor.buildPhaseFinished(monitorToken, "overlay", graph.getNodeCount(),
+                    graph.getEdgeWeights().getEdgeCount());
+        }
+        return overlay;
+    }
+
     /**
      * Constructs a default relaxer.
      *
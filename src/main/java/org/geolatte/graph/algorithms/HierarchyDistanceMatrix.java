@@ -0,0 +1,169 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph.algorithms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * Computes a distance matrix on a {@link ContractionHierarchy} with the bucket algorithm. An upward backward search
+ * from every target leaves (target, distance) entries in a bucket at every node it settles. An upward forward search
+ * from every source then scans the buckets of the nodes it settles: the distance to a target is the minimum over
+ * these nodes of the forward distance plus the bucket distance. Both phases run in parallel, and every search only
+ * settles a few hundred nodes, so the matrix costs |S| + |T| small searches instead of |S| full ones.
+ * </p>
+ *
+ * @param <N> The type of domain node.
+ * @param <E> The edge label type.
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+class HierarchyDistanceMatrix<N, E> extends DistanceMatrix<N, E> {
+
+    private final ContractionHierarchy<N, E> hierarchy;
+
+    HierarchyDistanceMatrix(ContractionHierarchy<N, E> hierarchy, List<N> sources, List<N> targets, int threads) {
+        super("CH matrix", hierarchy.getGraph(), sources, targets, threads);
+        this.hierarchy = hierarchy;
+    }
+
+    /**
+     * The bucket entries found by the backward searches of one thread.
+     */
+    private static final class Entries {
+
+        int[] nodes = new int[256];
+        int[] targets = new int[256];
+        float[] distances = new float[256];
+        int size;
+
+        void add(int node, int target, float distance) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                targets = Arrays.copyOf(targets, size * 2);
+                distances = Arrays.copyOf(distances, size * 2);
+            }
+            nodes[size] = node;
+            targets[size] = target;
+            distances[size++] = distance;
+        }
+    }
+
+    float[][] compute() {
+        final ContractionHierarchy<N, E> ch = hierarchy;
+        final int nodeCount = ch.getGraph().getNodeCount();
+
+        // backward searches from the targets fill the buckets
+        final List<Entries> found = new ArrayList<Entries>();
+        parallel(targets.length, new WorkerFactory() {
+            public Worker create() {
+                final NodeHeap heap = new NodeHeap(nodeCount);
+                final Entries entries = new Entries();
+                synchronized (found) {
+                    found.add(entries);
+                }
+                return new Worker() {
+                    public void run(int j) {
+                        heap.update(targets[j], 0);
+                        int settled = 0;
+                        while (!heap.isEmpty()) {
+                            float d = heap.minKey();
+                            int x = heap.extractMin();
+                            settled++;
+                            if (ContractionHierarchy.isStalled(heap, x, d, ch.upStart, ch.upTarget, ch.upWeight)) {
+                                continue;
+                            }
+                            entries.add(x, j, d);
+                            for (int i = ch.downStart[x]; i < ch.downStart[x + 1]; i++) {
+                                heap.update(ch.downSource[i], d + ch.downWeight[i]);
+                            }
+                        }
+                        heap.clear();
+                        addSettled(settled);
+                    }
+                };
+            }
+        });
+
+        // sort the entries by node
+        final int[] bucketStart = new int[nodeCount + 1];
+        for (Entries entries : found) {
+            for (int k = 0; k < entries.size; k++) {
+                bucketStart[entries.nodes[k] + 1]++;
+            }
+        }
+        for (int v = 0; v < nodeCount; v++) {
+            bucketStart[v + 1] += bucketStart[v];
+        }
+        int total = bucketStart[nodeCount];
+        final int[] bucketTarget = new int[total];
+        final float[] bucketDistance = new float[total];
+        int[] fill = Arrays.copyOf(bucketStart, nodeCount);
+        for (Entries entries : found) {
+            for (int k = 0; k < entries.size; k++) {
+                int position = fill[entries.nodes[k]]++;
+                bucketTarget[position] = entries.targets[k];
+                bucketDistance[position] = entries.distances[k];
+            }
+        }
+        found.clear();
+
+        // forward searches from the sources scan the buckets
+        final float[][] matrix = new float[sources.length][];
+        parallel(sources.length, new WorkerFactory() {
+            public Worker create() {
+                final NodeHeap heap = new NodeHeap(nodeCount);
+                return new Worker() {
+                    public void run(int i) {
+                        float[] row = new float[targets.length];
+                        Arrays.fill(row, Float.POSITIVE_INFINITY);
+                        heap.update(sources[i], 0);
+                        int settled = 0;
+                        while (!heap.isEmpty()) {
+                            float d = heap.minKey();
+                            int x = heap.extractMin();
+                            settled++;
+                            if (ContractionHierarchy.isStalled(heap, x, d, ch.downStart, ch.downSource, ch.downWeight)) {
+                                continue;
+                            }
+                            for (int k = bucketStart[x]; k < bucketStart[x + 1]; k++) {
+                                float candidate = d + bucketDistance[k];
+                                if (candidate < row[bucketTarget[k]]) {
+                                    row[bucketTarget[k]] = candidate;
+                                }
+                            }
+                            for (int k = ch.upStart[x]; k < ch.upStart[x + 1]; k++) {
+                                heap.update(ch.upTarget[k], d + ch.upWeight[k]);
+                            }
+                        }
+                        matrix[i] = row;
+                        heap.clear();
+                        addSettled(settled);
+                    }
+                };
+            }
+        });
+        return matrix;
+    }
+}
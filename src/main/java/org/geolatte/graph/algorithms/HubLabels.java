@@ -0,0 +1,535 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+
+package org.geolatte.graph.algorithms;
+
+import org.geolatte.graph.Graph;
+import org.geolatte.graph.InternalNode;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>
+ * A hub labeling distance oracle: every node has a forward label with the distances to a set of hubs, and a backward
+ * label with the distances from a set of hubs, such that a shortest path between any two nodes passes through a hub in
+ * the forward label of its origin and the backward label of its destination. A distance query only intersects two
+ * sorted labels, without any search, and takes about a microsecond.
+ * </p>
+ * <p>
+ * The labels of a weight index are derived from a contraction hierarchy: the forward label of a node is its upward
+ * search space, merged from the labels of its more important neighbours and pruned of the hubs that a shorter path
+ * covers. Hubs are numbered by their rank in the hierarchy. All labels of a weight index are stored in flat
+ * <code>int[]</code> and <code>float[]</code> arrays. They can be written to a file with
+ * {@link #write(int, File)}, and loaded into the heap or memory-mapped with {@link #load(int, File, boolean)}; mapped
+ * labels take no heap space and are paged in by the operating system.
+ * </p>
+ * <p>
+ * Create the labels with {@link GraphAlgorithms#createHubLabels(ContractionHierarchy)}. The labels do not follow
+ * weight updates, and ignore contextual reachability. They are thread-safe.
+ * </p>
+ *
+ * @param <N> The type of domain node.
+ * @param <E> The edge label type.
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public final class HubLabels<N, E> {
+
+    private static final int MAGIC = 0x4747484C; // "GGHL"
+    private static final int FORMAT_VERSION = 1;
+
+    private final Graph<N, E> graph;
+    private final ConcurrentMap<Integer, Labels> labels = new ConcurrentHashMap<Integer, Labels>();
+
+    HubLabels(Graph<N, E> graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * @return The graph of the labels.
+     */
+    public Graph<N, E> getGraph() {
+        return graph;
+    }
+
+    /**
+     * Computes the labels of the weight index of a contraction hierarchy, replacing any labels of that weight index.
+     *
+     * @param hierarchy A contraction hierarchy of the graph of these labels.
+     * @throws IllegalArgumentException If the hierarchy belongs to another graph.
+     */
+    public void add(ContractionHierarchy<N, E> hierarchy) {
+        if (hierarchy.getGraph() != graph) {
+            throw new IllegalArgumentException("The hierarchy belongs to another graph");
+        }
+        labels.put(hierarchy.getWeightIndex(), new LabelBuilder(hierarchy).build());
+    }
+
+    /**
+     * @param weightIndex The weight index.
+     * @return True if there are labels for the weight index.
+     */
+    public boolean contains(int weightIndex) {
+        return labels.containsKey(weightIndex);
+    }
+
+    private Labels labelsOf(int weightIndex) {
+        Labels result = labels.get(weightIndex);
+        if (result == null) {
+            throw new IllegalStateException("No hub labels for weight index " + weightIndex);
+        }
+        return result;
+    }
+
+    /**
+     * @param weightIndex The weight index.
+     * @return The average number of hubs in the forward and backward label of a node.
+     * @throws IllegalStateException If there are no labels for the weight index.
+     */
+    public double getAverageLabelSize(int weightIndex) {
+        Labels result = labelsOf(weightIndex);
+        return graph.getNodeCount() == 0 ? 0 : (result.size(true) + result.size(false)) / (2.0 * graph.getNodeCount());
+    }
+
+    /**
+     * @param weightIndex The weight index.
+     * @return True if the labels of the weight index are memory-mapped.
+     * @throws IllegalStateException If there are no labels for the weight index.
+     */
+    public boolean isMapped(int weightIndex) {
+        return labelsOf(weightIndex) instanceof MappedLabels;
+    }
+
+    /**
+     * Gets the shortest path distance between two nodes.
+     *
+     * @param origin      The origin.
+     * @param destination The destination.
+     * @param weightIndex The index to lookup the weight.
+     * @return The distance, or positive infinity if the destination can not be reached.
+     * @throws IllegalArgumentException If one of the nodes is not in the graph.
+     * @throws IllegalStateException    If there are no labels for the weight index.
+     */
+    public float distance(N origin, N destination, int weightIndex) {
+        Labels result = labelsOf(weightIndex);
+        return result.distance(idOf(origin), idOf(destination));
+    }
+
+    private int idOf(N node) {
+        InternalNode<N, E> internal = graph.getInternalNode(node);
+        if (internal == null) {
+            throw new IllegalArgumentException("Node not in graph: " + node);
+        }
+        return internal.getId();
+    }
+
+    /**
+     * Writes the labels of a weight index to a file.
+     *
+     * @param weightIndex The weight index.
+     * @param file        The file.
+     * @throws IOException           If the file can not be written.
+     * @throws IllegalStateException If there are no labels for the weight index.
+     */
+    public void write(int weightIndex, File file) throws IOException {
+        Labels result = labelsOf(weightIndex);
+        int n = graph.getNodeCount();
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(n);
+            out.writeInt(result.size(true));
+            out.writeInt(result.size(false));
+            for (int d = 0; d < 2; d++) {
+                boolean forward = d == 0;
+                for (int v = 0; v <= n; v++) {
+                    out.writeInt(result.start(forward, v));
+                }
+                for (int i = 0; i < result.size(forward); i++) {
+                    out.writeInt(result.hub(forward, i));
+                }
+                for (int i = 0; i < result.size(forward); i++) {
+                    out.writeFloat(result.distance(forward, i));
+                }
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Loads the labels of a weight index from a file written by {@link #write(int, File)}, replacing any labels of
+     * that weight index.
+     *
+     * @param weightIndex The weight index.
+     * @param file        The file.
+     * @param mapped      True to map the file into memory, false to read it into the heap.
+     * @throws IOException If the file can not be read, or does not hold labels of this graph.
+     */
+    public void load(int weightIndex, File file, boolean mapped) throws IOException {
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+                throw new IOException("Not a hub label file: " + file);
+            }
+            int n = input.readInt();
+            if (n != graph.getNodeCount()) {
+                throw new IOException("The hub labels in " + file + " are for a graph of " + n + " nodes");
+            }
+            int forwardSize = input.readInt();
+            int backwardSize = input.readInt();
+            FileChannel channel = input.getChannel();
+            long position = 20;
+            IntBuffer[] ints = new IntBuffer[4];
+            FloatBuffer[] floats = new FloatBuffer[2];
+            for (int d = 0; d < 2; d++) {
+                int size = d == 0 ? forwardSize : backwardSize;
+                ints[2 * d] = map(channel, position, n + 1).asIntBuffer();
+                position += 4L * (n + 1);
+                ints[2 * d + 1] = map(channel, position, size).asIntBuffer();
+                position += 4L * size;
+                floats[d] = map(channel, position, size).asFloatBuffer();
+                position += 4L * size;
+            }
+            if (mapped) {
+                labels.put(weightIndex, new MappedLabels(ints[0], ints[1], floats[0], ints[2], ints[3], floats[1]));
+            } else {
+                labels.put(weightIndex, new ArrayLabels(toArray(ints[0]), toArray(ints[1]), toArray(floats[0]),
+                        toArray(ints[2]), toArray(ints[3]), toArray(floats[1])));
+            }
+        } finally {
+            input.close();
+        }
+    }
+
+    private static ByteBuffer map(FileChannel channel, long position, int count) throws IOException {
+        if (position + 4L * count > channel.size()) {
+            throw new IOException("Truncated hub label file");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * count);
+    }
+
+    private static int[] toArray(IntBuffer buffer) {
+        int[] values = new int[buffer.remaining()];
+        buffer.get(values);
+        return values;
+    }
+
+    private static float[] toArray(FloatBuffer buffer) {
+        float[] values = new float[buffer.remaining()];
+        buffer.get(values);
+        return values;
+    }
+
+    /**
+     * The labels of one weight index.
+     */
+    private abstract static class Labels {
+
+        abstract int start(boolean forward, int node);
+
+        abstract int hub(boolean forward, int i);
+
+        abstract float distance(boolean forward, int i);
+
+        abstract int size(boolean forward);
+
+        /**
+         * Intersects the forward label of the origin with the backward label of the destination.
+         */
+        abstract float distance(int origin, int destination);
+    }
+
+    /**
+     * Labels in flat arrays on the heap.
+     */
+    private static final class ArrayLabels extends Labels {
+
+        private final int[] forwardStart;
+        private final int[] forwardHub;
+        private final float[] forwardDistance;
+        private final int[] backwardStart;
+        private final int[] backwardHub;
+        private final float[] backwardDistance;
+
+        private ArrayLabels(int[] forwardStart, int[] forwardHub, float[] forwardDistance, int[] backwardStart,
+                            int[] backwardHub, float[] backwardDistance) {
+            this.forwardStart = forwardStart;
+            this.forwardHub = forwardHub;
+            this.forwardDistance = forwardDistance;
+            this.backwardStart = backwardStart;
+            this.backwardHub = backwardHub;
+            this.backwardDistance = backwardDistance;
+        }
+
+        @Override
+        int start(boolean forward, int node) {
+            return forward ? forwardStart[node] : backwardStart[node];
+        }
+
+        @Override
+        int size(boolean forward) {
+            return forward ? forwardHub.length : backwardHub.length;
+        }
+
+        @Override
+        int hub(boolean forward, int i) {
+            return forward ? forwardHub[i] : backwardHub[i];
+        }
+
+        @Override
+        float distance(boolean forward, int i) {
+            return forward ? forwardDistance[i] : backwardDistance[i];
+        }
+
+        @Override
+        float distance(int origin, int destination) {
+            int i = forwardStart[origin];
+            int iEnd = forwardStart[origin + 1];
+            int j = backwardStart[destination];
+            int jEnd = backwardStart[destination + 1];
+            float best = Float.POSITIVE_INFINITY;
+            while (i < iEnd && j < jEnd) {
+                int a = forwardHub[i];
+                int b = backwardHub[j];
+                if (a < b) {
+                    i++;
+                } else if (a > b) {
+                    j++;
+                } else {
+                    best = Math.min(best, forwardDistance[i++] + backwardDistance[j++]);
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * Labels in buffers mapped from a file.
+     */
+    private static final class MappedLabels extends Labels {
+
+        private final IntBuffer forwardStart;
+        private final IntBuffer forwardHub;
+        private final FloatBuffer forwardDistance;
+        private final IntBuffer backwardStart;
+        private final IntBuffer backwardHub;
+        private final FloatBuffer backwardDistance;
+
+        private MappedLabels(IntBuffer forwardStart, IntBuffer forwardHub, FloatBuffer forwardDistance,
+                             IntBuffer backwardStart, IntBuffer backwardHub, FloatBuffer backwardDistance) {
+            this.forwardStart = forwardStart;
+            this.forwardHub = forwardHub;
+            this.forwardDistance = forwardDistance;
+            this.backwardStart = backwardStart;
+            this.backwardHub = backwardHub;
+            this.backwardDistance = backwardDistance;
+        }
+
+        @Override
+        int start(boolean forward, int node) {
+            return forward ? forwardStart.get(node) : backwardStart.get(node);
+        }
+
+        @Override
+        int size(boolean forward) {
+            return forward ? forwardHub.limit() : backwardHub.limit();
+        }
+
+        @Override
+        int hub(boolean forward, int i) {
+            return forward ? forwardHub.get(i) : backwardHub.get(i);
+        }
+
+        @Override
+        float distance(boolean forward, int i) {
+            return forward ? forwardDistance.get(i) : backwardDistance.get(i);
+        }
+
+        @Override
+        float distance(int origin, int destination) {
+            int i = forwardStart.get(origin);
+            int iEnd = forwardStart.get(origin + 1);
+            int j = backwardStart.get(destination);
+            int jEnd = backwardStart.get(destination + 1);
+            float best = Float.POSITIVE_INFINITY;
+            while (i < iEnd && j < jEnd) {
+                int a = forwardHub.get(i);
+                int b = backwardHub.get(j);
+                if (a < b) {
+                    i++;
+                } else if (a > b) {
+                    j++;
+                } else {
+                    best = Math.min(best, forwardDistance.get(i++) + backwardDistance.get(j++));
+                }
+            }
+            return best;
+        }
+    }
+
+    /**
+     * Builds the labels from the most important node down, so that the labels of the more important neighbours of a
+     * node are complete when its own labels are built.
+     */
+    private static final class LabelBuilder {
+
+        private final ContractionHierarchy<?, ?> hierarchy;
+        private final int n;
+        private final int[] rank;
+        private final int[] byRank;
+        private final int[][] forwardHub;
+        private final float[][] forwardDistance;
+        private final int[][] backwardHub;
+        private final float[][] backwardDistance;
+        // the candidate hubs of the label that is being built, by rank
+        private final float[] candidate;
+        private int[] touched = new int[16];
+        private int touchedCount;
+
+        private LabelBuilder(ContractionHierarchy<?, ?> hierarchy) {
+            this.hierarchy = hierarchy;
+            this.n = hierarchy.getGraph().getNodeCount();
+            rank = new int[n];
+            byRank = new int[n];
+            for (int v = 0; v < n; v++) {
+                rank[v] = hierarchy.getRank(v);
+                byRank[rank[v]] = v;
+            }
+            forwardHub = new int[n][];
+            forwardDistance = new float[n][];
+            backwardHub = new int[n][];
+            backwardDistance = new float[n][];
+            candidate = new float[n];
+            Arrays.fill(candidate, Float.POSITIVE_INFINITY);
+        }
+
+        private Labels build() {
+            for (int r = n - 1; r >= 0; r--) {
+                int v = byRank[r];
+                label(v, hierarchy.upStart, hierarchy.upTarget, hierarchy.upWeight, forwardHub, forwardDistance,
+                        backwardHub, backwardDistance);
+                label(v, hierarchy.downStart, hierarchy.downSource, hierarchy.downWeight, backwardHub,
+                        backwardDistance, forwardHub, forwardDistance);
+            }
+            int[] forwardStart = starts(forwardHub);
+            int[] backwardStart = starts(backwardHub);
+            return new ArrayLabels(forwardStart, flatten(forwardHub, forwardStart),
+                    flatten(forwardDistance, forwardStart), backwardStart, flatten(backwardHub, backwardStart),
+                    flatten(backwardDistance, backwardStart));
+        }
+
+        /**
+         * Builds the label of a node in one direction, from the labels of its neighbours in that direction, and prunes
+         * the hubs that are reached shorter over another hub of the opposite labels.
+         */
+        private void label(int v, int[] start, int[] neighbour, float[] weight, int[][] hubs, float[][] distances,
+                           int[][] oppositeHubs, float[][] oppositeDistances) {
+            touchedCount = 0;
+            add(rank[v], 0);
+            for (int e = start[v]; e < start[v + 1]; e++) {
+                int w = neighbour[e];
+                int[] wHubs = hubs[w];
+                float[] wDistances = distances[w];
+                for (int i = 0; i < wHubs.length; i++) {
+                    add(wHubs[i], weight[e] + wDistances[i]);
+                }
+            }
+            Arrays.sort(touched, 0, touchedCount);
+            int[] labelHubs = new int[touchedCount];
+            float[] labelDistances = new float[touchedCount];
+            int size = 0;
+            for (int i = 0; i < touchedCount; i++) {
+                int h = touched[i];
+                float d = candidate[h];
+                int u = byRank[h];
+                if (u == v || !covered(d, oppositeHubs[u], oppositeDistances[u])) {
+                    labelHubs[size] = h;
+                    labelDistances[size++] = d;
+                }
+            }
+            for (int i = 0; i < touchedCount; i++) {
+                candidate[touched[i]] = Float.POSITIVE_INFINITY;
+            }
+            hubs[v] = Arrays.copyOf(labelHubs, size);
+            distances[v] = Arrays.copyOf(labelDistances, size);
+        }
+
+        private void add(int hub, float distance) {
+            if (candidate[hub] == Float.POSITIVE_INFINITY) {
+                if (touchedCount == touched.length) {
+                    touched = Arrays.copyOf(touched, 2 * touchedCount);
+                }
+                touched[touchedCount++] = hub;
+                candidate[hub] = distance;
+            } else if (distance < candidate[hub]) {
+                candidate[hub] = distance;
+            }
+        }
+
+        /**
+         * Tells whether a path over a common hub of the candidates and the opposite label of a hub is shorter than the
+         * distance to that hub.
+         */
+        private boolean covered(float distance, int[] hubs, float[] distances) {
+            for (int i = 0; i < hubs.length; i++) {
+                float d = candidate[hubs[i]];
+                if (d + distances[i] < distance) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private static int[] starts(int[][] lists) {
+            int[] start = new int[lists.length + 1];
+            for (int v = 0; v < lists.length; v++) {
+                start[v + 1] = start[v] + lists[v].length;
+            }
+            return start;
+        }
+
+        private static int[] flatten(int[][] lists, int[] start) {
+            int[] flat = new int[start[lists.length]];
+            for (int v = 0; v < lists.length; v++) {
+                System.arraycopy(lists[v], 0, flat, start[v], lists[v].length);
+            }
+            return flat;
+        }
+
+        private static float[] flatten(float[][] lists, int[] start) {
+            float[] flat = new float[start[lists.length]];
+            for (int v = 0; v < lists.length; v++) {
+                System.arraycopy(lists[v], 0, flat, start[v], lists[v].length);
+            }
+            return flat;
+        }
+    }
+}
@@ -0,0 +1,388 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+
+package org.geolatte.graph.algorithms;
+
+import org.geolatte.graph.*;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p>
+ * Finds the k shortest loopless paths between two nodes with Yen's algorithm. Every next path deviates from one of
+ * the paths found so far at a spur node: it follows that path up to the spur node (the root), and continues with the
+ * shortest spur path to the destination that avoids the nodes of the root and the edges out of the spur node taken by
+ * the paths that share the root. The spur paths are searched by {@link Dijkstra}, with a
+ * {@link RoutingContextualReachability} that masks the nodes of the root, while the edges out of the spur node are
+ * blocked by their edge id. Paths are told apart by their edge sequence, so parallel edges between the same two nodes
+ * (such as contracted parallel chains) lead to distinct paths.
+ * </p>
+ * <p>
+ * The spur searches are A* searches with the exact distances to the destination as potentials, taken from one
+ * backward shortest path tree of the destination: the potentials remain admissible when nodes and edges are masked,
+ * and lead a spur search almost straight to the destination. The spur searches of a path run in parallel, and, as
+ * Lawler proposed, only start at the spur nodes from the point where the path itself deviated from its parent.
+ * </p>
+ * <p>
+ * The result lists the paths from shortest to longest, and holds fewer than k paths if there are no more. The search
+ * statistics report all spur searches together; the {@link GraphMonitor} sees every search.
+ * </p>
+ *
+ * @param <N> The type of domain node.
+ * @param <E> The edge label type.
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+class KShortestPaths<N, E> implements GraphAlgorithm<List<Path<N>>>, MonitoredAlgorithm {
+
+    private final Graph<N, E> graph;
+    private final InternalNode<N, E> origin;
+    private final InternalNode<N, E> destination;
+    private final int weightIndex;
+    private final int k;
+    private final int threads;
+    private SearchListener listener = GraphAlgorithms.getDefaultSearchListener();
+    private List<Path<N>> result;
+
+    KShortestPaths(Graph<N, E> graph, N origin, N destination, int weightIndex, int k, int threads) {
+        if (k < 1) {
+            throw new IllegalArgumentException("Number of paths must be at least 1");
+        }
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be at least 1");
+        }
+        this.graph = graph;
+        this.origin = graph.getInternalNode(origin);
+        this.destination = graph.getInternalNode(destination);
+        if (this.origin == null || this.destination == null) {
+            throw new IllegalArgumentException("Node not in graph: " + (this.origin == null ? origin : destination));
+        }
+        this.weightIndex = weightIndex;
+        this.k = k;
+        this.threads = threads;
+    }
+
+    public void setSearchListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    public void execute() {
+        SearchListener listener = this.listener;
+        SpurCounter counter = new SpurCounter();
+        long start = System.nanoTime();
+        result = search(counter);
+        long duration = System.nanoTime() - start;
+        if (listener != null) {
+            listener.searchFinished(new SearchStats("Yen", origin.getWrappedNode(), destination.getWrappedNode(),
+                    !result.isEmpty(), counter.settledNodes.intValue(), counter.scannedEdges.intValue(),
+                    counter.improvedEdges.intValue(), counter.queueInserts.intValue(),
+                    counter.queueDecreaseKeys.intValue(), counter.maxQueueSize.intValue(), duration));
+        }
+    }
+
+    public List<Path<N>> getResult() {
+        return result;
+    }
+
+    private List<Path<N>> search(final SpurCounter counter) {
+        final EdgeWeightTable weights = graph.getEdgeWeights().snapshot();
+        final float[] potential = backwardDistances(weights);
+        List<Path<N>> paths = new ArrayList<Path<N>>(k);
+        if (potential[origin.getId()] == Float.POSITIVE_INFINITY) {
+            return paths;
+        }
+        graph.getComponents(); // computed once, before the spur searches share it
+        final List<Route> accepted = new ArrayList<Route>(k);
+        Route first = spur(null, 0, potential, new BitSet(), new int[0], weights, counter);
+        if (first == null) {
+            return paths; // the origin was masked by the graph's own reachability
+        }
+        accepted.add(first);
+        PriorityQueue<Route> candidates = new PriorityQueue<Route>();
+        Set<Route> seen = new HashSet<Route>();
+        seen.add(first);
+        // one pool for all spur batches, rather than new threads for every path
+        ExecutorService executor = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+        try {
+            while (accepted.size() < k) {
+                final Route previous = accepted.get(accepted.size() - 1);
+                final int firstSpur = previous.deviation;
+                int count = previous.ids.length - 1 - firstSpur;
+                final AtomicReferenceArray<Route> found = new AtomicReferenceArray<Route>(Math.max(0, count));
+                DistanceMatrix.parallel(executor, threads, found.length(), new DistanceMatrix.WorkerFactory() {
+                    public DistanceMatrix.Worker create() {
+                        return new DistanceMatrix.Worker() {
+                            public void run(int index) {
+                                int i = firstSpur + index;
+                                BitSet root = new BitSet();
+                                for (int j = 0; j < i; j++) {
+                                    root.set(previous.ids[j]);
+                                }
+                                found.set(index, spur(previous, i, potential, root, blockedNext(accepted, previous, i),
+                                        weights, counter));
+                            }
+                        };
+                    }
+                });
+                for (int i = 0; i < found.length(); i++) {
+                    Route route = found.get(i);
+                    if (route != null && seen.add(route)) {
+                        candidates.add(route);
+                    }
+                }
+                if (candidates.isEmpty()) {
+                    break;
+                }
+                accepted.add(candidates.poll());
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+        }
+        for (Route route : accepted) {
+            paths.add(route.toPath());
+        }
+        return paths;
+    }
+
+    /**
+     * Gets the ids of the edges that the accepted paths with the same root as a path take out of its spur node.
+     */
+    private int[] blockedNext(List<Route> accepted, Route path, int spur) {
+        int[] blocked = new int[accepted.size()];
+        int count = 0;
+        for (Route other : accepted) {
+            if (other.edges.length > spur && sameRoot(other, path, spur)) {
+                blocked[count++] = other.edges[spur];
+            }
+        }
+        return Arrays.copyOf(blocked, count);
+    }
+
+    private boolean sameRoot(Route a, Route b, int spur) {
+        for (int j = 0; j < spur; j++) {
+            if (a.edges[j] != b.edges[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Computes the distances from all nodes to the destination, with a backward search.
+     */
+    private float[] backwardDistances(EdgeWeightTable weights) {
+        int n = graph.getNodeCount();
+        float[] distance = new float[n];
+        NodeHeap heap = new NodeHeap(n);
+        heap.update(destination.getId(), 0);
+        while (!heap.isEmpty()) {
+            float d = heap.minKey();
+            int x = heap.extractMin();
+            EdgeIterator<N, E> edges = graph.getInComingEdges(graph.getNode(x), null);
+            while (edges.hasNext()) {
+                int y = edges.next().getId();
+                heap.update(y, d + weights.getValue(edges.getEdgeId(), weightIndex));
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            distance[v] = heap.getKey(v);
+        }
+        return distance;
+    }
+
+    /**
+     * Searches the shortest spur path from a node of a path to the destination, and joins it to the root of the path.
+     *
+     * @return The new path, or null if the destination can not be reached.
+     */
+    private Route spur(Route path, int spur, float[] potential, BitSet root, int[] blockedNext,
+                       EdgeWeightTable weights, SpurCounter counter) {
+        InternalNode<N, E> spurNode = path == null ? origin : graph.getNode(path.ids[spur]);
+        Dijkstra<N, E> search = new Dijkstra<N, E>(graph, spurNode.getWrappedNode(), destination.getWrappedNode(),
+                new PotentialRelaxer<N, E>(potential), weightIndex, new Mask<N, E>(root));
+        search.setBlockedOriginEdges(blockedNext);
+        search.setSearchListener(counter);
+        search.execute();
+        Path<N> spurPath = search.getResult();
+        return spurPath == null ? null : new Route(path, spur, spurPath, search.getResultEdges(), weights);
+    }
+
+    /**
+     * A path: its domain nodes (including the nodes of contracted chains), the ids of its graph nodes with their
+     * position in the domain nodes and their distance from the origin, and the ids of the edges between the graph
+     * nodes. Paths are equal if they take the same edges.
+     */
+    private final class Route implements Comparable<Route> {
+
+        private final List<N> nodes;
+        private final int[] ids;
+        private final int[] edges;
+        private final int[] positions;
+        private final float[] cost;
+        // the index of the spur node where this path deviates from its parent
+        private final int deviation;
+
+        private Route(Route parent, int spur, Path<N> spurPath, int[] spurEdges, EdgeWeightTable weights) {
+            nodes = new ArrayList<N>();
+            int[] ids = new int[16];
+            int[] positions = new int[16];
+            float[] cost = new float[16];
+            int count = 0;
+            if (parent != null) {
+                nodes.addAll(parent.nodes.subList(0, parent.positions[spur]));
+                System.arraycopy(parent.ids, 0, ids = new int[spur + 16], 0, spur);
+                System.arraycopy(parent.positions, 0, positions = new int[spur + 16], 0, spur);
+                System.arraycopy(parent.cost, 0, cost = new float[spur + 16], 0, spur + 1);
+                count = spur;
+            }
+            float offset = count == 0 ? 0 : cost[count];
+            for (N node : spurPath) {
+                InternalNode<N, E> internal = graph.getInternalNode(node);
+                if (internal != null) {
+                    if (count == ids.length) {
+                        ids = Arrays.copyOf(ids, 2 * count);
+                        positions = Arrays.copyOf(positions, 2 * count);
+                        cost = Arrays.copyOf(cost, 2 * count);
+                    }
+                    ids[count] = internal.getId();
+                    positions[count] = nodes.size();
+                    if (count > spur) {
+                        offset += weights.getValue(spurEdges[count - 1 - spur], weightIndex);
+                    }
+                    cost[count++] = offset;
+                }
+                nodes.add(node);
+            }
+            this.ids = Arrays.copyOf(ids, count);
+            this.edges = new int[count - 1];
+            if (parent != null) {
+                System.arraycopy(parent.edges, 0, edges, 0, spur);
+            }
+            System.arraycopy(spurEdges, 0, edges, spur, spurEdges.length);
+            this.positions = Arrays.copyOf(positions, count);
+            this.cost = Arrays.copyOf(cost, count);
+            this.deviation = spur;
+        }
+
+        private float total() {
+            return cost[cost.length - 1];
+        }
+
+        private Path<N> toPath() {
+            BasicPath<N> path = new BasicPath<N>();
+            for (int i = nodes.size() - 1; i >= 0; i--) {
+                path.insert(nodes.get(i));
+            }
+            path.setTotalWeight(total());
+            path.setValid(true);
+            return path;
+        }
+
+        public int compareTo(Route other) {
+            int c = Float.compare(total(), other.total());
+            return c != 0 ? c : ids.length - other.ids.length;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof KShortestPaths<?, ?>.Route && Arrays.equals(edges, ((KShortestPaths<?, ?>.Route) o).edges);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(edges);
+        }
+    }
+
+    /**
+     * Masks the nodes of the root of a spur search.
+     */
+    private static final class Mask<N, E> implements RoutingContextualReachability<N, E, Traversal<N, E>> {
+
+        private final BitSet root;
+
+        private Mask(BitSet root) {
+            this.root = root;
+        }
+
+        public boolean isReachable(InternalNode<N, E> node) {
+            return !root.get(node.getId());
+        }
+
+        public void setContext(Traversal<N, E> context) {
+            // the mask does not depend on it
+        }
+
+        public void setOriginDestination(N origin, N destination) {
+            // the mask does not depend on them
+        }
+    }
+
+    /**
+     * Orders the nodes by their distance plus their distance to the destination.
+     */
+    private static final class PotentialRelaxer<N, E> extends DefaultRelaxer<N, E> {
+
+        private final float[] potential;
+
+        private PotentialRelaxer(float[] potential) {
+            this.potential = potential;
+        }
+
+        @Override
+        protected float update(InternalNode<N, E> nd, float baseWeight) {
+            return baseWeight + potential[nd.getId()];
+        }
+    }
+
+    /**
+     * Adds up the statistics of the spur searches.
+     */
+    private static final class SpurCounter implements SearchListener {
+
+        private final AtomicLong settledNodes = new AtomicLong();
+        private final AtomicLong scannedEdges = new AtomicLong();
+        private final AtomicLong improvedEdges = new AtomicLong();
+        private final AtomicLong queueInserts = new AtomicLong();
+        private final AtomicLong queueDecreaseKeys = new AtomicLong();
+        private final AtomicLong maxQueueSize = new AtomicLong();
+
+        public void searchFinished(SearchStats stats) {
+            settledNodes.addAndGet(stats.getSettledNodes());
+            scannedEdges.addAndGet(stats.getScannedEdges());
+            improvedEdges.addAndGet(stats.getImprovedEdges());
+            queueInserts.addAndGet(stats.getQueueInserts());
+            queueDecreaseKeys.addAndGet(stats.getQueueDecreaseKeys());
+            long size;
+            while ((size = maxQueueSize.get()) < stats.getMaxQueueSize()
+                    && !maxQueueSize.compareAndSet(size, stats.getMaxQueueSize())) {
+                // retry
+            }
+        }
+    }
+}
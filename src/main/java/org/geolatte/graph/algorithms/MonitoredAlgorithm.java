@@ -0,0 +1,43 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph.algorithms;
+/**
+ * <p>
+ * A {@link GraphAlgorithm} that reports the statistics of its searches to a {@link SearchListener}. All the
+ * algorithms created by {@link GraphAlgorithms} are monitored; use
+ * {@link GraphAlgorithms#setSearchListener(GraphAlgorithm, SearchListener)} to set a listener on an algorithm of which
+ * only the {@link GraphAlgorithm} type is known.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public interface MonitoredAlgorithm {
+
+    /**
+     * Sets the listener that receives the statistics of every execution of this algorithm. Statistics are only
+     * collected while a listener is set.
+     *
+     * @param listener The listener, or null to stop collecting statistics.
+     */
+    public void setSearchListener(SearchListener listener);
+}
@@ -0,0 +1,502 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+
+package org.geolatte.graph.algorithms;
+
+import org.geolatte.graph.*;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>
+ * A multi-level overlay of a graph for customizable route planning. The nodes are partitioned into cells by recursive
+ * coordinate bisection, on a number of nested levels. The boundary nodes of a cell are the nodes with an edge to or
+ * from another cell of the same level, and every cell holds a clique matrix with the shortest distances inside the
+ * cell between its boundary nodes. A query then searches the original edges only in the lowest cells of the origin
+ * and the destination, and the cliques of ever higher levels further away from them.
+ * </p>
+ * <p>
+ * The partition does not depend on the weights. The clique matrices are computed per weight index by
+ * {@link #customize(int, int)}, from a snapshot of the weights, in parallel per cell and bottom-up per level: this
+ * takes seconds where a contraction hierarchy takes minutes, so that a metric can be refreshed after traffic updates.
+ * Customizing replaces the matrices of a weight index atomically; queries that are running keep the matrices they
+ * started with. The overlay ignores contextual reachability.
+ * </p>
+ * <p>
+ * Create an overlay with {@link GraphAlgorithms#createMultiLevelOverlay(Graph, int[])}. An overlay is thread-safe.
+ * </p>
+ *
+ * @param <N> The type of domain node.
+ * @param <E> The edge label type.
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public final class MultiLevelOverlay<N extends Locatable, E> {
+
+    private final Graph<N, E> graph;
+    private final int nodeCount;
+    private final int levelCount;
+    private final int[] cellSizes;
+
+    // the cell of every node, per level; a cell is nested in a cell of the level above
+    private final int[][] cell;
+    private final int[] cellCount;
+
+    // the boundary nodes of every cell, per level, and the position of a node among those of its cell (or -1)
+    private final int[][] boundaryStart;
+    private final int[][] boundaryNode;
+    private final int[][] boundaryIndex;
+
+    // the start of the clique matrix of every cell, per level
+    private final int[][] cliqueStart;
+
+    // the edges of the graph, outgoing and incoming per node, with their edge id
+    private final int[] outStart;
+    private final int[] outTarget;
+    private final int[] outEdge;
+    private final int[] inStart;
+    private final int[] inSource;
+    private final int[] inEdge;
+
+    private final ConcurrentMap<Integer, Metric> metrics = new ConcurrentHashMap<Integer, Metric>();
+
+    private final ThreadLocal<NodeHeap[]> heaps = new ThreadLocal<NodeHeap[]>() {
+        @Override
+        protected NodeHeap[] initialValue() {
+            return new NodeHeap[]{new NodeHeap(nodeCount), new NodeHeap(nodeCount)};
+        }
+    };
+
+    MultiLevelOverlay(Graph<N, E> graph, int[] cellSizes) {
+        if (cellSizes.length == 0) {
+            throw new IllegalArgumentException("At least one level is required");
+        }
+        for (int l = 0; l < cellSizes.length; l++) {
+            if (cellSizes[l] < 1 || (l > 0 && cellSizes[l] <= cellSizes[l - 1])) {
+                throw new IllegalArgumentException("Cell sizes must be positive and increasing: "
+                        + Arrays.toString(cellSizes));
+            }
+        }
+        this.graph = graph;
+        this.nodeCount = graph.getNodeCount();
+        this.levelCount = cellSizes.length;
+        this.cellSizes = cellSizes.clone();
+
+        // the edges, without loops
+        outStart = new int[nodeCount + 1];
+        for (int v = 0; v < nodeCount; v++) {
+            EdgeIterator<N, E> edges = graph.getOutGoingEdges(graph.getNode(v), null);
+            int count = 0;
+            while (edges.hasNext()) {
+                if (edges.next().getId() != v) {
+                    count++;
+                }
+            }
+            outStart[v + 1] = outStart[v] + count;
+        }
+        outTarget = new int[outStart[nodeCount]];
+        outEdge = new int[outStart[nodeCount]];
+        inStart = new int[nodeCount + 1];
+        for (int v = 0, i = 0; v < nodeCount; v++) {
+            EdgeIterator<N, E> edges = graph.getOutGoingEdges(graph.getNode(v), null);
+            while (edges.hasNext()) {
+                int w = edges.next().getId();
+                if (w != v) {
+                    outTarget[i] = w;
+                    outEdge[i++] = edges.getEdgeId();
+                    inStart[w + 1]++;
+                }
+            }
+        }
+        for (int v = 0; v < nodeCount; v++) {
+            inStart[v + 1] += inStart[v];
+        }
+        inSource = new int[outTarget.length];
+        inEdge = new int[outTarget.length];
+        int[] fill = Arrays.copyOf(inStart, nodeCount);
+        for (int v = 0; v < nodeCount; v++) {
+            for (int i = outStart[v]; i < outStart[v + 1]; i++) {
+                int k = fill[outTarget[i]]++;
+                inSource[k] = v;
+                inEdge[k] = outEdge[i];
+            }
+        }
+
+        // the cells
+        cell = new int[levelCount][nodeCount];
+        cellCount = new int[levelCount];
+        int[] order = new int[nodeCount];
+        float[] x = new float[nodeCount];
+        float[] y = new float[nodeCount];
+        for (int v = 0; v < nodeCount; v++) {
+            order[v] = v;
+            N node = graph.getNode(v).getWrappedNode();
+            x[v] = node.getX();
+            y[v] = node.getY();
+        }
+        split(order, new long[nodeCount], x, y, 0, nodeCount, levelCount - 1);
+
+        // the boundary nodes and the clique matrices
+        boundaryStart = new int[levelCount][];
+        boundaryNode = new int[levelCount][];
+        boundaryIndex = new int[levelCount][];
+        cliqueStart = new int[levelCount][];
+        for (int l = 0; l < levelCount; l++) {
+            int[] levelCell = cell[l];
+            boolean[] boundary = new boolean[nodeCount];
+            for (int v = 0; v < nodeCount; v++) {
+                for (int i = outStart[v]; i < outStart[v + 1]; i++) {
+                    if (levelCell[outTarget[i]] != levelCell[v]) {
+                        boundary[v] = true;
+                        boundary[outTarget[i]] = true;
+                    }
+                }
+            }
+            int[] start = new int[cellCount[l] + 1];
+            for (int v = 0; v < nodeCount; v++) {
+                if (boundary[v]) {
+                    start[levelCell[v] + 1]++;
+                }
+            }
+            long cliqueSize = 0;
+            cliqueStart[l] = new int[cellCount[l] + 1];
+            for (int c = 0; c < cellCount[l]; c++) {
+                long size = start[c + 1];
+                cliqueSize += size * size;
+                if (cliqueSize > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("The cells of level " + l + " are too large");
+                }
+                cliqueStart[l][c + 1] = (int) cliqueSize;
+                start[c + 1] += start[c];
+            }
+            int[] nodes = new int[start[cellCount[l]]];
+            int[] index = new int[nodeCount];
+            Arrays.fill(index, -1);
+            int[] next = Arrays.copyOf(start, cellCount[l]);
+            for (int v = 0; v < nodeCount; v++) {
+                if (boundary[v]) {
+                    int c = levelCell[v];
+                    index[v] = next[c] - start[c];
+                    nodes[next[c]++] = v;
+                }
+            }
+            boundaryStart[l] = start;
+            boundaryNode[l] = nodes;
+            boundaryIndex[l] = index;
+        }
+    }
+
+    /**
+     * Splits a range of nodes into cells of a level and all levels below it, by bisection.
+     */
+    private void split(int[] order, long[] keys, float[] x, float[] y, int from, int to, int level) {
+        if (to - from <= cellSizes[level]) {
+            int c = cellCount[level]++;
+            for (int i = from; i < to; i++) {
+                cell[level][order[i]] = c;
+            }
+            if (level > 0) {
+                split(order, keys, x, y, from, to, level - 1);
+            }
+            return;
+        }
+        bisect(order, keys, x, y, from, to);
+        int middle = (from + to) >>> 1;
+        split(order, keys, x, y, from, middle, level);
+        split(order, keys, x, y, middle, to, level);
+    }
+
+    /**
+     * Sorts a range of nodes along the longest side of their bounding box, so that it can be split anywhere.
+     */
+    static void bisect(int[] order, long[] keys, float[] x, float[] y, int from, int to) {
+        float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY;
+        for (int i = from; i < to; i++) {
+            int v = order[i];
+            minX = Math.min(minX, x[v]);
+            maxX = Math.max(maxX, x[v]);
+            minY = Math.min(minY, y[v]);
+            maxY = Math.max(maxY, y[v]);
+        }
+        float[] coordinate = maxX - minX >= maxY - minY ? x : y;
+        for (int i = from; i < to; i++) {
+            // the int bits of a float, flipped to order as the float does, in the high half
+            int bits = Float.floatToIntBits(coordinate[order[i]]);
+            bits ^= (bits >> 31) & 0x7fffffff;
+            keys[i] = ((long) bits << 32) | order[i];
+        }
+        Arrays.sort(keys, from, to);
+        for (int i = from; i < to; i++) {
+            order[i] = (int) keys[i];
+        }
+    }
+
+    /**
+     * @return The graph of this overlay.
+     */
+    public Graph<N, E> getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return The number of levels; level 0 has the smallest cells.
+     */
+    public int getLevelCount() {
+        return levelCount;
+    }
+
+    /**
+     * @param level The level.
+     * @return The number of cells of a level.
+     */
+    public int getCellCount(int level) {
+        return cellCount[level];
+    }
+
+    /**
+     * @param level  The level.
+     * @param nodeId The id of a node.
+     * @return The cell of a node on a level, a number from 0 to the number of cells of the level.
+     */
+    public int getCell(int level, int nodeId) {
+        return cell[level][nodeId];
+    }
+
+    /**
+     * @param level The level.
+     * @return The number of boundary nodes of all cells of a level.
+     */
+    public int getBoundaryNodeCount(int level) {
+        return boundaryNode[level].length;
+    }
+
+    /**
+     * @param weightIndex The weight index.
+     * @return True if the weight index was customized.
+     */
+    public boolean isCustomized(int weightIndex) {
+        return metrics.containsKey(weightIndex);
+    }
+
+    /**
+     * Computes the clique matrices of all cells for a weight index, from the current weights of the graph. Call it
+     * again to pick up weight updates.
+     *
+     * @param weightIndex The index to lookup the weight.
+     * @param threads     The number of threads to spread the cells of a level over.
+     * @throws IllegalArgumentException If the number of threads is smaller than 1.
+     */
+    public void customize(int weightIndex, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be at least 1");
+        }
+        GraphMonitor monitor = GraphMonitor.current();
+        Object monitorToken = monitor == null ? null : monitor.buildPhaseStarted("customize");
+        EdgeWeightTable weights = graph.getEdgeWeights().snapshot();
+        float[] outWeight = new float[outEdge.length];
+        float[] inWeight = new float[inEdge.length];
+        for (int i = 0; i < outEdge.length; i++) {
+            outWeight[i] = weights.getValue(outEdge[i], weightIndex);
+            inWeight[i] = weights.getValue(inEdge[i], weightIndex);
+        }
+        final Metric metric = new Metric(outWeight, inWeight, new float[levelCount][]);
+        for (int l = 0; l < levelCount; l++) {
+            final int level = l;
+            metric.clique[level] = new float[cliqueStart[level][cellCount[level]]];
+            DistanceMatrix.parallel(threads, cellCount[level], new DistanceMatrix.WorkerFactory() {
+                public DistanceMatrix.Worker create() {
+                    final NodeHeap heap = new NodeHeap(nodeCount);
+                    return new DistanceMatrix.Worker() {
+                        public void run(int c) {
+                            customizeCell(metric, level, c, heap);
+                        }
+                    };
+                }
+            });
+        }
+        metrics.put(weightIndex, metric);
+        if (monitor != null) {
+            monitor.buildPhaseFinished(monitorToken, "customize", nodeCount, outEdge.length);
+        }
+    }
+
+    /**
+     * Fills the clique matrix of a cell with searches from each of its boundary nodes, on the original edges inside
+     * the cell for level 0, and on the overlay of the level below otherwise.
+     */
+    private void customizeCell(Metric metric, int level, int c, NodeHeap heap) {
+        int start = boundaryStart[level][c];
+        int count = boundaryStart[level][c + 1] - start;
+        int[] index = boundaryIndex[level];
+        float[] clique = metric.clique[level];
+        int offset = cliqueStart[level][c];
+        for (int i = 0; i < count; i++) {
+            heap.update(boundaryNode[level][start + i], 0);
+            int remaining = count;
+            while (!heap.isEmpty() && remaining > 0) {
+                float d = heap.minKey();
+                int x = heap.extractMin();
+                if (index[x] >= 0) {
+                    remaining--;
+                }
+                scan(metric, level - 1, x, d, true, heap, null, 0, level, c);
+            }
+            for (int j = 0; j < count; j++) {
+                clique[offset + i * count + j] = heap.getKey(boundaryNode[level][start + j]);
+            }
+            heap.clear();
+        }
+    }
+
+    /**
+     * Gets the id of a domain node.
+     *
+     * @throws IllegalArgumentException If the node is not in the graph.
+     */
+    private int idOf(N node) {
+        InternalNode<N, E> internal = graph.getInternalNode(node);
+        if (internal == null) {
+            throw new IllegalArgumentException("Node not in graph: " + node);
+        }
+        return internal.getId();
+    }
+
+    /**
+     * Gets the shortest path distance between two nodes, with a bidirectional search on the overlay.
+     *
+     * @param origin      The origin.
+     * @param destination The destination.
+     * @param weightIndex The index to lookup the weight.
+     * @return The distance, or positive infinity if the destination can not be reached.
+     * @throws IllegalArgumentException If one of the nodes is not in the graph.
+     * @throws IllegalStateException    If the weight index was not customized.
+     */
+    public float distance(N origin, N destination, int weightIndex) {
+        Metric metric = metrics.get(weightIndex);
+        if (metric == null) {
+            throw new IllegalStateException("Weight index " + weightIndex + " is not customized");
+        }
+        int s = idOf(origin);
+        int t = idOf(destination);
+        if (s == t) {
+            return 0;
+        }
+        NodeHeap[] pair = heaps.get();
+        NodeHeap forward = pair[0];
+        NodeHeap backward = pair[1];
+        float best = Float.POSITIVE_INFINITY;
+        try {
+            forward.update(s, 0);
+            backward.update(t, 0);
+            while (!forward.isEmpty() && !backward.isEmpty() && forward.minKey() + backward.minKey() < best) {
+                boolean forwardStep = forward.minKey() <= backward.minKey();
+                NodeHeap heap = forwardStep ? forward : backward;
+                float d = heap.minKey();
+                int x = heap.extractMin();
+                best = scan(metric, queryLevel(x, s, t), x, d, forwardStep, heap, forwardStep ? backward : forward,
+                        best, -1, -1);
+            }
+            return best;
+        } finally {
+            forward.clear();
+            backward.clear();
+        }
+    }
+
+    /**
+     * Gets the level of the overlay to search at a node: the highest level on which the node is neither in the cell
+     * of the origin nor in the cell of the destination, or -1 if it is in their lowest cell.
+     */
+    private int queryLevel(int x, int s, int t) {
+        for (int l = levelCount - 1; l >= 0; l--) {
+            int c = cell[l][x];
+            if (c != cell[l][s] && c != cell[l][t]) {
+                return l;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Relaxes the edges of a settled node on the overlay of a level: the clique of its cell and the original edges
+     * that leave the cell, or all original edges for level -1. If a cell of an outer level is given, only nodes
+     * in that cell are relaxed.
+     *
+     * @return The new best distance of a bidirectional search.
+     */
+    private float scan(Metric metric, int level, int x, float d, boolean forward, NodeHeap heap, NodeHeap other,
+                       float best, int outerLevel, int outerCell) {
+        int[] levelCell = null;
+        if (level >= 0) {
+            levelCell = cell[level];
+            int c = levelCell[x];
+            int start = boundaryStart[level][c];
+            int count = boundaryStart[level][c + 1] - start;
+            int offset = cliqueStart[level][c];
+            int i = boundaryIndex[level][x];
+            float[] clique = metric.clique[level];
+            for (int j = 0; j < count; j++) {
+                float weight = forward ? clique[offset + i * count + j] : clique[offset + j * count + i];
+                if (weight != Float.POSITIVE_INFINITY) {
+                    best = relax(boundaryNode[level][start + j], d + weight, heap, other, best);
+                }
+            }
+        }
+        int[] start = forward ? outStart : inStart;
+        int[] node = forward ? outTarget : inSource;
+        float[] weight = forward ? metric.outWeight : metric.inWeight;
+        for (int i = start[x]; i < start[x + 1]; i++) {
+            int y = node[i];
+            if ((levelCell == null || levelCell[y] != levelCell[x])
+                    && (outerLevel < 0 || cell[outerLevel][y] == outerCell)) {
+                best = relax(y, d + weight[i], heap, other, best);
+            }
+        }
+        return best;
+    }
+
+    private static float relax(int y, float d, NodeHeap heap, NodeHeap other, float best) {
+        if (heap.update(y, d) && other != null && other.isReached(y)) {
+            return Math.min(best, d + other.getKey(y));
+        }
+        return best;
+    }
+
+    /**
+     * The weights of one weight index: the original edges and the clique matrices of every level.
+     */
+    private static final class Metric {
+
+        private final float[] outWeight;
+        private final float[] inWeight;
+        private final float[][] clique;
+
+        private Metric(float[] outWeight, float[] inWeight, float[][] clique) {
+            this.outWeight = outWeight;
+            this.inWeight = inWeight;
+            this.clique = clique;
+        }
+    }
+}
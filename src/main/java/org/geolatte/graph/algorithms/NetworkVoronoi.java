@@ -0,0 +1,271 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+
+
+package org.geolatte.graph.algorithms;
+
+import org.geolatte.graph.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * <p>
+ * A network Voronoi diagram: assigns every node of a graph to its nearest facility, e.g. a depot or a hospital, by
+ * the shortest path distance over one weight index. All facilities are found with one multi-source Dijkstra search
+ * seeded with every facility at distance zero, instead of a search per facility. The nearest facility and the
+ * distance to it are kept for every node in dense arrays indexed by node id. The distances are measured from the
+ * facilities to the nodes, or from the nodes to the facilities over the incoming edges.
+ * </p>
+ * <p>
+ * Facilities can be added and removed afterwards. Adding a facility runs a search from it that only continues where
+ * it improves the distance, so it only visits the cell of the new facility. Removing one clears its cell and repairs
+ * it with a search seeded from the neighbouring cells. Nodes that no facility can reach have facility -1 and an
+ * infinite distance.
+ * </p>
+ * <p>
+ * The weights are read from a snapshot taken when the diagram is created, so that the repairs agree with the rest of
+ * the diagram; weight updates after that are not seen. A diagram is not thread-safe.
+ * </p>
+ *
+ * @param <N> The type of domain node.
+ * @param <E> The edge label type.
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public final class NetworkVoronoi<N, E> {
+
+    private final Graph<N, E> graph;
+    private final int weightIndex;
+    private final boolean toFacilities;
+    private final EdgeWeightTable weights;
+    private final int[] nearest;
+    private final float[] distance;
+    private final NodeHeap heap;
+    // the node id of every facility, or -1 for a removed facility
+    private int[] facilityNodes = new int[16];
+    private int facilityCount;
+
+    NetworkVoronoi(Graph<N, E> graph, int weightIndex, boolean toFacilities, Collection<? extends N> facilities) {
+        this.graph = graph;
+        this.weightIndex = weightIndex;
+        this.toFacilities = toFacilities;
+        this.weights = graph.getEdgeWeights().snapshot();
+        int n = graph.getNodeCount();
+        this.nearest = new int[n];
+        this.distance = new float[n];
+        this.heap = new NodeHeap(n);
+        Arrays.fill(nearest, -1);
+        Arrays.fill(distance, Float.POSITIVE_INFINITY);
+        for (N facility : facilities) {
+            int node = register(facility);
+            nearest[node] = facilityCount - 1;
+            distance[node] = 0;
+            heap.update(node, 0);
+        }
+        run();
+    }
+
+    /**
+     * @return The graph of the diagram.
+     */
+    public Graph<N, E> getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return The weight index of the distances.
+     */
+    public int getWeightIndex() {
+        return weightIndex;
+    }
+
+    /**
+     * @return True if the distances are measured from the nodes to the facilities, false if from the facilities to
+     *         the nodes.
+     */
+    public boolean isToFacilities() {
+        return toFacilities;
+    }
+
+    /**
+     * @return The number of facility indices handed out, including the ones of removed facilities.
+     */
+    public int getFacilityCount() {
+        return facilityCount;
+    }
+
+    /**
+     * @param facility A facility index.
+     * @return The facility, or null if it was removed.
+     */
+    public N getFacility(int facility) {
+        int node = facilityNodes[facility];
+        return node < 0 ? null : graph.getNode(node).getWrappedNode();
+    }
+
+    /**
+     * @param nodeId The id of a node.
+     * @return The index of the nearest facility to the node, or -1 if no facility can be reached.
+     */
+    public int getNearestFacility(int nodeId) {
+        return nearest[nodeId];
+    }
+
+    /**
+     * @param nodeId The id of a node.
+     * @return The distance between the node and its nearest facility, or positive infinity if no facility can be
+     *         reached.
+     */
+    public float getDistance(int nodeId) {
+        return distance[nodeId];
+    }
+
+    /**
+     * Gets the nearest facility of every node.
+     *
+     * @return A copy of the facility indices, indexed by node id.
+     */
+    public int[] getNearestFacilities() {
+        return nearest.clone();
+    }
+
+    /**
+     * Gets the distance to the nearest facility of every node.
+     *
+     * @return A copy of the distances, indexed by node id.
+     */
+    public float[] getDistances() {
+        return distance.clone();
+    }
+
+    /**
+     * Adds a facility, and assigns the nodes that are nearer to it than to their facility.
+     *
+     * @param facility The new facility.
+     * @return The index of the new facility.
+     * @throws IllegalArgumentException If the node is not in the graph or already is a facility.
+     * @throws IllegalStateException    If the graph was compacted since the diagram was built.
+     */
+    public int addFacility(N facility) {
+        checkNotCompacted();
+        int node = register(facility);
+        int index = facilityCount - 1;
+        nearest[node] = index;
+        distance[node] = 0;
+        heap.update(node, 0);
+        run();
+        return index;
+    }
+
+    /**
+     * Removes a facility, and assigns the nodes of its cell to their nearest remaining facility.
+     *
+     * @param facility The index of the facility.
+     * @throws IllegalArgumentException If there is no facility with the given index.
+     * @throws IllegalStateException    If the graph was compacted since the diagram was built.
+     */
+    public void removeFacility(int facility) {
+        checkNotCompacted();
+        if (facility < 0 || facility >= facilityCount || facilityNodes[facility] < 0) {
+            throw new IllegalArgumentException("No such facility: " + facility);
+        }
+        facilityNodes[facility] = -1;
+        List<Integer> cell = new ArrayList<Integer>();
+        for (int v = 0; v < nearest.length; v++) {
+            if (nearest[v] == facility) {
+                nearest[v] = -1;
+                distance[v] = Float.POSITIVE_INFINITY;
+                cell.add(v);
+            }
+        }
+        // the distances outside the cell do not change, so the cell is seeded from the edges that enter it
+        for (int v : cell) {
+            InternalNode<N, E> node = graph.getNode(v);
+            EdgeIterator<N, E> edges = toFacilities ? graph.getOutGoingEdges(node, null)
+                    : graph.getInComingEdges(node, null);
+            while (edges.hasNext()) {
+                int u = edges.next().getId();
+                if (nearest[u] >= 0) {
+                    float d = distance[u] + weights.getValue(edges.getEdgeId(), weightIndex);
+                    if (d < distance[v]) {
+                        distance[v] = d;
+                        nearest[v] = nearest[u];
+                        heap.update(v, d);
+                    }
+                }
+            }
+        }
+        run();
+    }
+
+    /**
+     * Checks that the graph was not compacted since the diagram was built, which renumbers its nodes and edges.
+     */
+    private void checkNotCompacted() {
+        if (!weights.isSameLineage(graph.getEdgeWeights())) {
+            throw new IllegalStateException("The graph was compacted after the diagram was built");
+        }
+    }
+
+    private int register(N facility) {
+        InternalNode<N, E> node = graph.getInternalNode(facility);
+        if (node == null) {
+            throw new IllegalArgumentException("Node not in graph: " + facility);
+        }
+        int id = node.getId();
+        if (distance[id] == 0 && nearest[id] >= 0 && facilityNodes[nearest[id]] == id) {
+            throw new IllegalArgumentException("Node already is a facility: " + facility);
+        }
+        if (facilityCount == facilityNodes.length) {
+            facilityNodes = Arrays.copyOf(facilityNodes, 2 * facilityCount);
+        }
+        facilityNodes[facilityCount++] = id;
+        return id;
+    }
+
+    /**
+     * Settles the nodes in the heap, and follows the edges where they improve the distance of a node.
+     */
+    private void run() {
+        while (!heap.isEmpty()) {
+            float d = heap.minKey();
+            int x = heap.extractMin();
+            int facility = nearest[x];
+            InternalNode<N, E> node = graph.getNode(x);
+            EdgeIterator<N, E> edges = toFacilities ? graph.getInComingEdges(node, null)
+                    : graph.getOutGoingEdges(node, null);
+            while (edges.hasNext()) {
+                int y = edges.next().getId();
+                float dy = d + weights.getValue(edges.getEdgeId(), weightIndex);
+                if (dy < distance[y]) {
+                    distance[y] = dy;
+                    nearest[y] = facility;
+                    heap.update(y, dy);
+                }
+            }
+        }
+        heap.clear();
+    }
+}
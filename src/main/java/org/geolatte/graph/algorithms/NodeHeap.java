@@ -0,0 +1,238 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph.algorithms;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * An indexed binary min-heap of dense node ids, that also serves as the distance labels of a search: the key of a
+ * node stays available after it is extracted (settled), until the heap is cleared. Clearing only resets the nodes
+ * that were reached, so a heap can be reused for many small searches on a large graph.
+ * </p>
+ * <p>
+ * Used by the searches that work on node ids rather than on {@link org.geolatte.graph.PredGraph}s. A heap is not
+ * thread-safe, concurrent searches each use their own.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+final class NodeHeap {
+
+    private static final int UNREACHED = 0;
+    private static final int SETTLED = -1;
+
+    private final float[] keys;
+    // UNREACHED, SETTLED, or the position in the heap plus one
+    private final int[] state;
+    private int[] heap = new int[64];
+    private int size;
+    private int[] touched = new int[64];
+    private int touchedCount;
+
+    /**
+     * Creates a heap for the node ids 0 to nodeCount - 1.
+     *
+     * @param nodeCount The number of nodes.
+     */
+    NodeHeap(int nodeCount) {
+        this.keys = new float[nodeCount];
+        this.state = new int[nodeCount];
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return True if the node was added to the heap since it was cleared.
+     */
+    boolean isReached(int node) {
+        return state[node] != UNREACHED;
+    }
+
+    /**
+     * @return True if the node was extracted since the heap was cleared.
+     */
+    boolean isSettled(int node) {
+        return state[node] == SETTLED;
+    }
+
+    /**
+     * @return The key of a reached node, or positive infinity if the node was not reached.
+     */
+    float getKey(int node) {
+        return state[node] == UNREACHED ? Float.POSITIVE_INFINITY : keys[node];
+    }
+
+    /**
+     * @return The smallest key in the heap.
+     */
+    float minKey() {
+        return keys[heap[0]];
+    }
+
+    /**
+     * @return The node with the smallest key in the heap.
+     */
+    int peek() {
+        return heap[0];
+    }
+
+    /**
+     * Adds a node with the given key, or decreases its key if it is in the heap with a larger key. Settled nodes are
+     * not changed.
+     *
+     * @return True if the node was added or its key was decreased.
+     */
+    boolean update(int node, float key) {
+        int s = state[node];
+        if (s == UNREACHED) {
+            if (touchedCount == touched.length) {
+                touched = Arrays.copyOf(touched, touchedCount * 2);
+            }
+            touched[touchedCount++] = node;
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+            }
+            keys[node] = key;
+            heap[size] = node;
+            state[node] = ++size;
+            siftUp(size - 1);
+            return true;
+        }
+        if (s == SETTLED || key >= keys[node]) {
+            return false;
+        }
+        keys[node] = key;
+        siftUp(s - 1);
+        return true;
+    }
+
+    /**
+     * Adds a settled node to the heap again with the given key, for label-correcting searches in which the label of a
+     * settled node can still improve. Other nodes are updated as by {@link #update(int, float)}.
+     *
+     * @return True if the node was added or its key was decreased.
+     */
+    boolean reopen(int node, float key) {
+        if (state[node] != SETTLED) {
+            return update(node, key);
+        }
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        keys[node] = key;
+        heap[size] = node;
+        state[node] = ++size;
+        siftUp(size - 1);
+        return true;
+    }
+
+    /**
+     * Removes the node with the smallest key from the heap, and marks it settled.
+     *
+     * @return The node.
+     */
+    int extractMin() {
+        int min = heap[0];
+        state[min] = SETTLED;
+        size--;
+        if (size > 0) {
+            int last = heap[size];
+            heap[0] = last;
+            state[last] = 1;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    /**
+     * @return The number of nodes that were reached since the heap was cleared.
+     */
+    int getReachedCount() {
+        return touchedCount;
+    }
+
+    /**
+     * @return The i-th node that was reached since the heap was cleared.
+     */
+    int getReached(int i) {
+        return touched[i];
+    }
+
+    /**
+     * Forgets all nodes that were reached.
+     */
+    void clear() {
+        for (int i = 0; i < touchedCount; i++) {
+            state[touched[i]] = UNREACHED;
+        }
+        touchedCount = 0;
+        size = 0;
+    }
+
+    private void siftUp(int i) {
+        int node = heap[i];
+        float key = keys[node];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            int p = heap[parent];
+            if (keys[p] <= key) {
+                break;
+            }
+            heap[i] = p;
+            state[p] = i + 1;
+            i = parent;
+        }
+        heap[i] = node;
+        state[node] = i + 1;
+    }
+
+    private void siftDown(int i) {
+        int node = heap[i];
+        float key = keys[node];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int c = heap[child];
+            int right = child + 1;
+            if (right < size && keys[heap[right]] < keys[c]) {
+                child = right;
+                c = heap[child];
+            }
+            if (key <= keys[c]) {
+                break;
+            }
+            heap[i] = c;
+            state[c] = i + 1;
+            i = child;
+        }
+        heap[i] = node;
+        state[node] = i + 1;
+    }
+}
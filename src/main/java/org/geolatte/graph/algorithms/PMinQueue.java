@@ -91,6 +91,15 @@ public class PMinQueue<V, E> {
         return this.heap.isEmpty();
     }
 
+    /**
+     * Gets the number of elements in the queue.
+     *
+     * @return The number of elements.
+     */
+    public int size() {
+        return this.index.size();
+    }
+
     public void update(PredGraph<V, E> value, float r) {
         PairNode<Element<V, E>> node = this.index.get(value.getInternalNode());
         if (node == null) {
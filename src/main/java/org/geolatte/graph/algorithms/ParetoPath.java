@@ -0,0 +1,103 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+
+
+package org.geolatte.graph.algorithms;
+
+import org.geolatte.graph.Path;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * <p>
+ * A path of a Pareto set: a path for which no other path is at least as good for every criterion and better for one.
+ * Next to the nodes, it holds the total weight of the path for every criterion, in the order in which the weight
+ * indices of the criteria were given. The total weight of the path is the one of the first criterion.
+ * </p>
+ *
+ * @param <N> The type of domain node.
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public final class ParetoPath<N> implements Path<N> {
+
+    private final List<N> nodes;
+    private final float[] totals;
+
+    ParetoPath(List<N> nodes, float[] totals) {
+        this.nodes = Collections.unmodifiableList(nodes);
+        this.totals = totals;
+    }
+
+    /**
+     * Gets the number of criteria.
+     *
+     * @return The number of criteria.
+     */
+    public int getCriterionCount() {
+        return totals.length;
+    }
+
+    /**
+     * Gets the total weight of the path for a criterion.
+     *
+     * @param criterion The position of the weight index of the criterion.
+     * @return The total weight for the criterion.
+     */
+    public float getTotal(int criterion) {
+        return totals[criterion];
+    }
+
+    public float totalWeight() {
+        return totals[0];
+    }
+
+    public N getSource() {
+        return nodes.get(0);
+    }
+
+    public N getDestination() {
+        return nodes.get(nodes.size() - 1);
+    }
+
+    public boolean isValid() {
+        return true;
+    }
+
+    public Iterator<N> iterator() {
+        return nodes.iterator();
+    }
+
+    public String toString() {
+        StringBuilder stBuf = new StringBuilder("Totals:");
+        for (float total : totals) {
+            stBuf.append(' ').append(total);
+        }
+        stBuf.append("\nNodes: ");
+        for (N nd : this) {
+            stBuf.append(nd).append("\n");
+        }
+        return stBuf.toString();
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+
+
+package org.geolatte.graph.algorithms;
+
+import org.geolatte.graph.*;
+
+import java.util.*;
+
+/**
+ * <p>
+ * Finds the Pareto set of paths between two nodes over several weight indices, such as travel time, distance and
+ * toll, with a multi-criteria label-setting search. A label is a path from the origin to a node, with its total weight
+ * for every criterion. Every node keeps a bag of labels of which none dominates another: a label dominates another if
+ * it is not worse for any criterion. The labels are settled in lexicographic order of their totals, so that a settled
+ * label is never dominated afterwards, and are extended over the outgoing edges of their node.
+ * </p>
+ * <p>
+ * The totals of all labels are kept in one flat array, with the criteria of a label next to each other, so that the
+ * dominance checks run over consecutive floats. A new label is dropped if a label of its node or of the destination
+ * dominates it, and it removes the labels of its node that it dominates.
+ * </p>
+ * <p>
+ * The number of Pareto paths can grow quickly with the length of the paths. Two options cap it, both at the cost of
+ * exactness:
+ * <ul>
+ * <li>with an epsilon, a label also dominates another if it is at most a fraction epsilon worse for every criterion.
+ * Every Pareto path is then covered by a path of the result that is at most a factor 1 + epsilon worse for every
+ * criterion per label that was dropped along the way. The factors compound, so the bound is loose, but in practice
+ * the result stays close to a factor 1 + epsilon while the number of labels drops by half or more.</li>
+ * <li>with a maximum number of labels per node, new labels that do not fit in a full bag are dropped.</li>
+ * </ul>
+ * </p>
+ * <p>
+ * The result is sorted in lexicographic order of the totals, and is empty if the destination can not be reached.
+ * </p>
+ *
+ * @param <N> The type of domain node.
+ * @param <E> The edge label type.
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+class ParetoPaths<N, E> implements GraphAlgorithm<List<ParetoPath<N>>>, MonitoredAlgorithm {
+
+    private final Graph<N, E> graph;
+    private final InternalNode<N, E> origin;
+    private final InternalNode<N, E> destination;
+    private final int[] weightIndices;
+    private final float epsilon;
+    private final int maxLabelsPerNode;
+    private SearchListener listener = GraphAlgorithms.getDefaultSearchListener();
+    private List<ParetoPath<N>> result;
+
+    // the labels: the totals of label i are at i * k, ..., i * k + k - 1
+    private final int k;
+    private float[] totals;
+    private int[] labelNode;
+    private int[] labelParent;
+    private int[] labelEdge;
+    private boolean[] dominated;
+    private int labelCount;
+
+    // the bags of non-dominated labels per node
+    private int[][] bags;
+    private int[] bagSizes;
+
+    // a binary heap of labels, in lexicographic order of their totals
+    private int[] heap;
+    private int heapSize;
+
+    private int settledLabels;
+    private int scannedEdges;
+    private int queueInserts;
+    private int maxQueueSize;
+
+    ParetoPaths(Graph<N, E> graph, N origin, N destination, int[] weightIndices, float epsilon,
+                int maxLabelsPerNode) {
+        if (weightIndices.length == 0) {
+            throw new IllegalArgumentException("At least one weight index is required");
+        }
+        if (epsilon < 0 || maxLabelsPerNode < 1) {
+            throw new IllegalArgumentException("The epsilon can not be negative, the maximum number of labels per "
+                    + "node must be positive");
+        }
+        this.graph = graph;
+        this.origin = graph.getInternalNode(origin);
+        this.destination = graph.getInternalNode(destination);
+        if (this.origin == null || this.destination == null) {
+            throw new IllegalArgumentException("Node not in graph: " + (this.origin == null ? origin : destination));
+        }
+        this.weightIndices = weightIndices.clone();
+        this.k = weightIndices.length;
+        this.epsilon = epsilon;
+        this.maxLabelsPerNode = maxLabelsPerNode;
+    }
+
+    public void setSearchListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    public void execute() {
+        SearchListener listener = this.listener;
+        GraphMonitor monitor = GraphMonitor.current();
+        Object monitorToken = monitor == null ? null : monitor.searchStarted();
+        long start = System.nanoTime();
+        settledLabels = scannedEdges = queueInserts = maxQueueSize = 0;
+        result = search();
+        long duration = System.nanoTime() - start;
+        if (monitor != null) {
+            monitor.searchFinished(monitorToken, "Pareto", weightIndices[0], !result.isEmpty(), settledLabels,
+                    result.size());
+        }
+        if (listener != null) {
+            listener.searchFinished(new SearchStats("Pareto", origin.getWrappedNode(), destination.getWrappedNode(),
+                    !result.isEmpty(), settledLabels, scannedEdges, queueInserts, queueInserts, 0, maxQueueSize,
+                    duration));
+        }
+    }
+
+    public List<ParetoPath<N>> getResult() {
+        return result;
+    }
+
+    private List<ParetoPath<N>> search() {
+        List<ParetoPath<N>> paths = new ArrayList<ParetoPath<N>>();
+        if (!graph.getComponents().mayReach(origin, destination)) {
+            return paths;
+        }
+        EdgeWeightTable weights = graph.getEdgeWeights().snapshot();
+        int n = graph.getNodeCount();
+        int capacity = 1024;
+        totals = new float[capacity * k];
+        labelNode = new int[capacity];
+        labelParent = new int[capacity];
+        labelEdge = new int[capacity];
+        dominated = new boolean[capacity];
+        labelCount = 0;
+        bags = new int[n][];
+        bagSizes = new int[n];
+        heap = new int[capacity];
+        heapSize = 0;
+
+        int t = destination.getId();
+        int first = newLabel(origin.getId(), -1, -1);
+        add(first);
+        float[] candidate = new float[k];
+        while (heapSize > 0) {
+            int label = poll();
+            if (dominated[label]) {
+                continue;
+            }
+            settledLabels++;
+            int x = labelNode[label];
+            if (x == t) {
+                continue;
+            }
+            EdgeIterator<N, E> edges = graph.getOutGoingEdges(graph.getNode(x), null);
+            while (edges.hasNext()) {
+                int y = edges.next().getId();
+                scannedEdges++;
+                int edgeId = edges.getEdgeId();
+                int base = label * k;
+                for (int c = 0; c < k; c++) {
+                    candidate[c] = totals[base + c] + weights.getValue(edgeId, weightIndices[c]);
+                }
+                if (isCovered(t, candidate) || isCovered(y, candidate)) {
+                    continue;
+                }
+                removeDominated(y, candidate);
+                if (bagSizes[y] == maxLabelsPerNode) {
+                    continue;
+                }
+                int next = newLabel(y, label, edgeId);
+                System.arraycopy(candidate, 0, totals, next * k, k);
+                add(next);
+            }
+        }
+
+        for (int i = 0; i < bagSizes[t]; i++) {
+            paths.add(toPath(bags[t][i]));
+        }
+        Collections.sort(paths, new Comparator<ParetoPath<N>>() {
+            public int compare(ParetoPath<N> p1, ParetoPath<N> p2) {
+                for (int c = 0; c < k; c++) {
+                    int cmp = Float.compare(p1.getTotal(c), p2.getTotal(c));
+                    if (cmp != 0) {
+                        return cmp;
+                    }
+                }
+                return 0;
+            }
+        });
+        return paths;
+    }
+
+    /**
+     * Tells whether a label in the bag of a node dominates the given totals, or is at most a fraction epsilon worse
+     * for every criterion.
+     */
+    private boolean isCovered(int node, float[] candidate) {
+        int[] bag = bags[node];
+        float factor = 1 + epsilon;
+        for (int i = 0; i < bagSizes[node]; i++) {
+            int base = bag[i] * k;
+            int c = 0;
+            while (c < k && totals[base + c] <= factor * candidate[c]) {
+                c++;
+            }
+            if (c == k) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes the labels that the given totals dominate from the bag of a node.
+     */
+    private void removeDominated(int node, float[] candidate) {
+        int[] bag = bags[node];
+        int size = bagSizes[node];
+        for (int i = size - 1; i >= 0; i--) {
+            int base = bag[i] * k;
+            int c = 0;
+            while (c < k && candidate[c] <= totals[base + c]) {
+                c++;
+            }
+            if (c == k) {
+                dominated[bag[i]] = true;
+                bag[i] = bag[--size];
+            }
+        }
+        bagSizes[node] = size;
+    }
+
+    private int newLabel(int node, int parent, int edgeId) {
+        if (labelCount == labelNode.length) {
+            int capacity = 2 * labelCount;
+            totals = Arrays.copyOf(totals, capacity * k);
+            labelNode = Arrays.copyOf(labelNode, capacity);
+            labelParent = Arrays.copyOf(labelParent, capacity);
+            labelEdge = Arrays.copyOf(labelEdge, capacity);
+            dominated = Arrays.copyOf(dominated, capacity);
+        }
+        int label = labelCount++;
+        labelNode[label] = node;
+        labelParent[label] = parent;
+        labelEdge[label] = edgeId;
+        return label;
+    }
+
+    /**
+     * Adds a label to the bag of its node and to the heap.
+     */
+    private void add(int label) {
+        int node = labelNode[label];
+        int[] bag = bags[node];
+        if (bag == null) {
+            bag = bags[node] = new int[4];
+        } else if (bagSizes[node] == bag.length) {
+            bag = bags[node] = Arrays.copyOf(bag, 2 * bag.length);
+        }
+        bag[bagSizes[node]++] = label;
+
+        if (heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, 2 * heapSize);
+        }
+        int i = heapSize++;
+        while (i > 0 && less(label, heap[(i - 1) >> 1])) {
+            heap[i] = heap[(i - 1) >> 1];
+            i = (i - 1) >> 1;
+        }
+        heap[i] = label;
+        queueInserts++;
+        maxQueueSize = Math.max(maxQueueSize, heapSize);
+    }
+
+    private int poll() {
+        int min = heap[0];
+        int last = heap[--heapSize];
+        int i = 0;
+        int child;
+        while ((child = 2 * i + 1) < heapSize) {
+            if (child + 1 < heapSize && less(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!less(heap[child], last)) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return min;
+    }
+
+    private boolean less(int a, int b) {
+        int baseA = a * k;
+        int baseB = b * k;
+        for (int c = 0; c < k; c++) {
+            float ta = totals[baseA + c];
+            float tb = totals[baseB + c];
+            if (ta != tb) {
+                return ta < tb;
+            }
+        }
+        return false;
+    }
+
+    private ParetoPath<N> toPath(int label) {
+        LinkedList<N> nodes = new LinkedList<N>();
+        float[] pathTotals = Arrays.copyOfRange(totals, label * k, label * k + k);
+        for (int l = label; l >= 0; l = labelParent[l]) {
+            nodes.addFirst(graph.getNode(labelNode[l]).getWrappedNode());
+            if (labelEdge[l] >= 0) {
+                List<N> chain = graph.getContractedNodes(labelEdge[l]);
+                for (int j = chain.size() - 1; j >= 0; j--) {
+                    nodes.addFirst(chain.get(j));
+                }
+            }
+        }
+        return new ParetoPath<N>(nodes, pathTotals);
+    }
+}
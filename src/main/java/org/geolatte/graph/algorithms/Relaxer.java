@@ -45,17 +45,18 @@ interface Relaxer<N, E> {
      * Relaxes the edge from internalNode {@code u} to internalNode {@code v}. Both are given by their predecessor
      * graphs.
      *
-     * @param u           Predecessor graph representing current shortest path to internalNode u.
-     * @param v           Predecessor graph representing current shortest path to internalNode v.
-     * @param weightIndex The index used to lookup the weight.
+     * @param u          Predecessor graph representing current shortest path to internalNode u.
+     * @param v          Predecessor graph representing current shortest path to internalNode v.
+     * @param edgeId     The id of the edge from u to v.
+     * @param edgeWeight The weight of the edge from u to v, as read from the edge weight table of the graph.
      * @return True if the weight of v was updated, false otherwise
      */
-    public boolean relax(PredGraph<N, E> u, PredGraph<N, E> v, int weightIndex);
+    public boolean relax(PredGraph<N, E> u, PredGraph<N, E> v, int edgeId, float edgeWeight);
 
     /**
      * Returns the new total weight of the path to internalNode v after relaxation has occured. Is only meaningful
      * after
-     * {@link #relax(PredGraph, PredGraph, int)}
+     * {@link #relax(PredGraph, PredGraph, int, float)}
      * has been called.
      *
      * @return The new total weight of the path to internalNode v.
@@ -0,0 +1,483 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph.algorithms;
+
+import org.geolatte.graph.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>
+ * A cache of shortest path results on a graph. The cache creates algorithms that behave like the ones of
+ * {@link GraphAlgorithms}, but only search when the route is not in the cache. Routes are keyed on their origin,
+ * destination, weight index and a profile: an object that identifies the reachability rules (or the kind of
+ * algorithm) that were used, and that must have a proper <code>equals</code> and <code>hashCode</code>. Queries that
+ * use the same key must give the same route. A query that finds no route is cached as well.
+ * </p>
+ * <p>
+ * Routes are evicted when the cache is full (least recently used first) and when they are older than the time to
+ * live. They are invalidated when the weights of the graph are updated (see {@link EdgeWeightTable#getVersion()}) or
+ * when the weight table is replaced, e.g. by the compaction of a {@link DynamicGraph}. Other changes of the graph,
+ * such as the removal of edges or the closure of nodes, must be followed by {@link #invalidate(Object)} or
+ * {@link #invalidateAll()}.
+ * </p>
+ * <p>
+ * The cache is thread-safe. A large cache is split in independently locked segments, so that concurrent queries
+ * rarely contend; the segments together hold the maximum size, but the size bound and the recency order hold per
+ * segment. Cached paths are immutable and shared between
+ * queries. A search listener that is set on a cached algorithm only sees the queries that required a search.
+ * </p>
+ *
+ * @param <N> The type of domain node.
+ * @param <E> The edge label type.
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public final class RouteCache<N, E> {
+
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_SIZE = 32;
+
+    private final Graph<N, E> graph;
+    private final long timeToLiveNanos;
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final AtomicReference<Stamp> stamp;
+    private final RouteCacheMetrics metrics = new RouteCacheMetrics();
+
+    /**
+     * Creates a route cache without a time to live.
+     *
+     * @param graph   The graph that is searched.
+     * @param maxSize The maximum number of cached routes.
+     */
+    public RouteCache(Graph<N, E> graph, int maxSize) {
+        this(graph, maxSize, 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Creates a route cache.
+     *
+     * @param graph      The graph that is searched.
+     * @param maxSize    The maximum number of cached routes.
+     * @param timeToLive The time a route stays in the cache, 0 to keep routes until they are evicted or invalidated.
+     * @param unit       The unit of the time to live.
+     */
+    public RouteCache(Graph<N, E> graph, int maxSize, long timeToLive, TimeUnit unit) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Maximum size must be at least 1");
+        }
+        if (timeToLive < 0) {
+            throw new IllegalArgumentException("Time to live must not be negative");
+        }
+        this.graph = graph;
+        this.timeToLiveNanos = unit.toNanos(timeToLive);
+        // small caches are not split, so that skewed hashes do not evict while the cache is far from full
+        int segmentCount = Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENTS, maxSize / MIN_SEGMENT_SIZE)));
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            int segmentSize = maxSize / segmentCount + (i < maxSize % segmentCount ? 1 : 0);
+            segments[i] = new Segment(segmentSize, timeToLiveNanos, metrics);
+        }
+        this.segmentMask = segmentCount - 1;
+        EdgeWeightTable weights = graph.getEdgeWeights();
+        this.stamp = new AtomicReference<Stamp>(new Stamp(weights, weights.getVersion(), 0));
+    }
+
+    /**
+     * Creates a cached Dijkstra algorithm (see {@link GraphAlgorithms#createDijkstra(Graph, Object, Object, int)}).
+     *
+     * @param origin      The node from which to start routing.
+     * @param destination The node to which to find a shortest path.
+     * @param weightIndex The index to lookup the weight.
+     * @return A cached Dijkstra algorithm.
+     */
+    public GraphAlgorithm<Path<N>> createDijkstra(final N origin, final N destination, final int weightIndex) {
+        return new CachedAlgorithm(new Key(origin, destination, weightIndex, null)) {
+            GraphAlgorithm<Path<N>> createAlgorithm() {
+                return GraphAlgorithms.createDijkstra(graph, origin, destination, weightIndex);
+            }
+        };
+    }
+
+    /**
+     * Creates a cached Dijkstra algorithm that uses contextual reachability (see
+     * {@link GraphAlgorithms#createDijkstra(Graph, Object, Object, int, RoutingContextualReachability)}).
+     *
+     * @param origin       The node from which to start routing.
+     * @param destination  The node to which to find a shortest path.
+     * @param weightIndex  The index to lookup the weight.
+     * @param reachability The reachability.
+     * @param profile      Identifies the reachability rules.
+     * @return A cached Dijkstra algorithm.
+     */
+    public GraphAlgorithm<Path<N>> createDijkstra(final N origin, final N destination, final int weightIndex,
+                                                  final RoutingContextualReachability<N, E, Traversal<N, E>> reachability,
+                                                  Object profile) {
+        return new CachedAlgorithm(new Key(origin, destination, weightIndex, profile)) {
+            GraphAlgorithm<Path<N>> createAlgorithm() {
+                return GraphAlgorithms.createDijkstra(graph, origin, destination, weightIndex, reachability);
+            }
+        };
+    }
+
+    /**
+     * Wraps an algorithm that searches the graph of this cache, e.g. an A* algorithm, so that it only executes when
+     * the route is not in the cache.
+     *
+     * @param origin      The origin of the algorithm.
+     * @param destination The destination of the algorithm.
+     * @param weightIndex The weight index of the algorithm.
+     * @param profile     Identifies the reachability rules of the algorithm, may be null.
+     * @param algorithm   The algorithm.
+     * @return A cached algorithm.
+     */
+    public GraphAlgorithm<Path<N>> decorate(N origin, N destination, int weightIndex, Object profile,
+                                            final GraphAlgorithm<Path<N>> algorithm) {
+        return new CachedAlgorithm(new Key(origin, destination, weightIndex, profile)) {
+            GraphAlgorithm<Path<N>> createAlgorithm() {
+                return algorithm;
+            }
+        };
+    }
+
+    /**
+     * Removes all routes that start at, end at or pass through the given node, e.g. after it was closed.
+     *
+     * @param node The node.
+     * @return The number of removed routes.
+     */
+    public int invalidate(N node) {
+        int count = 0;
+        for (Segment segment : segments) {
+            count += segment.removeIf(node);
+        }
+        metrics.invalidated(count);
+        return count;
+    }
+
+    /**
+     * Removes all routes.
+     */
+    public void invalidateAll() {
+        int count = 0;
+        for (Segment segment : segments) {
+            count += segment.clear();
+        }
+        metrics.invalidated(count);
+    }
+
+    /**
+     * @return The number of cached routes, including routes that are expired or stale but not yet removed.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * @return The counters of this cache.
+     */
+    public RouteCacheMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Gets the generation of the graph weights, which changes whenever the weights are updated.
+     */
+    private int currentGeneration() {
+        EdgeWeightTable weights = graph.getEdgeWeights();
+        long version = weights.getVersion();
+        Stamp current = stamp.get();
+        while (current.weights != weights || current.version != version) {
+            Stamp next = new Stamp(weights, version, current.generation + 1);
+            if (stamp.compareAndSet(current, next)) {
+                return next.generation;
+            }
+            current = stamp.get();
+        }
+        return current.generation;
+    }
+
+    private Segment segmentFor(Key key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & segmentMask];
+    }
+
+    /**
+     * Identifies a route.
+     */
+    private static final class Key {
+
+        private final Object origin;
+        private final Object destination;
+        private final int weightIndex;
+        private final Object profile;
+        private final int hash;
+
+        private Key(Object origin, Object destination, int weightIndex, Object profile) {
+            this.origin = origin;
+            this.destination = destination;
+            this.weightIndex = weightIndex;
+            this.profile = profile;
+            int h = origin.hashCode();
+            h = 31 * h + destination.hashCode();
+            h = 31 * h + weightIndex;
+            h = 31 * h + (profile == null ? 0 : profile.hashCode());
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && weightIndex == other.weightIndex && origin.equals(other.origin)
+                    && destination.equals(other.destination)
+                    && (profile == null ? other.profile == null : profile.equals(other.profile));
+        }
+    }
+
+    /**
+     * The version of the graph weights from which cached routes are valid.
+     */
+    private static final class Stamp {
+
+        private final EdgeWeightTable weights;
+        private final long version;
+        private final int generation;
+
+        private Stamp(EdgeWeightTable weights, long version, int generation) {
+            this.weights = weights;
+            this.version = version;
+            this.generation = generation;
+        }
+    }
+
+    /**
+     * A cached route: the path (null if no route was found), the weight generation it was computed for, and the time
+     * at which it expires.
+     */
+    private static final class CachedRoute {
+
+        private final CompactPath<?> path;
+        private final int generation;
+        private final long expires;
+
+        private CachedRoute(CompactPath<?> path, int generation, long expires) {
+            this.path = path;
+            this.generation = generation;
+            this.expires = expires;
+        }
+    }
+
+    /**
+     * A part of the cache, with its own lock and recency order.
+     */
+    private static final class Segment {
+
+        private final LinkedHashMap<Key, CachedRoute> map;
+        private final long timeToLiveNanos;
+        private final RouteCacheMetrics metrics;
+
+        @SuppressWarnings("serial")
+        private Segment(final int maxSize, long timeToLiveNanos, final RouteCacheMetrics metrics) {
+            this.timeToLiveNanos = timeToLiveNanos;
+            this.metrics = metrics;
+            this.map = new LinkedHashMap<Key, CachedRoute>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, CachedRoute> eldest) {
+                    if (size() > maxSize) {
+                        metrics.evicted();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        private synchronized CachedRoute get(Key key, int generation, long now) {
+            CachedRoute entry = map.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.generation != generation) {
+                map.remove(key);
+                metrics.invalidated(1);
+                return null;
+            }
+            if (timeToLiveNanos > 0 && now - entry.expires > 0) {
+                map.remove(key);
+                metrics.expired();
+                return null;
+            }
+            return entry;
+        }
+
+        private synchronized void put(Key key, CachedRoute entry) {
+            map.put(key, entry);
+        }
+
+        private synchronized int removeIf(Object node) {
+            int count = 0;
+            Iterator<Map.Entry<Key, CachedRoute>> it = map.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Key, CachedRoute> e = it.next();
+                if (e.getKey().origin.equals(node) || e.getKey().destination.equals(node)
+                        || (e.getValue().path != null && e.getValue().path.contains(node))) {
+                    it.remove();
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        private synchronized int clear() {
+            int count = map.size();
+            map.clear();
+            return count;
+        }
+
+        private synchronized int size() {
+            return map.size();
+        }
+    }
+
+    /**
+     * An algorithm that looks up its result in the cache, and only creates and executes the actual algorithm on a
+     * miss.
+     */
+    private abstract class CachedAlgorithm implements GraphAlgorithm<Path<N>>, MonitoredAlgorithm {
+
+        private final Key key;
+        private SearchListener listener = GraphAlgorithms.getDefaultSearchListener();
+        private Path<N> result;
+
+        private CachedAlgorithm(Key key) {
+            this.key = key;
+        }
+
+        abstract GraphAlgorithm<Path<N>> createAlgorithm();
+
+        @SuppressWarnings("unchecked")
+        public void execute() {
+            int generation = currentGeneration();
+            long now = System.nanoTime();
+            Segment segment = segmentFor(key);
+            CachedRoute entry = segment.get(key, generation, now);
+            if (entry != null) {
+                metrics.hit();
+                result = (Path<N>) entry.path;
+                return;
+            }
+            metrics.miss();
+            GraphAlgorithm<Path<N>> algorithm = createAlgorithm();
+            GraphAlgorithms.setSearchListener(algorithm, listener);
+            algorithm.execute();
+            Path<N> path = algorithm.getResult();
+            CompactPath<N> compact = null;
+            if (path != null) {
+                List<Object> nodes = new ArrayList<Object>();
+                for (N node : path) {
+                    nodes.add(node);
+                }
+                compact = new CompactPath<N>(nodes.toArray(), path.totalWeight());
+            }
+            result = compact;
+            CachedRoute computed = new CachedRoute(compact, generation, now + timeToLiveNanos);
+            segment.put(key, computed);
+        }
+
+        public Path<N> getResult() {
+            return result;
+        }
+
+        public void setSearchListener(SearchListener listener) {
+            this.listener = listener;
+        }
+    }
+
+    /**
+     * An immutable path backed by an array of nodes.
+     */
+    private static final class CompactPath<N> implements Path<N> {
+
+        private final Object[] nodes;
+        private final float totalWeight;
+
+        private CompactPath(Object[] nodes, float totalWeight) {
+            this.nodes = nodes;
+            this.totalWeight = totalWeight;
+        }
+
+        public float totalWeight() {
+            return totalWeight;
+        }
+
+        @SuppressWarnings("unchecked")
+        public N getSource() {
+            return (N) nodes[0];
+        }
+
+        @SuppressWarnings("unchecked")
+        public N getDestination() {
+            return (N) nodes[nodes.length - 1];
+        }
+
+        public boolean isValid() {
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        public Iterator<N> iterator() {
+            return Collections.unmodifiableList(Arrays.asList((N[]) nodes)).iterator();
+        }
+
+        private boolean contains(Object node) {
+            for (Object n : nodes) {
+                if (n.equals(node)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public String toString() {
+            return "Nodes: " + Arrays.toString(nodes);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph.algorithms;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ * Counters of a {@link RouteCache}. The counters are updated while the cache is used.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public final class RouteCacheMetrics {
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    RouteCacheMetrics() {
+    }
+
+    void hit() {
+        hits.incrementAndGet();
+    }
+
+    void miss() {
+        misses.incrementAndGet();
+    }
+
+    void evicted() {
+        evictions.incrementAndGet();
+    }
+
+    void expired() {
+        expirations.incrementAndGet();
+    }
+
+    void invalidated(int count) {
+        invalidations.addAndGet(count);
+    }
+
+    /**
+     * @return The number of queries that were answered from the cache.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return The number of queries that required a search.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return The fraction of the queries that were answered from the cache, 0 if there were no queries.
+     */
+    public double getHitRatio() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * @return The number of routes that were evicted because the cache was full.
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return The number of routes that were dropped because they outlived their time to live.
+     */
+    public long getExpirations() {
+        return expirations.get();
+    }
+
+    /**
+     * @return The number of routes that were dropped because the graph changed, or that were invalidated explicitly.
+     */
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    public String toString() {
+        return String.format("RouteCacheMetrics[hits=%d, misses=%d, evictions=%d, expirations=%d, invalidations=%d]",
+                getHits(), getMisses(), getEvictions(), getExpirations(), getInvalidations());
+    }
+}
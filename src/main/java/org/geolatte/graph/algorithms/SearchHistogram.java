@@ -0,0 +1,175 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph.algorithms;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>
+ * A {@link SearchListener} that aggregates the statistics of many searches into histograms, and keeps the slowest
+ * searches so that pathological origin/destination pairs can be found. Histograms have power-of-two buckets: bucket
+ * 0 counts the value 0, bucket i (i > 0) counts values in [2^(i-1), 2^i).
+ * </p>
+ * <p>
+ * The histogram is thread-safe, and can be shared by all algorithms (see
+ * {@link GraphAlgorithms#setDefaultSearchListener(SearchListener)}).
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public final class SearchHistogram implements SearchListener {
+
+    private static final int BUCKETS = 64;
+
+    private final int slowestCount;
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong notFound = new AtomicLong();
+    private final AtomicLongArray settledNodes = new AtomicLongArray(BUCKETS);
+    private final AtomicLongArray scannedEdges = new AtomicLongArray(BUCKETS);
+    private final AtomicLongArray durationMicros = new AtomicLongArray(BUCKETS);
+    private final PriorityQueue<SearchStats> slowest;
+
+    /**
+     * Creates a histogram.
+     *
+     * @param slowestCount The number of slowest searches to keep.
+     */
+    public SearchHistogram(int slowestCount) {
+        this.slowestCount = slowestCount;
+        this.slowest = new PriorityQueue<SearchStats>(Math.max(1, slowestCount), new Comparator<SearchStats>() {
+            public int compare(SearchStats o1, SearchStats o2) {
+                return o1.getDurationNanos() < o2.getDurationNanos() ? -1 : o1.getDurationNanos() == o2.getDurationNanos() ? 0 : 1;
+            }
+        });
+    }
+
+    public void searchFinished(SearchStats stats) {
+        count.incrementAndGet();
+        if (!stats.isFound()) {
+            notFound.incrementAndGet();
+        }
+        settledNodes.incrementAndGet(bucket(stats.getSettledNodes()));
+        scannedEdges.incrementAndGet(bucket(stats.getScannedEdges()));
+        durationMicros.incrementAndGet(bucket(stats.getDurationNanos() / 1000));
+        if (slowestCount > 0) {
+            synchronized (slowest) {
+                if (slowest.size() < slowestCount) {
+                    slowest.add(stats);
+                } else if (slowest.peek().getDurationNanos() < stats.getDurationNanos()) {
+                    slowest.poll();
+                    slowest.add(stats);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the bucket of a value.
+     *
+     * @param value A non-negative value.
+     * @return The bucket index.
+     */
+    static int bucket(long value) {
+        return value <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(value);
+    }
+
+    /**
+     * @return The number of searches.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return The number of searches that did not find their destination.
+     */
+    public long getNotFoundCount() {
+        return notFound.get();
+    }
+
+    /**
+     * @return The histogram of the number of settled nodes.
+     */
+    public long[] getSettledNodesHistogram() {
+        return toArray(settledNodes);
+    }
+
+    /**
+     * @return The histogram of the number of scanned edges.
+     */
+    public long[] getScannedEdgesHistogram() {
+        return toArray(scannedEdges);
+    }
+
+    /**
+     * @return The histogram of the durations, in microseconds.
+     */
+    public long[] getDurationHistogram() {
+        return toArray(durationMicros);
+    }
+
+    /**
+     * Gets an upper bound of a percentile of the durations: the upper limit of the bucket that holds the percentile.
+     *
+     * @param percentile The percentile, between 0 and 100.
+     * @return The duration in microseconds.
+     */
+    public long getDurationPercentile(double percentile) {
+        long[] histogram = getDurationHistogram();
+        long total = 0;
+        for (long n : histogram) {
+            total += n;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= rank && seen > 0) {
+                return i == 0 ? 0 : (1L << i) - 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return The slowest searches, slowest first.
+     */
+    public List<SearchStats> getSlowest() {
+        List<SearchStats> list;
+        synchronized (slowest) {
+            list = new ArrayList<SearchStats>(slowest);
+        }
+        Collections.sort(list, Collections.reverseOrder(slowest.comparator()));
+        return list;
+    }
+
+    private static long[] toArray(AtomicLongArray values) {
+        long[] array = new long[values.length()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = values.get(i);
+        }
+        return array;
+    }
+}
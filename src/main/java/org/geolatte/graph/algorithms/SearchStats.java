@@ -0,0 +1,146 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph.algorithms;
+
+/**
+ * <p>
+ * The statistics of a single search: how much of the graph was explored, how much work the priority queue did, and
+ * how long the search took. Statistics are only collected when a {@link SearchListener} is set.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public final class SearchStats {
+
+    private final String algorithm;
+    private final Object origin;
+    private final Object destination;
+    private final boolean found;
+    private final int settledNodes;
+    private final int scannedEdges;
+    private final int improvedEdges;
+    private final int queueInserts;
+    private final int queueDecreaseKeys;
+    private final int maxQueueSize;
+    private final long durationNanos;
+
+    SearchStats(String algorithm, Object origin, Object destination, boolean found, int settledNodes,
+                int scannedEdges, int improvedEdges, int queueInserts, int queueDecreaseKeys, int maxQueueSize,
+                long durationNanos) {
+        this.algorithm = algorithm;
+        this.origin = origin;
+        this.destination = destination;
+        this.found = found;
+        this.settledNodes = settledNodes;
+        this.scannedEdges = scannedEdges;
+        this.improvedEdges = improvedEdges;
+        this.queueInserts = queueInserts;
+        this.queueDecreaseKeys = queueDecreaseKeys;
+        this.maxQueueSize = maxQueueSize;
+        this.durationNanos = durationNanos;
+    }
+
+    /**
+     * @return The name of the algorithm, e.g. "Dijkstra", "A*" or "BFS".
+     */
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * @return The domain node the search started from.
+     */
+    public Object getOrigin() {
+        return origin;
+    }
+
+    /**
+     * @return The domain node the search was looking for, or null for searches without a destination.
+     */
+    public Object getDestination() {
+        return destination;
+    }
+
+    /**
+     * @return True if the search found the destination, or completed for searches without a destination.
+     */
+    public boolean isFound() {
+        return found;
+    }
+
+    /**
+     * @return The number of nodes that were taken from the queue and settled.
+     */
+    public int getSettledNodes() {
+        return settledNodes;
+    }
+
+    /**
+     * @return The number of edges that were scanned from settled nodes.
+     */
+    public int getScannedEdges() {
+        return scannedEdges;
+    }
+
+    /**
+     * @return The number of scanned edges that improved the distance of their target node.
+     */
+    public int getImprovedEdges() {
+        return improvedEdges;
+    }
+
+    /**
+     * @return The number of nodes that were inserted in the queue.
+     */
+    public int getQueueInserts() {
+        return queueInserts;
+    }
+
+    /**
+     * @return The number of decrease-key operations on the queue.
+     */
+    public int getQueueDecreaseKeys() {
+        return queueDecreaseKeys;
+    }
+
+    /**
+     * @return The largest number of nodes that were in the queue at the same time.
+     */
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    /**
+     * @return The duration of the search in nanoseconds.
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public String toString() {
+        return algorithm + " " + origin + " -> " + (destination == null ? "*" : destination)
+                + (found ? "" : " (not found)") + ": settled=" + settledNodes + ", scanned=" + scannedEdges
+                + ", improved=" + improvedEdges + ", inserts=" + queueInserts + ", decreaseKeys=" + queueDecreaseKeys
+                + ", maxQueue=" + maxQueueSize + ", " + (durationNanos / 1000) + "us";
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+
+
+package org.geolatte.graph.algorithms;
+
+import org.geolatte.graph.*;
+
+import java.util.List;
+
+/**
+ * <p>
+ * Finds the earliest arrival at a destination for a given departure time, on time-dependent travel times. The search
+ * is Dijkstra's algorithm on arrival times: an edge is traversed at the arrival time at its tail, and its travel time
+ * is evaluated for that time. Since the travel-time functions are FIFO, arriving earlier at a node never leads to a
+ * later arrival further on, so the first arrival at the destination is the earliest.
+ * </p>
+ * <p>
+ * With a heuristic the search is an A* search. The heuristic must be a lower bound on the travel time at all
+ * departure times, e.g. the straight-line distance divided by the highest speed.
+ * </p>
+ * <p>
+ * The total weight of the resulting path is the travel time, i.e. the arrival time minus the departure time.
+ * </p>
+ *
+ * @param <N> The type of domain node.
+ * @param <E> The edge label type.
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+class TimeDependentDijkstra<N, E> implements GraphAlgorithm<Path<N>>, MonitoredAlgorithm {
+
+    private final Graph<N, E> graph;
+    private final TimeDependentWeights weights;
+    private final InternalNode<N, E> origin;
+    private final InternalNode<N, E> destination;
+    private final float departure;
+    private final HeuristicStrategy<N> heuristic;
+    private SearchListener listener = GraphAlgorithms.getDefaultSearchListener();
+    private Path<N> result;
+
+    private int settledNodes;
+    private int scannedEdges;
+    private int improvedEdges;
+    private int maxQueueSize;
+
+    TimeDependentDijkstra(Graph<N, E> graph, TimeDependentWeights weights, N origin, N destination, float departure,
+                          HeuristicStrategy<N> heuristic) {
+        this.graph = graph;
+        this.weights = weights.forGraph(graph);
+        this.origin = graph.getInternalNode(origin);
+        this.destination = graph.getInternalNode(destination);
+        if (this.origin == null || this.destination == null) {
+            throw new IllegalArgumentException("Node not in graph: " + (this.origin == null ? origin : destination));
+        }
+        this.departure = departure;
+        this.heuristic = heuristic;
+    }
+
+    public void setSearchListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    public void execute() {
+        SearchListener listener = this.listener;
+        GraphMonitor monitor = GraphMonitor.current();
+        Object monitorToken = monitor == null ? null : monitor.searchStarted();
+        long start = System.nanoTime();
+        settledNodes = scannedEdges = improvedEdges = maxQueueSize = 0;
+        result = search();
+        long duration = System.nanoTime() - start;
+        String algorithm = heuristic == null ? "TD-Dijkstra" : "TD-A*";
+        if (monitor != null) {
+            int pathLength = 0;
+            if (result != null) {
+                for (N node : result) {
+                    pathLength++;
+                }
+            }
+            monitor.searchFinished(monitorToken, algorithm, weights.getWeightIndex(), result != null, settledNodes,
+                    pathLength);
+        }
+        if (listener != null) {
+            listener.searchFinished(new SearchStats(algorithm, origin.getWrappedNode(), destination.getWrappedNode(),
+                    result != null, settledNodes, scannedEdges, improvedEdges, improvedEdges + 1, 0, maxQueueSize,
+                    duration));
+        }
+    }
+
+    public Path<N> getResult() {
+        return result;
+    }
+
+    private Path<N> search() {
+        if (!graph.getComponents().mayReach(origin, destination)) {
+            return null;
+        }
+        int n = graph.getNodeCount();
+        N target = destination.getWrappedNode();
+        NodeHeap heap = new NodeHeap(n);
+        float[] arrival = new float[n];
+        int[] parent = new int[n];
+        int[] parentEdge = new int[n];
+        int s = origin.getId();
+        int t = destination.getId();
+        arrival[s] = departure;
+        parent[s] = -1;
+        heap.update(s, departure + estimate(origin, target));
+        while (!heap.isEmpty()) {
+            maxQueueSize = Math.max(maxQueueSize, heap.size());
+            int x = heap.extractMin();
+            settledNodes++;
+            if (x == t) {
+                return toPath(parent, parentEdge, arrival[t] - departure, t);
+            }
+            float time = arrival[x];
+            EdgeIterator<N, E> edges = graph.getOutGoingEdges(graph.getNode(x), null);
+            while (edges.hasNext()) {
+                InternalNode<N, E> next = edges.next();
+                int y = next.getId();
+                scannedEdges++;
+                if (heap.isSettled(y)) {
+                    continue;
+                }
+                int edgeId = edges.getEdgeId();
+                float arrive = time + weights.getTravelTime(edgeId, time);
+                if (!heap.isReached(y) || arrive < arrival[y]) {
+                    heap.update(y, arrive + estimate(next, target));
+                    arrival[y] = arrive;
+                    parent[y] = x;
+                    parentEdge[y] = edgeId;
+                    improvedEdges++;
+                }
+            }
+        }
+        return null;
+    }
+
+    private float estimate(InternalNode<N, E> node, N target) {
+        return heuristic == null ? 0f : heuristic.getValue(node.getWrappedNode(), target);
+    }
+
+    private Path<N> toPath(int[] parent, int[] parentEdge, float travelTime, int t) {
+        BasicPath<N> path = new BasicPath<N>();
+        for (int v = t; v >= 0; v = parent[v]) {
+            path.insert(graph.getNode(v).getWrappedNode());
+            if (parent[v] >= 0) {
+                List<N> chain = graph.getContractedNodes(parentEdge[v]);
+                for (int j = chain.size() - 1; j >= 0; j--) {
+                    path.insert(chain.get(j));
+                }
+            }
+        }
+        path.setTotalWeight(travelTime);
+        path.setValid(true);
+        return path;
+    }
+}
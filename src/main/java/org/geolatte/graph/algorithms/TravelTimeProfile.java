@@ -0,0 +1,350 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+
+
+package org.geolatte.graph.algorithms;
+
+import org.geolatte.graph.*;
+
+import java.util.Arrays;
+
+/**
+ * <p>
+ * Computes the travel-time profile between two nodes over a window of departure times: the earliest arrival at the
+ * destination for every departure in the window, as a {@link TravelTimeFunction} of the departure time.
+ * </p>
+ * <p>
+ * The search is a label-correcting Dijkstra search in which the label of a node is a piecewise-linear function over
+ * the departure window: the travel time from the origin to the node. A label is extended over an edge by linking it
+ * with the function of the edge (the travel time of the edge at the arrival time at its tail is added), and the
+ * labels that reach a node are merged by taking their minimum. The nodes are scanned in order of the minimum of
+ * their label, and a node whose label improves after it was scanned is scanned again. The search stops when the
+ * smallest minimum in the queue is not smaller than the maximum of the label of the destination, since no label can
+ * then improve it anymore.
+ * </p>
+ * <p>
+ * The result is defined on the departure window, and is null if the destination can not be reached.
+ * </p>
+ *
+ * @param <N> The type of domain node.
+ * @param <E> The edge label type.
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+class TravelTimeProfile<N, E> implements GraphAlgorithm<TravelTimeFunction>, MonitoredAlgorithm {
+
+    // the relative difference below which a label does not count as improved
+    private static final float TOLERANCE = 1e-5f;
+
+    private final Graph<N, E> graph;
+    private final TimeDependentWeights weights;
+    private final InternalNode<N, E> origin;
+    private final InternalNode<N, E> destination;
+    private final float earliestDeparture;
+    private final float latestDeparture;
+    private SearchListener listener = GraphAlgorithms.getDefaultSearchListener();
+    private TravelTimeFunction result;
+
+    private int settledNodes;
+    private int scannedEdges;
+    private int improvedEdges;
+    private int maxQueueSize;
+
+    TravelTimeProfile(Graph<N, E> graph, TimeDependentWeights weights, N origin, N destination,
+                      float earliestDeparture, float latestDeparture) {
+        if (!(latestDeparture >= earliestDeparture)) {
+            throw new IllegalArgumentException("Invalid departure window: " + earliestDeparture + " - "
+                    + latestDeparture);
+        }
+        this.graph = graph;
+        this.weights = weights.forGraph(graph);
+        this.origin = graph.getInternalNode(origin);
+        this.destination = graph.getInternalNode(destination);
+        if (this.origin == null || this.destination == null) {
+            throw new IllegalArgumentException("Node not in graph: " + (this.origin == null ? origin : destination));
+        }
+        this.earliestDeparture = earliestDeparture;
+        this.latestDeparture = latestDeparture;
+    }
+
+    public void setSearchListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    public void execute() {
+        SearchListener listener = this.listener;
+        GraphMonitor monitor = GraphMonitor.current();
+        Object monitorToken = monitor == null ? null : monitor.searchStarted();
+        long start = System.nanoTime();
+        settledNodes = scannedEdges = improvedEdges = maxQueueSize = 0;
+        result = search();
+        long duration = System.nanoTime() - start;
+        if (monitor != null) {
+            monitor.searchFinished(monitorToken, "TD-Profile", weights.getWeightIndex(), result != null,
+                    settledNodes, result == null ? 0 : result.getBreakpointCount());
+        }
+        if (listener != null) {
+            listener.searchFinished(new SearchStats("TD-Profile", origin.getWrappedNode(),
+                    destination.getWrappedNode(), result != null, settledNodes, scannedEdges, improvedEdges,
+                    improvedEdges + 1, 0, maxQueueSize, duration));
+        }
+    }
+
+    public TravelTimeFunction getResult() {
+        return result;
+    }
+
+    private TravelTimeFunction search() {
+        if (!graph.getComponents().mayReach(origin, destination)) {
+            return null;
+        }
+        int n = graph.getNodeCount();
+        int s = origin.getId();
+        int t = destination.getId();
+        Function[] labels = new Function[n];
+        NodeHeap heap = new NodeHeap(n);
+        Function first = new Function(2);
+        first.add(earliestDeparture, 0);
+        first.add(latestDeparture, 0);
+        labels[s] = first;
+        heap.update(s, 0);
+        float upper = Float.POSITIVE_INFINITY;
+        while (!heap.isEmpty() && heap.minKey() < upper) {
+            maxQueueSize = Math.max(maxQueueSize, heap.size());
+            int x = heap.extractMin();
+            settledNodes++;
+            if (x == t) {
+                continue;
+            }
+            Function label = labels[x];
+            EdgeIterator<N, E> edges = graph.getOutGoingEdges(graph.getNode(x), null);
+            while (edges.hasNext()) {
+                int y = edges.next().getId();
+                scannedEdges++;
+                Function linked = link(label, edges.getEdgeId());
+                Function merged = labels[y] == null ? linked : merge(labels[y], linked);
+                if (merged != null) {
+                    labels[y] = merged;
+                    heap.reopen(y, merged.minimum());
+                    improvedEdges++;
+                    if (y == t) {
+                        upper = merged.maximum();
+                    }
+                }
+            }
+        }
+        return labels[t] == null ? null : labels[t].toTravelTimeFunction();
+    }
+
+    /**
+     * Extends a label over an edge: the travel time of the edge at the arrival time is added for every departure.
+     */
+    private Function link(Function label, int edgeId) {
+        int m = weights.getBreakpointCount(edgeId);
+        Function linked = new Function(label.size + m);
+        if (m == 0) {
+            float travelTime = weights.getTravelTime(edgeId, 0);
+            for (int i = 0; i < label.size; i++) {
+                linked.add(label.departures[i], label.travelTimes[i] + travelTime);
+            }
+            return linked;
+        }
+        // the arrival times at the tail of the edge do not decrease, so the breakpoints of the edge are visited in
+        // order: between two breakpoints of the label, every breakpoint of the edge adds one
+        int j = 0;
+        for (int i = 0; i < label.size; i++) {
+            float t0 = label.departures[i];
+            float a0 = t0 + label.travelTimes[i];
+            linked.add(t0, label.travelTimes[i] + weights.getTravelTime(edgeId, a0));
+            if (i + 1 == label.size) {
+                break;
+            }
+            float t1 = label.departures[i + 1];
+            float a1 = t1 + label.travelTimes[i + 1];
+            while (j < m && weights.getDeparture(edgeId, j) <= a0) {
+                j++;
+            }
+            while (j < m && weights.getDeparture(edgeId, j) < a1) {
+                float tau = weights.getDeparture(edgeId, j);
+                float t = t0 + (t1 - t0) * (tau - a0) / (a1 - a0);
+                if (t > t0 && t < t1) {
+                    linked.add(t, tau - t + weights.getTravelTime(edgeId, tau));
+                }
+                j++;
+            }
+        }
+        return linked.simplify();
+    }
+
+    /**
+     * Merges a new label into the current label of a node.
+     *
+     * @return The minimum of both labels, or null if the new label does not improve the current one anywhere.
+     */
+    private Function merge(Function current, Function candidate) {
+        Function merged = new Function(current.size + candidate.size);
+        boolean improved = false;
+        int i = 0;
+        int j = 0;
+        float previousTime = 0;
+        float previousDiff = 0;
+        while (i < current.size || j < candidate.size) {
+            float time;
+            if (j == candidate.size || (i < current.size && current.departures[i] <= candidate.departures[j])) {
+                time = current.departures[i];
+            } else {
+                time = candidate.departures[j];
+            }
+            while (i < current.size && current.departures[i] <= time) {
+                i++;
+            }
+            while (j < candidate.size && candidate.departures[j] <= time) {
+                j++;
+            }
+            float a = current.evaluate(time);
+            float b = candidate.evaluate(time);
+            float diff = b - a;
+            if (merged.size > 0 && ((previousDiff < 0 && diff > 0) || (previousDiff > 0 && diff < 0))) {
+                // the labels cross between the previous and this departure time
+                float cross = previousTime + (time - previousTime) * previousDiff / (previousDiff - diff);
+                if (cross > previousTime && cross < time) {
+                    merged.add(cross, current.evaluate(cross));
+                }
+            }
+            if (diff < -TOLERANCE * (1 + a)) {
+                improved = true;
+            }
+            merged.add(time, Math.min(a, b));
+            previousTime = time;
+            previousDiff = diff;
+        }
+        return improved ? merged.simplify() : null;
+    }
+
+    /**
+     * A piecewise-linear travel-time function over the departure window, that is built in order of departure.
+     */
+    private static final class Function {
+
+        private float[] departures;
+        private float[] travelTimes;
+        private int size;
+
+        private Function(int capacity) {
+            departures = new float[Math.max(capacity, 2)];
+            travelTimes = new float[departures.length];
+        }
+
+        private void add(float departure, float travelTime) {
+            if (size > 0 && departure <= departures[size - 1]) {
+                return;
+            }
+            if (size == departures.length) {
+                departures = Arrays.copyOf(departures, 2 * size);
+                travelTimes = Arrays.copyOf(travelTimes, 2 * size);
+            }
+            departures[size] = departure;
+            travelTimes[size] = travelTime;
+            size++;
+        }
+
+        private float evaluate(float departure) {
+            if (departure <= departures[0]) {
+                return travelTimes[0];
+            }
+            if (departure >= departures[size - 1]) {
+                return travelTimes[size - 1];
+            }
+            int low = 0;
+            int high = size - 1;
+            while (high - low > 1) {
+                int mid = (low + high) >>> 1;
+                if (departures[mid] <= departure) {
+                    low = mid;
+                } else {
+                    high = mid;
+                }
+            }
+            float t0 = departures[low];
+            return travelTimes[low] + (travelTimes[high] - travelTimes[low]) * (departure - t0)
+                    / (departures[high] - t0);
+        }
+
+        private float minimum() {
+            float min = travelTimes[0];
+            for (int i = 1; i < size; i++) {
+                min = Math.min(min, travelTimes[i]);
+            }
+            return min;
+        }
+
+        private float maximum() {
+            float max = travelTimes[0];
+            for (int i = 1; i < size; i++) {
+                max = Math.max(max, travelTimes[i]);
+            }
+            return max;
+        }
+
+        /**
+         * Removes the breakpoints that lie on the line between their neighbours.
+         */
+        private Function simplify() {
+            if (size <= 2) {
+                return this;
+            }
+            int kept = 1;
+            for (int i = 1; i < size - 1; i++) {
+                float t0 = departures[kept - 1];
+                float f0 = travelTimes[kept - 1];
+                float line = f0 + (travelTimes[i + 1] - f0) * (departures[i] - t0) / (departures[i + 1] - t0);
+                if (Math.abs(travelTimes[i] - line) > TOLERANCE * (1 + Math.abs(line))) {
+                    departures[kept] = departures[i];
+                    travelTimes[kept] = travelTimes[i];
+                    kept++;
+                }
+            }
+            departures[kept] = departures[size - 1];
+            travelTimes[kept] = travelTimes[size - 1];
+            size = kept + 1;
+            return this;
+        }
+
+        /**
+         * Converts this function, restoring the FIFO property where rounding broke it.
+         */
+        private TravelTimeFunction toTravelTimeFunction() {
+            float[] d = Arrays.copyOf(departures, size);
+            float[] f = Arrays.copyOf(travelTimes, size);
+            for (int i = 1; i < size; i++) {
+                float arrival = d[i - 1] + f[i - 1];
+                if (d[i] + f[i] < arrival) {
+                    f[i] = arrival - d[i];
+                    while (d[i] + f[i] < arrival) {
+                        f[i] = Math.nextUp(f[i]);
+                    }
+                }
+            }
+            return new TravelTimeFunction(d, f);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph;
+
+import org.geolatte.graph.algorithms.GraphAlgorithm;
+import org.geolatte.graph.algorithms.GraphAlgorithms;
+import org.geolatte.stubs.MyLocatableNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * Tests the contraction of degree-2 chains when building a graph (see {@link GraphBuilder#setContractChains(boolean)}).
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public class ChainContractionTest {
+
+    // Create this graph (all edges two-way, unless marked with an arrow):
+    //
+    //  _0 --- _1 --- _2 --- _3 --- _4
+    //   |                          |
+    //   |                         _5 (one-way _4 -> _5 -> _6 -> _0)
+    //   |                          |
+    //  _7 --------------------- _6
+    //
+    //  _8 --- _9 --- _10, a ring back to _8 without junctions
+
+    private MyLocatableNode[] nodes = new MyLocatableNode[11];
+
+    private GraphBuilder<MyLocatableNode, String> fill(GraphBuilder<MyLocatableNode, String> builder) {
+
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new MyLocatableNode(i, i * 10, i * 5);
+        }
+        twoWay(builder, 0, 1, 1);
+        twoWay(builder, 1, 2, 2);
+        twoWay(builder, 2, 3, 3);
+        twoWay(builder, 3, 4, 4);
+        oneWay(builder, 4, 5, 5);
+        oneWay(builder, 5, 6, 6);
+        oneWay(builder, 6, 0, 7);
+        twoWay(builder, 0, 7, 8);
+        twoWay(builder, 7, 6, 9);
+        oneWay(builder, 8, 9, 1);
+        oneWay(builder, 9, 10, 1);
+        oneWay(builder, 10, 8, 1);
+        return builder;
+    }
+
+    private void oneWay(GraphBuilder<MyLocatableNode, String> builder, int from, int to, float weight) {
+        builder.addEdge(nodes[from], nodes[to], new ArrayEdgeWeight(new float[]{weight, 2 * weight}), from + ">" + to);
+    }
+
+    private void twoWay(GraphBuilder<MyLocatableNode, String> builder, int from, int to, float weight) {
+        oneWay(builder, from, to, weight);
+        oneWay(builder, to, from, weight);
+    }
+
+    private List<MyLocatableNode> toList(Path<MyLocatableNode> path) {
+        List<MyLocatableNode> list = new ArrayList<MyLocatableNode>();
+        for (MyLocatableNode node : path) {
+            list.add(node);
+        }
+        return list;
+    }
+
+    private void testContraction(GraphBuilder<MyLocatableNode, String> builder, GraphBuilder<MyLocatableNode, String> reference) throws Exception {
+
+        builder.setContractChains(true);
+        LocateableGraph<MyLocatableNode, String> graph = fill(builder).build();
+        LocateableGraph<MyLocatableNode, String> full = fill(reference).build();
+
+        // _1, _2, _3, _5 and _7 are contracted, the ring has no junction to start from and is kept as it is
+        int count = 0;
+        for (InternalNode<MyLocatableNode, String> node : graph) {
+            count++;
+        }
+        Assert.assertEquals(6, count);
+        Assert.assertNull(graph.getInternalNode(nodes[2]));
+        Assert.assertNull(graph.getInternalNode(nodes[5]));
+        Assert.assertNull(graph.getInternalNode(nodes[7]));
+        Assert.assertNotNull(graph.getInternalNode(nodes[6]));
+        Assert.assertNotNull(graph.getInternalNode(nodes[9]));
+
+        // the contracted edge has summed weights for all weight kinds, and the label of the first edge
+        InternalNode<MyLocatableNode, String> n0 = graph.getInternalNode(nodes[0]);
+        InternalNode<MyLocatableNode, String> n4 = graph.getInternalNode(nodes[4]);
+        Assert.assertEquals(10f, n0.getWeightTo(n4, 0), 0f);
+        Assert.assertEquals(20f, n0.getWeightTo(n4, 1), 0f);
+        Assert.assertEquals("0>1", n0.getLabelTo(n4));
+        Assert.assertEquals(10f, n4.getWeightTo(n0, 0), 0f);
+        Assert.assertEquals("4>3", n4.getLabelTo(n0));
+
+        EdgeIterator<MyLocatableNode, String> it = graph.getOutGoingEdges(n4, null);
+        while (it.hasNext()) {
+            MyLocatableNode to = it.next().getWrappedNode();
+            if (to.equals(nodes[0])) {
+                Assert.assertEquals(Arrays.asList(nodes[3], nodes[2], nodes[1]), graph.getContractedNodes(it.getEdgeId()));
+            } else {
+                Assert.assertEquals(nodes[6], to);
+                Assert.assertEquals(Arrays.asList(nodes[5]), graph.getContractedNodes(it.getEdgeId()));
+                Assert.assertEquals(11f, graph.getEdgeWeights().getValue(it.getEdgeId(), 0), 0f);
+            }
+        }
+
+        // paths are expanded to the same nodes as in the graph without contraction
+        int[][] queries = {{0, 4}, {4, 0}, {4, 6}, {0, 6}, {6, 4}, {8, 10}};
+        for (int[] query : queries) {
+            for (int weightIndex = 0; weightIndex < 2; weightIndex++) {
+                GraphAlgorithm<Path<MyLocatableNode>> contracted = GraphAlgorithms.createDijkstra(graph, nodes[query[0]], nodes[query[1]], weightIndex);
+                GraphAlgorithm<Path<MyLocatableNode>> expected = GraphAlgorithms.createDijkstra(full, nodes[query[0]], nodes[query[1]], weightIndex);
+                contracted.execute();
+                expected.execute();
+                Assert.assertEquals(expected.getResult().totalWeight(), contracted.getResult().totalWeight(), 0f);
+                Assert.assertEquals(toList(expected.getResult()), toList(contracted.getResult()));
+            }
+        }
+    }
+
+    @Test
+    public void testGridIndexedGraph() throws Exception {
+
+        Extent extent = new Extent(0, 0, 200, 200);
+        testContraction(Graphs.<MyLocatableNode, String>createGridIndexedGraphBuilder(extent, 10, WeightSchema.of("a", "b")),
+                Graphs.<MyLocatableNode, String>createGridIndexedGraphBuilder(extent, 10, WeightSchema.of("a", "b")));
+    }
+
+    @Test
+    public void testCompressedGraph() throws Exception {
+
+        Extent extent = new Extent(0, 0, 200, 200);
+        testContraction(Graphs.<MyLocatableNode, String>createCompressedGraphBuilder(extent, 10, WeightSchema.of("a", "b")),
+                Graphs.<MyLocatableNode, String>createGridIndexedGraphBuilder(extent, 10, WeightSchema.of("a", "b")));
+    }
+}
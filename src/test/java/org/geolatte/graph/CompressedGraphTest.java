@@ -0,0 +1,185 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph;
+
+import org.geolatte.graph.algorithms.GraphAlgorithm;
+import org.geolatte.graph.algorithms.GraphAlgorithms;
+import org.geolatte.stubs.MyLocatableNode;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * <p>
+ * Tests the {@link CompressedGraph} by comparing it with a grid-indexed graph built from the same edges.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public class CompressedGraphTest {
+
+    private static final int SIZE = 40;
+
+    private MyLocatableNode[] nodes;
+    private LocateableGraph<MyLocatableNode, String> reference;
+    private LocateableGraph<MyLocatableNode, String> compressed;
+
+    @Before
+    public void setup() throws Exception {
+
+        // a grid of SIZE x SIZE nodes, with random edges to nearby nodes
+        Extent extent = new Extent(0, 0, 10 * SIZE, 10 * SIZE);
+        GraphBuilder<MyLocatableNode, String> referenceBuilder = Graphs.createGridIndexedGraphBuilder(extent, 10, WeightSchema.of("w0", "w1"));
+        GraphBuilder<MyLocatableNode, String> compressedBuilder = Graphs.createCompressedGraphBuilder(extent, 10, WeightSchema.of("w0", "w1"));
+
+        nodes = new MyLocatableNode[SIZE * SIZE];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new MyLocatableNode(i, 10 * (i % SIZE), 10 * (i / SIZE));
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < nodes.length; i++) {
+            int[] neighbours = {i + 1, i - 1, i + SIZE, i - SIZE, i + SIZE + 1};
+            for (int j : neighbours) {
+                if (j >= 0 && j < nodes.length && random.nextInt(5) > 0) {
+                    EdgeWeight weight = new ArrayEdgeWeight(new float[]{random.nextInt(100), random.nextInt(100)});
+                    String label = random.nextBoolean() ? i + "-" + j : null;
+                    referenceBuilder.addEdge(nodes[i], nodes[j], weight, label);
+                    compressedBuilder.addEdge(nodes[i], nodes[j], weight, label);
+                }
+            }
+        }
+        reference = referenceBuilder.build();
+        compressed = compressedBuilder.build();
+    }
+
+    private Map<MyLocatableNode, float[]> collect(Graph<MyLocatableNode, String> graph, EdgeIterator<MyLocatableNode, String> it) {
+
+        Map<MyLocatableNode, float[]> result = new HashMap<MyLocatableNode, float[]>();
+        while (it.hasNext()) {
+            MyLocatableNode node = it.next().getWrappedNode();
+            int edgeId = it.getEdgeId();
+            result.put(node, new float[]{graph.getEdgeWeights().getValue(edgeId, 0), graph.getEdgeWeights().getValue(edgeId, 1)});
+        }
+        return result;
+    }
+
+    private void assertSameEdges(Map<MyLocatableNode, float[]> expected, Map<MyLocatableNode, float[]> actual) {
+
+        Assert.assertEquals(expected.keySet(), actual.keySet());
+        for (MyLocatableNode node : expected.keySet()) {
+            Assert.assertEquals(expected.get(node)[0], actual.get(node)[0], 0f);
+            Assert.assertEquals(expected.get(node)[1], actual.get(node)[1], 0f);
+        }
+    }
+
+    @Test
+    public void testEdges() throws Exception {
+
+        for (MyLocatableNode node : nodes) {
+            InternalNode<MyLocatableNode, String> r = reference.getInternalNode(node);
+            InternalNode<MyLocatableNode, String> c = compressed.getInternalNode(node);
+            if (r == null) {
+                Assert.assertNull(c);
+                continue;
+            }
+            Assert.assertEquals(node, c.getWrappedNode());
+            assertSameEdges(collect(reference, reference.getOutGoingEdges(r, null)), collect(compressed, compressed.getOutGoingEdges(c, null)));
+            assertSameEdges(collect(reference, reference.getInComingEdges(r, null)), collect(compressed, compressed.getInComingEdges(c, null)));
+
+            EdgeIterator<MyLocatableNode, String> it = compressed.getOutGoingEdges(c, null);
+            while (it.hasNext()) {
+                InternalNode<MyLocatableNode, String> to = it.next();
+                Assert.assertEquals(r.getLabelTo(reference.getInternalNode(to.getWrappedNode())), c.getLabelTo(to));
+                Assert.assertEquals(compressed.getEdgeWeights().getValue(it.getEdgeId(), 1), c.getWeightTo(to, 1), 0f);
+            }
+        }
+    }
+
+    @Test
+    public void testIterator() throws Exception {
+
+        Set<MyLocatableNode> expected = new HashSet<MyLocatableNode>();
+        for (InternalNode<MyLocatableNode, String> node : reference) {
+            expected.add(node.getWrappedNode());
+        }
+        Set<MyLocatableNode> actual = new HashSet<MyLocatableNode>();
+        for (InternalNode<MyLocatableNode, String> node : compressed) {
+            actual.add(node.getWrappedNode());
+        }
+        Assert.assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testReachability() throws Exception {
+
+        final MyLocatableNode excluded = nodes[1];
+        ContextualReachability<MyLocatableNode, String, Object> reachability = new ContextualReachability<MyLocatableNode, String, Object>() {
+            public boolean isReachable(InternalNode<MyLocatableNode, String> node) {
+                return !node.getWrappedNode().equals(excluded);
+            }
+
+            public void setContext(Object context) {
+            }
+        };
+        InternalNode<MyLocatableNode, String> c = compressed.getInternalNode(nodes[0]);
+        EdgeIterator<MyLocatableNode, String> it = compressed.getOutGoingEdges(c, reachability);
+        while (it.hasNext()) {
+            Assert.assertFalse(it.next().getWrappedNode().equals(excluded));
+        }
+    }
+
+    @Test
+    public void testShortestPaths() throws Exception {
+
+        Random random = new Random(7);
+        for (int i = 0; i < 20; i++) {
+            MyLocatableNode origin = nodes[random.nextInt(nodes.length)];
+            MyLocatableNode destination = nodes[random.nextInt(nodes.length)];
+            if (reference.getInternalNode(origin) == null || reference.getInternalNode(destination) == null) {
+                continue;
+            }
+            GraphAlgorithm<Path<MyLocatableNode>> r = GraphAlgorithms.createDijkstra(reference, origin, destination, 1);
+            GraphAlgorithm<Path<MyLocatableNode>> c = GraphAlgorithms.createDijkstra(compressed, origin, destination, 1);
+            r.execute();
+            c.execute();
+            Assert.assertEquals(r.getResult() == null, c.getResult() == null);
+            if (r.getResult() != null) {
+                Assert.assertEquals(r.getResult().totalWeight(), c.getResult().totalWeight(), 0.001f);
+            }
+        }
+    }
+
+    @Test
+    public void testCompression() throws Exception {
+
+        int edges = compressed.getEdgeWeights().getEdgeCount();
+        // uncompressed int arrays need 12 bytes per edge: the target id, and the source and edge id of the incoming list
+        Assert.assertTrue(((CompressedGraph<MyLocatableNode, String>) compressed).getAdjacencySizeInBytes() < 6L * edges);
+    }
+}
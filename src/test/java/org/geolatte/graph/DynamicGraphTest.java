@@ -0,0 +1,332 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph;
+
+import org.geolatte.graph.algorithms.ContractionHierarchy;
+import org.geolatte.graph.algorithms.GraphAlgorithm;
+import org.geolatte.graph.algorithms.GraphAlgorithms;
+import org.geolatte.stubs.MyLocatableNode;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * Tests the {@link DynamicGraph} created by {@link Graphs#createDynamicGraphBuilder(Extent, int)}.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public class DynamicGraphTest {
+
+    // A 3 by 3 grid of nodes, with two-way edges of weight 10 between horizontal and vertical neighbours:
+    //
+    //  _6 --- _7 --- _8
+    //   |      |      |
+    //  _3 --- _4 --- _5
+    //   |      |      |
+    //  _0 --- _1 --- _2
+
+    private MyLocatableNode[] nodes = new MyLocatableNode[9];
+    private DynamicGraph<MyLocatableNode, String> graph;
+
+    @Before
+    public void setUp() throws Exception {
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new MyLocatableNode(i, (i % 3) * 10, (i / 3) * 10);
+        }
+        DynamicGraphBuilder<MyLocatableNode, String> builder = Graphs.createDynamicGraphBuilder(new Extent(0, 0, 100, 100), 10);
+        for (int i = 0; i < nodes.length; i++) {
+            if (i % 3 < 2) {
+                twoWay(builder, i, i + 1);
+            }
+            if (i < 6) {
+                twoWay(builder, i, i + 3);
+            }
+        }
+        graph = builder.build();
+    }
+
+    private void twoWay(GraphBuilder<MyLocatableNode, String> builder, int a, int b) {
+        builder.addEdge(nodes[a], nodes[b], new BasicEdgeWeight(10), a + ">" + b);
+        builder.addEdge(nodes[b], nodes[a], new BasicEdgeWeight(10), b + ">" + a);
+    }
+
+    private Path<MyLocatableNode> route(Graph<MyLocatableNode, String> g, MyLocatableNode from, MyLocatableNode to) {
+        GraphAlgorithm<Path<MyLocatableNode>> dijkstra = GraphAlgorithms.createDijkstra(g, from, to, 0);
+        dijkstra.execute();
+        return dijkstra.getResult();
+    }
+
+    private List<MyLocatableNode> toList(Path<MyLocatableNode> path) {
+        List<MyLocatableNode> list = new ArrayList<MyLocatableNode>();
+        for (MyLocatableNode node : path) {
+            list.add(node);
+        }
+        return list;
+    }
+
+    @Test
+    public void testAddAndRemoveEdges() throws Exception {
+
+        Assert.assertEquals(40f, route(graph, nodes[0], nodes[8]).totalWeight(), 0f);
+        LocateableGraph<MyLocatableNode, String> before = graph.snapshot();
+
+        // a new node in the middle of the grid, with a shortcut from _0 to _8
+        MyLocatableNode middle = new MyLocatableNode(100, 15, 15);
+        graph.addEdge(nodes[0], middle, new BasicEdgeWeight(5), "0>m");
+        graph.addEdge(middle, nodes[8], new BasicEdgeWeight(5), "m>8");
+        Assert.assertEquals(10, graph.getNodeCount());
+        Assert.assertEquals(2, graph.getOverlaySize());
+        Assert.assertEquals(26, graph.getEdgeWeights().getEdgeCount());
+        Assert.assertEquals("0>m", graph.getInternalNode(nodes[0]).getLabelTo(graph.getInternalNode(middle)));
+        Assert.assertEquals(5f, graph.getInternalNode(middle).getWeightTo(graph.getInternalNode(nodes[8]), 0), 0f);
+        Assert.assertEquals(1, graph.getNodesAt(middle).size());
+        Assert.assertEquals(middle, graph.getClosestNodes(new MyLocatableNode(0, 14, 14), 1, 10).get(0).getWrappedNode());
+
+        Path<MyLocatableNode> path = route(graph, nodes[0], nodes[8]);
+        Assert.assertEquals(10f, path.totalWeight(), 0f);
+        Assert.assertEquals(3, toList(path).size());
+
+        // the snapshot does not see the changes
+        Assert.assertEquals(9, before.getNodeCount());
+        Assert.assertNull(before.getInternalNode(middle));
+        Assert.assertEquals(40f, route(before, nodes[0], nodes[8]).totalWeight(), 0f);
+
+        // remove the shortcut and a base edge
+        Assert.assertTrue(graph.removeEdge(middle, nodes[8]));
+        Assert.assertFalse(graph.removeEdge(middle, nodes[8]));
+        Assert.assertTrue(graph.removeEdge(nodes[0], nodes[1]));
+        Assert.assertEquals(4, graph.getOverlaySize());
+        Assert.assertEquals(Float.MAX_VALUE, graph.getInternalNode(nodes[0]).getWeightTo(graph.getInternalNode(nodes[1]), 0), 0f);
+        Assert.assertEquals(10f, graph.getInternalNode(nodes[1]).getWeightTo(graph.getInternalNode(nodes[0]), 0), 0f);
+        Assert.assertEquals(40f, route(graph, nodes[0], nodes[2]).totalWeight(), 0f);
+        Assert.assertNull(route(graph, middle, nodes[0]));
+    }
+
+    @Test
+    public void testDisableNode() throws Exception {
+
+        Assert.assertTrue(graph.disableNode(nodes[1]));
+        Assert.assertFalse(graph.disableNode(nodes[1]));
+        Assert.assertEquals(Float.MAX_VALUE, graph.getInternalNode(nodes[0]).getWeightTo(graph.getInternalNode(nodes[1]), 0), 0f);
+        Assert.assertFalse(graph.getOutGoingEdges(graph.getInternalNode(nodes[1]), null).hasNext());
+        Assert.assertEquals(40f, route(graph, nodes[0], nodes[2]).totalWeight(), 0f);
+        Assert.assertFalse(toList(route(graph, nodes[0], nodes[2])).contains(nodes[1]));
+
+        Assert.assertTrue(graph.enableNode(nodes[1]));
+        Assert.assertEquals(20f, route(graph, nodes[0], nodes[2]).totalWeight(), 0f);
+    }
+
+    @Test
+    public void testSnapshotsOfSuccessiveChanges() throws Exception {
+
+        // the changes share the arrays of the overlay, every snapshot sees only the changes made before it
+        MyLocatableNode a = new MyLocatableNode(100, 15, 15);
+        MyLocatableNode b = new MyLocatableNode(101, 25, 15);
+        List<LocateableGraph<MyLocatableNode, String>> snapshots = new ArrayList<LocateableGraph<MyLocatableNode, String>>();
+        snapshots.add(graph.snapshot());
+        graph.addEdge(nodes[0], a, new BasicEdgeWeight(1), "0>a");
+        snapshots.add(graph.snapshot());
+        graph.addEdge(nodes[0], b, new BasicEdgeWeight(2), "0>b");
+        snapshots.add(graph.snapshot());
+        graph.disableNode(nodes[0]);
+        snapshots.add(graph.snapshot());
+        graph.removeEdge(nodes[0], a);
+        graph.enableNode(nodes[0]);
+        snapshots.add(graph.snapshot());
+        graph.disableNode(nodes[0]);
+        graph.enableNode(nodes[0]);
+        snapshots.add(graph.snapshot());
+
+        int[] outDegrees = {2, 3, 4, 0, 3, 3};
+        for (int i = 0; i < snapshots.size(); i++) {
+            LocateableGraph<MyLocatableNode, String> snapshot = snapshots.get(i);
+            EdgeIterator<MyLocatableNode, String> edges = snapshot.getOutGoingEdges(snapshot.getInternalNode(nodes[0]), null);
+            int degree = 0;
+            while (edges.hasNext()) {
+                edges.next();
+                degree++;
+            }
+            Assert.assertEquals("snapshot " + i, outDegrees[i], degree);
+        }
+        Assert.assertNull(snapshots.get(1).getInternalNode(b));
+        Assert.assertNotNull(snapshots.get(2).getInternalNode(b));
+    }
+
+    @Test
+    public void testFailedAddEdge() throws Exception {
+
+        // the first node is added before the second one is found to be out of bounds
+        MyLocatableNode a = new MyLocatableNode(100, 15, 15);
+        try {
+            graph.addEdge(a, new MyLocatableNode(101, 500, 500), new BasicEdgeWeight(1), "a>x");
+            Assert.fail("A node out of bounds should be rejected");
+        } catch (RuntimeException e) {
+            // expected
+        }
+        Assert.assertNull(graph.getInternalNode(a));
+        MyLocatableNode b = new MyLocatableNode(102, 25, 15);
+        graph.addEdge(nodes[0], b, new BasicEdgeWeight(1), "0>b");
+        Assert.assertNull(graph.getInternalNode(a));
+        Assert.assertEquals(b, graph.getNode(9).getWrappedNode());
+    }
+
+    @Test
+    public void testSnapshotComponents() throws Exception {
+
+        StronglyConnectedComponents components = graph.getComponents();
+        Assert.assertSame(components, graph.snapshot().getComponents());
+
+        // weight updates, removed edges and disabled nodes keep the components, other topology changes replace them
+        graph.getEdgeWeights().updateWeight(0, 0, 3f);
+        Assert.assertSame(components, graph.snapshot().getComponents());
+        graph.removeEdge(nodes[0], nodes[1]);
+        graph.disableNode(nodes[4]);
+        Assert.assertSame(components, graph.snapshot().getComponents());
+        graph.enableNode(nodes[4]);
+        Assert.assertNotSame(components, graph.snapshot().getComponents());
+        graph.addEdge(nodes[8], new MyLocatableNode(100, 50, 50), new BasicEdgeWeight(7), "8>e");
+        LocateableGraph<MyLocatableNode, String> snapshot = graph.snapshot();
+        Assert.assertNotSame(components, snapshot.getComponents());
+        Assert.assertTrue(snapshot.getComponents().getComponent(9) >= 0);
+        Assert.assertSame(snapshot.getComponents(), graph.getComponents());
+    }
+
+    @Test
+    public void testCompact() throws Exception {
+
+        MyLocatableNode extra = new MyLocatableNode(100, 50, 50);
+        graph.addEdge(nodes[8], extra, new BasicEdgeWeight(7), "8>e");
+        graph.removeEdge(nodes[4], nodes[5]);
+        graph.disableNode(nodes[3]);
+        EdgeIterator<MyLocatableNode, String> it = graph.getOutGoingEdges(graph.getInternalNode(nodes[8]), null);
+        while (it.hasNext()) {
+            if (it.next().getWrappedNode().equals(nodes[7])) {
+                graph.getEdgeWeights().updateWeight(it.getEdgeId(), 0, 3f);
+            }
+        }
+
+        graph.compact();
+
+        Assert.assertEquals(0, graph.getOverlaySize());
+        Assert.assertEquals(10, graph.getNodeCount());
+        Assert.assertEquals(24, graph.getEdgeWeights().getEdgeCount());
+        Assert.assertEquals(0, graph.getEdgeWeights().getVersion());
+        Assert.assertEquals(7f, graph.getInternalNode(nodes[8]).getWeightTo(graph.getInternalNode(extra), 0), 0f);
+        Assert.assertEquals("8>e", graph.getInternalNode(nodes[8]).getLabelTo(graph.getInternalNode(extra)));
+        Assert.assertEquals(3f, graph.getInternalNode(nodes[8]).getWeightTo(graph.getInternalNode(nodes[7]), 0), 0f);
+        Assert.assertEquals(Float.MAX_VALUE, graph.getInternalNode(nodes[4]).getWeightTo(graph.getInternalNode(nodes[5]), 0), 0f);
+        // _3 is still disabled
+        Assert.assertFalse(graph.getOutGoingEdges(graph.getInternalNode(nodes[3]), null).hasNext());
+        Assert.assertTrue(graph.enableNode(nodes[3]));
+        Assert.assertEquals(10f, graph.getInternalNode(nodes[0]).getWeightTo(graph.getInternalNode(nodes[3]), 0), 0f);
+        for (int id = 0; id < graph.getNodeCount(); id++) {
+            Assert.assertEquals(id, graph.getNode(id).getId());
+        }
+    }
+
+    @Test
+    public void testUpdatesDuringCompaction() throws Exception {
+
+        final EdgeWeightTable oldWeights = graph.getEdgeWeights();
+        final int edgeId = findEdge(nodes[8], nodes[7]);
+        final AtomicInteger lastWritten = new AtomicInteger();
+        Thread updater = new Thread() {
+            public void run() {
+                try {
+                    for (int i = 1; ; i++) {
+                        oldWeights.updateWeight(edgeId, 0, i);
+                        lastWritten.set(i);
+                    }
+                } catch (IllegalStateException e) {
+                    // the compaction replaced the table
+                }
+            }
+        };
+        graph.addEdge(nodes[8], new MyLocatableNode(100, 50, 50), new BasicEdgeWeight(7), "8>e");
+        Assert.assertEquals(0, graph.getCompactionCount());
+        updater.start();
+        while (lastWritten.get() == 0) {
+            Thread.yield();
+        }
+        graph.compact();
+        updater.join();
+
+        // no update is lost: the last update of the old table is in the new table
+        Assert.assertEquals(1, graph.getCompactionCount());
+        Assert.assertNotSame(oldWeights, graph.getEdgeWeights());
+        Assert.assertFalse(oldWeights.isSameLineage(graph.getEdgeWeights()));
+        Assert.assertEquals(lastWritten.get(), graph.getEdgeWeights().getValue(findEdge(nodes[8], nodes[7]), 0), 0f);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testHierarchyAfterCompaction() throws Exception {
+
+        ContractionHierarchy<MyLocatableNode, String> hierarchy = GraphAlgorithms.createContractionHierarchy(graph, 0);
+        Assert.assertEquals(40f, hierarchy.distance(nodes[0], nodes[8]), 0f);
+        graph.addEdge(nodes[8], new MyLocatableNode(100, 50, 50), new BasicEdgeWeight(7), "8>e");
+        graph.compact();
+        hierarchy.distance(nodes[0], nodes[8]);
+    }
+
+    private int findEdge(MyLocatableNode from, MyLocatableNode to) {
+        EdgeIterator<MyLocatableNode, String> it = graph.getOutGoingEdges(graph.getInternalNode(from), null);
+        while (it.hasNext()) {
+            if (it.next().getWrappedNode().equals(to)) {
+                return it.getEdgeId();
+            }
+        }
+        throw new IllegalArgumentException("No edge from " + from + " to " + to);
+    }
+
+    @Test
+    public void testConcurrentChanges() throws Exception {
+
+        graph.startBackgroundCompaction(1, TimeUnit.MILLISECONDS);
+        Thread writer = new Thread() {
+            public void run() {
+                for (int i = 0; i < 200; i++) {
+                    MyLocatableNode node = new MyLocatableNode(1000 + i, 30 + (i % 50), 30 + (i / 50));
+                    graph.addEdge(nodes[8], node, new BasicEdgeWeight(1));
+                    graph.addEdge(node, nodes[0], new BasicEdgeWeight(100));
+                    graph.removeEdge(node, nodes[0]);
+                }
+            }
+        };
+        writer.start();
+        while (writer.isAlive()) {
+            Assert.assertEquals(40f, route(graph.snapshot(), nodes[8], nodes[0]).totalWeight(), 0f);
+        }
+        writer.join();
+        graph.stopBackgroundCompaction();
+        graph.compact();
+        Assert.assertEquals(209, graph.getNodeCount());
+        Assert.assertEquals(40f, route(graph, nodes[8], nodes[0]).totalWeight(), 0f);
+    }
+}
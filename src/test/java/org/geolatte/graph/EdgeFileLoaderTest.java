@@ -0,0 +1,230 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph;
+
+import org.geolatte.graph.algorithms.GraphAlgorithm;
+import org.geolatte.graph.algorithms.GraphAlgorithms;
+import org.geolatte.stubs.MyLocatableNode;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+
+/**
+ * <p>
+ * Tests the {@link EdgeFileLoader}, by comparing the graphs it loads with a graph that is built edge by edge.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public class EdgeFileLoaderTest {
+
+    private static final int SIZE = 10;
+    private static final Extent EXTENT = new Extent(0, 0, 100, 100);
+    private static final WeightSchema SCHEMA = WeightSchema.of("time", "length");
+
+    private File file;
+    private int[][] edges; // fromX, fromY, toX, toY
+    private LocateableGraph<MyLocatableNode, String> expected;
+
+    private static class Factory implements NodeFactory<MyLocatableNode> {
+
+        private int created = 0;
+
+        public MyLocatableNode createNode(long id, float x, float y) {
+            created++;
+            return new MyLocatableNode((int) id, x, y);
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+
+        file = File.createTempFile("edges", ".txt");
+        edges = new int[4 * SIZE * (SIZE - 1)][];
+        int i = 0;
+        for (int x = 0; x < SIZE; x++) {
+            for (int y = 0; y < SIZE; y++) {
+                if (x + 1 < SIZE) {
+                    edges[i++] = new int[]{x, y, x + 1, y};
+                    edges[i++] = new int[]{x + 1, y, x, y};
+                }
+                if (y + 1 < SIZE) {
+                    edges[i++] = new int[]{x, y, x, y + 1};
+                    edges[i++] = new int[]{x, y + 1, x, y};
+                }
+            }
+        }
+        GraphBuilder<MyLocatableNode, String> builder = Graphs.createCompressedGraphBuilder(EXTENT, 10, SCHEMA);
+        for (int[] edge : edges) {
+            builder.addEdge(node(edge[0], edge[1]), node(edge[2], edge[3]),
+                    new ArrayEdgeWeight(new float[]{weight(edge), 0.5f * weight(edge)}));
+        }
+        expected = builder.build();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    private static MyLocatableNode node(int x, int y) {
+        return new MyLocatableNode(x * SIZE + y, x * 10, y * 10);
+    }
+
+    private static float weight(int[] edge) {
+        return 10 + (edge[0] * 7 + edge[1] * 3 + edge[2]) % 5 + 0.25f;
+    }
+
+    private void assertSameRoutes(LocateableGraph<MyLocatableNode, String> actual) {
+
+        Assert.assertEquals(expected.getNodeCount(), actual.getNodeCount());
+        Assert.assertEquals(expected.getEdgeWeights().getEdgeCount(), actual.getEdgeWeights().getEdgeCount());
+        for (int weightIndex = 0; weightIndex < 2; weightIndex++) {
+            for (int x = 0; x < SIZE; x += 3) {
+                for (int y = 0; y < SIZE; y += 4) {
+                    Assert.assertEquals(route(expected, node(0, 0), node(x, y), weightIndex),
+                            route(actual, node(0, 0), node(x, y), weightIndex), 1e-3);
+                }
+            }
+        }
+    }
+
+    private static float route(Graph<MyLocatableNode, String> graph, MyLocatableNode from, MyLocatableNode to, int weightIndex) {
+        GraphAlgorithm<Path<MyLocatableNode>> dijkstra = GraphAlgorithms.createDijkstra(graph, from, to, weightIndex);
+        dijkstra.execute();
+        return dijkstra.getResult() == null ? 0 : dijkstra.getResult().totalWeight();
+    }
+
+    @Test
+    public void testText() throws Exception {
+
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "US-ASCII");
+        writer.write("from,fromX,fromY,to,toX,toY,time,length\n");
+        for (int i = 0; i < edges.length; i++) {
+            int[] edge = edges[i];
+            MyLocatableNode from = node(edge[0], edge[1]);
+            MyLocatableNode to = node(edge[2], edge[3]);
+            String separator = i % 3 == 0 ? " ,\t" : ",";
+            writer.write(from.getID() + separator + from.getX() + separator + from.getY() + separator
+                    + to.getID() + separator + to.getX() + separator + to.getY() + separator
+                    + weight(edge) + separator + (i % 2 == 0 ? "+" + (0.5f * weight(edge)) : (50 * weight(edge)) + "E-2"));
+            writer.write(i % 4 == 0 ? "\r\n" : "\n");
+            if (i % 10 == 0) {
+                writer.write("\n");
+            }
+        }
+        writer.close();
+
+        Factory factory = new Factory();
+        EdgeFileLoader<MyLocatableNode, String> loader = EdgeFileLoader.text(factory, ',', 2);
+        loader.setSkipHeader(true);
+        loader.setChunkSize(64); // shorter than some lines
+        loader.setThreads(3);
+        loader.setQueueCapacity(2);
+        GraphBuilder<MyLocatableNode, String> builder = Graphs.createCompressedGraphBuilder(EXTENT, 10, SCHEMA);
+        Assert.assertEquals(edges.length, loader.load(file, builder));
+        Assert.assertEquals(SIZE * SIZE, factory.created);
+        assertSameRoutes(builder.build());
+    }
+
+    @Test
+    public void testBinary() throws Exception {
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        for (int[] edge : edges) {
+            MyLocatableNode from = node(edge[0], edge[1]);
+            MyLocatableNode to = node(edge[2], edge[3]);
+            out.writeLong(from.getID());
+            out.writeFloat(from.getX());
+            out.writeFloat(from.getY());
+            out.writeLong(to.getID());
+            out.writeFloat(to.getX());
+            out.writeFloat(to.getY());
+            out.writeFloat(weight(edge));
+            out.writeFloat(0.5f * weight(edge));
+        }
+        out.close();
+
+        Factory factory = new Factory();
+        EdgeFileLoader<MyLocatableNode, String> loader = EdgeFileLoader.binary(factory, 2);
+        loader.setChunkSize(100); // not a multiple of the record size
+        loader.setThreads(2);
+        GraphBuilder<MyLocatableNode, String> builder = Graphs.createCompressedGraphBuilder(EXTENT, 10, SCHEMA);
+        Assert.assertEquals(edges.length, loader.load(file, builder));
+        Assert.assertEquals(SIZE * SIZE, factory.created);
+        assertSameRoutes(builder.build());
+    }
+
+    @Test
+    public void testMalformedRecord() throws Exception {
+
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "US-ASCII");
+        writer.write("1,0,0,2,10,0,5,5\n");
+        writer.write("2,10,0,x,0,0,5,5\n");
+        writer.close();
+
+        EdgeFileLoader<MyLocatableNode, String> loader = EdgeFileLoader.text(new Factory(), ',', 2);
+        try {
+            loader.load(file, Graphs.<MyLocatableNode, String>createCompressedGraphBuilder(EXTENT, 10, SCHEMA));
+            Assert.fail("Malformed record should be reported");
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().endsWith("byte offset 17"));
+        }
+    }
+
+    @Test
+    public void testMissingField() throws Exception {
+
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "US-ASCII");
+        writer.write("1,0,0,2,10,0,5\n");
+        writer.close();
+
+        EdgeFileLoader<MyLocatableNode, String> loader = EdgeFileLoader.text(new Factory(), ',', 2);
+        try {
+            loader.load(file, Graphs.<MyLocatableNode, String>createCompressedGraphBuilder(EXTENT, 10, SCHEMA));
+            Assert.fail("Missing field should be reported");
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Missing field"));
+        }
+    }
+
+    @Test
+    public void testWeightIndexBeyondFile() throws Exception {
+
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "US-ASCII");
+        writer.write("1,0,0,2,10,0,5\n");
+        writer.close();
+
+        // the file holds one weight per edge, the schema of the builder two
+        EdgeFileLoader<MyLocatableNode, String> loader = EdgeFileLoader.text(new Factory(), ',', 1);
+        try {
+            loader.load(file, Graphs.<MyLocatableNode, String>createCompressedGraphBuilder(EXTENT, 10, SCHEMA));
+            Assert.fail("Weight index beyond the file should be reported");
+        } catch (IndexOutOfBoundsException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Invalid weight index: 1"));
+        }
+    }
+}
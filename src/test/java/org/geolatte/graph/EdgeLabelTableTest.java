@@ -0,0 +1,160 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph;
+
+import org.geolatte.stubs.MyLocatableNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <p>
+ * Tests the interned edge labels and their attribute columns.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public class EdgeLabelTableTest {
+
+    private static final Extent EXTENT = new Extent(0, 0, 100, 100);
+
+    /**
+     * Labels of the form "name/wayId/roadClass".
+     */
+    private static final LabelSchema<String> SCHEMA = LabelSchema.<String>none()
+            .withIntColumn("wayId", new LabelAttribute<String>() {
+                public int valueOf(String label) {
+                    return Integer.parseInt(label.split("/")[1]);
+                }
+            })
+            .withByteColumn("roadClass", new LabelAttribute<String>() {
+                public int valueOf(String label) {
+                    return Integer.parseInt(label.split("/")[2]);
+                }
+            });
+
+    private final MyLocatableNode[] nodes = new MyLocatableNode[10];
+
+    private void addRoad(GraphBuilder<MyLocatableNode, String> builder) {
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new MyLocatableNode(i, i * 10, 0);
+        }
+        // one way per 5 segments, every segment in both directions
+        for (int i = 0; i + 1 < nodes.length; i++) {
+            String label = (i < 5 ? "Main Street/" : "Station Road/") + (i < 5 ? 1001 : 1002) + "/" + (i < 5 ? 3 : 5);
+            builder.addEdge(nodes[i], nodes[i + 1], new BasicEdgeWeight(1), new String(label));
+            builder.addEdge(nodes[i + 1], nodes[i], new BasicEdgeWeight(1), new String(label));
+        }
+        builder.addEdge(nodes[0], nodes[9], new BasicEdgeWeight(100));
+    }
+
+    private void assertLabels(Graph<MyLocatableNode, String> graph) {
+
+        EdgeLabelTable<String> labels = graph.getEdgeLabels();
+        Assert.assertEquals(19, labels.getEdgeCount());
+        Assert.assertEquals(2, labels.getDistinctLabelCount());
+        int wayId = labels.getSchema().indexOf("wayId");
+        int roadClass = labels.getSchema().indexOf("roadClass");
+        for (int i = 0; i + 1 < nodes.length; i++) {
+            InternalNode<MyLocatableNode, String> from = graph.getInternalNode(nodes[i]);
+            EdgeIterator<MyLocatableNode, String> edges = graph.getOutGoingEdges(from, null);
+            while (edges.hasNext()) {
+                InternalNode<MyLocatableNode, String> to = edges.next();
+                int edgeId = edges.getEdgeId();
+                Assert.assertEquals(from.getLabelTo(to), labels.getLabel(edgeId));
+                if (to.getWrappedNode().equals(nodes[i + 1])) {
+                    Assert.assertEquals(i < 5 ? "Main Street/1001/3" : "Station Road/1002/5", labels.getLabel(edgeId));
+                    Assert.assertEquals(i < 5 ? 1001 : 1002, labels.getInt(edgeId, wayId));
+                    Assert.assertEquals(i < 5 ? 3 : 5, labels.getByte(edgeId, roadClass));
+                    Assert.assertEquals(i < 5 ? 3 : 5, labels.getInt(edgeId, roadClass));
+                    Assert.assertSame(labels.getDistinctLabel(labels.getLabelIndex(edgeId)), labels.getLabel(edgeId));
+                } else if (to.getWrappedNode().equals(nodes[9]) && i == 0) {
+                    Assert.assertNull(labels.getLabel(edgeId));
+                    Assert.assertEquals(-1, labels.getLabelIndex(edgeId));
+                    Assert.assertEquals(0, labels.getInt(edgeId, wayId));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testGridIndexedGraph() throws Exception {
+
+        GraphBuilder<MyLocatableNode, String> builder = Graphs.createGridIndexedGraphBuilder(EXTENT, 10);
+        builder.setLabelSchema(SCHEMA);
+        addRoad(builder);
+        assertLabels(builder.build());
+    }
+
+    @Test
+    public void testCompressedGraph() throws Exception {
+
+        GraphBuilder<MyLocatableNode, String> builder = Graphs.createCompressedGraphBuilder(EXTENT, 10);
+        builder.setLabelSchema(SCHEMA);
+        addRoad(builder);
+        assertLabels(builder.build());
+    }
+
+    @Test
+    public void testDynamicGraph() throws Exception {
+
+        DynamicGraphBuilder<MyLocatableNode, String> builder = Graphs.createDynamicGraphBuilder(EXTENT, 10);
+        builder.setLabelSchema(SCHEMA);
+        addRoad(builder);
+        DynamicGraph<MyLocatableNode, String> graph = builder.build();
+        MyLocatableNode extra = new MyLocatableNode(20, 50, 50);
+        graph.addEdge(nodes[5], extra, new BasicEdgeWeight(1), "Station Road/1002/5");
+        graph.addEdge(extra, nodes[5], new BasicEdgeWeight(1), "Side Street/1003/7");
+
+        EdgeLabelTable<String> labels = graph.getEdgeLabels();
+        Assert.assertEquals(3, labels.getDistinctLabelCount());
+        Assert.assertEquals("Side Street/1003/7", graph.getInternalNode(extra).getLabelTo(graph.getInternalNode(nodes[5])));
+        Assert.assertEquals("Station Road/1002/5", graph.getInternalNode(nodes[5]).getLabelTo(graph.getInternalNode(extra)));
+
+        graph.compact();
+        labels = graph.getEdgeLabels();
+        Assert.assertEquals(3, labels.getDistinctLabelCount());
+        Assert.assertEquals(2, labels.getSchema().size());
+        EdgeIterator<MyLocatableNode, String> edges = graph.getOutGoingEdges(graph.getInternalNode(extra), null);
+        edges.next();
+        Assert.assertEquals(7, labels.getByte(edges.getEdgeId(), labels.getSchema().indexOf("roadClass")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testByteColumnOverflow() throws Exception {
+
+        GraphBuilder<MyLocatableNode, String> builder = Graphs.createCompressedGraphBuilder(EXTENT, 10);
+        builder.setLabelSchema(SCHEMA);
+        builder.addEdge(new MyLocatableNode(1, 0, 0), new MyLocatableNode(2, 1, 1), new BasicEdgeWeight(1), "Ring/1/300");
+        builder.build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateColumn() {
+
+        SCHEMA.withIntColumn("wayId", new LabelAttribute<String>() {
+            public int valueOf(String label) {
+                return 0;
+            }
+        });
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph;
+
+import org.geolatte.graph.algorithms.GraphAlgorithm;
+import org.geolatte.graph.algorithms.GraphAlgorithms;
+import org.geolatte.stubs.MyLocatableNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Iterator;
+
+/**
+ * <p>
+ * Tests the {@link EdgeWeightTable} and {@link WeightSchema} classes.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public class EdgeWeightTableTest {
+
+    @Test
+    public void testSchema() throws Exception {
+
+        WeightSchema schema = WeightSchema.of("distance", "time");
+
+        Assert.assertEquals(2, schema.size());
+        Assert.assertEquals("time", schema.getName(1));
+        Assert.assertEquals(0, schema.indexOf("distance"));
+        Assert.assertEquals(1, schema.indexOf("time"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSchemaUnknownKind() throws Exception {
+
+        WeightSchema.of("distance").indexOf("time");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSchemaDuplicateKind() throws Exception {
+
+        WeightSchema.of("distance", "distance");
+    }
+
+    @Test
+    public void testAddGetValue() throws Exception {
+
+        EdgeWeightTable table = new EdgeWeightTable(WeightSchema.of("distance", "time"));
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(i, table.add(new ArrayEdgeWeight(new float[]{i, 2 * i})));
+        }
+        table.seal();
+
+        Assert.assertEquals(100, table.getEdgeCount());
+        Assert.assertEquals(42f, table.getValue(42, 0), 0.005);
+        Assert.assertEquals(84f, table.getValue(42, 1), 0.005);
+    }
+
+    @Test
+    public void testGraphEdgeIds() throws Exception {
+
+        MyLocatableNode a = new MyLocatableNode(0, 0, 0);
+        MyLocatableNode b = new MyLocatableNode(1, 10, 0);
+        MyLocatableNode c = new MyLocatableNode(2, 10, 10);
+
+        GraphBuilder<MyLocatableNode, Object> builder = Graphs.createGridIndexedGraphBuilder(
+                new Extent(0, 0, 100, 100), 10, WeightSchema.of("distance", "time"));
+        builder.addEdge(a, b, new ArrayEdgeWeight(new float[]{10, 5}));
+        builder.addEdge(b, c, new ArrayEdgeWeight(new float[]{10, 5}));
+        builder.addEdge(a, c, new ArrayEdgeWeight(new float[]{15, 20}));
+        LocateableGraph<MyLocatableNode, Object> graph = builder.build();
+
+        EdgeWeightTable weights = graph.getEdgeWeights();
+        Assert.assertEquals(3, weights.getEdgeCount());
+
+        EdgeIterator<MyLocatableNode, Object> it = graph.getOutGoingEdges(graph.getInternalNode(a), null);
+        Assert.assertTrue(it.hasNext());
+        Assert.assertEquals(b, it.next().getWrappedNode());
+        Assert.assertEquals(10f, weights.getValue(it.getEdgeId(), 0), 0.005);
+        Assert.assertEquals(c, it.next().getWrappedNode());
+        Assert.assertEquals(20f, weights.getValue(it.getEdgeId(), 1), 0.005);
+        Assert.assertFalse(it.hasNext());
+
+        EdgeIterator<MyLocatableNode, Object> in = graph.getInComingEdges(graph.getInternalNode(c), null);
+        Assert.assertEquals(b, in.next().getWrappedNode());
+        Assert.assertEquals(5f, weights.getValue(in.getEdgeId(), 1), 0.005);
+
+        // the shortest path depends on the weight kind
+        GraphAlgorithm<Path<MyLocatableNode>> byDistance = GraphAlgorithms.createDijkstra(graph, a, c, 0);
+        byDistance.execute();
+        Assert.assertEquals(15f, byDistance.getResult().totalWeight(), 0.005);
+
+        GraphAlgorithm<Path<MyLocatableNode>> byTime = GraphAlgorithms.createDijkstra(graph, a, c, 1);
+        byTime.execute();
+        Assert.assertEquals(10f, byTime.getResult().totalWeight(), 0.005);
+    }
+
+    @Test
+    public void testDefaultBuildersKeepAllWeights() throws Exception {
+
+        assertKeepsAllWeights(Graphs.<MyLocatableNode, Object>createGridIndexedGraphBuilder(new Extent(0, 0, 100, 100), 10));
+        assertKeepsAllWeights(Graphs.<MyLocatableNode, Object>createCompressedGraphBuilder(new Extent(0, 0, 100, 100), 10));
+        assertKeepsAllWeights(Graphs.<MyLocatableNode, Object>createDynamicGraphBuilder(new Extent(0, 0, 100, 100), 10));
+    }
+
+    private void assertKeepsAllWeights(GraphBuilder<MyLocatableNode, Object> builder) throws BuilderException {
+
+        MyLocatableNode a = new MyLocatableNode(0, 0, 0);
+        MyLocatableNode b = new MyLocatableNode(1, 10, 0);
+        builder.addEdge(a, b, new ArrayEdgeWeight(new float[]{1, 5}));
+        LocateableGraph<MyLocatableNode, Object> graph = builder.build();
+
+        Assert.assertEquals(2, graph.getEdgeWeights().getSchema().size());
+
+        GraphAlgorithm<Path<MyLocatableNode>> first = GraphAlgorithms.createDijkstra(graph, a, b, 0);
+        first.execute();
+        Assert.assertEquals(1f, first.getResult().totalWeight(), 0.005);
+
+        GraphAlgorithm<Path<MyLocatableNode>> second = GraphAlgorithms.createDijkstra(graph, a, b, 1);
+        second.execute();
+        Assert.assertEquals(5f, second.getResult().totalWeight(), 0.005);
+    }
+
+    private EdgeWeightTable createSealedTable(int edgeCount) {
+
+        EdgeWeightTable table = new EdgeWeightTable(WeightSchema.of("distance", "time")
+                .withEncoding("time", WeightEncoding.fixedPoint16(0.5f)));
+        for (int i = 0; i < edgeCount; i++) {
+            table.add(new ArrayEdgeWeight(new float[]{i, 2 * i}));
+        }
+        table.seal();
+        return table;
+    }
+
+    @Test
+    public void testUpdateSnapshot() throws Exception {
+
+        EdgeWeightTable table = createSealedTable(10000);
+        EdgeWeightTable before = table.snapshot();
+        Assert.assertEquals(0, table.getVersion());
+
+        Assert.assertEquals(1, table.updateWeight(42, 1, 1.25f));
+        WeightUpdateBatch batch = new WeightUpdateBatch();
+        batch.add(9999, 0, 7f);
+        batch.add(5000, 1, 3f);
+        batch.add(5000, 1, 4f);
+        Assert.assertEquals(2, table.update(batch));
+
+        // updated values are exact, also for encoded columns
+        Assert.assertEquals(1.25f, table.getValue(42, 1), 0f);
+        Assert.assertEquals(42f, table.getValue(42, 0), 0f);
+        Assert.assertEquals(7f, table.getValue(9999, 0), 0f);
+        Assert.assertEquals(4f, table.getValue(5000, 1), 0f);
+        Assert.assertEquals(86f, table.getValue(43, 1), 0f);
+
+        // the snapshot still sees the old version
+        Assert.assertEquals(0, before.getVersion());
+        Assert.assertEquals(84f, before.getValue(42, 1), 0f);
+        Assert.assertEquals(9999f, before.getValue(9999, 0), 0f);
+        Assert.assertTrue(before.isSnapshot());
+        Assert.assertSame(before, before.snapshot());
+    }
+
+    @Test
+    public void testInvalidBatchIsNotApplied() throws Exception {
+
+        EdgeWeightTable table = createSealedTable(100);
+        WeightUpdateBatch batch = new WeightUpdateBatch();
+        batch.add(1, 0, 5f);
+        batch.add(100, 0, 5f);
+        try {
+            table.update(batch);
+            Assert.fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        Assert.assertEquals(0, table.getVersion());
+        Assert.assertEquals(1f, table.getValue(1, 0), 0f);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testUpdateSnapshotFails() throws Exception {
+
+        createSealedTable(10).snapshot().updateWeight(1, 0, 5f);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUpdateBeforeBuildFails() throws Exception {
+
+        EdgeWeightTable table = new EdgeWeightTable(WeightSchema.single());
+        table.add(new BasicEdgeWeight(1));
+        table.updateWeight(0, 0, 5f);
+    }
+
+    @Test
+    public void testConcurrentUpdates() throws Exception {
+
+        final EdgeWeightTable table = createSealedTable(3 * EdgeWeightTable.PAGE_SIZE);
+        final int first = 10;
+        final int second = 2 * EdgeWeightTable.PAGE_SIZE + 10;
+        final float sum = table.getValue(first, 0) + table.getValue(second, 0);
+
+        // every batch moves weight between two edges in different pages, so every version has the same sum
+        Thread writer = new Thread() {
+            public void run() {
+                WeightUpdateBatch batch = new WeightUpdateBatch();
+                for (int i = 0; i < 2000; i++) {
+                    batch.clear();
+                    batch.add(first, 0, i);
+                    batch.add(second, 0, sum - i);
+                    table.update(batch);
+                }
+            }
+        };
+        writer.start();
+        while (writer.isAlive()) {
+            EdgeWeightTable snapshot = table.snapshot();
+            Assert.assertEquals(sum, snapshot.getValue(first, 0) + snapshot.getValue(second, 0), 0f);
+        }
+        writer.join();
+        Assert.assertEquals(2000, table.getVersion());
+        Assert.assertEquals(1999f, table.getValue(first, 0), 0f);
+    }
+
+    @Test
+    public void testDijkstraSeesUpdates() throws Exception {
+
+        MyLocatableNode a = new MyLocatableNode(0, 0, 0);
+        MyLocatableNode b = new MyLocatableNode(1, 10, 0);
+        MyLocatableNode c = new MyLocatableNode(2, 10, 10);
+
+        GraphBuilder<MyLocatableNode, Object> builder = Graphs.createCompressedGraphBuilder(new Extent(0, 0, 100, 100), 10);
+        builder.addEdge(a, b, new BasicEdgeWeight(10));
+        builder.addEdge(b, c, new BasicEdgeWeight(10));
+        builder.addEdge(a, c, new BasicEdgeWeight(15));
+        LocateableGraph<MyLocatableNode, Object> graph = builder.build();
+
+        EdgeIterator<MyLocatableNode, Object> it = graph.getOutGoingEdges(graph.getInternalNode(a), null);
+        while (it.hasNext()) {
+            if (it.next().getWrappedNode().equals(c)) {
+                graph.getEdgeWeights().updateWeight(it.getEdgeId(), 0, 25f);
+            }
+        }
+        Assert.assertEquals(25f, graph.getInternalNode(a).getWeightTo(graph.getInternalNode(c), 0), 0f);
+
+        GraphAlgorithm<Path<MyLocatableNode>> dijkstra = GraphAlgorithms.createDijkstra(graph, a, c, 0);
+        dijkstra.execute();
+        Assert.assertEquals(20f, dijkstra.getResult().totalWeight(), 0f);
+        Iterator<MyLocatableNode> path = dijkstra.getResult().iterator();
+        Assert.assertEquals(a, path.next());
+        Assert.assertEquals(b, path.next());
+        Assert.assertEquals(c, path.next());
+    }
+}
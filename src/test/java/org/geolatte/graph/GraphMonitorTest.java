@@ -0,0 +1,234 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph;
+
+import org.geolatte.graph.algorithms.GraphAlgorithm;
+import org.geolatte.graph.algorithms.GraphAlgorithms;
+import org.geolatte.stubs.MyLocatableNode;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <p>
+ * Tests that the operations of the library are reported to the installed {@link GraphMonitor}.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public class GraphMonitorTest {
+
+    private static final int SIZE = 10;
+
+    private final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+    private MyLocatableNode[][] grid = new MyLocatableNode[SIZE][SIZE];
+
+    /**
+     * Records every finished operation as text, and checks that it gets back its own token.
+     */
+    private class Recorder extends GraphMonitor {
+
+        private void check(Object token, Object expected) {
+            Assert.assertEquals(expected, token);
+        }
+
+        public Object searchStarted() {
+            return "search";
+        }
+
+        public void searchFinished(Object token, String algorithm, int weightIndex, boolean found, int settledNodes,
+                                   int pathLength) {
+            check(token, "search");
+            Assert.assertTrue(settledNodes > 0);
+            events.add(algorithm + ":" + weightIndex + ":" + found + ":" + pathLength);
+        }
+
+        public Object buildPhaseStarted(String phase) {
+            return phase;
+        }
+
+        public void buildPhaseFinished(Object token, String phase, int nodeCount, int edgeCount) {
+            check(token, phase);
+            events.add(phase + ":" + nodeCount + ":" + edgeCount);
+        }
+
+        public Object indexBuildStarted() {
+            return "index";
+        }
+
+        public void indexBuildFinished(Object token, int nodeCount, int cellCount) {
+            check(token, "index");
+            events.add("index:" + nodeCount);
+        }
+
+        public Object nearestQueryStarted() {
+            return "nearest";
+        }
+
+        public void nearestQueryFinished(Object token, int requested, int candidates, int found) {
+            check(token, "nearest");
+            events.add("nearest:" + requested + ":" + found);
+        }
+
+        public Object tileLoadStarted(int tile) {
+            return "tile" + tile;
+        }
+
+        public void tileLoadFinished(Object token, int tile, int nodeCount, int byteCount) {
+            check(token, "tile" + tile);
+            Assert.assertTrue(byteCount > 0);
+            events.add("tile:" + nodeCount);
+        }
+    }
+
+    private static class Codec implements TileCodec<MyLocatableNode, String> {
+
+        public void writeNode(MyLocatableNode node, DataOutput out) throws IOException {
+            out.writeInt(node.getID());
+            out.writeFloat(node.getX());
+            out.writeFloat(node.getY());
+        }
+
+        public MyLocatableNode readNode(DataInput in) throws IOException {
+            return new MyLocatableNode(in.readInt(), in.readFloat(), in.readFloat());
+        }
+
+        public void writeLabel(String label, DataOutput out) throws IOException {
+            out.writeUTF(label);
+        }
+
+        public String readLabel(DataInput in) throws IOException {
+            return in.readUTF();
+        }
+    }
+
+    @Before
+    public void setUp() {
+        GraphMonitor.install(new Recorder());
+    }
+
+    @After
+    public void tearDown() {
+        GraphMonitor.install(null);
+    }
+
+    private LocateableGraph<MyLocatableNode, String> build(boolean contract) throws Exception {
+
+        // a grid of two-way edges, with an island of two nodes that is pruned
+        GraphBuilder<MyLocatableNode, String> builder = Graphs.createCompressedGraphBuilder(new Extent(0, 0, 200, 200), 10);
+        builder.setMinComponentSize(3);
+        builder.setContractChains(contract);
+        for (int x = 0; x < SIZE; x++) {
+            for (int y = 0; y < SIZE; y++) {
+                grid[x][y] = new MyLocatableNode(x * SIZE + y, x * 10, y * 10);
+            }
+        }
+        for (int x = 0; x < SIZE; x++) {
+            for (int y = 0; y < SIZE; y++) {
+                if (x + 1 < SIZE) {
+                    twoWay(builder, grid[x][y], grid[x + 1][y]);
+                }
+                if (y + 1 < SIZE) {
+                    twoWay(builder, grid[x][y], grid[x][y + 1]);
+                }
+            }
+        }
+        twoWay(builder, new MyLocatableNode(1000, 150, 150), new MyLocatableNode(1001, 160, 150));
+        return builder.build();
+    }
+
+    private void twoWay(GraphBuilder<MyLocatableNode, String> builder, MyLocatableNode a, MyLocatableNode b) {
+        builder.addEdge(a, b, new BasicEdgeWeight(1), a.getID() + ">" + b.getID());
+        builder.addEdge(b, a, new BasicEdgeWeight(1), b.getID() + ">" + a.getID());
+    }
+
+    @Test
+    public void testBuild() throws Exception {
+
+        // the contraction removes the four corners of the grid
+        build(true);
+        Assert.assertEquals("prune:102:362", events.get(0));
+        Assert.assertEquals("contract:100:360", events.get(1));
+        Assert.assertEquals("index:96", events.get(2));
+        Assert.assertEquals("create:96:352", events.get(3));
+        Assert.assertEquals(4, events.size());
+    }
+
+    @Test
+    public void testQueries() throws Exception {
+
+        LocateableGraph<MyLocatableNode, String> graph = build(false);
+        events.clear();
+
+        GraphAlgorithm<Path<MyLocatableNode>> dijkstra = GraphAlgorithms.createDijkstra(graph, grid[0][0],
+                grid[SIZE - 1][SIZE - 1], 0);
+        dijkstra.execute();
+        Assert.assertEquals("Dijkstra:0:true:" + (2 * SIZE - 1), events.get(0));
+
+        GraphAlgorithms.createBFS(graph, grid[0][0], 1.5f, 0).execute();
+        Assert.assertEquals("BFS:0:true:3", events.get(1));
+
+        graph.getClosestNodes(new MyLocatableNode(-1, 11, 11), 2, 20);
+        Assert.assertEquals("nearest:2:2", events.get(2));
+    }
+
+    @Test
+    public void testTileLoads() throws Exception {
+
+        LocateableGraph<MyLocatableNode, String> graph = build(false);
+        File file = File.createTempFile("monitored", ".graph");
+        try {
+            Graphs.writeTiledGraph(graph, new Extent(0, 0, 100, 100), 2, 2, 10, new Codec(), file);
+            TiledGraph<MyLocatableNode, String> tiled = Graphs.openTiledGraph(file, new Codec(), 4);
+            try {
+                events.clear();
+                tiled.getInternalNode(grid[0][0]);
+                // a loaded tile builds its own spatial index
+                Assert.assertEquals(2, events.size());
+                Assert.assertEquals("index:25", events.get(0));
+                Assert.assertEquals("tile:25", events.get(1));
+            } finally {
+                tiled.close();
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testNoMonitor() throws Exception {
+
+        GraphMonitor.install(null);
+        build(true);
+        Assert.assertTrue(events.isEmpty());
+    }
+}
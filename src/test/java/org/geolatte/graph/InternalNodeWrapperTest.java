@@ -56,13 +56,18 @@ public class InternalNodeWrapperTest {
     private InternalNodeWrapper<Object, Object> iNode2;
     private InternalNodeWrapper<Object, Object> iNode3;
 
+    private EdgeWeightTable weights;
+    private EdgeLabelTable<Object> labels;
+
 
     @Before
     public void setup() {
 
-        iNode1 = new InternalNodeWrapper<Object, Object>(domainNode1);
-        iNode2 = new InternalNodeWrapper<Object, Object>(domainNode2);
-        iNode3 = new InternalNodeWrapper<Object, Object>(domainNode3);
+        weights = new EdgeWeightTable(WeightSchema.single());
+        labels = new EdgeLabelTable<Object>(LabelSchema.none());
+        iNode1 = new InternalNodeWrapper<Object, Object>(domainNode1, weights, labels, 0);
+        iNode2 = new InternalNodeWrapper<Object, Object>(domainNode2, weights, labels, 1);
+        iNode3 = new InternalNodeWrapper<Object, Object>(domainNode3, weights, labels, 2);
 
         iNode1.addEdge(iNode2, new BasicEdgeWeight(1.0f));
         iNode2.addEdge(iNode3, new BasicEdgeWeight(2.0f), edgeLabel23);
@@ -82,7 +87,7 @@ public class InternalNodeWrapperTest {
     public void testAddEdge() throws Exception {
 
         Object newDomainObject = new Object();
-        InternalNodeWrapper<Object, Object> newInode = new InternalNodeWrapper<Object, Object>(newDomainObject);
+        InternalNodeWrapper<Object, Object> newInode = new InternalNodeWrapper<Object, Object>(newDomainObject, weights, labels, 3);
         EdgeWeight edgeWeight = new BasicEdgeWeight(6.0f);
 
         iNode1.addEdge(newInode, edgeWeight);
@@ -98,6 +103,8 @@ public class InternalNodeWrapperTest {
 
         Assert.assertEquals(4, iNode1.getConnected().length);
         Assert.assertTrue(Arrays.asList(iNode1.getConnected()).contains(newInode));
+        Assert.assertEquals(5, weights.getEdgeCount());
+        Assert.assertEquals(7.0f, weights.getValue(iNode1.toEdges[3], 0), 0.005f);
     }
 
     @Test
@@ -121,6 +128,11 @@ public class InternalNodeWrapperTest {
     @Test
     public void testAddReachableFrom() throws Exception {
 
+        Assert.assertEquals(2, iNode3.getReachableFrom().length);
+        Assert.assertEquals(iNode2, iNode3.getReachableFrom()[0]);
+        Assert.assertEquals(iNode1, iNode3.getReachableFrom()[1]);
+        Assert.assertEquals(iNode2.toEdges[0], iNode3.fromEdges[0]);
+        Assert.assertEquals(iNode1.toEdges[1], iNode3.fromEdges[1]);
     }
 
 
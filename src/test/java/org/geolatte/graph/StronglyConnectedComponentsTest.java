@@ -0,0 +1,155 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph;
+
+import org.geolatte.graph.algorithms.GraphAlgorithm;
+import org.geolatte.graph.algorithms.GraphAlgorithms;
+import org.geolatte.stubs.MyLocatableNode;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * <p>
+ * Tests {@link StronglyConnectedComponents} and the pruning of small components by the graph builders.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public class StronglyConnectedComponentsTest {
+
+    // Create this graph:
+    //
+    //  _4 -> _0 --- _1         _6 --- _7   (island)
+    //         |      |
+    //        _3 --- _2 -> _5
+    //
+    // _0.._3 are connected in both directions, _4 only has an outgoing edge, _5 only an incoming edge.
+
+    private MyLocatableNode[] nodes = new MyLocatableNode[8];
+
+    @Before
+    public void setUp() {
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new MyLocatableNode(i, i * 10, i * 10);
+        }
+    }
+
+    private LocateableGraph<MyLocatableNode, Object> build(GraphBuilder<MyLocatableNode, Object> builder) throws BuilderException {
+        twoWay(builder, 0, 1);
+        twoWay(builder, 1, 2);
+        twoWay(builder, 2, 3);
+        twoWay(builder, 3, 0);
+        builder.addEdge(nodes[4], nodes[0], new BasicEdgeWeight(1));
+        builder.addEdge(nodes[2], nodes[5], new BasicEdgeWeight(1));
+        twoWay(builder, 6, 7);
+        return builder.build();
+    }
+
+    private void twoWay(GraphBuilder<MyLocatableNode, Object> builder, int a, int b) {
+        builder.addEdge(nodes[a], nodes[b], new BasicEdgeWeight(1));
+        builder.addEdge(nodes[b], nodes[a], new BasicEdgeWeight(1));
+    }
+
+    private InternalNode<MyLocatableNode, Object> node(Graph<MyLocatableNode, Object> graph, int i) {
+        return graph.getInternalNode(nodes[i]);
+    }
+
+    private void testComponents(GraphBuilder<MyLocatableNode, Object> builder) throws Exception {
+
+        LocateableGraph<MyLocatableNode, Object> graph = build(builder);
+        StronglyConnectedComponents components = graph.getComponents();
+
+        Assert.assertEquals(8, graph.getNodeCount());
+        Assert.assertEquals(4, components.getComponentCount());
+        int main = components.getComponent(node(graph, 0));
+        Assert.assertEquals(main, components.getLargestComponent());
+        Assert.assertEquals(4, components.getComponentSize(main));
+        for (int i = 1; i < 4; i++) {
+            Assert.assertEquals(main, components.getComponent(node(graph, i)));
+        }
+        Assert.assertEquals(components.getComponent(node(graph, 6)), components.getComponent(node(graph, 7)));
+        Assert.assertEquals(1, components.getComponentSize(components.getComponent(node(graph, 4))));
+
+        Assert.assertTrue(components.mayReach(node(graph, 4), node(graph, 5)));
+        Assert.assertTrue(components.mayReach(node(graph, 4), node(graph, 1)));
+        Assert.assertTrue(components.mayReach(node(graph, 1), node(graph, 5)));
+        Assert.assertFalse(components.mayReach(node(graph, 5), node(graph, 1)));
+        Assert.assertFalse(components.mayReach(node(graph, 1), node(graph, 4)));
+        Assert.assertFalse(components.mayReach(node(graph, 1), node(graph, 6)));
+        Assert.assertFalse(components.mayReach(node(graph, 7), node(graph, 1)));
+
+        // node ids are dense
+        for (int id = 0; id < graph.getNodeCount(); id++) {
+            Assert.assertEquals(id, graph.getNode(id).getId());
+        }
+
+        GraphAlgorithm<Path<MyLocatableNode>> dijkstra = GraphAlgorithms.createDijkstra(graph, nodes[0], nodes[6], 0);
+        dijkstra.execute();
+        Assert.assertNull(dijkstra.getResult());
+        dijkstra = GraphAlgorithms.createDijkstra(graph, nodes[4], nodes[5], 0);
+        dijkstra.execute();
+        Assert.assertEquals(4f, dijkstra.getResult().totalWeight(), 0f);
+    }
+
+    private void testPruning(GraphBuilder<MyLocatableNode, Object> builder) throws Exception {
+
+        builder.setMinComponentSize(3);
+        LocateableGraph<MyLocatableNode, Object> graph = build(builder);
+
+        Assert.assertEquals(4, graph.getNodeCount());
+        Assert.assertEquals(1, graph.getComponents().getComponentCount());
+        Assert.assertEquals(8, graph.getEdgeWeights().getEdgeCount());
+        for (int i = 4; i < 8; i++) {
+            Assert.assertNull(node(graph, i));
+        }
+        Assert.assertEquals(1f, node(graph, 0).getWeightTo(node(graph, 1), 0), 0f);
+    }
+
+    @Test
+    public void testGridIndexedGraph() throws Exception {
+        testComponents(Graphs.<MyLocatableNode, Object>createGridIndexedGraphBuilder(new Extent(0, 0, 100, 100), 10));
+    }
+
+    @Test
+    public void testCompressedGraph() throws Exception {
+        testComponents(Graphs.<MyLocatableNode, Object>createCompressedGraphBuilder(new Extent(0, 0, 100, 100), 10));
+    }
+
+    @Test
+    public void testPruneGridIndexedGraph() throws Exception {
+        testPruning(Graphs.<MyLocatableNode, Object>createGridIndexedGraphBuilder(new Extent(0, 0, 100, 100), 10));
+    }
+
+    @Test
+    public void testPruneCompressedGraph() throws Exception {
+        testPruning(Graphs.<MyLocatableNode, Object>createCompressedGraphBuilder(new Extent(0, 0, 100, 100), 10));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testPruneAll() throws Exception {
+        GraphBuilder<MyLocatableNode, Object> builder = Graphs.createGridIndexedGraphBuilder(new Extent(0, 0, 100, 100), 10);
+        builder.setMinComponentSize(5);
+        build(builder);
+    }
+}
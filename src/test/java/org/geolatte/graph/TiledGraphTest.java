@@ -0,0 +1,222 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph;
+
+import org.geolatte.graph.algorithms.GraphAlgorithm;
+import org.geolatte.graph.algorithms.GraphAlgorithms;
+import org.geolatte.stubs.MyLocatableNode;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Tests the tiled graphs written by {@link Graphs#writeTiledGraph} and opened by {@link Graphs#openTiledGraph}.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public class TiledGraphTest {
+
+    private static final int SIZE = 12;
+
+    private MyLocatableNode[][] grid = new MyLocatableNode[SIZE][SIZE];
+    private LocateableGraph<MyLocatableNode, String> graph;
+    private TiledGraph<MyLocatableNode, String> tiled;
+    private File file;
+
+    private static class Codec implements TileCodec<MyLocatableNode, String> {
+
+        public void writeNode(MyLocatableNode node, DataOutput out) throws IOException {
+            out.writeInt(node.getID());
+            out.writeFloat(node.getX());
+            out.writeFloat(node.getY());
+        }
+
+        public MyLocatableNode readNode(DataInput in) throws IOException {
+            return new MyLocatableNode(in.readInt(), in.readFloat(), in.readFloat());
+        }
+
+        public void writeLabel(String label, DataOutput out) throws IOException {
+            out.writeUTF(label);
+        }
+
+        public String readLabel(DataInput in) throws IOException {
+            return in.readUTF();
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+
+        // a grid of two-way edges, with weights that vary per edge, and a shape point chain between two corners
+        GraphBuilder<MyLocatableNode, String> builder = Graphs.createCompressedGraphBuilder(new Extent(0, 0, 200, 200), 10);
+        builder.setContractChains(true);
+        for (int x = 0; x < SIZE; x++) {
+            for (int y = 0; y < SIZE; y++) {
+                grid[x][y] = new MyLocatableNode(x * SIZE + y, x * 10, y * 10);
+            }
+        }
+        for (int x = 0; x < SIZE; x++) {
+            for (int y = 0; y < SIZE; y++) {
+                if (x + 1 < SIZE) {
+                    twoWay(builder, grid[x][y], grid[x + 1][y], 10 + (x * 7 + y * 3) % 5);
+                }
+                if (y + 1 < SIZE) {
+                    twoWay(builder, grid[x][y], grid[x][y + 1], 10 + (x * 3 + y * 7) % 5);
+                }
+            }
+        }
+        MyLocatableNode shape = new MyLocatableNode(1000, 155, 5);
+        twoWay(builder, grid[0][0], shape, 1);
+        twoWay(builder, shape, grid[SIZE - 1][0], 1);
+        graph = builder.build();
+
+        file = File.createTempFile("tiled", ".graph");
+        Graphs.writeTiledGraph(graph, new Extent(0, 0, 200, 200), 3, 3, 10, new Codec(), file);
+        tiled = Graphs.openTiledGraph(file, new Codec(), 2);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        tiled.close();
+        file.delete();
+    }
+
+    private void twoWay(GraphBuilder<MyLocatableNode, String> builder, MyLocatableNode a, MyLocatableNode b, float weight) {
+        builder.addEdge(a, b, new BasicEdgeWeight(weight), a.getID() + ">" + b.getID());
+        builder.addEdge(b, a, new BasicEdgeWeight(weight), b.getID() + ">" + a.getID());
+    }
+
+    private List<MyLocatableNode> route(Graph<MyLocatableNode, String> g, MyLocatableNode from, MyLocatableNode to) {
+        GraphAlgorithm<Path<MyLocatableNode>> dijkstra = GraphAlgorithms.createDijkstra(g, from, to, 0);
+        dijkstra.execute();
+        List<MyLocatableNode> list = new ArrayList<MyLocatableNode>();
+        for (MyLocatableNode node : dijkstra.getResult()) {
+            list.add(node);
+        }
+        return list;
+    }
+
+    @Test
+    public void testLabels() throws Exception {
+
+        EdgeLabelTable<String> labels = tiled.getEdgeLabels();
+        Assert.assertEquals(graph.getEdgeLabels().getDistinctLabelCount(), labels.getDistinctLabelCount());
+        Assert.assertEquals(graph.getEdgeWeights().getEdgeCount(), labels.getEdgeCount());
+        for (int x = 1; x < SIZE - 1; x++) {
+            InternalNode<MyLocatableNode, String> from = tiled.getInternalNode(grid[x][1]);
+            EdgeIterator<MyLocatableNode, String> edges = tiled.getOutGoingEdges(from, null);
+            while (edges.hasNext()) {
+                InternalNode<MyLocatableNode, String> to = edges.next();
+                String expected = graph.getInternalNode(from.getWrappedNode()).getLabelTo(graph.getInternalNode(to.getWrappedNode()));
+                Assert.assertEquals(expected, labels.getLabel(edges.getEdgeId()));
+                Assert.assertEquals(expected, from.getLabelTo(to));
+            }
+        }
+    }
+
+    @Test
+    public void testStructure() throws Exception {
+
+        Assert.assertEquals(9, tiled.getTileCount());
+        Assert.assertEquals(graph.getNodeCount(), tiled.getNodeCount());
+        Assert.assertEquals(graph.getEdgeWeights().getEdgeCount(), tiled.getEdgeWeights().getEdgeCount());
+
+        for (int x = 0; x < SIZE; x++) {
+            for (int y = 0; y < SIZE; y++) {
+                InternalNode<MyLocatableNode, String> expected = graph.getInternalNode(grid[x][y]);
+                InternalNode<MyLocatableNode, String> actual = tiled.getInternalNode(grid[x][y]);
+                if (expected == null) {
+                    // the corners with two neighbours are contracted
+                    Assert.assertNull(actual);
+                    continue;
+                }
+                Assert.assertEquals(grid[x][y], actual.getWrappedNode());
+                Assert.assertEquals(actual, tiled.getNode(actual.getId()));
+                EdgeIterator<MyLocatableNode, String> edges = graph.getOutGoingEdges(expected, null);
+                int count = 0;
+                while (edges.hasNext()) {
+                    InternalNode<MyLocatableNode, String> to = edges.next();
+                    InternalNode<MyLocatableNode, String> tiledTo = tiled.getInternalNode(to.getWrappedNode());
+                    Assert.assertEquals(expected.getWeightTo(to, 0), actual.getWeightTo(tiledTo, 0), 0f);
+                    Assert.assertEquals(expected.getLabelTo(to), actual.getLabelTo(tiledTo));
+                    count++;
+                }
+                EdgeIterator<MyLocatableNode, String> tiledEdges = tiled.getOutGoingEdges(actual, null);
+                while (tiledEdges.hasNext()) {
+                    tiledEdges.next();
+                    count--;
+                }
+                Assert.assertEquals(0, count);
+            }
+        }
+        Assert.assertNull(tiled.getInternalNode(new MyLocatableNode(1000, 155, 5)));
+        Assert.assertEquals(1, tiled.getNodesAt(grid[5][5]).size());
+        // (66, 68.5) lies near the corner of four tiles
+        List<InternalNode<MyLocatableNode, String>> closest = tiled.getClosestNodes(new MyLocatableNode(0, 66, 68.5f), 4, 15);
+        List<InternalNode<MyLocatableNode, String>> expected = graph.getClosestNodes(new MyLocatableNode(0, 66, 68.5f), 4, 15);
+        Assert.assertEquals(4, closest.size());
+        Assert.assertEquals(grid[7][7], closest.get(0).getWrappedNode());
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals(expected.get(i).getWrappedNode(), closest.get(i).getWrappedNode());
+        }
+    }
+
+    @Test
+    public void testRoutesAcrossTiles() throws Exception {
+
+        int[][] queries = {{0, 0, 10, 11}, {11, 0, 0, 10}, {3, 9, 10, 2}, {0, 0, 11, 0}, {11, 0, 0, 0}};
+        for (int[] q : queries) {
+            Assert.assertEquals(route(graph, grid[q[0]][q[1]], grid[q[2]][q[3]]),
+                    route(tiled, grid[q[0]][q[1]], grid[q[2]][q[3]]));
+        }
+        // the contracted chain is expanded again
+        Assert.assertEquals(3, route(tiled, grid[0][0], grid[SIZE - 1][0]).size());
+
+        TileMetrics metrics = tiled.getTileMetrics();
+        Assert.assertTrue(metrics.getMisses() > 9);
+        Assert.assertTrue(metrics.getHits() > 0);
+        Assert.assertTrue(metrics.getEvictions() > 0);
+        Assert.assertTrue(metrics.getMaxLoadTimeNanos() > 0);
+        Assert.assertTrue(metrics.getAverageLoadTimeNanos() <= metrics.getMaxLoadTimeNanos());
+    }
+
+    @Test
+    public void testComponents() throws Exception {
+
+        // the components are read with the header, a query only loads the tiles it needs
+        Assert.assertEquals(1, tiled.getComponents().getComponentCount());
+        Assert.assertEquals(graph.getNodeCount(), tiled.getComponents().getComponentSize(0));
+        route(tiled, grid[0][0], grid[1][1]);
+        Assert.assertTrue(tiled.getTileMetrics().getMisses() < tiled.getTileCount());
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+
+
+package org.geolatte.graph;
+
+import org.geolatte.stubs.MyLocatableNode;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <p>
+ * Tests the {@link TravelTimeFunction} and the {@link TimeDependentWeights}.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public class TimeDependentWeightsTest {
+
+    private static final TravelTimeFunction RUSH_HOUR = new TravelTimeFunction(new float[]{0f, 100f, 200f, 300f},
+            new float[]{10f, 10f, 40f, 10f});
+
+    @Test
+    public void testEvaluate() {
+
+        Assert.assertEquals(10f, RUSH_HOUR.getTravelTime(-50f), 0f);
+        Assert.assertEquals(10f, RUSH_HOUR.getTravelTime(50f), 0f);
+        Assert.assertEquals(25f, RUSH_HOUR.getTravelTime(150f), 1e-5f);
+        Assert.assertEquals(40f, RUSH_HOUR.getTravelTime(200f), 0f);
+        Assert.assertEquals(25f, RUSH_HOUR.getTravelTime(250f), 1e-5f);
+        Assert.assertEquals(10f, RUSH_HOUR.getTravelTime(1000f), 0f);
+        Assert.assertEquals(10f, RUSH_HOUR.getMinimum(), 0f);
+        Assert.assertEquals(40f, RUSH_HOUR.getMaximum(), 0f);
+        Assert.assertEquals(7f, TravelTimeFunction.constant(7f).getTravelTime(123f), 0f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNotFifo() {
+
+        // departing at 10 arrives at 60, departing at 20 arrives at 25
+        new TravelTimeFunction(new float[]{10f, 20f}, new float[]{50f, 5f});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDeparturesNotIncreasing() {
+
+        new TravelTimeFunction(new float[]{10f, 10f}, new float[]{5f, 5f});
+    }
+
+    @Test
+    public void testSharedFunctions() throws Exception {
+
+        GraphBuilder<MyLocatableNode, Object> builder = Graphs.createGridIndexedGraphBuilder(
+                new Extent(0d, 0d, 101d, 101d), 10);
+        MyLocatableNode[] nodes = new MyLocatableNode[4];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new MyLocatableNode(i, 10 * i, 10 * i);
+        }
+        for (int i = 0; i + 1 < nodes.length; i++) {
+            builder.addEdge(nodes[i], nodes[i + 1], new BasicEdgeWeight(5f));
+        }
+        LocateableGraph<MyLocatableNode, Object> graph = builder.build();
+        Assert.assertEquals(3, graph.getEdgeWeights().getEdgeCount());
+
+        TimeDependentWeights weights = new TimeDependentWeights.Builder(graph, 0)
+                .set(0, RUSH_HOUR)
+                .set(1, new TravelTimeFunction(new float[]{0f, 100f, 200f, 300f}, new float[]{10f, 10f, 40f, 10f}))
+                .set(2, TravelTimeFunction.constant(3f))
+                .set(2, null)
+                .build();
+        Assert.assertEquals(1, weights.getFunctionCount());
+        Assert.assertTrue(weights.isTimeDependent(0) && weights.isTimeDependent(1));
+        Assert.assertFalse(weights.isTimeDependent(2));
+        Assert.assertEquals(RUSH_HOUR, weights.getFunction(1));
+        Assert.assertEquals(25f, weights.getTravelTime(0, 150f), 1e-5f);
+        Assert.assertEquals(10f, weights.getMinimumTravelTime(1), 0f);
+        Assert.assertEquals(4, weights.getBreakpointCount(1));
+        Assert.assertEquals(200f, weights.getDeparture(1, 2), 0f);
+        Assert.assertEquals(5f, weights.getTravelTime(2, 150f), 0f);
+        Assert.assertEquals(0, weights.getBreakpointCount(2));
+
+        graph.getEdgeWeights().updateWeight(2, 0, 8f);
+        Assert.assertEquals(8f, weights.getTravelTime(2, 150f), 0f);
+    }
+
+    @Test
+    public void testDynamicGraph() throws Exception {
+
+        DynamicGraphBuilder<MyLocatableNode, Object> builder = Graphs.createDynamicGraphBuilder(
+                new Extent(0d, 0d, 101d, 101d), 10);
+        MyLocatableNode[] nodes = new MyLocatableNode[4];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new MyLocatableNode(i, 10 * i, 10 * i);
+        }
+        builder.addEdge(nodes[0], nodes[1], new BasicEdgeWeight(5f));
+        DynamicGraph<MyLocatableNode, Object> graph = builder.build();
+        TimeDependentWeights weights = new TimeDependentWeights.Builder(graph, 0).set(0, RUSH_HOUR).build();
+
+        // edges added later take the constant travel time
+        graph.addEdge(nodes[1], nodes[2], new BasicEdgeWeight(7f));
+        Assert.assertFalse(weights.isTimeDependent(1));
+        Assert.assertEquals(7f, weights.getTravelTime(1, 150f), 0f);
+        Assert.assertEquals(0, weights.getBreakpointCount(1));
+
+        // a snapshot reads the weights of the snapshot
+        LocateableGraph<MyLocatableNode, Object> snapshot = graph.snapshot();
+        graph.getEdgeWeights().updateWeight(1, 0, 9f);
+        TimeDependentWeights onSnapshot = weights.forGraph(snapshot);
+        Assert.assertEquals(7f, onSnapshot.getTravelTime(1, 150f), 0f);
+        Assert.assertEquals(9f, weights.forGraph(graph).getTravelTime(1, 150f), 0f);
+        Assert.assertEquals(25f, onSnapshot.getTravelTime(0, 150f), 1e-5f);
+
+        GraphBuilder<MyLocatableNode, Object> other = Graphs.createGridIndexedGraphBuilder(
+                new Extent(0d, 0d, 101d, 101d), 10);
+        other.addEdge(nodes[0], nodes[1], new BasicEdgeWeight(5f));
+        try {
+            weights.forGraph(other.build());
+            Assert.fail("The weights belong to another graph");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * <p>
+ * Tests the {@link WeightEncoding}s of an {@link EdgeWeightTable}.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public class WeightEncodingTest {
+
+    private EdgeWeightTable createTable(WeightEncoding encoding, float... values) {
+
+        EdgeWeightTable table = new EdgeWeightTable(WeightSchema.of("w").withEncoding("w", encoding));
+        for (float value : values) {
+            table.add(new BasicEdgeWeight(value));
+        }
+        table.seal();
+        return table;
+    }
+
+    @Test
+    public void testHalfFloatConversion() throws Exception {
+
+        // exactly representable values
+        float[] exact = {0f, 1f, -2f, 0.5f, 1024f, 65504f, 6.1035156E-5f, 5.9604645E-8f};
+        for (float value : exact) {
+            Assert.assertEquals(value, WeightColumn.HalfFloatColumn.toFloat(WeightColumn.HalfFloatColumn.toHalf(value)), 0f);
+        }
+        // round half to even: 2049 lies halfway between 2048 and 2050
+        Assert.assertEquals(2048f, WeightColumn.HalfFloatColumn.toFloat(WeightColumn.HalfFloatColumn.toHalf(2049f)), 0f);
+        Assert.assertEquals(2052f, WeightColumn.HalfFloatColumn.toFloat(WeightColumn.HalfFloatColumn.toHalf(2051f)), 0f);
+        // overflow and special values
+        Assert.assertEquals(Float.POSITIVE_INFINITY, WeightColumn.HalfFloatColumn.toFloat(WeightColumn.HalfFloatColumn.toHalf(70000f)), 0f);
+        Assert.assertEquals(Float.POSITIVE_INFINITY, WeightColumn.HalfFloatColumn.toFloat(WeightColumn.HalfFloatColumn.toHalf(Float.MAX_VALUE)), 0f);
+        Assert.assertTrue(Float.isNaN(WeightColumn.HalfFloatColumn.toFloat(WeightColumn.HalfFloatColumn.toHalf(Float.NaN))));
+    }
+
+    @Test
+    public void testHalfFloat() throws Exception {
+
+        EdgeWeightTable table = createTable(WeightEncoding.HALF_FLOAT, 12.5f, 1234.567f, 0.001f);
+
+        Assert.assertEquals(12.5f, table.getValue(0, 0), 0f);
+        Assert.assertEquals(1234.567f, table.getValue(1, 0), 0.5f);
+        Assert.assertEquals(0.001f, table.getValue(2, 0), 0.000001f);
+        Assert.assertEquals(6, table.getSizeInBytes(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testHalfFloatOutOfRange() throws Exception {
+
+        createTable(WeightEncoding.HALF_FLOAT, 1f, 65520f);
+    }
+
+    @Test
+    public void testHalfFloatInfinity() throws Exception {
+
+        EdgeWeightTable table = createTable(WeightEncoding.HALF_FLOAT, 65519f, Float.POSITIVE_INFINITY);
+
+        Assert.assertEquals(65504f, table.getValue(0, 0), 0f);
+        Assert.assertEquals(Float.POSITIVE_INFINITY, table.getValue(1, 0), 0f);
+    }
+
+    @Test
+    public void testFixedPoint16() throws Exception {
+
+        EdgeWeightTable table = createTable(WeightEncoding.fixedPoint16(0.1f), 0f, 12.34f, 6553.5f);
+
+        Assert.assertEquals(0f, table.getValue(0, 0), 0f);
+        Assert.assertEquals(12.3f, table.getValue(1, 0), 0.001f);
+        Assert.assertEquals(6553.5f, table.getValue(2, 0), 0.001f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFixedPoint16OutOfRange() throws Exception {
+
+        createTable(WeightEncoding.fixedPoint16(0.1f), 1f, 6553.6f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFixedPoint16Negative() throws Exception {
+
+        createTable(WeightEncoding.fixedPoint16(1f), -1f);
+    }
+
+    @Test
+    public void testFixedPoint32() throws Exception {
+
+        EdgeWeightTable table = createTable(WeightEncoding.fixedPoint32(0.01f), -5f, 1000000.25f);
+
+        Assert.assertEquals(-5f, table.getValue(0, 0), 0.001f);
+        Assert.assertEquals(1000000.25f, table.getValue(1, 0), 0.1f);
+    }
+
+    @Test
+    public void testDictionary() throws Exception {
+
+        float[] values = new float[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (i % 3) * 30f;
+        }
+        EdgeWeightTable table = createTable(WeightEncoding.DICTIONARY, values);
+
+        for (int i = 0; i < values.length; i++) {
+            Assert.assertEquals(values[i], table.getValue(i, 0), 0f);
+        }
+        Assert.assertEquals(1000 + 3 * 4, table.getSizeInBytes(0));
+
+        // more than 256 distinct values need 16-bit codes
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i * 0.5f;
+        }
+        table = createTable(WeightEncoding.DICTIONARY, values);
+        for (int i = 0; i < values.length; i++) {
+            Assert.assertEquals(values[i], table.getValue(i, 0), 0f);
+        }
+    }
+
+    @Test
+    public void testMixedSchema() throws Exception {
+
+        WeightSchema schema = WeightSchema.of("distance", "time", "class")
+                .withEncoding("distance", WeightEncoding.fixedPoint32(0.01f))
+                .withEncoding("time", WeightEncoding.HALF_FLOAT)
+                .withEncoding("class", WeightEncoding.DICTIONARY);
+        EdgeWeightTable table = new EdgeWeightTable(schema);
+        table.add(new ArrayEdgeWeight(new float[]{101.25f, 7.5f, 3f}));
+        table.add(new ArrayEdgeWeight(new float[]{2.5f, 0.25f, 1f}));
+
+        // values can be read before and after sealing the table
+        Assert.assertEquals(101.25f, table.getValue(0, 0), 0f);
+        table.seal();
+        Assert.assertEquals(101.25f, table.getValue(0, 0), 0.001f);
+        Assert.assertEquals(0.25f, table.getValue(1, 1), 0f);
+        Assert.assertEquals(3f, table.getValue(0, 2), 0f);
+        Assert.assertEquals(WeightEncoding.HALF_FLOAT, table.getSchema().getEncoding(1));
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+
+
+package org.geolatte.graph;
+
+import org.geolatte.graph.algorithms.GraphAlgorithm;
+import org.geolatte.graph.algorithms.GraphAlgorithms;
+import org.geolatte.graph.algorithms.SearchListener;
+import org.geolatte.graph.algorithms.SearchStats;
+import org.geolatte.stubs.MyLocatableNode;
+import org.geolatte.stubs.RoadNetworkGenerator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <p>
+ * Tests the {@link WeightVector}, and the Dijkstra and A* searches over a linear combination of weight indices against
+ * searches on a graph that stores the combined weights.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public class WeightVectorTest {
+
+    private static final float TIME_COEFFICIENT = 1f;
+    private static final float DISTANCE_COEFFICIENT = 0.05f;
+
+    @Test
+    public void testWith() {
+
+        WeightVector vector = WeightVector.of(1, 2f).with(0, 3f);
+        Assert.assertEquals(2, vector.size());
+        Assert.assertEquals(1, vector.getWeightIndex(0));
+        Assert.assertEquals(3f, vector.getCoefficient(1), 0f);
+        Assert.assertEquals(2f * 10f + 3f * 100f, vector.combine(new float[]{100f, 10f}), 1e-4f);
+
+        WeightVector replaced = vector.with(1, 0.5f);
+        Assert.assertEquals(2, replaced.size());
+        Assert.assertEquals(0.5f, replaced.getCoefficient(0), 0f);
+        Assert.assertEquals(2f, vector.getCoefficient(0), 0f);
+        Assert.assertEquals(WeightVector.of(1, 0.5f).with(0, 3f), replaced);
+        Assert.assertFalse(vector.equals(replaced));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeCoefficient() {
+
+        WeightVector.of(0, 1f).with(1, -1f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeWeightIndex() {
+
+        WeightVector.of(-1, 1f);
+    }
+
+    @Test
+    public void testCombinedSearches() throws Exception {
+
+        RoadNetworkGenerator generator = new RoadNetworkGenerator(30, 9);
+        final GraphBuilder<MyLocatableNode, String> builder = Graphs.createCompressedGraphBuilder(
+                generator.getExtent(), 100, RoadNetworkGenerator.SCHEMA);
+        final GraphBuilder<MyLocatableNode, String> combinedBuilder = Graphs.createCompressedGraphBuilder(
+                generator.getExtent(), 100);
+        generator.generate(new GraphBuilder<MyLocatableNode, String>() {
+            public void addEdge(MyLocatableNode fromNode, MyLocatableNode toNode, EdgeWeight edgeWeight) {
+                builder.addEdge(fromNode, toNode, edgeWeight);
+                combinedBuilder.addEdge(fromNode, toNode, new BasicEdgeWeight(
+                        TIME_COEFFICIENT * edgeWeight.getValue(RoadNetworkGenerator.TIME)
+                                + DISTANCE_COEFFICIENT * edgeWeight.getValue(RoadNetworkGenerator.DISTANCE)));
+            }
+
+            public void addEdge(MyLocatableNode fromNode, MyLocatableNode toNode, EdgeWeight edgeWeight,
+                                String edgeLabel) {
+                throw new UnsupportedOperationException();
+            }
+
+            public void setContractChains(boolean contract) {
+                builder.setContractChains(contract);
+                combinedBuilder.setContractChains(contract);
+            }
+
+            public void setMinComponentSize(int size) {
+                builder.setMinComponentSize(size);
+                combinedBuilder.setMinComponentSize(size);
+            }
+
+            public void setLabelSchema(LabelSchema<String> schema) {
+                throw new UnsupportedOperationException();
+            }
+
+            public LocateableGraph<MyLocatableNode, String> build() {
+                throw new UnsupportedOperationException();
+            }
+        }, new NodeFactory<MyLocatableNode>() {
+            public MyLocatableNode createNode(long id, float x, float y) {
+                return new MyLocatableNode((int) id, x, y);
+            }
+        });
+        LocateableGraph<MyLocatableNode, String> graph = builder.build();
+        LocateableGraph<MyLocatableNode, String> combined = combinedBuilder.build();
+        StronglyConnectedComponents components = graph.getComponents();
+        List<MyLocatableNode> nodes = new ArrayList<MyLocatableNode>();
+        for (int v = 0; v < graph.getNodeCount(); v++) {
+            if (components.getComponent(v) == components.getLargestComponent()) {
+                nodes.add(graph.getNode(v).getWrappedNode());
+            }
+        }
+        Collections.shuffle(nodes, new Random(2));
+
+        WeightVector vector = WeightVector.of(RoadNetworkGenerator.TIME, TIME_COEFFICIENT)
+                .with(RoadNetworkGenerator.DISTANCE, DISTANCE_COEFFICIENT);
+        float[] factors = new float[2];
+        factors[RoadNetworkGenerator.TIME] = 1f / generator.getMaxSpeed();
+        factors[RoadNetworkGenerator.DISTANCE] = 1f;
+        final int[] settled = new int[1];
+        SearchListener listener = new SearchListener() {
+            public void searchFinished(SearchStats stats) {
+                settled[0] = stats.getSettledNodes();
+            }
+        };
+        int dijkstraSettled = 0;
+        int aStarSettled = 0;
+        for (int q = 0; q < 20; q++) {
+            MyLocatableNode from = nodes.get(q);
+            MyLocatableNode to = nodes.get(nodes.size() - 1 - q);
+            GraphAlgorithm<Path<MyLocatableNode>> reference = GraphAlgorithms.createDijkstra(combined, from, to, 0);
+            reference.execute();
+            float expected = reference.getResult().totalWeight();
+
+            GraphAlgorithm<Path<MyLocatableNode>> dijkstra = GraphAlgorithms.createDijkstra(graph, from, to, vector);
+            GraphAlgorithms.setSearchListener(dijkstra, listener);
+            dijkstra.execute();
+            Assert.assertEquals(expected, dijkstra.getResult().totalWeight(), expected * 1e-4f);
+            dijkstraSettled += settled[0];
+
+            GraphAlgorithm<Path<MyLocatableNode>> aStar = GraphAlgorithms.createAStar(graph, from, to, vector, 1f,
+                    factors);
+            GraphAlgorithms.setSearchListener(aStar, listener);
+            aStar.execute();
+            Assert.assertEquals(expected, aStar.getResult().totalWeight(), expected * 1e-4f);
+            aStarSettled += settled[0];
+
+            GraphAlgorithm<Path<MyLocatableNode>> single = GraphAlgorithms.createDijkstra(graph, from, to,
+                    WeightVector.of(RoadNetworkGenerator.TIME, 1f));
+            single.execute();
+            GraphAlgorithm<Path<MyLocatableNode>> time = GraphAlgorithms.createDijkstra(graph, from, to,
+                    RoadNetworkGenerator.TIME);
+            time.execute();
+            Assert.assertEquals(time.getResult().totalWeight(), single.getResult().totalWeight(), 0f);
+        }
+        Assert.assertTrue(aStarSettled < dijkstraSettled);
+    }
+}
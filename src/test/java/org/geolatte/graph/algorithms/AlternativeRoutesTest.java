@@ -0,0 +1,152 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+
+package org.geolatte.graph.algorithms;
+
+import org.geolatte.graph.*;
+import org.geolatte.stubs.MyLocatableNode;
+import org.geolatte.stubs.RoadNetworkGenerator;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ * <p>
+ * Tests the {@link AlternativeRoutes} on a road network: the alternatives must satisfy the stretch, sharing and local
+ * optimality criteria.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public class AlternativeRoutesTest {
+
+    private LocateableGraph<MyLocatableNode, String> graph;
+    private List<MyLocatableNode> nodes;
+
+    @Before
+    public void setUp() throws Exception {
+
+        RoadNetworkGenerator generator = new RoadNetworkGenerator(40, 17);
+        GraphBuilder<MyLocatableNode, String> builder = Graphs.createCompressedGraphBuilder(generator.getExtent(), 100,
+                RoadNetworkGenerator.SCHEMA);
+        generator.generate(builder, new NodeFactory<MyLocatableNode>() {
+            public MyLocatableNode createNode(long id, float x, float y) {
+                return new MyLocatableNode((int) id, x, y);
+            }
+        });
+        graph = builder.build();
+        StronglyConnectedComponents components = graph.getComponents();
+        nodes = new ArrayList<MyLocatableNode>();
+        for (int v = 0; v < graph.getNodeCount(); v++) {
+            if (components.getComponent(v) == components.getLargestComponent()) {
+                nodes.add(graph.getNode(v).getWrappedNode());
+            }
+        }
+        Collections.shuffle(nodes, new Random(4));
+    }
+
+    private float dijkstra(MyLocatableNode from, MyLocatableNode to) {
+        GraphAlgorithm<Path<MyLocatableNode>> dijkstra = GraphAlgorithms.createDijkstra(graph, from, to,
+                RoadNetworkGenerator.TIME);
+        dijkstra.execute();
+        return dijkstra.getResult().totalWeight();
+    }
+
+    private List<MyLocatableNode> toList(Path<MyLocatableNode> path) {
+        List<MyLocatableNode> list = new ArrayList<MyLocatableNode>();
+        for (MyLocatableNode node : path) {
+            list.add(node);
+        }
+        return list;
+    }
+
+    /**
+     * Gets the weights of the lightest edges between consecutive nodes of a path, keyed by the pair of nodes.
+     */
+    private Map<List<MyLocatableNode>, Float> edges(List<MyLocatableNode> path) {
+        Map<List<MyLocatableNode>, Float> edges = new HashMap<List<MyLocatableNode>, Float>();
+        for (int i = 0; i + 1 < path.size(); i++) {
+            edges.put(Arrays.asList(path.get(i), path.get(i + 1)), dijkstra(path.get(i), path.get(i + 1)));
+        }
+        return edges;
+    }
+
+    @Test
+    public void testAlternatives() {
+
+        int found = 0;
+        for (int q = 0; q < 20; q++) {
+            MyLocatableNode from = nodes.get(q);
+            MyLocatableNode to = nodes.get(nodes.size() - 1 - q);
+            GraphAlgorithm<List<Path<MyLocatableNode>>> algorithm = GraphAlgorithms.createAlternativeRoutes(graph,
+                    from, to, RoadNetworkGenerator.TIME, 2);
+            algorithm.execute();
+            List<Path<MyLocatableNode>> paths = algorithm.getResult();
+            Assert.assertTrue(paths.size() >= 1 && paths.size() <= 3);
+            float shortest = dijkstra(from, to);
+            Assert.assertEquals(shortest, paths.get(0).totalWeight(), shortest * 1e-4f);
+            Map<List<MyLocatableNode>, Float> used = new HashMap<List<MyLocatableNode>, Float>();
+            for (Path<MyLocatableNode> path : paths) {
+                List<MyLocatableNode> list = toList(path);
+                Assert.assertSame(from, list.get(0));
+                Assert.assertSame(to, list.get(list.size() - 1));
+                Assert.assertEquals(list.size(), new HashSet<MyLocatableNode>(list).size());
+                Assert.assertTrue(path.totalWeight() <= shortest * 1.25f + 1e-3f);
+                Map<List<MyLocatableNode>, Float> edges = edges(list);
+                float total = 0;
+                float shared = 0;
+                for (Map.Entry<List<MyLocatableNode>, Float> edge : edges.entrySet()) {
+                    total += edge.getValue();
+                    if (used.containsKey(edge.getKey())) {
+                        shared += edge.getValue();
+                    }
+                }
+                Assert.assertEquals(path.totalWeight(), total, total * 1e-4f);
+                if (!used.isEmpty()) {
+                    Assert.assertTrue(shared <= shortest * 0.8f + 1e-3f);
+                    found++;
+                }
+                used.putAll(edges);
+            }
+        }
+        Assert.assertTrue(found > 10);
+    }
+
+    @Test
+    public void testNoAlternatives() {
+
+        GraphAlgorithm<List<Path<MyLocatableNode>>> algorithm = GraphAlgorithms.createAlternativeRoutes(graph,
+                nodes.get(0), nodes.get(1), RoadNetworkGenerator.TIME, 0);
+        algorithm.execute();
+        Assert.assertEquals(1, algorithm.getResult().size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSharingOutOfRange() {
+
+        GraphAlgorithms.createAlternativeRoutes(graph, nodes.get(0), nodes.get(1), RoadNetworkGenerator.TIME, 2,
+                0.25f, 1.5f, 0.25f);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+
+package org.geolatte.graph.algorithms;
+
+import org.geolatte.graph.*;
+import org.geolatte.stubs.MyLocatableNode;
+import org.geolatte.stubs.RoadNetworkGenerator;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <p>
+ * Tests the {@link ArcFlags} against plain Dijkstra searches.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public class ArcFlagsTest {
+
+    private LocateableGraph<MyLocatableNode, String> graph;
+    private List<MyLocatableNode> nodes;
+
+    @Before
+    public void setUp() throws Exception {
+
+        RoadNetworkGenerator generator = new RoadNetworkGenerator(30, 3);
+        GraphBuilder<MyLocatableNode, String> builder = Graphs.createCompressedGraphBuilder(generator.getExtent(), 100,
+                RoadNetworkGenerator.SCHEMA);
+        generator.generate(builder, new NodeFactory<MyLocatableNode>() {
+            public MyLocatableNode createNode(long id, float x, float y) {
+                return new MyLocatableNode((int) id, x, y);
+            }
+        });
+        graph = builder.build();
+        nodes = new ArrayList<MyLocatableNode>();
+        for (InternalNode<MyLocatableNode, String> node : graph) {
+            nodes.add(node.getWrappedNode());
+        }
+        Collections.shuffle(nodes, new Random(5));
+    }
+
+    private static Path<MyLocatableNode> run(GraphAlgorithm<Path<MyLocatableNode>> algorithm) {
+        algorithm.execute();
+        return algorithm.getResult();
+    }
+
+    @Test
+    public void testRegions() {
+
+        ArcFlags<MyLocatableNode, String> arcFlags = GraphAlgorithms.createArcFlags(graph, RoadNetworkGenerator.TIME,
+                10, 1);
+        Assert.assertEquals(10, arcFlags.getRegionCount());
+        int[] sizes = new int[10];
+        for (int v = 0; v < graph.getNodeCount(); v++) {
+            sizes[arcFlags.getRegion(v)]++;
+        }
+        for (int size : sizes) {
+            Assert.assertTrue(Math.abs(size - graph.getNodeCount() / 10) <= 1);
+        }
+        Assert.assertEquals(8L * graph.getEdgeWeights().getEdgeCount(), arcFlags.getSizeInBytes());
+        Assert.assertTrue(arcFlags.isFlagged(0, -1));
+    }
+
+    @Test
+    public void testShortestPaths() {
+
+        // more than 64 regions, so that the flags of an edge take two words
+        ArcFlags<MyLocatableNode, String> arcFlags = GraphAlgorithms.createArcFlags(graph, RoadNetworkGenerator.TIME,
+                70, 4);
+        SettledCounter plainStats = new SettledCounter();
+        SettledCounter flaggedStats = new SettledCounter();
+        for (int i = 0; i < 100; i++) {
+            MyLocatableNode from = nodes.get(i);
+            MyLocatableNode to = nodes.get(nodes.size() - 1 - i);
+            GraphAlgorithm<Path<MyLocatableNode>> plain = GraphAlgorithms.createDijkstra(graph, from, to,
+                    RoadNetworkGenerator.TIME);
+            GraphAlgorithms.setSearchListener(plain, plainStats);
+            GraphAlgorithm<Path<MyLocatableNode>> flagged = GraphAlgorithms.createDijkstra(arcFlags, from, to);
+            GraphAlgorithms.setSearchListener(flagged, flaggedStats);
+            Path<MyLocatableNode> expected = run(plain);
+            Path<MyLocatableNode> actual = run(flagged);
+            if (expected == null) {
+                Assert.assertNull(actual);
+            } else {
+                Assert.assertEquals(expected.totalWeight(), actual.totalWeight(), expected.totalWeight() * 1e-4f);
+                Assert.assertEquals(from, actual.getSource());
+                Assert.assertEquals(to, actual.getDestination());
+            }
+        }
+        // the flags prune most of the search
+        Assert.assertTrue(flaggedStats.settled * 2 < plainStats.settled);
+    }
+
+    private static class SettledCounter implements SearchListener {
+
+        private long settled;
+
+        public void searchFinished(SearchStats stats) {
+            settled += stats.getSettledNodes();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoRegions() {
+
+        GraphAlgorithms.createArcFlags(graph, RoadNetworkGenerator.TIME, 0, 1);
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph.algorithms;
+
+import org.geolatte.graph.*;
+import org.geolatte.stubs.MyLocatableNode;
+import org.geolatte.stubs.RoadNetworkGenerator;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <p>
+ * Tests the {@link ContractionHierarchy} and the distance matrices against plain Dijkstra searches.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public class ContractionHierarchyTest {
+
+    private LocateableGraph<MyLocatableNode, String> graph;
+    private ContractionHierarchy<MyLocatableNode, String> hierarchy;
+    private List<MyLocatableNode> nodes;
+
+    @Before
+    public void setUp() throws Exception {
+
+        RoadNetworkGenerator generator = new RoadNetworkGenerator(40, 11);
+        GraphBuilder<MyLocatableNode, String> builder = Graphs.createCompressedGraphBuilder(generator.getExtent(), 100,
+                RoadNetworkGenerator.SCHEMA);
+        generator.generate(builder, new NodeFactory<MyLocatableNode>() {
+            public MyLocatableNode createNode(long id, float x, float y) {
+                return new MyLocatableNode((int) id, x, y);
+            }
+        });
+        graph = builder.build();
+        hierarchy = GraphAlgorithms.createContractionHierarchy(graph, RoadNetworkGenerator.TIME);
+        nodes = new ArrayList<MyLocatableNode>();
+        for (InternalNode<MyLocatableNode, String> node : graph) {
+            nodes.add(node.getWrappedNode());
+        }
+        Collections.shuffle(nodes, new Random(3));
+    }
+
+    private float dijkstra(MyLocatableNode from, MyLocatableNode to) {
+        GraphAlgorithm<Path<MyLocatableNode>> dijkstra = GraphAlgorithms.createDijkstra(graph, from, to,
+                RoadNetworkGenerator.TIME);
+        dijkstra.execute();
+        return dijkstra.getResult() == null ? Float.POSITIVE_INFINITY : dijkstra.getResult().totalWeight();
+    }
+
+    private static void assertDistance(float expected, float actual) {
+        if (Float.isInfinite(expected)) {
+            Assert.assertTrue(Float.isInfinite(actual));
+        } else {
+            Assert.assertEquals(expected, actual, expected * 1e-4f);
+        }
+    }
+
+    @Test
+    public void testHierarchy() {
+
+        Assert.assertTrue(hierarchy.getShortcutCount() > 0);
+        boolean[] ranks = new boolean[graph.getNodeCount()];
+        for (int v = 0; v < graph.getNodeCount(); v++) {
+            ranks[hierarchy.getRank(v)] = true;
+        }
+        for (boolean rank : ranks) {
+            Assert.assertTrue(rank);
+        }
+    }
+
+    @Test
+    public void testDistance() {
+
+        for (int i = 0; i < 100; i++) {
+            MyLocatableNode from = nodes.get(i);
+            MyLocatableNode to = nodes.get(nodes.size() - 1 - i);
+            assertDistance(dijkstra(from, to), hierarchy.distance(from, to));
+        }
+        Assert.assertEquals(0, hierarchy.distance(nodes.get(0), nodes.get(0)), 0);
+    }
+
+    @Test
+    public void testMatrix() {
+
+        List<MyLocatableNode> sources = nodes.subList(0, 30);
+        List<MyLocatableNode> targets = new ArrayList<MyLocatableNode>(nodes.subList(20, 60));
+        targets.add(nodes.get(20)); // a duplicate target
+        GraphAlgorithm<float[][]> plain = GraphAlgorithms.createDistanceMatrix(graph, sources, targets,
+                RoadNetworkGenerator.TIME, 1);
+        plain.execute();
+        for (int threads = 1; threads <= 4; threads += 3) {
+            GraphAlgorithm<float[][]> bucket = GraphAlgorithms.createDistanceMatrix(hierarchy, sources, targets, threads);
+            bucket.execute();
+            float[][] expected = plain.getResult();
+            float[][] actual = bucket.getResult();
+            Assert.assertEquals(sources.size(), actual.length);
+            for (int i = 0; i < sources.size(); i++) {
+                Assert.assertEquals(targets.size(), actual[i].length);
+                for (int j = 0; j < targets.size(); j++) {
+                    assertDistance(expected[i][j], actual[i][j]);
+                }
+            }
+        }
+        // spot checks against single searches
+        assertDistance(dijkstra(sources.get(3), targets.get(7)), plain.getResult()[3][7]);
+        assertDistance(dijkstra(sources.get(25), targets.get(0)), plain.getResult()[25][0]);
+    }
+
+    @Test
+    public void testParallelPlainMatrix() {
+
+        List<MyLocatableNode> sources = nodes.subList(0, 10);
+        List<MyLocatableNode> targets = nodes.subList(10, 20);
+        GraphAlgorithm<float[][]> single = GraphAlgorithms.createDistanceMatrix(graph, sources, targets,
+                RoadNetworkGenerator.TIME, 1);
+        single.execute();
+        GraphAlgorithm<float[][]> parallel = GraphAlgorithms.createDistanceMatrix(graph, sources, targets,
+                RoadNetworkGenerator.TIME, 3);
+        parallel.execute();
+        for (int i = 0; i < sources.size(); i++) {
+            Assert.assertTrue(Arrays.equals(single.getResult()[i], parallel.getResult()[i]));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownNode() {
+        hierarchy.distance(nodes.get(0), new MyLocatableNode(-1, 0, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThreads() {
+        GraphAlgorithms.createDistanceMatrix(hierarchy, nodes, nodes, 0);
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+
+package org.geolatte.graph.algorithms;
+
+import org.geolatte.graph.*;
+import org.geolatte.stubs.MyLocatableNode;
+import org.geolatte.stubs.RoadNetworkGenerator;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <p>
+ * Tests the {@link HubLabels} against the contraction hierarchy they are derived from.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public class HubLabelsTest {
+
+    private LocateableGraph<MyLocatableNode, String> graph;
+    private ContractionHierarchy<MyLocatableNode, String> hierarchy;
+    private HubLabels<MyLocatableNode, String> labels;
+    private List<MyLocatableNode> nodes;
+
+    @Before
+    public void setUp() throws Exception {
+
+        RoadNetworkGenerator generator = new RoadNetworkGenerator(30, 13);
+        GraphBuilder<MyLocatableNode, String> builder = Graphs.createCompressedGraphBuilder(generator.getExtent(), 100,
+                RoadNetworkGenerator.SCHEMA);
+        generator.generate(builder, new NodeFactory<MyLocatableNode>() {
+            public MyLocatableNode createNode(long id, float x, float y) {
+                return new MyLocatableNode((int) id, x, y);
+            }
+        });
+        graph = builder.build();
+        hierarchy = GraphAlgorithms.createContractionHierarchy(graph, RoadNetworkGenerator.TIME);
+        labels = GraphAlgorithms.createHubLabels(hierarchy);
+        nodes = new ArrayList<MyLocatableNode>();
+        for (InternalNode<MyLocatableNode, String> node : graph) {
+            nodes.add(node.getWrappedNode());
+        }
+        Collections.shuffle(nodes, new Random(9));
+    }
+
+    private void assertDistances(int weightIndex) {
+        for (int i = 0; i < 200; i++) {
+            MyLocatableNode from = nodes.get(i);
+            MyLocatableNode to = nodes.get(nodes.size() - 1 - i);
+            float expected = hierarchy.distance(from, to);
+            float actual = labels.distance(from, to, weightIndex);
+            if (Float.isInfinite(expected)) {
+                Assert.assertTrue(Float.isInfinite(actual));
+            } else {
+                Assert.assertEquals(expected, actual, expected * 1e-4f);
+            }
+        }
+    }
+
+    @Test
+    public void testDistance() {
+
+        Assert.assertTrue(labels.contains(RoadNetworkGenerator.TIME));
+        Assert.assertFalse(labels.contains(RoadNetworkGenerator.DISTANCE));
+        Assert.assertFalse(labels.isMapped(RoadNetworkGenerator.TIME));
+        Assert.assertTrue(labels.getAverageLabelSize(RoadNetworkGenerator.TIME) >= 1);
+        assertDistances(RoadNetworkGenerator.TIME);
+        Assert.assertEquals(0, labels.distance(nodes.get(0), nodes.get(0), RoadNetworkGenerator.TIME), 0);
+    }
+
+    @Test
+    public void testWriteAndLoad() throws Exception {
+
+        File file = File.createTempFile("labels", ".hl");
+        file.deleteOnExit();
+        labels.write(RoadNetworkGenerator.TIME, file);
+        double size = labels.getAverageLabelSize(RoadNetworkGenerator.TIME);
+        labels.load(RoadNetworkGenerator.TIME, file, false);
+        Assert.assertFalse(labels.isMapped(RoadNetworkGenerator.TIME));
+        Assert.assertEquals(size, labels.getAverageLabelSize(RoadNetworkGenerator.TIME), 0);
+        assertDistances(RoadNetworkGenerator.TIME);
+        labels.load(RoadNetworkGenerator.TIME, file, true);
+        Assert.assertTrue(labels.isMapped(RoadNetworkGenerator.TIME));
+        Assert.assertEquals(size, labels.getAverageLabelSize(RoadNetworkGenerator.TIME), 0);
+        assertDistances(RoadNetworkGenerator.TIME);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMissingWeightIndex() {
+
+        labels.distance(nodes.get(0), nodes.get(1), RoadNetworkGenerator.DISTANCE);
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+
+package org.geolatte.graph.algorithms;
+
+import org.geolatte.graph.*;
+import org.geolatte.stubs.MyLocatableNode;
+import org.geolatte.stubs.RoadNetworkGenerator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ * <p>
+ * Tests the k shortest paths against an enumeration of all paths of a small graph, and on a road network.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public class KShortestPathsTest {
+
+    private static final float[][] WEIGHTS = {
+            {-1f, 10f, 5f, -1f, -1f},
+            {-1f, -1f, 2f, 1f, -1f},
+            {-1f, 3f, -1f, 9f, 2f},
+            {-1f, -1f, -1f, -1f, 4f},
+            {7f, -1f, -1f, 6f, -1f}
+    };
+
+    private static List<MyLocatableNode> toList(Path<MyLocatableNode> path) {
+        List<MyLocatableNode> list = new ArrayList<MyLocatableNode>();
+        for (MyLocatableNode node : path) {
+            list.add(node);
+        }
+        return list;
+    }
+
+    /**
+     * Collects the weights of all loopless paths from a node to node 3.
+     */
+    private static void enumerate(int node, float weight, boolean[] visited, List<Float> result) {
+        if (node == 3) {
+            result.add(weight);
+            return;
+        }
+        visited[node] = true;
+        for (int next = 0; next < WEIGHTS.length; next++) {
+            if (WEIGHTS[node][next] > 0 && !visited[next]) {
+                enumerate(next, weight + WEIGHTS[node][next], visited, result);
+            }
+        }
+        visited[node] = false;
+    }
+
+    private final MyLocatableNode[] nodes = {
+            new MyLocatableNode(0, 0, 100),
+            new MyLocatableNode(1, 100, 200),
+            new MyLocatableNode(2, 100, 100),
+            new MyLocatableNode(3, 200, 200),
+            new MyLocatableNode(4, 200, 100)
+    };
+
+    private LocateableGraph<MyLocatableNode, Object> smallGraph() throws BuilderException {
+        GraphBuilder<MyLocatableNode, Object> builder = Graphs.createGridIndexedGraphBuilder(
+                new Extent(0d, 0d, 201d, 201d), 10);
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j < 5; j++) {
+                if (WEIGHTS[i][j] > 0f) {
+                    builder.addEdge(nodes[i], nodes[j], new BasicEdgeWeight(WEIGHTS[i][j]));
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    @Test
+    public void testAllPaths() throws Exception {
+
+        LocateableGraph<MyLocatableNode, Object> graph = smallGraph();
+        List<Float> expected = new ArrayList<Float>();
+        enumerate(0, 0, new boolean[5], expected);
+        Collections.sort(expected);
+
+        GraphAlgorithm<List<Path<MyLocatableNode>>> yen = GraphAlgorithms.createKShortestPaths(graph, nodes[0],
+                nodes[3], 0, 20, 2);
+        yen.execute();
+        List<Path<MyLocatableNode>> paths = yen.getResult();
+        Assert.assertEquals(expected.size(), paths.size());
+        Set<List<MyLocatableNode>> distinct = new HashSet<List<MyLocatableNode>>();
+        for (int i = 0; i < paths.size(); i++) {
+            Path<MyLocatableNode> path = paths.get(i);
+            Assert.assertEquals(expected.get(i), path.totalWeight(), 1e-4f);
+            Assert.assertTrue(path.isValid());
+            Assert.assertSame(nodes[0], path.getSource());
+            Assert.assertSame(nodes[3], path.getDestination());
+            List<MyLocatableNode> list = toList(path);
+            Assert.assertEquals(list.size(), new HashSet<MyLocatableNode>(list).size());
+            Assert.assertTrue(distinct.add(list));
+        }
+        Assert.assertEquals(Arrays.asList(nodes[0], nodes[2], nodes[1], nodes[3]), toList(paths.get(0)));
+    }
+
+    @Test
+    public void testRoadNetwork() throws Exception {
+
+        RoadNetworkGenerator generator = new RoadNetworkGenerator(30, 5);
+        GraphBuilder<MyLocatableNode, String> builder = Graphs.createCompressedGraphBuilder(generator.getExtent(), 100,
+                RoadNetworkGenerator.SCHEMA);
+        generator.generate(builder, new NodeFactory<MyLocatableNode>() {
+            public MyLocatableNode createNode(long id, float x, float y) {
+                return new MyLocatableNode((int) id, x, y);
+            }
+        });
+        LocateableGraph<MyLocatableNode, String> graph = builder.build();
+        StronglyConnectedComponents components = graph.getComponents();
+        List<MyLocatableNode> connected = new ArrayList<MyLocatableNode>();
+        for (int v = 0; v < graph.getNodeCount(); v++) {
+            if (components.getComponent(v) == components.getLargestComponent()) {
+                connected.add(graph.getNode(v).getWrappedNode());
+            }
+        }
+        MyLocatableNode from = connected.get(0);
+        MyLocatableNode to = connected.get(connected.size() - 1);
+        GraphAlgorithm<Path<MyLocatableNode>> dijkstra = GraphAlgorithms.createDijkstra(graph, from, to,
+                RoadNetworkGenerator.TIME);
+        dijkstra.execute();
+
+        List<List<Path<MyLocatableNode>>> results = new ArrayList<List<Path<MyLocatableNode>>>();
+        for (int threads = 1; threads <= 4; threads += 3) {
+            GraphAlgorithm<List<Path<MyLocatableNode>>> yen = GraphAlgorithms.createKShortestPaths(graph, from, to,
+                    RoadNetworkGenerator.TIME, 10, threads);
+            SearchHistogram histogram = new SearchHistogram(1);
+            GraphAlgorithms.setSearchListener(yen, histogram);
+            yen.execute();
+            Assert.assertEquals(1, histogram.getCount());
+            Assert.assertEquals("Yen", histogram.getSlowest().get(0).getAlgorithm());
+            results.add(yen.getResult());
+        }
+        List<Path<MyLocatableNode>> paths = results.get(0);
+        Assert.assertEquals(10, paths.size());
+        Assert.assertEquals(dijkstra.getResult().totalWeight(), paths.get(0).totalWeight(), 1e-3f);
+        Set<List<MyLocatableNode>> distinct = new HashSet<List<MyLocatableNode>>();
+        for (int i = 0; i < paths.size(); i++) {
+            List<MyLocatableNode> list = toList(paths.get(i));
+            Assert.assertEquals(list.size(), new HashSet<MyLocatableNode>(list).size());
+            Assert.assertTrue(distinct.add(list));
+            if (i > 0) {
+                Assert.assertTrue(paths.get(i - 1).totalWeight() <= paths.get(i).totalWeight());
+            }
+            Assert.assertEquals(paths.get(i).totalWeight(), results.get(1).get(i).totalWeight(), 1e-3f);
+        }
+    }
+
+    @Test
+    public void testSinglePath() throws Exception {
+
+        // nothing leads to node 0 but the edge from node 4
+        GraphAlgorithm<List<Path<MyLocatableNode>>> yen = GraphAlgorithms.createKShortestPaths(smallGraph(), nodes[3],
+                nodes[0], 0, 5, 1);
+        yen.execute();
+        Assert.assertEquals(1, yen.getResult().size());
+        Assert.assertEquals(11f, yen.getResult().get(0).totalWeight(), 1e-4f);
+    }
+
+    @Test
+    public void testParallelChains() throws Exception {
+
+        // two one-way chains from node 0 to node 3, contracted into parallel edges
+        GraphBuilder<MyLocatableNode, Object> builder = Graphs.createCompressedGraphBuilder(
+                new Extent(0d, 0d, 201d, 201d), 10);
+        builder.setContractChains(true);
+        builder.addEdge(nodes[0], nodes[1], new BasicEdgeWeight(1f));
+        builder.addEdge(nodes[1], nodes[3], new BasicEdgeWeight(1f));
+        builder.addEdge(nodes[0], nodes[2], new BasicEdgeWeight(2f));
+        builder.addEdge(nodes[2], nodes[3], new BasicEdgeWeight(2f));
+        LocateableGraph<MyLocatableNode, Object> graph = builder.build();
+        Assert.assertEquals(2, graph.getNodeCount());
+
+        GraphAlgorithm<List<Path<MyLocatableNode>>> yen = GraphAlgorithms.createKShortestPaths(graph, nodes[0],
+                nodes[3], 0, 5, 1);
+        yen.execute();
+        List<Path<MyLocatableNode>> paths = yen.getResult();
+        Assert.assertEquals(2, paths.size());
+        Assert.assertEquals(2f, paths.get(0).totalWeight(), 1e-4f);
+        Assert.assertEquals(Arrays.asList(nodes[0], nodes[1], nodes[3]), toList(paths.get(0)));
+        Assert.assertEquals(4f, paths.get(1).totalWeight(), 1e-4f);
+        Assert.assertEquals(Arrays.asList(nodes[0], nodes[2], nodes[3]), toList(paths.get(1)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoPathsRequested() throws Exception {
+
+        GraphAlgorithms.createKShortestPaths(smallGraph(), nodes[0], nodes[3], 0, 0, 1);
+    }
+}
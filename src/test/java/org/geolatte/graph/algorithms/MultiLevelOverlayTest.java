@@ -0,0 +1,157 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+
+package org.geolatte.graph.algorithms;
+
+import org.geolatte.graph.*;
+import org.geolatte.stubs.MyLocatableNode;
+import org.geolatte.stubs.RoadNetworkGenerator;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <p>
+ * Tests the {@link MultiLevelOverlay} against plain Dijkstra searches.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public class MultiLevelOverlayTest {
+
+    private LocateableGraph<MyLocatableNode, String> graph;
+    private MultiLevelOverlay<MyLocatableNode, String> overlay;
+    private List<MyLocatableNode> nodes;
+
+    @Before
+    public void setUp() throws Exception {
+
+        RoadNetworkGenerator generator = new RoadNetworkGenerator(40, 5);
+        GraphBuilder<MyLocatableNode, String> builder = Graphs.createCompressedGraphBuilder(generator.getExtent(), 100,
+                RoadNetworkGenerator.SCHEMA);
+        generator.generate(builder, new NodeFactory<MyLocatableNode>() {
+            public MyLocatableNode createNode(long id, float x, float y) {
+                return new MyLocatableNode((int) id, x, y);
+            }
+        });
+        graph = builder.build();
+        overlay = GraphAlgorithms.createMultiLevelOverlay(graph, 16, 128, 512);
+        nodes = new ArrayList<MyLocatableNode>();
+        for (InternalNode<MyLocatableNode, String> node : graph) {
+            nodes.add(node.getWrappedNode());
+        }
+        Collections.shuffle(nodes, new Random(7));
+    }
+
+    private float dijkstra(MyLocatableNode from, MyLocatableNode to, int weightIndex) {
+        GraphAlgorithm<Path<MyLocatableNode>> dijkstra = GraphAlgorithms.createDijkstra(graph, from, to, weightIndex);
+        dijkstra.execute();
+        return dijkstra.getResult() == null ? Float.POSITIVE_INFINITY : dijkstra.getResult().totalWeight();
+    }
+
+    private void assertDistances(int weightIndex) {
+        for (int i = 0; i < 100; i++) {
+            MyLocatableNode from = nodes.get(i);
+            MyLocatableNode to = nodes.get(nodes.size() - 1 - i);
+            float expected = dijkstra(from, to, weightIndex);
+            float actual = overlay.distance(from, to, weightIndex);
+            if (Float.isInfinite(expected)) {
+                Assert.assertTrue(Float.isInfinite(actual));
+            } else {
+                Assert.assertEquals(expected, actual, expected * 1e-4f);
+            }
+        }
+    }
+
+    @Test
+    public void testPartition() {
+
+        Assert.assertEquals(3, overlay.getLevelCount());
+        int[] maxSizes = {16, 128, 512};
+        for (int l = 0; l < 3; l++) {
+            int[] sizes = new int[overlay.getCellCount(l)];
+            for (int v = 0; v < graph.getNodeCount(); v++) {
+                sizes[overlay.getCell(l, v)]++;
+            }
+            for (int size : sizes) {
+                Assert.assertTrue(size > 0 && size <= maxSizes[l]);
+            }
+            Assert.assertTrue(overlay.getBoundaryNodeCount(l) > 0);
+        }
+        // the cells are nested
+        int[] parent = new int[overlay.getCellCount(0)];
+        for (int v = 0; v < graph.getNodeCount(); v++) {
+            parent[overlay.getCell(0, v)] = overlay.getCell(1, v);
+        }
+        for (int v = 0; v < graph.getNodeCount(); v++) {
+            Assert.assertEquals(parent[overlay.getCell(0, v)], overlay.getCell(1, v));
+        }
+        // a boundary node of a level is a boundary node of the levels below
+        Assert.assertTrue(overlay.getBoundaryNodeCount(0) >= overlay.getBoundaryNodeCount(1));
+        Assert.assertTrue(overlay.getBoundaryNodeCount(1) >= overlay.getBoundaryNodeCount(2));
+    }
+
+    @Test
+    public void testDistance() {
+
+        Assert.assertFalse(overlay.isCustomized(RoadNetworkGenerator.TIME));
+        overlay.customize(RoadNetworkGenerator.TIME, 1);
+        overlay.customize(RoadNetworkGenerator.DISTANCE, 4);
+        Assert.assertTrue(overlay.isCustomized(RoadNetworkGenerator.TIME));
+        assertDistances(RoadNetworkGenerator.TIME);
+        assertDistances(RoadNetworkGenerator.DISTANCE);
+        Assert.assertEquals(0, overlay.distance(nodes.get(0), nodes.get(0), RoadNetworkGenerator.TIME), 0);
+    }
+
+    @Test
+    public void testCustomizeAfterUpdates() {
+
+        overlay.customize(RoadNetworkGenerator.TIME, 2);
+        EdgeWeightTable weights = graph.getEdgeWeights();
+        Random random = new Random(1);
+        for (int i = 0; i < weights.getEdgeCount() / 10; i++) {
+            int edgeId = random.nextInt(weights.getEdgeCount());
+            weights.updateWeight(edgeId, RoadNetworkGenerator.TIME, 5 * weights.getValue(edgeId,
+                    RoadNetworkGenerator.TIME));
+        }
+        overlay.customize(RoadNetworkGenerator.TIME, 2);
+        assertDistances(RoadNetworkGenerator.TIME);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNotCustomized() {
+
+        overlay.distance(nodes.get(0), nodes.get(1), RoadNetworkGenerator.TIME);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCellSizesDecrease() {
+
+        GraphAlgorithms.createMultiLevelOverlay(graph, 128, 16);
+    }
+}
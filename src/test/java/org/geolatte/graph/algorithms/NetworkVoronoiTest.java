@@ -0,0 +1,166 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+
+
+package org.geolatte.graph.algorithms;
+
+import org.geolatte.graph.*;
+import org.geolatte.stubs.MyLocatableNode;
+import org.geolatte.stubs.RoadNetworkGenerator;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ * <p>
+ * Tests the {@link NetworkVoronoi} against the distances from every facility, also after facilities are added and
+ * removed.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public class NetworkVoronoiTest {
+
+    private LocateableGraph<MyLocatableNode, String> graph;
+    private List<MyLocatableNode> all;
+    private List<MyLocatableNode> candidates;
+
+    @Before
+    public void setUp() throws Exception {
+
+        RoadNetworkGenerator generator = new RoadNetworkGenerator(30, 12);
+        GraphBuilder<MyLocatableNode, String> builder = Graphs.createCompressedGraphBuilder(generator.getExtent(), 100,
+                RoadNetworkGenerator.SCHEMA);
+        generator.generate(builder, new NodeFactory<MyLocatableNode>() {
+            public MyLocatableNode createNode(long id, float x, float y) {
+                return new MyLocatableNode((int) id, x, y);
+            }
+        });
+        graph = builder.build();
+        all = new ArrayList<MyLocatableNode>();
+        for (int v = 0; v < graph.getNodeCount(); v++) {
+            all.add(graph.getNode(v).getWrappedNode());
+        }
+        candidates = new ArrayList<MyLocatableNode>(all);
+        Collections.shuffle(candidates, new Random(5));
+        candidates = candidates.subList(0, 8);
+    }
+
+    /**
+     * Checks the diagram against the distances from the active facilities to all nodes, or from all nodes to them.
+     */
+    private void check(NetworkVoronoi<MyLocatableNode, String> voronoi, Set<MyLocatableNode> active,
+                       float[][] distances, boolean toFacilities) {
+        for (int v = 0; v < all.size(); v++) {
+            float expected = Float.POSITIVE_INFINITY;
+            for (MyLocatableNode facility : active) {
+                int c = candidates.indexOf(facility);
+                expected = Math.min(expected, toFacilities ? distances[v][c] : distances[c][v]);
+            }
+            float actual = voronoi.getDistance(v);
+            int nearest = voronoi.getNearestFacility(v);
+            if (Float.isInfinite(expected)) {
+                Assert.assertTrue(Float.isInfinite(actual));
+                Assert.assertEquals(-1, nearest);
+                continue;
+            }
+            Assert.assertEquals(expected, actual, 1e-3f * (1 + expected));
+            MyLocatableNode facility = voronoi.getFacility(nearest);
+            Assert.assertTrue(active.contains(facility));
+            int c = candidates.indexOf(facility);
+            Assert.assertEquals(actual, toFacilities ? distances[v][c] : distances[c][v], 1e-3f * (1 + expected));
+        }
+    }
+
+    @Test
+    public void testIncremental() {
+
+        GraphAlgorithm<float[][]> matrix = GraphAlgorithms.createDistanceMatrix(graph, candidates, all,
+                RoadNetworkGenerator.TIME, 2);
+        matrix.execute();
+        float[][] distances = matrix.getResult();
+
+        Set<MyLocatableNode> active = new HashSet<MyLocatableNode>(candidates.subList(0, 5));
+        NetworkVoronoi<MyLocatableNode, String> voronoi = GraphAlgorithms.createNetworkVoronoi(graph,
+                RoadNetworkGenerator.TIME, candidates.subList(0, 5));
+        Assert.assertEquals(5, voronoi.getFacilityCount());
+        Assert.assertSame(candidates.get(3), voronoi.getFacility(3));
+        check(voronoi, active, distances, false);
+
+        Assert.assertEquals(5, voronoi.addFacility(candidates.get(5)));
+        active.add(candidates.get(5));
+        check(voronoi, active, distances, false);
+
+        voronoi.removeFacility(1);
+        active.remove(candidates.get(1));
+        Assert.assertNull(voronoi.getFacility(1));
+        check(voronoi, active, distances, false);
+
+        voronoi.addFacility(candidates.get(1));
+        voronoi.addFacility(candidates.get(6));
+        active.add(candidates.get(1));
+        active.add(candidates.get(6));
+        check(voronoi, active, distances, false);
+
+        for (int f = 0; f < voronoi.getFacilityCount(); f++) {
+            if (voronoi.getFacility(f) != null) {
+                voronoi.removeFacility(f);
+            }
+        }
+        check(voronoi, Collections.<MyLocatableNode>emptySet(), distances, false);
+        int[] nearest = voronoi.getNearestFacilities();
+        for (int v = 0; v < nearest.length; v++) {
+            Assert.assertEquals(-1, nearest[v]);
+        }
+    }
+
+    @Test
+    public void testToFacilities() {
+
+        GraphAlgorithm<float[][]> matrix = GraphAlgorithms.createDistanceMatrix(graph, all, candidates,
+                RoadNetworkGenerator.TIME, 2);
+        matrix.execute();
+        float[][] distances = matrix.getResult();
+
+        Set<MyLocatableNode> active = new HashSet<MyLocatableNode>(candidates.subList(0, 4));
+        NetworkVoronoi<MyLocatableNode, String> voronoi = GraphAlgorithms.createNetworkVoronoi(graph,
+                RoadNetworkGenerator.TIME, candidates.subList(0, 4), true);
+        check(voronoi, active, distances, true);
+
+        voronoi.removeFacility(0);
+        voronoi.addFacility(candidates.get(7));
+        active.remove(candidates.get(0));
+        active.add(candidates.get(7));
+        check(voronoi, active, distances, true);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateFacility() {
+
+        NetworkVoronoi<MyLocatableNode, String> voronoi = GraphAlgorithms.createNetworkVoronoi(graph,
+                RoadNetworkGenerator.TIME, candidates.subList(0, 2));
+        voronoi.addFacility(candidates.get(1));
+    }
+}
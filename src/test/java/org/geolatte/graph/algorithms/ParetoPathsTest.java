@@ -0,0 +1,232 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+
+
+package org.geolatte.graph.algorithms;
+
+import org.geolatte.graph.*;
+import org.geolatte.stubs.MyLocatableNode;
+import org.geolatte.stubs.RoadNetworkGenerator;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ * <p>
+ * Tests the {@link ParetoPaths}: against the Pareto set of all loopless paths of small random graphs, and with and
+ * without epsilon-dominance on a road network.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public class ParetoPathsTest {
+
+    private static final int NODES = 7;
+    private static final int CRITERIA = 3;
+
+    private static boolean dominates(float[] a, float[] b) {
+        for (int c = 0; c < a.length; c++) {
+            if (a[c] > b[c]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static float[] totals(ParetoPath<?> path) {
+        float[] totals = new float[path.getCriterionCount()];
+        for (int c = 0; c < totals.length; c++) {
+            totals[c] = path.getTotal(c);
+        }
+        return totals;
+    }
+
+    /**
+     * Collects the totals of all loopless paths from a node to the last node.
+     */
+    private static void enumerate(float[][][] weights, int node, float[] totals, boolean[] visited,
+                                  List<float[]> result) {
+        if (node == NODES - 1) {
+            result.add(totals.clone());
+            return;
+        }
+        visited[node] = true;
+        for (int next = 0; next < NODES; next++) {
+            if (weights[node][next] != null && !visited[next]) {
+                float[] extended = totals.clone();
+                for (int c = 0; c < CRITERIA; c++) {
+                    extended[c] += weights[node][next][c];
+                }
+                enumerate(weights, next, extended, visited, result);
+            }
+        }
+        visited[node] = false;
+    }
+
+    @Test
+    public void testRandomGraphs() throws Exception {
+
+        Random random = new Random(11);
+        for (int g = 0; g < 20; g++) {
+            MyLocatableNode[] nodes = new MyLocatableNode[NODES];
+            for (int i = 0; i < NODES; i++) {
+                nodes[i] = new MyLocatableNode(i, random.nextInt(100), random.nextInt(100));
+            }
+            float[][][] weights = new float[NODES][NODES][];
+            GraphBuilder<MyLocatableNode, Object> builder = Graphs.createGridIndexedGraphBuilder(
+                    new Extent(0d, 0d, 101d, 101d), 10, WeightSchema.of("time", "distance", "toll"));
+            for (int i = 0; i < NODES; i++) {
+                for (int j = 0; j < NODES; j++) {
+                    if (i != j && random.nextFloat() < 0.6f) {
+                        weights[i][j] = new float[CRITERIA];
+                        for (int c = 0; c < CRITERIA; c++) {
+                            weights[i][j][c] = 1 + random.nextInt(20);
+                        }
+                        builder.addEdge(nodes[i], nodes[j], new ArrayEdgeWeight(weights[i][j]));
+                    }
+                }
+            }
+            LocateableGraph<MyLocatableNode, Object> graph = builder.build();
+
+            List<float[]> all = new ArrayList<float[]>();
+            enumerate(weights, 0, new float[CRITERIA], new boolean[NODES], all);
+            Set<List<Float>> expected = new HashSet<List<Float>>();
+            for (float[] a : all) {
+                boolean pareto = true;
+                for (float[] b : all) {
+                    pareto &= !dominates(b, a) || Arrays.equals(a, b);
+                }
+                if (pareto) {
+                    expected.add(Arrays.asList(a[0], a[1], a[2]));
+                }
+            }
+
+            GraphAlgorithm<List<ParetoPath<MyLocatableNode>>> algorithm = GraphAlgorithms.createParetoPaths(graph,
+                    nodes[0], nodes[NODES - 1], 0, 1, 2);
+            algorithm.execute();
+            Set<List<Float>> actual = new HashSet<List<Float>>();
+            for (ParetoPath<MyLocatableNode> path : algorithm.getResult()) {
+                Assert.assertSame(nodes[0], path.getSource());
+                Assert.assertSame(nodes[NODES - 1], path.getDestination());
+                Assert.assertEquals(path.getTotal(0), path.totalWeight(), 0f);
+                float[] totals = new float[CRITERIA];
+                MyLocatableNode previous = null;
+                for (MyLocatableNode node : path) {
+                    if (previous != null) {
+                        for (int c = 0; c < CRITERIA; c++) {
+                            totals[c] += weights[previous.getID()][node.getID()][c];
+                        }
+                    }
+                    previous = node;
+                }
+                Assert.assertTrue(Arrays.equals(totals(path), totals));
+                Assert.assertTrue(actual.add(Arrays.asList(totals[0], totals[1], totals[2])));
+            }
+            Assert.assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void testRoadNetwork() throws Exception {
+
+        RoadNetworkGenerator generator = new RoadNetworkGenerator(30, 5);
+        GraphBuilder<MyLocatableNode, String> builder = Graphs.createCompressedGraphBuilder(generator.getExtent(), 100,
+                RoadNetworkGenerator.SCHEMA);
+        generator.generate(builder, new NodeFactory<MyLocatableNode>() {
+            public MyLocatableNode createNode(long id, float x, float y) {
+                return new MyLocatableNode((int) id, x, y);
+            }
+        });
+        LocateableGraph<MyLocatableNode, String> graph = builder.build();
+        StronglyConnectedComponents components = graph.getComponents();
+        List<MyLocatableNode> nodes = new ArrayList<MyLocatableNode>();
+        for (int v = 0; v < graph.getNodeCount(); v++) {
+            if (components.getComponent(v) == components.getLargestComponent()) {
+                nodes.add(graph.getNode(v).getWrappedNode());
+            }
+        }
+        Collections.shuffle(nodes, new Random(8));
+        int[] criteria = {RoadNetworkGenerator.TIME, RoadNetworkGenerator.DISTANCE};
+
+        for (int q = 0; q < 10; q++) {
+            MyLocatableNode from = nodes.get(q);
+            MyLocatableNode to = nodes.get(nodes.size() - 1 - q);
+            GraphAlgorithm<List<ParetoPath<MyLocatableNode>>> exact = GraphAlgorithms.createParetoPaths(graph, from,
+                    to, criteria);
+            exact.execute();
+            List<ParetoPath<MyLocatableNode>> paths = exact.getResult();
+            Assert.assertFalse(paths.isEmpty());
+            for (int c = 0; c < criteria.length; c++) {
+                GraphAlgorithm<Path<MyLocatableNode>> dijkstra = GraphAlgorithms.createDijkstra(graph, from, to,
+                        criteria[c]);
+                dijkstra.execute();
+                float best = Float.POSITIVE_INFINITY;
+                for (ParetoPath<MyLocatableNode> path : paths) {
+                    best = Math.min(best, path.getTotal(c));
+                }
+                Assert.assertEquals(dijkstra.getResult().totalWeight(), best, best * 1e-4f);
+            }
+            for (int i = 0; i < paths.size(); i++) {
+                for (int j = 0; j < paths.size(); j++) {
+                    Assert.assertTrue(i == j || !dominates(totals(paths.get(i)), totals(paths.get(j))));
+                }
+            }
+
+            GraphAlgorithm<List<ParetoPath<MyLocatableNode>>> approximate = GraphAlgorithms.createParetoPaths(graph,
+                    from, to, criteria, 0.05f, Integer.MAX_VALUE);
+            approximate.execute();
+            List<ParetoPath<MyLocatableNode>> covers = approximate.getResult();
+            Assert.assertTrue(!covers.isEmpty() && covers.size() <= paths.size());
+            for (ParetoPath<MyLocatableNode> path : paths) {
+                boolean covered = false;
+                for (ParetoPath<MyLocatableNode> cover : covers) {
+                    covered |= cover.getTotal(0) <= 1.1f * path.getTotal(0) + 1e-3f
+                            && cover.getTotal(1) <= 1.1f * path.getTotal(1) + 1e-3f;
+                }
+                Assert.assertTrue(covered);
+            }
+
+            GraphAlgorithm<List<ParetoPath<MyLocatableNode>>> bounded = GraphAlgorithms.createParetoPaths(graph, from,
+                    to, criteria, 0, 3);
+            bounded.execute();
+            Assert.assertTrue(!bounded.getResult().isEmpty() && bounded.getResult().size() <= 3);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoCriteria() throws Exception {
+
+        RoadNetworkGenerator generator = new RoadNetworkGenerator(5, 1);
+        GraphBuilder<MyLocatableNode, String> builder = Graphs.createCompressedGraphBuilder(generator.getExtent(), 100,
+                RoadNetworkGenerator.SCHEMA);
+        generator.generate(builder, new NodeFactory<MyLocatableNode>() {
+            public MyLocatableNode createNode(long id, float x, float y) {
+                return new MyLocatableNode((int) id, x, y);
+            }
+        });
+        LocateableGraph<MyLocatableNode, String> graph = builder.build();
+        MyLocatableNode node = graph.getNode(0).getWrappedNode();
+        GraphAlgorithms.createParetoPaths(graph, node, node);
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph.algorithms;
+
+import org.geolatte.graph.*;
+import org.geolatte.stubs.MyLocatableNode;
+import org.geolatte.stubs.RoadNetworkGenerator;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * Tests the {@link RouteCache}: hits, eviction, expiry and invalidation.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public class RouteCacheTest {
+
+    private LocateableGraph<MyLocatableNode, String> graph;
+    private List<MyLocatableNode> nodes;
+
+    @Before
+    public void setUp() throws Exception {
+
+        RoadNetworkGenerator generator = new RoadNetworkGenerator(30, 5);
+        GraphBuilder<MyLocatableNode, String> builder = Graphs.createCompressedGraphBuilder(generator.getExtent(), 100,
+                RoadNetworkGenerator.SCHEMA);
+        generator.generate(builder, new NodeFactory<MyLocatableNode>() {
+            public MyLocatableNode createNode(long id, float x, float y) {
+                return new MyLocatableNode((int) id, x, y);
+            }
+        });
+        graph = builder.build();
+        StronglyConnectedComponents components = graph.getComponents();
+        nodes = new ArrayList<MyLocatableNode>();
+        for (int v = 0; v < graph.getNodeCount(); v++) {
+            if (components.getComponent(v) == components.getLargestComponent()) {
+                nodes.add(graph.getNode(v).getWrappedNode());
+            }
+        }
+    }
+
+    private static List<MyLocatableNode> toList(Path<MyLocatableNode> path) {
+        List<MyLocatableNode> list = new ArrayList<MyLocatableNode>();
+        for (MyLocatableNode node : path) {
+            list.add(node);
+        }
+        return list;
+    }
+
+    private Path<MyLocatableNode> route(RouteCache<MyLocatableNode, String> cache, int from, int to) {
+        GraphAlgorithm<Path<MyLocatableNode>> algorithm = cache.createDijkstra(nodes.get(from), nodes.get(to),
+                RoadNetworkGenerator.TIME);
+        algorithm.execute();
+        return algorithm.getResult();
+    }
+
+    @Test
+    public void testHits() {
+
+        RouteCache<MyLocatableNode, String> cache = new RouteCache<MyLocatableNode, String>(graph, 100);
+        GraphAlgorithm<Path<MyLocatableNode>> dijkstra = GraphAlgorithms.createDijkstra(graph, nodes.get(0),
+                nodes.get(nodes.size() - 1), RoadNetworkGenerator.TIME);
+        dijkstra.execute();
+
+        Path<MyLocatableNode> first = route(cache, 0, nodes.size() - 1);
+        Path<MyLocatableNode> second = route(cache, 0, nodes.size() - 1);
+        Assert.assertEquals(toList(dijkstra.getResult()), toList(first));
+        Assert.assertEquals(dijkstra.getResult().totalWeight(), first.totalWeight(), 0);
+        Assert.assertSame(first, second);
+        Assert.assertSame(nodes.get(0), first.getSource());
+        Assert.assertSame(nodes.get(nodes.size() - 1), first.getDestination());
+
+        // other weight indexes and profiles are other routes
+        cache.createDijkstra(nodes.get(0), nodes.get(nodes.size() - 1), RoadNetworkGenerator.DISTANCE).execute();
+        cache.createDijkstra(nodes.get(0), nodes.get(nodes.size() - 1), RoadNetworkGenerator.TIME,
+                new EmptyContextualReachability<MyLocatableNode, String, Traversal<MyLocatableNode, String>>(),
+                "car").execute();
+        cache.decorate(nodes.get(0), nodes.get(nodes.size() - 1), RoadNetworkGenerator.TIME, "car",
+                GraphAlgorithms.createDijkstra(graph, nodes.get(0), nodes.get(nodes.size() - 1),
+                        RoadNetworkGenerator.TIME)).execute();
+
+        RouteCacheMetrics metrics = cache.getMetrics();
+        Assert.assertEquals(2, metrics.getHits());
+        Assert.assertEquals(3, metrics.getMisses());
+        Assert.assertEquals(3, cache.size());
+        Assert.assertEquals(0.4, metrics.getHitRatio(), 1e-9);
+    }
+
+    @Test
+    public void testSearchListener() {
+
+        RouteCache<MyLocatableNode, String> cache = new RouteCache<MyLocatableNode, String>(graph, 100);
+        final AtomicInteger searches = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            GraphAlgorithm<Path<MyLocatableNode>> algorithm = cache.createDijkstra(nodes.get(0), nodes.get(1),
+                    RoadNetworkGenerator.TIME);
+            GraphAlgorithms.setSearchListener(algorithm, new SearchListener() {
+                public void searchFinished(SearchStats stats) {
+                    searches.incrementAndGet();
+                }
+            });
+            algorithm.execute();
+        }
+        Assert.assertEquals(1, searches.get());
+    }
+
+    @Test
+    public void testEviction() {
+
+        RouteCache<MyLocatableNode, String> cache = new RouteCache<MyLocatableNode, String>(graph, 4);
+        for (int i = 0; i < 20; i++) {
+            route(cache, i, i + 1);
+        }
+        Assert.assertTrue(cache.size() <= 4);
+        Assert.assertEquals(20 - cache.size(), cache.getMetrics().getEvictions());
+    }
+
+    @Test
+    public void testCapacity() {
+
+        RouteCache<MyLocatableNode, String> cache = new RouteCache<MyLocatableNode, String>(graph, 31);
+        for (int i = 0; i < 31; i++) {
+            route(cache, i, i + 1);
+        }
+        Assert.assertEquals(31, cache.size());
+        Assert.assertEquals(0, cache.getMetrics().getEvictions());
+        route(cache, 31, 32);
+        Assert.assertEquals(31, cache.size());
+        Assert.assertEquals(1, cache.getMetrics().getEvictions());
+    }
+
+    @Test
+    public void testExpiry() throws Exception {
+
+        RouteCache<MyLocatableNode, String> cache = new RouteCache<MyLocatableNode, String>(graph, 100, 1,
+                TimeUnit.MILLISECONDS);
+        route(cache, 0, 5);
+        Thread.sleep(10);
+        route(cache, 0, 5);
+        Assert.assertEquals(0, cache.getMetrics().getHits());
+        Assert.assertEquals(1, cache.getMetrics().getExpirations());
+    }
+
+    @Test
+    public void testWeightUpdates() {
+
+        RouteCache<MyLocatableNode, String> cache = new RouteCache<MyLocatableNode, String>(graph, 100);
+        Path<MyLocatableNode> before = route(cache, 0, nodes.size() - 1);
+
+        // make the first edge of the route very slow
+        InternalNode<MyLocatableNode, String> from = graph.getInternalNode(before.getSource());
+        InternalNode<MyLocatableNode, String> second = graph.getInternalNode(toList(before).get(1));
+        EdgeIterator<MyLocatableNode, String> edges = graph.getOutGoingEdges(from, null);
+        while (edges.hasNext()) {
+            if (edges.next().equals(second)) {
+                graph.getEdgeWeights().updateWeight(edges.getEdgeId(), RoadNetworkGenerator.TIME, 1e6f);
+            }
+        }
+
+        Path<MyLocatableNode> after = route(cache, 0, nodes.size() - 1);
+        Assert.assertEquals(0, cache.getMetrics().getHits());
+        Assert.assertEquals(1, cache.getMetrics().getInvalidations());
+        Assert.assertFalse(toList(before).equals(toList(after)));
+        Assert.assertSame(after, route(cache, 0, nodes.size() - 1));
+    }
+
+    @Test
+    public void testInvalidate() {
+
+        RouteCache<MyLocatableNode, String> cache = new RouteCache<MyLocatableNode, String>(graph, 100);
+        Path<MyLocatableNode> path = route(cache, 0, nodes.size() - 1);
+        route(cache, 1, 2);
+        MyLocatableNode via = toList(path).get(toList(path).size() / 2);
+        if (!nodes.get(1).equals(via) && !nodes.get(2).equals(via)) {
+            Assert.assertEquals(1, cache.invalidate(via));
+        }
+        Assert.assertEquals(1, cache.size());
+        cache.invalidateAll();
+        Assert.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testNotFound() throws Exception {
+
+        // an island is not reachable from the main component
+        StronglyConnectedComponents components = graph.getComponents();
+        MyLocatableNode island = null;
+        for (int v = 0; v < graph.getNodeCount() && island == null; v++) {
+            if (components.getComponent(v) != components.getLargestComponent()) {
+                island = graph.getNode(v).getWrappedNode();
+            }
+        }
+        RouteCache<MyLocatableNode, String> cache = new RouteCache<MyLocatableNode, String>(graph, 100);
+        for (int i = 0; i < 2; i++) {
+            GraphAlgorithm<Path<MyLocatableNode>> algorithm = cache.createDijkstra(nodes.get(0), island,
+                    RoadNetworkGenerator.TIME);
+            algorithm.execute();
+            Assert.assertNull(algorithm.getResult());
+        }
+        Assert.assertEquals(1, cache.getMetrics().getHits());
+    }
+
+    @Test
+    public void testConcurrent() throws Exception {
+
+        final RouteCache<MyLocatableNode, String> cache = new RouteCache<MyLocatableNode, String>(graph, 1000);
+        final AtomicInteger failures = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread() {
+                public void run() {
+                    for (int i = 0; i < 200; i++) {
+                        Path<MyLocatableNode> path = route(cache, i % 10, 50 + i % 10);
+                        if (path == null || !path.getSource().equals(nodes.get(i % 10))) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(0, failures.get());
+        Assert.assertEquals(10, cache.size());
+        Assert.assertEquals(800, cache.getMetrics().getHits() + cache.getMetrics().getMisses());
+    }
+}
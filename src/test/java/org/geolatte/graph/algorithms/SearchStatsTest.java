@@ -0,0 +1,204 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.graph.algorithms;
+
+import org.geolatte.graph.*;
+import org.geolatte.stubs.MyLocatableNode;
+import org.geolatte.stubs.RoadNetworkGenerator;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>
+ * Tests the search statistics that are reported to a {@link SearchListener}, and their aggregation by a
+ * {@link SearchHistogram}.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public class SearchStatsTest {
+
+    private RoadNetworkGenerator generator;
+    private LocateableGraph<MyLocatableNode, String> graph;
+    private List<MyLocatableNode> nodes;
+
+    private static class Collector implements SearchListener {
+
+        final List<SearchStats> stats = new ArrayList<SearchStats>();
+
+        public void searchFinished(SearchStats stats) {
+            this.stats.add(stats);
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+
+        generator = new RoadNetworkGenerator(40, 3);
+        GraphBuilder<MyLocatableNode, String> builder = Graphs.createCompressedGraphBuilder(generator.getExtent(), 100,
+                RoadNetworkGenerator.SCHEMA);
+        generator.generate(builder, new NodeFactory<MyLocatableNode>() {
+            public MyLocatableNode createNode(long id, float x, float y) {
+                return new MyLocatableNode((int) id, x, y);
+            }
+        });
+        graph = builder.build();
+
+        // nodes of the largest component, so that every pair is connected
+        StronglyConnectedComponents components = graph.getComponents();
+        nodes = new ArrayList<MyLocatableNode>();
+        for (int v = 0; v < graph.getNodeCount(); v++) {
+            if (components.getComponent(v) == components.getLargestComponent()) {
+                nodes.add(graph.getNode(v).getWrappedNode());
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        GraphAlgorithms.setDefaultSearchListener(null);
+    }
+
+    @Test
+    public void testDijkstraAndAStar() {
+
+        MyLocatableNode origin = nodes.get(0);
+        MyLocatableNode destination = nodes.get(nodes.size() - 1);
+        Collector collector = new Collector();
+
+        GraphAlgorithm<Path<MyLocatableNode>> dijkstra = GraphAlgorithms.createDijkstra(graph, origin, destination,
+                RoadNetworkGenerator.TIME);
+        GraphAlgorithms.setSearchListener(dijkstra, collector);
+        dijkstra.execute();
+        GraphAlgorithm<Path<MyLocatableNode>> aStar = GraphAlgorithms.createAStar(graph, origin, destination,
+                RoadNetworkGenerator.TIME, 1, 1 / generator.getMaxSpeed());
+        GraphAlgorithms.setSearchListener(aStar, collector);
+        aStar.execute();
+
+        Assert.assertEquals(2, collector.stats.size());
+        SearchStats d = collector.stats.get(0);
+        SearchStats a = collector.stats.get(1);
+        Assert.assertEquals("Dijkstra", d.getAlgorithm());
+        Assert.assertEquals("A*", a.getAlgorithm());
+        Assert.assertSame(origin, d.getOrigin());
+        Assert.assertSame(destination, d.getDestination());
+        Assert.assertTrue(d.isFound());
+        Assert.assertTrue(a.isFound());
+        Assert.assertEquals(dijkstra.getResult().totalWeight(), aStar.getResult().totalWeight(), 0.01f);
+
+        Assert.assertTrue(d.getSettledNodes() > 1);
+        Assert.assertTrue(d.getScannedEdges() >= d.getImprovedEdges());
+        Assert.assertTrue(d.getQueueInserts() >= d.getSettledNodes());
+        Assert.assertTrue(d.getImprovedEdges() >= d.getQueueInserts() - 1);
+        Assert.assertTrue(d.getMaxQueueSize() > 0);
+        Assert.assertTrue(d.getDurationNanos() > 0);
+        // the heuristic settles fewer nodes
+        Assert.assertTrue(a.getSettledNodes() < d.getSettledNodes());
+    }
+
+    @Test
+    public void testBFS() {
+
+        Collector collector = new Collector();
+        GraphAlgorithm<GraphTree<MyLocatableNode, String>> bfs = GraphAlgorithms.createBFS(graph, nodes.get(0), 200,
+                RoadNetworkGenerator.TIME);
+        GraphAlgorithms.setSearchListener(bfs, collector);
+        bfs.execute();
+
+        SearchStats stats = collector.stats.get(0);
+        Assert.assertEquals("BFS", stats.getAlgorithm());
+        Assert.assertNull(stats.getDestination());
+        Assert.assertEquals(bfs.getResult().toMap().size(), stats.getSettledNodes());
+        Assert.assertEquals(stats.getSettledNodes(), stats.getQueueInserts());
+    }
+
+    @Test
+    public void testNoListener() {
+
+        GraphAlgorithm<Path<MyLocatableNode>> dijkstra = GraphAlgorithms.createDijkstra(graph, nodes.get(0),
+                nodes.get(1), RoadNetworkGenerator.TIME);
+        dijkstra.execute();
+        Assert.assertNotNull(dijkstra.getResult());
+    }
+
+    @Test
+    public void testHistogram() {
+
+        SearchHistogram histogram = new SearchHistogram(3);
+        GraphAlgorithms.setDefaultSearchListener(histogram);
+        for (int i = 0; i < 10; i++) {
+            GraphAlgorithms.createDijkstra(graph, nodes.get(i * 7), nodes.get(nodes.size() - 1 - i * 11),
+                    RoadNetworkGenerator.TIME).execute();
+        }
+
+        Assert.assertEquals(10, histogram.getCount());
+        Assert.assertEquals(0, histogram.getNotFoundCount());
+        long total = 0;
+        for (long n : histogram.getSettledNodesHistogram()) {
+            total += n;
+        }
+        Assert.assertEquals(10, total);
+        Assert.assertTrue(histogram.getDurationPercentile(50) <= histogram.getDurationPercentile(99));
+
+        List<SearchStats> slowest = histogram.getSlowest();
+        Assert.assertEquals(3, slowest.size());
+        Assert.assertTrue(slowest.get(0).getDurationNanos() >= slowest.get(1).getDurationNanos());
+        Assert.assertTrue(slowest.get(1).getDurationNanos() >= slowest.get(2).getDurationNanos());
+    }
+
+    @Test
+    public void testBuckets() {
+
+        Assert.assertEquals(0, SearchHistogram.bucket(0));
+        Assert.assertEquals(1, SearchHistogram.bucket(1));
+        Assert.assertEquals(2, SearchHistogram.bucket(2));
+        Assert.assertEquals(2, SearchHistogram.bucket(3));
+        Assert.assertEquals(3, SearchHistogram.bucket(4));
+        Assert.assertEquals(11, SearchHistogram.bucket(1024));
+    }
+
+    @Test
+    public void testUnmonitoredAlgorithm() {
+
+        // an implementation outside this library need not report statistics
+        GraphAlgorithm<Path<MyLocatableNode>> algorithm = new GraphAlgorithm<Path<MyLocatableNode>>() {
+            public void execute() {
+            }
+
+            public Path<MyLocatableNode> getResult() {
+                return null;
+            }
+        };
+        try {
+            GraphAlgorithms.setSearchListener(algorithm, new Collector());
+            Assert.fail("Setting a listener on an unmonitored algorithm should fail");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+
+
+package org.geolatte.graph.algorithms;
+
+import org.geolatte.graph.*;
+import org.geolatte.stubs.MyLocatableNode;
+import org.geolatte.stubs.RoadNetworkGenerator;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ * <p>
+ * Tests the time-dependent Dijkstra and A* searches and the travel-time profiles on a road network with rush hours on
+ * part of its edges.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public class TimeDependentDijkstraTest {
+
+    private static final float HOUR = 3600f;
+
+    private RoadNetworkGenerator generator;
+    private LocateableGraph<MyLocatableNode, String> graph;
+    private TimeDependentWeights weights;
+    private List<MyLocatableNode> nodes;
+
+    @Before
+    public void setUp() throws Exception {
+
+        generator = new RoadNetworkGenerator(30, 3);
+        GraphBuilder<MyLocatableNode, String> builder = Graphs.createCompressedGraphBuilder(generator.getExtent(), 100,
+                RoadNetworkGenerator.SCHEMA);
+        generator.generate(builder, new NodeFactory<MyLocatableNode>() {
+            public MyLocatableNode createNode(long id, float x, float y) {
+                return new MyLocatableNode((int) id, x, y);
+            }
+        });
+        graph = builder.build();
+
+        // a morning rush hour on a third of the edges, up to three times slower at 8:00
+        Random random = new Random(6);
+        EdgeWeightTable table = graph.getEdgeWeights();
+        TimeDependentWeights.Builder tdBuilder = new TimeDependentWeights.Builder(graph, RoadNetworkGenerator.TIME);
+        for (int e = 0; e < table.getEdgeCount(); e++) {
+            if (random.nextInt(3) == 0) {
+                float time = table.getValue(e, RoadNetworkGenerator.TIME);
+                float peak = time * (1.5f + 1.5f * random.nextFloat());
+                tdBuilder.set(e, new TravelTimeFunction(new float[]{7 * HOUR, 8 * HOUR, 9 * HOUR},
+                        new float[]{time, peak, time}));
+            }
+        }
+        weights = tdBuilder.build();
+
+        StronglyConnectedComponents components = graph.getComponents();
+        nodes = new ArrayList<MyLocatableNode>();
+        for (int v = 0; v < graph.getNodeCount(); v++) {
+            if (components.getComponent(v) == components.getLargestComponent()) {
+                nodes.add(graph.getNode(v).getWrappedNode());
+            }
+        }
+        Collections.shuffle(nodes, new Random(1));
+    }
+
+    private float timeDependent(MyLocatableNode from, MyLocatableNode to, float departure) {
+        GraphAlgorithm<Path<MyLocatableNode>> dijkstra = GraphAlgorithms.createTimeDependentDijkstra(graph, weights,
+                from, to, departure);
+        dijkstra.execute();
+        return dijkstra.getResult().totalWeight();
+    }
+
+    @Test
+    public void testFreeFlow() {
+
+        for (int q = 0; q < 10; q++) {
+            MyLocatableNode from = nodes.get(q);
+            MyLocatableNode to = nodes.get(nodes.size() - 1 - q);
+            GraphAlgorithm<Path<MyLocatableNode>> dijkstra = GraphAlgorithms.createDijkstra(graph, from, to,
+                    RoadNetworkGenerator.TIME);
+            dijkstra.execute();
+            float expected = dijkstra.getResult().totalWeight();
+            Assert.assertEquals(expected, timeDependent(from, to, 0f), expected * 1e-4f);
+            Assert.assertTrue(timeDependent(from, to, 7.9f * HOUR) >= expected * (1 - 1e-4f));
+        }
+    }
+
+    @Test
+    public void testAStar() {
+
+        final int[] settled = new int[1];
+        SearchListener listener = new SearchListener() {
+            public void searchFinished(SearchStats stats) {
+                settled[0] = stats.getSettledNodes();
+            }
+        };
+        int dijkstraSettled = 0;
+        int aStarSettled = 0;
+        for (int q = 0; q < 10; q++) {
+            MyLocatableNode from = nodes.get(q);
+            MyLocatableNode to = nodes.get(nodes.size() - 1 - q);
+            float departure = 7 * HOUR + q * 0.2f * HOUR;
+            GraphAlgorithm<Path<MyLocatableNode>> dijkstra = GraphAlgorithms.createTimeDependentDijkstra(graph,
+                    weights, from, to, departure);
+            GraphAlgorithms.setSearchListener(dijkstra, listener);
+            dijkstra.execute();
+            dijkstraSettled += settled[0];
+            GraphAlgorithm<Path<MyLocatableNode>> aStar = GraphAlgorithms.createTimeDependentAStar(graph, weights,
+                    from, to, departure, 1f / generator.getMaxSpeed());
+            GraphAlgorithms.setSearchListener(aStar, listener);
+            aStar.execute();
+            aStarSettled += settled[0];
+            float expected = dijkstra.getResult().totalWeight();
+            Assert.assertEquals(expected, aStar.getResult().totalWeight(), expected * 1e-4f);
+            Assert.assertSame(from, aStar.getResult().getSource());
+            Assert.assertSame(to, aStar.getResult().getDestination());
+        }
+        Assert.assertTrue(aStarSettled < dijkstraSettled);
+    }
+
+    @Test
+    public void testProfile() {
+
+        for (int q = 0; q < 5; q++) {
+            MyLocatableNode from = nodes.get(q);
+            MyLocatableNode to = nodes.get(nodes.size() - 1 - q);
+            GraphAlgorithm<TravelTimeFunction> profile = GraphAlgorithms.createTravelTimeProfile(graph, weights, from,
+                    to, 6.5f * HOUR, 9.5f * HOUR);
+            profile.execute();
+            TravelTimeFunction function = profile.getResult();
+            Assert.assertTrue(function.getBreakpointCount() >= 2);
+            for (int i = 0; i <= 30; i++) {
+                float departure = 6.5f * HOUR + i * 0.1f * HOUR;
+                float expected = timeDependent(from, to, departure);
+                Assert.assertEquals(expected, function.getTravelTime(departure), expected * 1e-3f);
+            }
+        }
+    }
+
+    @Test
+    public void testSingleDepartureProfile() {
+
+        MyLocatableNode from = nodes.get(0);
+        MyLocatableNode to = nodes.get(1);
+        GraphAlgorithm<TravelTimeFunction> profile = GraphAlgorithms.createTravelTimeProfile(graph, weights, from, to,
+                8 * HOUR, 8 * HOUR);
+        profile.execute();
+        Assert.assertEquals(1, profile.getResult().getBreakpointCount());
+        float expected = timeDependent(from, to, 8 * HOUR);
+        Assert.assertEquals(expected, profile.getResult().getTravelTime(8 * HOUR), expected * 1e-4f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWindow() {
+
+        GraphAlgorithms.createTravelTimeProfile(graph, weights, nodes.get(0), nodes.get(1), 9 * HOUR, 8 * HOUR);
+    }
+}
@@ -0,0 +1,364 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.stubs;
+
+import org.geolatte.graph.*;
+
+/**
+ * <p>
+ * Generates synthetic road networks for tests and benchmarks, so that performance can be measured reproducibly
+ * without real map data. The network is a perturbed square grid of intersections with a hierarchy of roads:
+ * </p>
+ * <ul>
+ * <li>local roads between grid neighbours, of which a fraction is missing (giving T-junctions and dead ends), a
+ * fraction is one-way, and a fraction has shape points (degree-2 nodes) and a curved, longer course;</li>
+ * <li>arterial roads along every {@link #setArterialSpacing(int) n-th} row and column, which are faster and never
+ * missing;</li>
+ * <li>highways along every {@link #setHighwaySpacing(int) m-th} row and column, with interchanges only at every
+ * {@value #INTERCHANGE_SPACING}-th intersection, and the highest speed.</li>
+ * </ul>
+ * <p>
+ * Besides the grid, the network has a number of small islands that are not connected to it. Every edge has two
+ * weights (see {@link #SCHEMA}): its length in meters and its travel time in seconds.
+ * </p>
+ * <p>
+ * The network is a pure function of its settings and the seed: every random choice is derived from the seed and the
+ * position of the node or road it concerns. It is streamed into a builder row by row, keeping only a few rows of
+ * nodes in memory, so networks with millions of edges can be generated directly into any {@link GraphBuilder}.
+ * Grid node (i, j) has id {@code i * gridSize + j}; island nodes and shape points get the following ids.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public final class RoadNetworkGenerator {
+
+    /**
+     * The weights of the generated edges: distance (meters) and travel time (seconds).
+     */
+    public static final WeightSchema SCHEMA = WeightSchema.of("distance", "time");
+
+    public static final int DISTANCE = 0;
+    public static final int TIME = 1;
+
+    /**
+     * The number of grid steps between two highway interchanges.
+     */
+    public static final int INTERCHANGE_SPACING = 5;
+
+    private static final float LOCAL_SPEED = 30 / 3.6f;
+    private static final float ARTERIAL_SPEED = 60 / 3.6f;
+    private static final float HIGHWAY_SPEED = 110 / 3.6f;
+
+    private static final int LOCAL = 0;
+    private static final int ARTERIAL = 1;
+    private static final int HIGHWAY = 2;
+
+    private final int gridSize;
+    private final long seed;
+    private float spacing = 100;
+    private int arterialSpacing = 10;
+    private int highwaySpacing = 50;
+    private float missingFraction = 0.2f;
+    private float oneWayFraction = 0.1f;
+    private float shapeFraction = 0.3f;
+    private int islandCount = 4;
+    private int islandSize = 3;
+
+    /**
+     * Creates a generator for a network of {@code gridSize * gridSize} intersections.
+     *
+     * @param gridSize The number of intersections along each side of the grid.
+     * @param seed     The seed of all random choices.
+     */
+    public RoadNetworkGenerator(int gridSize, long seed) {
+        if (gridSize < 2) {
+            throw new IllegalArgumentException("The grid needs at least 2 intersections per side");
+        }
+        this.gridSize = gridSize;
+        this.seed = seed;
+    }
+
+    /**
+     * Sets the distance between grid neighbours, in meters. Defaults to 100.
+     */
+    public void setSpacing(float spacing) {
+        this.spacing = spacing;
+    }
+
+    /**
+     * Sets the number of grid steps between arterial roads. Defaults to 10.
+     */
+    public void setArterialSpacing(int arterialSpacing) {
+        this.arterialSpacing = arterialSpacing;
+    }
+
+    /**
+     * Sets the number of grid steps between highways, best a multiple of {@value #INTERCHANGE_SPACING}. Defaults to 50.
+     */
+    public void setHighwaySpacing(int highwaySpacing) {
+        this.highwaySpacing = highwaySpacing;
+    }
+
+    /**
+     * Sets the fraction of local roads that is missing. Defaults to 0.2.
+     */
+    public void setMissingFraction(float missingFraction) {
+        this.missingFraction = missingFraction;
+    }
+
+    /**
+     * Sets the fraction of local roads that is one-way. Defaults to 0.1.
+     */
+    public void setOneWayFraction(float oneWayFraction) {
+        this.oneWayFraction = oneWayFraction;
+    }
+
+    /**
+     * Sets the fraction of local roads that has shape points. Defaults to 0.3.
+     */
+    public void setShapeFraction(float shapeFraction) {
+        this.shapeFraction = shapeFraction;
+    }
+
+    /**
+     * Sets the number and size of the islands that are not connected to the grid. Defaults to 4 islands of 3 by 3
+     * intersections.
+     */
+    public void setIslands(int count, int size) {
+        this.islandCount = count;
+        this.islandSize = size;
+    }
+
+    public int getGridSize() {
+        return gridSize;
+    }
+
+    /**
+     * @return The highest speed of the network in meters per second, e.g. to convert distances into a lower bound of
+     *         the travel time.
+     */
+    public float getMaxSpeed() {
+        return HIGHWAY_SPEED;
+    }
+
+    /**
+     * @return An extent that contains all nodes of the network.
+     */
+    public Extent getExtent() {
+        int columns = (islandCount + islandsPerColumn() - 1) / islandsPerColumn();
+        return new Extent(0, 0, (gridSize + 2 + columns * (islandSize + 1)) * spacing, (gridSize + 1) * spacing);
+    }
+
+    private int islandsPerColumn() {
+        return Math.max(1, gridSize / (islandSize + 1));
+    }
+
+    /**
+     * Creates grid node (i, j), equal to the node that is used in the generated edges if the factory creates equal
+     * nodes for equal ids.
+     *
+     * @param i       The row.
+     * @param j       The column.
+     * @param factory Creates the domain node.
+     * @param <N>     The domain node type.
+     * @return The node.
+     */
+    public <N> N createGridNode(int i, int j, NodeFactory<N> factory) {
+        return factory.createNode((long) i * gridSize + j,
+                (i + 1) * spacing + jitter(i, j, 1), (j + 1) * spacing + jitter(i, j, 2));
+    }
+
+    private float jitter(long i, long j, int salt) {
+        return (random(i, j, salt) - 0.5f) * 0.6f * spacing;
+    }
+
+    /**
+     * Generates the network into the given builder. The builder should store the weights of {@link #SCHEMA} and
+     * cover the extent of the network (see {@link #getExtent()}).
+     *
+     * @param builder The builder.
+     * @param factory Creates the domain nodes, every node is created once.
+     * @param <N>     The domain node type.
+     * @param <E>     The edge label type.
+     * @return The number of generated edges.
+     */
+    public <N extends Locatable, E> long generate(GraphBuilder<N, E> builder, NodeFactory<N> factory) {
+
+        Emitter<N, E> emitter = new Emitter<N, E>(builder, factory, (long) gridSize * gridSize + (long) islandCount * islandSize * islandSize);
+        int buffered = INTERCHANGE_SPACING + 1;
+        Object[][] rows = new Object[buffered][];
+        for (int i = 0; i < gridSize; i++) {
+            Object[] row = new Object[gridSize];
+            for (int j = 0; j < gridSize; j++) {
+                row[j] = createGridNode(i, j, factory);
+            }
+            rows[i % buffered] = row;
+            Object[] previous = i > 0 ? rows[(i - 1) % buffered] : null;
+            for (int j = 0; j < gridSize; j++) {
+                if (j + 1 < gridSize) {
+                    emitter.road(row[j], row[j + 1], roadClass(i), 2L * (i * (long) gridSize + j));
+                }
+                if (previous != null) {
+                    emitter.road(previous[j], row[j], roadClass(j), 2L * (i * (long) gridSize + j) + 1);
+                }
+            }
+            // highways: express edges between interchanges, along the row and the columns
+            if (i % highwaySpacing == 0) {
+                for (int j = 0; j + INTERCHANGE_SPACING < gridSize; j += INTERCHANGE_SPACING) {
+                    emitter.road(row[j], row[j + INTERCHANGE_SPACING], HIGHWAY, -1);
+                }
+            }
+            if (i >= INTERCHANGE_SPACING && i % INTERCHANGE_SPACING == 0) {
+                Object[] interchange = rows[(i - INTERCHANGE_SPACING) % buffered];
+                for (int j = 0; j < gridSize; j += highwaySpacing) {
+                    emitter.road(interchange[j], row[j], HIGHWAY, -1);
+                }
+            }
+        }
+
+        // islands: small grids of two-way roads beside the main grid
+        long id = (long) gridSize * gridSize;
+        for (int k = 0; k < islandCount; k++) {
+            float x0 = (gridSize + 2 + (k / islandsPerColumn()) * (islandSize + 1)) * spacing;
+            float y0 = ((k % islandsPerColumn()) * (islandSize + 1) + 1) * spacing;
+            Object[] island = new Object[islandSize * islandSize];
+            for (int n = 0; n < island.length; n++) {
+                island[n] = factory.createNode(id++, x0 + (n / islandSize) * spacing, y0 + (n % islandSize) * spacing);
+            }
+            for (int n = 0; n < island.length; n++) {
+                if (n % islandSize + 1 < islandSize) {
+                    emitter.road(island[n], island[n + 1], ARTERIAL, -1);
+                }
+                if (n + islandSize < island.length) {
+                    emitter.road(island[n], island[n + islandSize], ARTERIAL, -1);
+                }
+            }
+        }
+        return emitter.edgeCount;
+    }
+
+    private int roadClass(int line) {
+        if (line % highwaySpacing == 0 || line % arterialSpacing == 0) {
+            return ARTERIAL;
+        }
+        return LOCAL;
+    }
+
+    /**
+     * A uniform random number in [0, 1), derived from the seed and the given position.
+     */
+    private float random(long a, long b, int salt) {
+        long h = seed ^ (a * 0x9E3779B97F4A7C15L) ^ (b * 0xC2B2AE3D27D4EB4FL) ^ (salt * 0x165667B19E3779F9L);
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return (h >>> 40) / (float) (1 << 24);
+    }
+
+    /**
+     * Turns roads into edges, with shape points, one-way restrictions and weights.
+     */
+    private final class Emitter<N extends Locatable, E> {
+
+        private final GraphBuilder<N, E> builder;
+        private final NodeFactory<N> factory;
+        private final Weight weight = new Weight();
+        private long nextShapeId;
+        private long edgeCount;
+
+        private Emitter(GraphBuilder<N, E> builder, NodeFactory<N> factory, long firstShapeId) {
+            this.builder = builder;
+            this.factory = factory;
+            this.nextShapeId = firstShapeId;
+        }
+
+        /**
+         * Emits a road between two nodes.
+         *
+         * @param a         The start node.
+         * @param b         The end node.
+         * @param roadClass The road class.
+         * @param key       Identifies the local road for its random choices, -1 for other roads.
+         */
+        @SuppressWarnings("unchecked")
+        private void road(Object a, Object b, int roadClass, long key) {
+
+            N from = (N) a;
+            N to = (N) b;
+            float speed = roadClass == HIGHWAY ? HIGHWAY_SPEED : roadClass == ARTERIAL ? ARTERIAL_SPEED : LOCAL_SPEED;
+            int shapePoints = 0;
+            float curvature = 1.05f;
+            int direction = 0; // 0 both, 1 forward only, 2 backward only
+            if (key >= 0) {
+                if (random(key, 0, 3) < missingFraction) {
+                    return;
+                }
+                curvature = 1 + 0.3f * random(key, 0, 4);
+                if (random(key, 0, 5) < shapeFraction) {
+                    shapePoints = 1 + (int) (3 * random(key, 0, 6));
+                }
+                if (random(key, 0, 7) < oneWayFraction) {
+                    direction = random(key, 0, 8) < 0.5f ? 1 : 2;
+                }
+            }
+            N previous = from;
+            for (int s = 1; s <= shapePoints + 1; s++) {
+                N next = to;
+                if (s <= shapePoints) {
+                    float t = s / (float) (shapePoints + 1);
+                    float x = from.getX() + t * (to.getX() - from.getX()) + 0.2f * jitter(key, s, 9);
+                    float y = from.getY() + t * (to.getY() - from.getY()) + 0.2f * jitter(key, s, 10);
+                    next = factory.createNode(nextShapeId++, x, y);
+                }
+                float dx = next.getX() - previous.getX();
+                float dy = next.getY() - previous.getY();
+                weight.distance = (float) Math.sqrt(dx * dx + dy * dy) * curvature;
+                weight.time = weight.distance / speed;
+                if (direction != 2) {
+                    builder.addEdge(previous, next, weight);
+                    edgeCount++;
+                }
+                if (direction != 1) {
+                    builder.addEdge(next, previous, weight);
+                    edgeCount++;
+                }
+                previous = next;
+            }
+        }
+    }
+
+    /**
+     * The weights of the edge that is being emitted. Builders copy the weights when an edge is added.
+     */
+    private static final class Weight implements EdgeWeight {
+
+        private float distance;
+        private float time;
+
+        public float getValue(int weightIndex) {
+            return weightIndex == DISTANCE ? distance : time;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * This file is part of the GeoLatte project.
+ *
+ *     GeoLatte is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     GeoLatte is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with GeoLatte.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright (C) 2010 - 2011 and Ownership of code is shared by:
+ * Qmino bvba - Esperantolaan 4 - 3001 Heverlee  (http://www.qmino.com)
+ * Geovise bvba - Generaal Eisenhowerlei 9 - 2140 Antwerpen (http://www.geovise.com)
+ */
+
+package org.geolatte.stubs;
+
+import org.geolatte.graph.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ * <p>
+ * Tests the {@link RoadNetworkGenerator}: determinism and the properties of the generated networks.
+ * </p>
+ *
+ * @author <a href="http://www.qmino.com">Qmino bvba</a>
+ * @since SDK1.5
+ */
+public class RoadNetworkGeneratorTest {
+
+    private static final NodeFactory<MyLocatableNode> FACTORY = new NodeFactory<MyLocatableNode>() {
+        public MyLocatableNode createNode(long id, float x, float y) {
+            return new MyLocatableNode((int) id, x, y);
+        }
+    };
+
+    /**
+     * Records the generated edges as text.
+     */
+    private static class Recorder implements GraphBuilder<MyLocatableNode, String> {
+
+        private final List<String> edges = new ArrayList<String>();
+
+        public void addEdge(MyLocatableNode fromNode, MyLocatableNode toNode, EdgeWeight edgeWeight) {
+            edges.add(fromNode.getID() + "(" + fromNode.getX() + "," + fromNode.getY() + ")>" + toNode.getID()
+                    + ":" + edgeWeight.getValue(0) + ":" + edgeWeight.getValue(1));
+        }
+
+        public void addEdge(MyLocatableNode fromNode, MyLocatableNode toNode, EdgeWeight edgeWeight, String edgeLabel) {
+            addEdge(fromNode, toNode, edgeWeight);
+        }
+
+        public void setContractChains(boolean contract) {
+        }
+
+        public void setMinComponentSize(int size) {
+        }
+
+        public void setLabelSchema(LabelSchema<String> schema) {
+        }
+
+        public LocateableGraph<MyLocatableNode, String> build() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    @Test
+    public void testDeterministic() {
+
+        Recorder first = new Recorder();
+        Recorder second = new Recorder();
+        Recorder other = new Recorder();
+        long edgeCount = new RoadNetworkGenerator(30, 7).generate(first, FACTORY);
+        Assert.assertEquals(first.edges.size(), edgeCount);
+        new RoadNetworkGenerator(30, 7).generate(second, FACTORY);
+        new RoadNetworkGenerator(30, 8).generate(other, FACTORY);
+        Assert.assertEquals(first.edges, second.edges);
+        Assert.assertFalse(first.edges.equals(other.edges));
+    }
+
+    @Test
+    public void testProperties() throws Exception {
+
+        RoadNetworkGenerator generator = new RoadNetworkGenerator(60, 42);
+        GraphBuilder<MyLocatableNode, String> builder = Graphs.createCompressedGraphBuilder(generator.getExtent(), 100,
+                RoadNetworkGenerator.SCHEMA);
+        long edgeCount = generator.generate(builder, FACTORY);
+        LocateableGraph<MyLocatableNode, String> graph = builder.build();
+        Assert.assertEquals(edgeCount, graph.getEdgeWeights().getEdgeCount());
+
+        // degrees over the undirected neighbours, and one-way edges
+        int[] degrees = new int[8];
+        int oneWay = 0;
+        EdgeWeightTable weights = graph.getEdgeWeights();
+        for (int v = 0; v < graph.getNodeCount(); v++) {
+            InternalNode<MyLocatableNode, String> node = graph.getNode(v);
+            Set<Integer> neighbours = new HashSet<Integer>();
+            Set<Integer> incoming = new HashSet<Integer>();
+            EdgeIterator<MyLocatableNode, String> in = graph.getInComingEdges(node, null);
+            while (in.hasNext()) {
+                incoming.add(in.next().getId());
+            }
+            EdgeIterator<MyLocatableNode, String> out = graph.getOutGoingEdges(node, null);
+            while (out.hasNext()) {
+                int to = out.next().getId();
+                neighbours.add(to);
+                if (!incoming.contains(to)) {
+                    oneWay++;
+                }
+                float distance = weights.getValue(out.getEdgeId(), RoadNetworkGenerator.DISTANCE);
+                float time = weights.getValue(out.getEdgeId(), RoadNetworkGenerator.TIME);
+                Assert.assertTrue(distance > 0);
+                Assert.assertTrue(time >= distance / generator.getMaxSpeed() * 0.999f);
+            }
+            neighbours.addAll(incoming);
+            degrees[Math.min(7, neighbours.size())]++;
+        }
+        int nodeCount = graph.getNodeCount();
+        Assert.assertTrue("dead ends", degrees[1] > 0);
+        Assert.assertTrue("shape points", degrees[2] > nodeCount / 10);
+        Assert.assertTrue("T-junctions", degrees[3] > nodeCount / 10);
+        Assert.assertTrue("crossings", degrees[4] > nodeCount / 10);
+        Assert.assertTrue("interchanges", degrees[5] + degrees[6] > 0);
+        Assert.assertTrue("one-way edges", oneWay > edgeCount / 50);
+
+        // the islands are separate components
+        StronglyConnectedComponents components = graph.getComponents();
+        int islands = 0;
+        for (int c = 0; c < components.getComponentCount(); c++) {
+            if (components.getComponentSize(c) == 9) {
+                islands++;
+            }
+        }
+        Assert.assertEquals(4, islands);
+        Assert.assertTrue(components.getComponentSize(components.getLargestComponent()) > nodeCount * 9 / 10);
+    }
+}